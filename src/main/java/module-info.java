@@ -24,6 +24,8 @@ module net.darmo_creations.jenealogio2 {
 
   // Open to JUnit tests
   opens net.darmo_creations.jenealogio2.model;
+  opens net.darmo_creations.jenealogio2.model.consistency;
+  opens net.darmo_creations.jenealogio2.model.kinship;
   opens net.darmo_creations.jenealogio2.model.datetime;
   opens net.darmo_creations.jenealogio2.utils;
   opens net.darmo_creations.jenealogio2.utils.text_parser;
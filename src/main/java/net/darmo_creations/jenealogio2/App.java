@@ -90,6 +90,7 @@ public class App extends Application {
     config.setDateFormat(localConfig.dateFormat());
     config.setTimeFormat(localConfig.timeFormat());
     config.setShouldShowDeceasedPersonsBirthdays(localConfig.shouldShowDeceasedPersonsBirthdays());
+    config.setShouldDeduplicateFiles(localConfig.shouldDeduplicateFiles());
     controller.onConfigUpdate();
   }
 
@@ -112,7 +113,8 @@ public class App extends Application {
       LOGGER.info("Debug mode is ON");
     }
     hostServices = this.getHostServices();
-    treesMetadataManager = new TreesMetadataManager();
+    config.theme().preloadIcons();
+    treesMetadataManager = new TreesMetadataManager(config);
     controller = new AppController(stage, config);
     controller.show(treeName);
   }
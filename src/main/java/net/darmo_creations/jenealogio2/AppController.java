@@ -10,6 +10,7 @@ import javafx.stage.*;
 import net.darmo_creations.jenealogio2.config.*;
 import net.darmo_creations.jenealogio2.io.*;
 import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.model.kinship.*;
 import net.darmo_creations.jenealogio2.themes.*;
 import net.darmo_creations.jenealogio2.ui.*;
 import net.darmo_creations.jenealogio2.ui.components.*;
@@ -21,7 +22,9 @@ import org.jetbrains.annotations.*;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
+import java.util.stream.*;
 
 /**
  * Application’s main controller.
@@ -72,6 +75,18 @@ public class AppController {
 
   private final PersonDetailsView personDetailsView;
 
+  private Tab geneticFamilyTreeTab;
+  private Tab familyMemberFullViewTab;
+  private Tab statisticsTab;
+
+  /**
+   * Tabs whose content has to be refreshed when they are next selected,
+   * mapped to the function that refreshes them.
+   */
+  private final Map<Tab, Runnable> staleTabs = new HashMap<>();
+  private final CoalescingFamilyTreeListener familyTreeListener =
+      new CoalescingFamilyTreeListener(this::onFamilyTreeChanges);
+
   private final List<Person> selectionHistory = new ArrayList<>();
   private int selectionIndex = -1;
 
@@ -81,6 +96,8 @@ public class AppController {
   private final EditPersonDialog editPersonDialog;
   private final ManageDocumentsDialog editDocumentsDialog;
   private final BirthdaysDialog birthdaysDialog;
+  private final InconsistenciesDialog inconsistenciesDialog;
+  private final SelectPersonDialog selectPersonDialog;
   private final MapDialog mapDialog;
   private final SettingsDialog settingsDialog;
   private final AboutDialog aboutDialog;
@@ -135,8 +152,12 @@ public class AppController {
     theme.getStyleSheets().forEach(path -> scene.getStylesheets().add(path.toExternalForm()));
 
     this.birthdaysDialog = new BirthdaysDialog(config);
+    this.selectPersonDialog = new SelectPersonDialog(config);
     this.birthdaysDialog.personClickListeners()
         .add(event -> this.onPersonClick(event, null));
+    this.inconsistenciesDialog = new InconsistenciesDialog(config);
+    this.inconsistenciesDialog.personClickListeners()
+        .add(event -> this.onPersonClick(event, null));
 
     // Files drag-and-drop
     scene.setOnDragOver(event -> {
@@ -212,6 +233,12 @@ public class AppController {
     exportTreeMenuItem.setOnAction(event -> this.onExportTreeAction());
     fileMenu.getItems().add(exportTreeMenuItem);
 
+    final MenuItem restoreSnapshotMenuItem = new MenuItem();
+    restoreSnapshotMenuItem.setText(language.translate("menu.file.restore_snapshot"));
+    restoreSnapshotMenuItem.setGraphic(theme.getIcon(Icon.RESTORE_SNAPSHOT, Icon.Size.SMALL));
+    restoreSnapshotMenuItem.setOnAction(event -> this.onRestoreSnapshotAction());
+    fileMenu.getItems().add(restoreSnapshotMenuItem);
+
     fileMenu.getItems().add(new SeparatorMenuItem());
 
     this.saveMenuItem.setText(language.translate("menu.file.save"));
@@ -243,13 +270,13 @@ public class AppController {
     this.undoMenuItem.setText(language.translate("menu.edit.undo"));
     this.undoMenuItem.setGraphic(theme.getIcon(Icon.UNDO, Icon.Size.SMALL));
     this.undoMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.Z, KeyCombination.CONTROL_DOWN));
-    this.undoMenuItem.setDisable(true); // TEMP disabled until implemented
+    this.undoMenuItem.setOnAction(event -> this.onUndoAction());
     editMenu.getItems().add(this.undoMenuItem);
 
     this.redoMenuItem.setText(language.translate("menu.edit.redo"));
     this.redoMenuItem.setGraphic(theme.getIcon(Icon.REDO, Icon.Size.SMALL));
     this.redoMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.Y, KeyCombination.CONTROL_DOWN));
-    this.redoMenuItem.setDisable(true); // TEMP disabled until implemented
+    this.redoMenuItem.setOnAction(event -> this.onRedoAction());
     editMenu.getItems().add(this.redoMenuItem);
 
     editMenu.getItems().add(new SeparatorMenuItem());
@@ -353,7 +380,7 @@ public class AppController {
     calculateRelationshipsMenuItem.setText(language.translate("menu.tools.calculate_relationships"));
     calculateRelationshipsMenuItem.setGraphic(theme.getIcon(Icon.CALCULATE_RELATIONSHIPS, Icon.Size.SMALL));
     calculateRelationshipsMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.R, KeyCombination.CONTROL_DOWN));
-    calculateRelationshipsMenuItem.setDisable(true); // TEMP disabled until implemented
+    calculateRelationshipsMenuItem.setOnAction(event -> this.onCalculateRelationshipsAction());
     toolsMenu.getItems().add(calculateRelationshipsMenuItem);
 
     final MenuItem birthdaysMenuItem = new MenuItem();
@@ -370,13 +397,18 @@ public class AppController {
     mapMenuItem.setOnAction(event -> this.onShowMapDialog());
     toolsMenu.getItems().add(mapMenuItem);
 
+    final MenuItem geoCodePlacesMenuItem = new MenuItem();
+    geoCodePlacesMenuItem.setText(language.translate("menu.tools.geocode_places"));
+    geoCodePlacesMenuItem.setOnAction(event -> this.onGeoCodePlacesAction());
+    toolsMenu.getItems().add(geoCodePlacesMenuItem);
+
     toolsMenu.getItems().add(new SeparatorMenuItem());
 
     final MenuItem checkInconsistenciesMenuItem = new MenuItem();
     checkInconsistenciesMenuItem.setText(language.translate("menu.tools.check_inconsistencies"));
     checkInconsistenciesMenuItem.setGraphic(theme.getIcon(Icon.CHECK_INCONSISTENCIES, Icon.Size.SMALL));
     checkInconsistenciesMenuItem.setAccelerator(new KeyCodeCombination(KeyCode.I, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN));
-    checkInconsistenciesMenuItem.setDisable(true); // TEMP disabled until implemented
+    checkInconsistenciesMenuItem.setOnAction(event -> this.onShowInconsistenciesDialog());
     toolsMenu.getItems().add(checkInconsistenciesMenuItem);
 
     //
@@ -419,12 +451,12 @@ public class AppController {
 
     this.undoToolbarButton.setTooltip(new Tooltip(language.translate("toolbar.undo")));
     this.undoToolbarButton.setGraphic(theme.getIcon(Icon.UNDO, Icon.Size.BIG));
-    this.undoToolbarButton.setDisable(true); // TEMP disabled until implemented
+    this.undoToolbarButton.setOnAction(event -> this.onUndoAction());
     toolbar.getItems().add(this.undoToolbarButton);
 
     this.redoToolbarButton.setTooltip(new Tooltip(language.translate("toolbar.redo")));
     this.redoToolbarButton.setGraphic(theme.getIcon(Icon.REDO, Icon.Size.BIG));
-    this.redoToolbarButton.setDisable(true); // TEMP disabled until implemented
+    this.redoToolbarButton.setOnAction(event -> this.onRedoAction());
     toolbar.getItems().add(this.redoToolbarButton);
 
     toolbar.getItems().add(new Separator(Orientation.VERTICAL));
@@ -488,7 +520,7 @@ public class AppController {
     final Button calculateRelationshipsToolbarButton = new Button();
     calculateRelationshipsToolbarButton.setTooltip(new Tooltip(language.translate("toolbar.calculate_relationships")));
     calculateRelationshipsToolbarButton.setGraphic(theme.getIcon(Icon.CALCULATE_RELATIONSHIPS, Icon.Size.BIG));
-    calculateRelationshipsToolbarButton.setDisable(true); // TEMP disabled until implemented
+    calculateRelationshipsToolbarButton.setOnAction(event -> this.onCalculateRelationshipsAction());
     toolbar.getItems().add(calculateRelationshipsToolbarButton);
 
     final Button birthdaysToolbarButton = new Button();
@@ -508,7 +540,7 @@ public class AppController {
     final Button checkInconsistenciesToolbarButton = new Button();
     checkInconsistenciesToolbarButton.setTooltip(new Tooltip(language.translate("toolbar.check_inconsistencies")));
     checkInconsistenciesToolbarButton.setGraphic(theme.getIcon(Icon.CHECK_INCONSISTENCIES, Icon.Size.BIG));
-    checkInconsistenciesToolbarButton.setDisable(true); // TEMP disabled until implemented
+    checkInconsistenciesToolbarButton.setOnAction(event -> this.onShowInconsistenciesDialog());
     toolbar.getItems().add(checkInconsistenciesToolbarButton);
 
     return toolbar;
@@ -524,22 +556,30 @@ public class AppController {
 
     final TabPane tabPane = new TabPane();
     tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+    tabPane.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+      final Runnable refresh = this.staleTabs.remove(newValue);
+      if (refresh != null)
+        refresh.run();
+    });
     splitPane.getItems().add(tabPane);
 
     this.geneticFamilyTreePane.personClickListeners()
         .add(event -> this.onPersonClick(event, this.geneticFamilyTreePane));
     this.geneticFamilyTreePane.newParentClickListeners().add(this::onNewParentClick);
     this.geneticFamilyTreePane.setMaxHeight(this.config.maxTreeHeight());
-    tabPane.getTabs().add(new Tab(language.translate("main_view.tab.genetic_tree"), this.geneticFamilyTreePane));
+    this.geneticFamilyTreeTab = new Tab(language.translate("main_view.tab.genetic_tree"), this.geneticFamilyTreePane);
+    tabPane.getTabs().add(this.geneticFamilyTreeTab);
     this.geneticFamilyTreePane.setLegendVisible(config.shouldShowLegends());
 
     this.familyMemberFullViewPane.personClickListeners()
         .add(event -> this.onPersonClick(event, this.familyMemberFullViewPane));
     this.familyMemberFullViewPane.newParentClickListeners().add(this::onNewParentClick);
-    tabPane.getTabs().add(new Tab(language.translate("main_view.tab.person_relatives"), this.familyMemberFullViewPane));
+    this.familyMemberFullViewTab = new Tab(language.translate("main_view.tab.person_relatives"), this.familyMemberFullViewPane);
+    tabPane.getTabs().add(this.familyMemberFullViewTab);
     this.familyMemberFullViewPane.setLegendVisible(config.shouldShowLegends());
 
-    tabPane.getTabs().add(new Tab(language.translate("main_view.tab.statistics"), this.statisticsPanel));
+    this.statisticsTab = new Tab(language.translate("main_view.tab.statistics"), this.statisticsPanel);
+    tabPane.getTabs().add(this.statisticsTab);
 
     this.personDetailsView.personClickListeners()
         .add(event -> this.onPersonClick(event, null));
@@ -614,13 +654,17 @@ public class AppController {
    * @param directory The directory the tree has been loaded from.
    */
   private void setFamilyTree(@NotNull FamilyTree tree, @NotNull Path directory) {
+    if (this.familyTree != null)
+      this.familyTree.removeListener(this.familyTreeListener);
+    this.familyTreeListener.clear();
+    this.staleTabs.clear();
     this.familyTree = tree;
+    this.familyTree.addListener(this.familyTreeListener);
     this.familyMembersTreeView.setFamilyTree(this.familyTree);
     this.geneticFamilyTreePane.setFamilyTree(this.familyTree);
     this.familyMemberFullViewPane.setFamilyTree(this.familyTree);
     this.statisticsPanel.setFamilyTree(this.familyTree);
     this.personDetailsView.setPerson(null, this.familyTree);
-    this.familyMembersTreeView.refresh();
     this.geneticFamilyTreePane.refresh();
     this.familyMemberFullViewPane.refresh();
     this.selectionHistory.clear();
@@ -628,6 +672,12 @@ public class AppController {
     this.loadedFile = directory;
     this.unsavedChanges = false;
     App.treesMetadataManager().onTreeOpened(tree, directory.getFileName().toString(), this.config);
+    if (this.birthdaysDialog.isShowing())
+      this.birthdaysDialog.refresh(this.familyTree);
+    if (this.inconsistenciesDialog.isShowing())
+      this.inconsistenciesDialog.refresh(this.familyTree);
+    if (this.mapDialog.isShowing())
+      this.mapDialog.refresh(this.familyTree);
     this.updateUI();
   }
 
@@ -718,11 +768,18 @@ public class AppController {
     if (f.isEmpty())
       return;
     final String targetDir;
+    Path tempDir = null;
     try {
-      FileUtils.deleteRecursively(App.TEMP_DIR);
-      targetDir = FileUtils.unzip(f.get(), App.TEMP_DIR);
-      Files.move(App.TEMP_DIR.resolve(targetDir), App.USER_DATA_DIR.resolve(targetDir));
-      FileUtils.deleteRecursively(App.TEMP_DIR);
+      // Each import uses its own directory, other imports’ files are left alone
+      Files.createDirectories(App.TEMP_DIR);
+      tempDir = Files.createTempDirectory(App.TEMP_DIR, "import");
+      final Path dir = tempDir;
+      targetDir = new TreeProgressDialog(this.config, "import_tree", true)
+          .run(monitor -> FileUtils.unzip(f.get(), dir, monitor));
+      Files.move(tempDir.resolve(targetDir), App.USER_DATA_DIR.resolve(targetDir));
+    } catch (final CancellationException e) {
+      App.LOGGER.info("Cancelled");
+      return;
     } catch (final IOException e) {
       App.LOGGER.exception(e);
       Alerts.error(
@@ -733,6 +790,13 @@ public class AppController {
           new FormatArg("trace", e.getMessage())
       );
       return;
+    } finally {
+      if (tempDir != null)
+        try {
+          FileUtils.deleteRecursively(tempDir);
+        } catch (final IOException e) {
+          App.LOGGER.exception(e);
+        }
     }
     this.loadTree(targetDir);
   }
@@ -745,7 +809,12 @@ public class AppController {
     if (file.isEmpty())
       return;
     try {
-      FileUtils.zip(this.loadedFile, file.get());
+      new TreeProgressDialog(this.config, "export_tree", true).run(monitor -> {
+        this.familyTreeWriter.exportToZip(this.loadedFile, file.get(), this.config, monitor);
+        return null;
+      });
+    } catch (final CancellationException e) {
+      App.LOGGER.info("Cancelled");
     } catch (final IOException e) {
       App.LOGGER.exception(e);
       Alerts.error(
@@ -758,8 +827,64 @@ public class AppController {
     }
   }
 
+  /**
+   * Open a dialog to choose a previous version of the current tree, then restore and reload it.
+   * <p>
+   * Checks for any unsaved changes.
+   */
+  private void onRestoreSnapshotAction() {
+    if (this.unsavedChanges && !this.canProceedAfterOptionalSave()) return;
+    final List<Path> snapshots;
+    try {
+      snapshots = TreeFileManager.listSnapshots(this.loadedFile);
+    } catch (final IOException e) {
+      App.LOGGER.exception(e);
+      Alerts.error(
+          this.config,
+          "alert.load_error.header",
+          "alert.load_error.content",
+          "alert.load_error.title",
+          new FormatArg("trace", e.getMessage())
+      );
+      return;
+    }
+    if (snapshots.isEmpty()) {
+      Alerts.info(this.config, "alert.no_snapshots.header", null, null);
+      return;
+    }
+    final Optional<Path> snapshot = Alerts.chooser(
+        this.config,
+        "alert.restore_snapshot.header",
+        "alert.restore_snapshot.label",
+        "alert.restore_snapshot.title",
+        snapshots,
+        path -> TreeFileManager.snapshotDate(path)
+            .map(DateTimeUtils::format)
+            .orElseGet(() -> path.getFileName().toString())
+    );
+    if (snapshot.isEmpty())
+      return;
+    try {
+      this.familyTreeWriter.restoreSnapshot(this.loadedFile, snapshot.get());
+    } catch (final IOException e) {
+      App.LOGGER.exception(e);
+      Alerts.error(
+          this.config,
+          "alert.save_error.header",
+          "alert.save_error.content",
+          "alert.save_error.title",
+          new FormatArg("trace", e.getMessage())
+      );
+      return;
+    }
+    this.loadTree(this.loadedFile.getFileName().toString());
+  }
+
   /**
    * Load a tree from a directory.
+   * <p>
+   * The tree is read in a background thread while a progress dialog is shown.
+   * The current tree is only replaced once the new one has been fully loaded.
    *
    * @param directoryName The name of the directory to read.
    * @return The tree read from the file.
@@ -769,7 +894,8 @@ public class AppController {
     final FamilyTree familyTree;
     final Path path = App.USER_DATA_DIR.resolve(directoryName);
     try {
-      familyTree = new FamilyTreeReader().loadFromDirectory(path);
+      familyTree = new TreeProgressDialog(this.config, "load_tree", false)
+          .run(monitor -> new FamilyTreeReader().loadFromDirectory(path, monitor));
     } catch (final IOException e) {
       App.LOGGER.exception(e);
       Alerts.error(
@@ -799,13 +925,23 @@ public class AppController {
 
   /**
    * Save the current tree to a file.
+   * <p>
+   * The tree is written in a background thread while a progress dialog is shown.
+   * The user may cancel the operation, in which case the tree’s directory is left untouched.
+   * Only the changes made since the tree was last loaded or saved are written, when possible.
    *
    * @return True if save succeeded, false otherwise.
    */
   private boolean saveFile() {
     App.LOGGER.info("Saving tree to %s…".formatted(this.loadedFile));
     try {
-      this.familyTreeWriter.saveToDirectory(this.familyTree, this.loadedFile, this.config);
+      // The tree must only be updated from the FX thread, once the files have been written
+      new TreeProgressDialog(this.config, "save_tree", true)
+          .run(monitor -> this.familyTreeWriter.saveChangesToDirectory(this.familyTree, this.loadedFile, this.config, monitor))
+          .apply();
+    } catch (final CancellationException e) {
+      App.LOGGER.info("Cancelled");
+      return false;
     } catch (final IOException e) {
       App.LOGGER.exception(e);
       Alerts.error(
@@ -850,17 +986,69 @@ public class AppController {
     this.updateUI();
   }
 
+  /**
+   * Undo the most recent step of the current tree’s journal.
+   */
+  private void onUndoAction() {
+    final ChangeJournal journal = this.familyTree.journal();
+    if (journal.canUndo())
+      this.replayJournal(journal::undo);
+  }
+
+  /**
+   * Redo the most recently undone step of the current tree’s journal.
+   */
+  private void onRedoAction() {
+    final ChangeJournal journal = this.familyTree.journal();
+    if (journal.canRedo())
+      this.replayJournal(journal::redo);
+  }
+
+  /**
+   * Undo or redo a step of the current tree’s journal.
+   *
+   * @param replay The action that undoes or redoes the step.
+   */
+  private void replayJournal(@NotNull Runnable replay) {
+    try {
+      replay.run();
+    } catch (final RuntimeException e) {
+      // The journal has cleared itself, the views still have to reflect the partially reverted changes
+      App.LOGGER.exception(e);
+    }
+    // Views have to be up-to-date before refreshing the details view
+    this.familyTreeListener.flush();
+    // Notes, sources and documents are not tracked by the tree
+    this.personDetailsView.refresh();
+    this.unsavedChanges = true;
+    this.updateUI();
+  }
+
+  /**
+   * Show the given dialog and wait for it to be closed.
+   * All changes made to the current tree while the dialog is showing are recorded as a single step of its journal.
+   *
+   * @param dialog The dialog to show.
+   * @param <T>    Type of the dialog’s result.
+   * @return The dialog’s result.
+   */
+  private <T> Optional<T> showAndWaitAsStep(@NotNull Dialog<T> dialog) {
+    final ChangeJournal journal = this.familyTree.journal();
+    journal.beginStep();
+    try {
+      return dialog.showAndWait();
+    } finally {
+      journal.endStep();
+    }
+  }
+
   /**
    * Set the selected person as the root of the current tree.
    */
   private void onSetAsRootAction() {
     this.getSelectedPerson().ifPresent(root -> {
-      this.familyTree.setRoot(root);
+      this.familyTree.journal().runAsStep(() -> this.familyTree.setRoot(root));
       this.unsavedChanges = true;
-      this.geneticFamilyTreePane.refresh();
-      this.familyMemberFullViewPane.refresh();
-      this.familyMembersTreeView.refresh();
-      this.personDetailsView.refresh();
       this.updateUI();
     });
   }
@@ -913,7 +1101,7 @@ public class AppController {
       selectedObject = this.getSelectedPerson();
     selectedObject.ifPresent(o -> {
       this.editDocumentsDialog.setObject(o, this.familyTree);
-      this.editDocumentsDialog.showAndWait().ifPresent(this::onDocumentsUpdate);
+      this.showAndWaitAsStep(this.editDocumentsDialog).ifPresent(this::onDocumentsUpdate);
     });
   }
 
@@ -938,17 +1126,7 @@ public class AppController {
       final boolean delete = Alerts.confirmation(
           this.config, "alert.delete_person.header", null, "alert.delete_person.title");
       if (delete) {
-        this.familyTree.removePerson(person);
-
-        // Update UI
-        this.geneticFamilyTreePane.refresh();
-        this.familyMemberFullViewPane.refresh();
-        this.familyMembersTreeView.refresh();
-        this.statisticsPanel.refresh();
-        if (this.personDetailsView.person() == person)
-          this.personDetailsView.setPerson(null, this.familyTree);
-        else
-          this.personDetailsView.refresh();
+        this.familyTree.journal().runAsStep(() -> this.familyTree.removePerson(person));
         this.unsavedChanges = true;
         this.updateUI();
       }
@@ -983,10 +1161,72 @@ public class AppController {
     this.openEditPersonDialog(null, childInfo, null, EditPersonDialog.TAB_PROFILE);
   }
 
+  /**
+   * Update the views affected by the given changes made to the current tree.
+   * Tabs that are not currently visible are only refreshed once selected.
+   *
+   * @param changes The changes, in the order they were made.
+   */
+  private void onFamilyTreeChanges(@NotNull Set<FamilyTreeChange> changes) {
+    boolean personsChanged = false;
+    boolean lifeEventsChanged = false;
+    for (final FamilyTreeChange change : changes) {
+      if (change instanceof FamilyTreeChange.PersonAdded c) {
+        this.familyMembersTreeView.updatePerson(c.person());
+        personsChanged = true;
+      } else if (change instanceof FamilyTreeChange.PersonRemoved c) {
+        this.familyMembersTreeView.removePerson(c.person());
+        if (this.personDetailsView.person() == c.person())
+          this.personDetailsView.setPerson(null, this.familyTree);
+        personsChanged = true;
+      } else if (change instanceof FamilyTreeChange.PersonRenamed c) {
+        this.familyMembersTreeView.updatePerson(c.person());
+        personsChanged = true;
+      } else if (change instanceof FamilyTreeChange.PersonUpdated)
+        personsChanged = true;
+      else if (change instanceof FamilyTreeChange.RootChanged c) {
+        if (c.oldRoot() != null)
+          this.familyMembersTreeView.updatePerson(c.oldRoot());
+        this.familyMembersTreeView.updatePerson(c.newRoot());
+      } else if (change instanceof FamilyTreeChange.LifeEventChanged)
+        lifeEventsChanged = true;
+    }
+
+    this.refreshTab(this.geneticFamilyTreeTab, this.geneticFamilyTreePane::refresh);
+    this.refreshTab(this.familyMemberFullViewTab, this.familyMemberFullViewPane::refresh);
+    this.refreshTab(this.statisticsTab, this.statisticsPanel::refresh);
+    this.personDetailsView.refresh();
+    // Hidden dialogs are refreshed when shown
+    if (this.birthdaysDialog.isShowing() && (personsChanged || lifeEventsChanged))
+      this.birthdaysDialog.refresh(this.familyTree);
+    // Only persons and events that changed are checked again
+    if (this.inconsistenciesDialog.isShowing())
+      this.inconsistenciesDialog.refresh(this.familyTree);
+    if (this.mapDialog.isShowing() && lifeEventsChanged)
+      this.mapDialog.refresh(this.familyTree);
+
+    this.unsavedChanges = true;
+    this.updateUI();
+  }
+
+  /**
+   * Refresh the content of the given tab if it is selected, otherwise defer it until the tab is selected.
+   *
+   * @param tab     A tab.
+   * @param refresh The function that refreshes the tab’s content.
+   */
+  private void refreshTab(@NotNull Tab tab, @NotNull Runnable refresh) {
+    if (tab.isSelected())
+      refresh.run();
+    else
+      this.staleTabs.put(tab, refresh);
+  }
+
   /**
    * Called whenever a document is edited in the {@link #personDetailsView}.
    */
   private void onDocumentEdited() {
+    this.familyTree.markGlobalDataModified();
     this.unsavedChanges = true;
     this.updateUI();
   }
@@ -1054,11 +1294,20 @@ public class AppController {
     this.editRegistriesDialog.refresh(this.familyTree);
     final Optional<ButtonType> result = this.editRegistriesDialog.showAndWait();
     if (result.isPresent() && !result.get().getButtonData().isCancelButton()) {
+      // Registries are not journaled, recorded changes may reference entries that were removed
+      this.familyTree.journal().clear();
+      this.familyTree.markGlobalDataModified();
+      // Changes to life event types are not reported to the checker
+      this.familyTree.consistencyChecker().invalidate();
       this.familyMembersTreeView.refresh();
       this.geneticFamilyTreePane.refresh();
       this.familyMemberFullViewPane.refresh();
       this.statisticsPanel.refresh();
       this.personDetailsView.refresh();
+      if (this.inconsistenciesDialog.isShowing())
+        this.inconsistenciesDialog.refresh(this.familyTree);
+      if (this.mapDialog.isShowing())
+        this.mapDialog.refresh(this.familyTree);
       this.unsavedChanges = true;
       this.updateUI();
     }
@@ -1069,15 +1318,14 @@ public class AppController {
    */
   private void onEditTreeDocumentsAction() {
     this.editDocumentsDialog.setObject(null, this.familyTree);
-    this.editDocumentsDialog.showAndWait().ifPresent(this::onDocumentsUpdate);
+    this.showAndWaitAsStep(this.editDocumentsDialog).ifPresent(this::onDocumentsUpdate);
   }
 
   private void onDocumentsUpdate(@NotNull ManageDocumentsDialog.Result result) {
     if (result.targetUpdated() || result.anyDocumentUpdated()) {
-      this.familyMembersTreeView.refresh();
-      this.geneticFamilyTreePane.refresh();
-      this.familyMemberFullViewPane.refresh();
-      this.statisticsPanel.refresh();
+      // Descriptions and dates of documents are not tracked by the tree
+      if (result.anyDocumentUpdated())
+        this.familyTree.markGlobalDataModified();
       this.personDetailsView.refresh();
       this.unsavedChanges = true;
       this.updateUI();
@@ -1101,11 +1349,10 @@ public class AppController {
     if (parents != null && !parents.isEmpty())
       this.editPersonDialog.setParents(parents);
     this.editPersonDialog.selectTab(tabIndex);
-    this.editPersonDialog.showAndWait().ifPresent(editedPerson -> {
-      this.familyMembersTreeView.refresh();
-      this.geneticFamilyTreePane.refresh();
-      this.familyMemberFullViewPane.refresh();
-      this.statisticsPanel.refresh();
+    this.showAndWaitAsStep(this.editPersonDialog).ifPresent(editedPerson -> {
+      // Views have to be up-to-date before selecting the new person
+      this.familyTreeListener.flush();
+      // Notes and sources are not tracked by the tree
       this.personDetailsView.refresh();
       if (person == null && childInfo != null && childInfo.isEmpty())
         this.onPersonClick(new PersonClickedEvent(editedPerson, PersonClickedEvent.Action.SET_AS_TARGET), null);
@@ -1130,11 +1377,6 @@ public class AppController {
       title += " (%s)".formatted(fileName);
     this.stage.setTitle(title);
 
-    if (this.birthdaysDialog.isShowing())
-      this.birthdaysDialog.refresh(this.familyTree);
-    if (this.mapDialog.isShowing())
-      this.mapDialog.refresh(this.familyTree);
-
     final Optional<Person> selectedPerson = this.getSelectedPerson();
     final boolean selection = selectedPerson.isPresent();
     final boolean hasAnyParents = selection && selectedPerson.get().hasAnyParents();
@@ -1157,6 +1399,8 @@ public class AppController {
     }
 
     this.saveMenuItem.setDisable(!this.unsavedChanges);
+    this.undoMenuItem.setDisable(!this.familyTree.journal().canUndo());
+    this.redoMenuItem.setDisable(!this.familyTree.journal().canRedo());
     this.setAsRootMenuItem.setDisable(!selection || selectedIsRoot);
     this.editPersonMenuItem.setDisable(!selection);
     this.removePersonMenuItem.setDisable(!selection || selectedIsRoot);
@@ -1167,6 +1411,8 @@ public class AppController {
     this.editDocumentsMenuItem.setDisable(!selection);
 
     this.saveToolbarButton.setDisable(!this.unsavedChanges);
+    this.undoToolbarButton.setDisable(!this.familyTree.journal().canUndo());
+    this.redoToolbarButton.setDisable(!this.familyTree.journal().canRedo());
     this.previousSelectionToolbarButton.setDisable(this.selectionIndex <= 0);
     this.nextSelectionToolbarButton.setDisable(this.selectionIndex == -1 || this.selectionIndex == this.selectionHistory.size() - 1);
     this.setAsRootToolbarButton.setDisable(!selection || selectedIsRoot);
@@ -1188,6 +1434,52 @@ public class AppController {
     this.familyMemberFullViewPane.setLegendVisible(show);
   }
 
+  /**
+   * Ask the user to select a person then show all their relationships
+   * with the currently selected person, or the tree’s root if none is selected.
+   */
+  private void onCalculateRelationshipsAction() {
+    final Optional<Person> selectedPerson = this.getSelectedPerson().or(this.familyTree::root);
+    if (selectedPerson.isEmpty())
+      return;
+    final Person person1 = selectedPerson.get();
+    this.selectPersonDialog.updatePersonList(this.familyTree, List.of(person1));
+    this.selectPersonDialog.showAndWait().ifPresent(person2 -> {
+      final Language language = this.config.language();
+      final List<Relationship> relationships = this.familyTree.kinship().relationships(person1, person2);
+      if (relationships.isEmpty()) {
+        Alerts.info(
+            this.config,
+            "alert.no_relationships.header",
+            null,
+            "alert.relationships.title",
+            new FormatArg("person1", person1),
+            new FormatArg("person2", person2)
+        );
+        return;
+      }
+      final StringJoiner joiner = new StringJoiner("\n");
+      for (final Relationship relationship : relationships)
+        joiner.add(language.translate(
+            "alert.relationships.item",
+            new FormatArg("relationship", relationship.name(language)),
+            new FormatArg("ancestors", relationship.commonAncestors().stream()
+                .map(Person::toString)
+                .sorted()
+                .collect(Collectors.joining(", ")))
+        ));
+      Alerts.info(
+          this.config,
+          "alert.relationships.header",
+          "alert.relationships.content",
+          "alert.relationships.title",
+          new FormatArg("person1", person1),
+          new FormatArg("person2", person2),
+          new FormatArg("relationships", joiner.toString())
+      );
+    });
+  }
+
   /**
    * Open birthdays dialog.
    */
@@ -1198,6 +1490,16 @@ public class AppController {
     this.birthdaysDialog.show();
   }
 
+  /**
+   * Open inconsistencies dialog.
+   */
+  private void onShowInconsistenciesDialog() {
+    if (this.inconsistenciesDialog.isShowing())
+      return;
+    this.inconsistenciesDialog.refresh(this.familyTree);
+    this.inconsistenciesDialog.show();
+  }
+
   /**
    * Open map dialog.
    */
@@ -1208,6 +1510,41 @@ public class AppController {
     this.mapDialog.show();
   }
 
+  /**
+   * Look up the coordinates of all places of the current tree that do not have any, in a background thread.
+   * Found coordinates are set on all life events that take place at the same address, as a single undoable step.
+   */
+  private void onGeoCodePlacesAction() {
+    final List<String> addresses = this.familyTree.lifeEvents().stream()
+        .flatMap(lifeEvent -> lifeEvent.place().stream())
+        .filter(place -> place.latLon().isEmpty())
+        .map(Place::address)
+        .toList();
+    if (addresses.isEmpty())
+      return;
+    final Map<String, LatLon> results;
+    try {
+      results = new TreeProgressDialog(this.config, "geocode_places", true)
+          .run(monitor -> GeoCoder.instance().geoCodeAll(addresses, monitor));
+    } catch (final CancellationException e) {
+      App.LOGGER.info("Cancelled");
+      return;
+    } catch (final IOException e) {
+      App.LOGGER.exception(e);
+      return;
+    }
+    if (results.isEmpty())
+      return;
+    this.familyTree.journal().runAsStep(() -> {
+      for (final LifeEvent lifeEvent : this.familyTree.lifeEvents())
+        lifeEvent.place()
+            .filter(place -> place.latLon().isEmpty() && results.containsKey(place.address()))
+            .ifPresent(place -> lifeEvent.setPlace(new Place(place.address(), results.get(place.address()))));
+    });
+    this.unsavedChanges = true;
+    this.updateUI();
+  }
+
   /**
    * Open settings dialog.
    */
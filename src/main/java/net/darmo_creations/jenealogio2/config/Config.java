@@ -39,6 +39,7 @@ public final class Config implements Cloneable {
   private static final String TIME_FORMAT_OPTION = "time_format";
   private static final String SHOW_DECEASED_BIRTHDAYS_OPTION = "show_deceased_birthdays";
   private static final String SHOW_LEGENDS = "show_legends";
+  private static final String DEDUPLICATE_FILES_OPTION = "deduplicate_files";
 
   /**
    * Load the configuration from the settings file.
@@ -83,6 +84,7 @@ public final class Config implements Cloneable {
     // Default to true if option is not present
     final boolean showLegends = ini.get(APP_SECTION, SHOW_LEGENDS) == null ||
         ini.get(APP_SECTION, SHOW_LEGENDS, boolean.class);
+    final boolean deduplicateFiles = ini.get(APP_SECTION, DEDUPLICATE_FILES_OPTION, boolean.class);
 
     try {
       return new Config(
@@ -94,6 +96,7 @@ public final class Config implements Cloneable {
           timeFormat,
           showDeceasedPersonsBirthdays,
           showLegends,
+          deduplicateFiles,
           debug
       );
     } catch (final IllegalArgumentException e) {
@@ -162,6 +165,7 @@ public final class Config implements Cloneable {
   private TimeFormat timeFormat;
   private boolean showDeceasedPersonsBirthdays;
   private boolean showLegends;
+  private boolean deduplicateFiles;
 
   /**
    * Create a configuration object.
@@ -173,6 +177,7 @@ public final class Config implements Cloneable {
    * @param dateFormat           Date format.
    * @param timeFormat           Time format.
    * @param showLegends          Whether to show the legends in tree views.
+   * @param deduplicateFiles     Whether to store the files attached to trees only once per content.
    * @param debug                Whether to run the app in debug mode.
    */
   public Config(
@@ -184,6 +189,7 @@ public final class Config implements Cloneable {
       @NotNull TimeFormat timeFormat,
       boolean showDeceasedPersonsBirthdays,
       boolean showLegends,
+      boolean deduplicateFiles,
       boolean debug
   ) {
     this.language = Objects.requireNonNull(language);
@@ -194,6 +200,7 @@ public final class Config implements Cloneable {
     this.setTimeFormat(timeFormat);
     this.setShouldShowDeceasedPersonsBirthdays(showDeceasedPersonsBirthdays);
     this.setShouldShowLegends(showLegends);
+    this.setShouldDeduplicateFiles(deduplicateFiles);
     this.debug = debug;
   }
 
@@ -277,6 +284,23 @@ public final class Config implements Cloneable {
     this.showLegends = showLegends;
   }
 
+  /**
+   * Whether the files attached to trees should be stored only once per content.
+   * Only applies to files imported while this option is enabled.
+   */
+  public boolean shouldDeduplicateFiles() {
+    return this.deduplicateFiles;
+  }
+
+  /**
+   * Set whether the files attached to trees should be stored only once per content.
+   *
+   * @param deduplicateFiles True to enable deduplication, false to disable it.
+   */
+  public void setShouldDeduplicateFiles(boolean deduplicateFiles) {
+    this.deduplicateFiles = deduplicateFiles;
+  }
+
   /**
    * Whether the app is in debug mode.
    */
@@ -300,6 +324,7 @@ public final class Config implements Cloneable {
         this.timeFormat,
         this.showDeceasedPersonsBirthdays,
         this.showLegends,
+        this.deduplicateFiles,
         this.debug
     );
   }
@@ -320,6 +345,7 @@ public final class Config implements Cloneable {
         this.timeFormat,
         this.showDeceasedPersonsBirthdays,
         this.showLegends,
+        this.deduplicateFiles,
         this.debug
     );
   }
@@ -352,6 +378,7 @@ public final class Config implements Cloneable {
     ini.put(APP_SECTION, TIME_FORMAT_OPTION, this.timeFormat.ordinal());
     ini.put(APP_SECTION, SHOW_DECEASED_BIRTHDAYS_OPTION, this.showDeceasedPersonsBirthdays);
     ini.put(APP_SECTION, SHOW_LEGENDS, this.showLegends);
+    ini.put(APP_SECTION, DEDUPLICATE_FILES_OPTION, this.deduplicateFiles);
     ini.store();
     App.LOGGER.info("Done.");
   }
@@ -371,6 +398,7 @@ public final class Config implements Cloneable {
         && this.dateFormat == that.dateFormat
         && this.timeFormat == that.timeFormat
         && this.showLegends == that.showLegends
+        && this.deduplicateFiles == that.deduplicateFiles
         && this.showDeceasedPersonsBirthdays == that.showDeceasedPersonsBirthdays;
   }
 
@@ -385,6 +413,7 @@ public final class Config implements Cloneable {
         this.dateFormat,
         this.timeFormat,
         this.showLegends,
+        this.deduplicateFiles,
         this.showDeceasedPersonsBirthdays
     );
   }
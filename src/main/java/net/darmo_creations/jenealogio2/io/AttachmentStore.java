@@ -0,0 +1,199 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.*;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A content-addressed store for the files attached to a tree.
+ * <p>
+ * Each distinct content is stored once in the {@link TreeFileManager#STORE_DIR} directory,
+ * under {@code <first 2 hex digits>/<SHA-256 hash>}. Files of the files directory are hard links
+ * to the stored contents, so that a file attached several times under different names
+ * only takes disk space once, and importing it again only creates a link.
+ * As links share their contents, files of the files directory must never be modified in place.
+ * If one is nonetheless, the stored contents are checked against their hash before being linked again
+ * and are stored anew if they no longer match it.
+ * <p>
+ * The tree file still references files by their name in the files directory,
+ * trees whose files are not stored can be read and written the same way.
+ * <p>
+ * All accesses to the store must be synchronized on {@link TreeDeltaJournal#LOCK}.
+ */
+final class AttachmentStore {
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Link the given file into the given target, storing its contents first if they are not already stored.
+   * The source file itself is never linked, as it may be modified by the user after the import.
+   * Stored contents that no longer match their hash are replaced, the files that were linked to them
+   * keep their modified contents.
+   * If the file system does not support links, the contents are copied.
+   *
+   * @param directory A tree’s directory.
+   * @param source    The file to import.
+   * @param target    The file to create.
+   * @throws IOException If any I/O error occurs.
+   */
+  static void link(@NotNull Path directory, @NotNull Path source, @NotNull Path target) throws IOException {
+    final String hash = hash(source);
+    final Path objectDir = directory.resolve(TreeFileManager.STORE_DIR).resolve(hash.substring(0, 2));
+    final Path object = objectDir.resolve(hash);
+    // Files of the files directory may have been modified in place by other applications
+    if (!Files.exists(object) || !hash(object).equals(hash)) {
+      Files.createDirectories(objectDir);
+      final Path tempFile = objectDir.resolve(hash + TEMP_FILE_EXTENSION);
+      try {
+        Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.sync(tempFile);
+        FileUtils.replaceFile(tempFile, object);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+    FileUtils.linkOrCopy(object, target);
+  }
+
+  /**
+   * Delete the stored contents that are no longer linked from the files directory,
+   * along with any temporary file left by an interrupted {@link #link(Path, Path, Path)}.
+   * If the file system cannot tell whether two files are links to the same contents,
+   * the contents of the files directory are compared to the stored ones instead.
+   *
+   * @param directory A tree’s directory.
+   * @throws IOException If any I/O error occurs.
+   */
+  static void collectGarbage(@NotNull Path directory) throws IOException {
+    collectGarbage(directory, false);
+  }
+
+  /**
+   * Delete the stored contents that are no longer linked from the files directory,
+   * along with any temporary file left by an interrupted {@link #link(Path, Path, Path)}.
+   *
+   * @param directory       A tree’s directory.
+   * @param compareContents Whether to compare the contents of the files directory to the stored ones
+   *                        rather than the files’ keys, regardless of the file system’s support for them.
+   * @throws IOException If any I/O error occurs.
+   */
+  static void collectGarbage(@NotNull Path directory, boolean compareContents) throws IOException {
+    final Path storeDir = directory.resolve(TreeFileManager.STORE_DIR);
+    if (!Files.isDirectory(storeDir))
+      return;
+    final List<Path> objectDirs = new ArrayList<>();
+    final List<Path> objects = new ArrayList<>();
+    try (final var dirs = Files.newDirectoryStream(storeDir, Files::isDirectory)) {
+      for (final Path objectDir : dirs) {
+        objectDirs.add(objectDir);
+        try (final var files = Files.newDirectoryStream(objectDir)) {
+          files.forEach(objects::add);
+        }
+      }
+    }
+    final List<Path> files = new ArrayList<>();
+    final Path filesDir = directory.resolve(TreeFileManager.FILES_DIR);
+    if (Files.isDirectory(filesDir))
+      try (final var dirFiles = Files.newDirectoryStream(filesDir, Files::isRegularFile)) {
+        dirFiles.forEach(files::add);
+      }
+
+    final Map<Path, Object> objectKeys = compareContents ? null : fileKeys(objects);
+    final Map<Path, Object> fileKeys = objectKeys != null ? fileKeys(files) : null;
+    final Predicate<Path> isLinked;
+    if (fileKeys != null) {
+      final Set<Object> linkedKeys = new HashSet<>(fileKeys.values());
+      isLinked = object -> linkedKeys.contains(objectKeys.get(object));
+    } else {
+      final Set<String> linkedHashes = hashes(files, objects);
+      isLinked = object -> linkedHashes.contains(object.getFileName().toString());
+    }
+    for (final Path object : objects)
+      if (!isLinked.test(object)) {
+        App.LOGGER.info("Deleting unused stored file " + object);
+        Files.delete(object);
+      }
+    for (final Path objectDir : objectDirs)
+      try {
+        Files.delete(objectDir);
+      } catch (final DirectoryNotEmptyException e) {
+        // Still in use
+      }
+  }
+
+  /**
+   * Return the keys of the given files.
+   *
+   * @return The key of each file, or null if the file system does not provide them, as on Windows.
+   */
+  private static @Nullable Map<Path, Object> fileKeys(final @NotNull List<Path> files) throws IOException {
+    final Map<Path, Object> keys = new HashMap<>();
+    for (final Path file : files) {
+      final Object key = fileKey(file);
+      if (key == null)
+        return null;
+      keys.put(file, key);
+    }
+    return keys;
+  }
+
+  private static Object fileKey(@NotNull Path file) throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+  }
+
+  /**
+   * Return the hashes of the given files. Only files that have the same size as a stored file are hashed,
+   * the others cannot share their contents.
+   *
+   * @param files   The files to hash.
+   * @param objects The stored files.
+   */
+  private static Set<String> hashes(final @NotNull List<Path> files, final @NotNull List<Path> objects)
+      throws IOException {
+    final Set<Long> sizes = new HashSet<>();
+    for (final Path object : objects)
+      sizes.add(Files.size(object));
+    final Set<String> hashes = new HashSet<>();
+    for (final Path file : files)
+      if (sizes.contains(Files.size(file)))
+        hashes.add(hash(file));
+    return hashes;
+  }
+
+  /**
+   * Compute the hash of the given file’s contents.
+   *
+   * @param file A file.
+   * @return The hexadecimal representation of the hash.
+   * @throws IOException If any I/O error occurs.
+   */
+  static String hash(@NotNull Path file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new RuntimeException(e);
+    }
+    try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      while (channel.read(buffer) >= 0) {
+        digest.update(buffer.flip());
+        buffer.clear();
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private AttachmentStore() {
+  }
+}
@@ -1,20 +1,19 @@
 package net.darmo_creations.jenealogio2.io;
 
-import javafx.scene.image.*;
 import net.darmo_creations.jenealogio2.*;
 import net.darmo_creations.jenealogio2.model.*;
-import net.darmo_creations.jenealogio2.model.datetime.*;
 import org.jetbrains.annotations.*;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Loads {@link FamilyTree}s from the file system. See {@link TreeFileManager} for more details.
  */
 public class FamilyTreeReader extends TreeFileManager {
-  private final TreeXMLReader treeXMLReader = new TreeXMLReader();
+  private final TreeXMLReader treeXMLReader = new TreeXMLReader(TreeXMLReader.Mode.STREAMING);
 
   /**
    * Load a family tree from a directory.
@@ -24,36 +23,70 @@ public class FamilyTreeReader extends TreeFileManager {
    * @throws IOException If any error occurs.
    */
   public FamilyTree loadFromDirectory(@NotNull Path directory) throws IOException {
+    return this.loadFromDirectory(directory, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Load a family tree from a directory.
+   * <p>
+   * The deltas of the tree’s journal, if any, are applied to the tree read from the tree file.
+   * File operations of an interrupted save are completed first.
+   *
+   * @param directory The directory to read.
+   * @param monitor   A monitor to report progress to.
+   * @return A new {@link FamilyTree} object.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public FamilyTree loadFromDirectory(@NotNull Path directory, @NotNull ProgressMonitor monitor) throws IOException {
+    // Prevent the journal from being compacted until the tree file has been read
+    synchronized (TreeDeltaJournal.LOCK) {
+      try {
+        StagedFileOperations.recover(directory);
+      } catch (final IOException e) {
+        // Some files may be missing but the tree itself can still be loaded
+        App.LOGGER.exception(e);
+      }
+      return this.loadFromDirectory(directory, TreeDeltaJournal.read(directory), monitor);
+    }
+  }
+
+  /**
+   * Load a family tree from a directory then apply the given deltas to it.
+   *
+   * @param directory The directory to read.
+   * @param journal   The deltas to apply, read from the directory’s journal.
+   * @param monitor   A monitor to report progress to.
+   * @return A new {@link FamilyTree} object without any tracked modification.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  FamilyTree loadFromDirectory(
+      @NotNull Path directory,
+      final @NotNull TreeDeltaJournal.Contents journal,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
     final Path filesDir = directory.resolve(FILES_DIR);
     final FamilyTree familyTree;
-    try (final var in = new FileInputStream(directory.resolve(TREE_FILE_NAME).toFile())) {
+    try (final var in = Files.newInputStream(directory.resolve(TREE_FILE_NAME))) {
       familyTree = this.treeXMLReader.readFromStream(
           in,
           (name, desc, date) -> {
             final Path path = filesDir.resolve(name);
             final Optional<String> ext = FileUtils.splitExtension(name).extension();
             if (ext.isPresent() && Picture.FILE_EXTENSIONS.contains(ext.get().toLowerCase()))
-              return this.readImageFile(path, desc, date);
+              return new Picture(path, desc, date);
             return new AttachedDocument(path, desc, date);
-          }
+          },
+          monitor
       );
+      this.treeXMLReader.applyDeltas(journal.deltas(), familyTree);
+    } catch (final CancellationException e) {
+      throw e;
     } catch (final RuntimeException e) {
       throw new IOException(e);
     }
+    familyTree.clearModifications();
     return familyTree;
   }
-
-  private Picture readImageFile(
-      @NotNull Path filePath,
-      String description,
-      DateTime date
-  ) {
-    Image image = null;
-    try {
-      image = FileUtils.loadImage(filePath);
-    } catch (final IOException e) {
-      App.LOGGER.exception(e);
-    }
-    return new Picture(image, filePath, description, date);
-  }
 }
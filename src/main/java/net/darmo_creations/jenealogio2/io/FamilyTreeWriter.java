@@ -8,15 +8,41 @@ import org.jetbrains.annotations.*;
 
 import java.io.*;
 import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Writes {@link FamilyTree}s to the file system. See {@link TreeFileManager} for more details.
  */
 public class FamilyTreeWriter extends TreeFileManager {
-  private final TreeXMLWriter treeXMLWriter = new TreeXMLWriter();
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final String COMPACTION_TEMP_FILE_EXTENSION = ".compact.tmp";
+  private static final String RESTORE_TEMP_FILE_EXTENSION = ".restore.tmp";
+  /**
+   * Maximum number of snapshots to keep.
+   */
+  private static final int MAX_SNAPSHOTS = 5;
+  /**
+   * Minimum size of a journal, in bytes, before it is compacted.
+   */
+  private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+  /**
+   * A journal is compacted once it is larger than the tree file divided by this value.
+   */
+  private static final int COMPACTION_RATIO = 4;
+
+  private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "Tree journal compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final TreeXMLWriter treeXMLWriter = new TreeXMLWriter(TreeXMLWriter.Mode.STREAMING);
 
   /**
-   * Save a family tree to the file system.
+   * Save a family tree to the file system, then apply the resulting {@link SaveResult} to it.
+   * This method must thus be called from the thread that modifies the tree.
    *
    * @param familyTree Family tree object to save.
    * @param directory  Directory to write to.
@@ -24,34 +50,299 @@ public class FamilyTreeWriter extends TreeFileManager {
    * @throws IOException If any error occurs.
    */
   public void saveToDirectory(final @NotNull FamilyTree familyTree, @NotNull Path directory, final @NotNull Config config) throws IOException {
+    this.saveToDirectory(familyTree, directory, config, ProgressMonitor.NONE).apply();
+  }
+
+  /**
+   * Save a family tree to the file system.
+   * <p>
+   * The tree file is first written to a temporary file and forced to the storage device.
+   * Pending file operations are then staged, see {@link StagedFileOperations}. Cancellation requests
+   * and errors up to that point leave the directory untouched. Finally, a snapshot of the current
+   * tree file is taken, the new tree file replaces it and the tree’s journal is deleted,
+   * then the staged file operations are completed.
+   * <p>
+   * At most {@value #MAX_SNAPSHOTS} snapshots are kept, see {@link #listSnapshots(Path)}.
+   * <p>
+   * The tree is only read, this method may thus run in a background thread while the tree is not modified.
+   * The returned result must then be applied from the thread that modifies the tree.
+   *
+   * @param familyTree Family tree object to save.
+   * @param directory  Directory to write to.
+   * @param config     The app’s config.
+   * @param monitor    A monitor to report progress to.
+   * @return The updates to make to the tree now that it has been saved.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public SaveResult saveToDirectory(
+      final @NotNull FamilyTree familyTree,
+      @NotNull Path directory,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
     final Path filesDir = directory.resolve(FILES_DIR);
     if (!Files.exists(filesDir))
       Files.createDirectories(filesDir);
-    try (final var out = new FileOutputStream(directory.resolve(TREE_FILE_NAME).toFile())) {
-      this.treeXMLWriter.writeToStream(familyTree, out, config);
+    final Path treeFile = directory.resolve(TREE_FILE_NAME);
+    final Path tempFile = directory.resolve(TREE_FILE_NAME + TEMP_FILE_EXTENSION);
+    final List<FileOperation> operations = new ArrayList<>(familyTree.pendingFileOperations());
+    try {
+      try (final var out = new FileOutputStream(tempFile.toFile())) {
+        this.treeXMLWriter.writeToStream(familyTree, out, config, monitor);
+      }
+      if (monitor.isCancellationRequested())
+        throw new CancellationException();
+      FileUtils.sync(tempFile);
+      synchronized (TreeDeltaJournal.LOCK) {
+        StagedFileOperations.recover(directory);
+        final StagedFileOperations.Plan plan = StagedFileOperations.stage(
+            directory, operations, config.shouldDeduplicateFiles(), tempFile, monitor);
+        this.takeSnapshot(directory);
+        // The journal no longer applies to the new tree file
+        TreeDeltaJournal.replaceTreeFile(directory, tempFile, null);
+        try {
+          StagedFileOperations.complete(directory, plan);
+        } catch (final IOException e) {
+          // The tree file has already been replaced, operations will be completed by the next load or save
+          App.LOGGER.exception(e);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
     }
-    this.performFileOperations(filesDir, familyTree);
+    return new SaveResult(familyTree, filesDir, operations);
   }
 
-  private void performFileOperations(@NotNull Path root, @NotNull FamilyTree familyTree) {
-    for (final FileOperation operation : familyTree.pendingFileOperations()) {
+  /**
+   * Replace the tree file and journal of the given directory by those of one of its snapshots.
+   * A snapshot of the current tree file is taken first, so that restoring can itself be reverted.
+   * <p>
+   * Files attached to the tree are not part of snapshots, those that have been deleted or renamed
+   * since the snapshot was taken will be missing.
+   *
+   * @param directory A tree’s directory.
+   * @param snapshot  The snapshot to restore, as returned by {@link #listSnapshots(Path)}.
+   * @throws IOException If any error occurs.
+   */
+  public void restoreSnapshot(@NotNull Path directory, @NotNull Path snapshot) throws IOException {
+    final Path tempTreeFile = directory.resolve(TREE_FILE_NAME + RESTORE_TEMP_FILE_EXTENSION);
+    final Path snapshotJournalFile = snapshot.resolve(JOURNAL_FILE_NAME);
+    synchronized (TreeDeltaJournal.LOCK) {
+      StagedFileOperations.recover(directory);
       try {
-        if (operation instanceof ImportFileOperation ifo) {
-          // FamilyTreeReader generates this operation when building the family tree, skip it
-          if (!ifo.sourceFile().equals(root.resolve(ifo.fileName()))) {
-            final Path newPath = Files.copy(ifo.sourceFile(), root.resolve(ifo.fileName()));
-            operation.document().setPath(newPath);
-          }
-        } else if (operation instanceof DeleteFileOperation dfo)
-          Files.deleteIfExists(root.resolve(dfo.fileName()));
-        else if (operation instanceof RenameFileOperation rfo) {
-          final Path newPath = Files.move(root.resolve(rfo.fileName()), root.resolve(rfo.newFileName()));
-          operation.document().setPath(newPath);
+        Files.deleteIfExists(tempTreeFile);
+        // Tree files are never modified in place, they can be shared
+        FileUtils.linkOrCopy(snapshot.resolve(TREE_FILE_NAME), tempTreeFile);
+        this.takeSnapshot(directory);
+        TreeDeltaJournal.replaceTreeFile(directory, tempTreeFile,
+            Files.exists(snapshotJournalFile) ? snapshotJournalFile : null);
+      } finally {
+        Files.deleteIfExists(tempTreeFile);
+      }
+    }
+  }
+
+  /**
+   * Export the tree of the given directory as a ZIP file, see {@link FileUtils#zip(Path, Path, ProgressMonitor)}.
+   * The tree’s journal is compacted first, so that the archive only contains the tree file.
+   * It is not compacted again nor appended to while the directory is being archived.
+   *
+   * @param directory A tree’s directory.
+   * @param file      Path of the ZIP file to write.
+   * @param config    The app’s config.
+   * @param monitor   A monitor to report progress to.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public void exportToZip(
+      @NotNull Path directory,
+      @NotNull Path file,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    synchronized (TreeDeltaJournal.LOCK) {
+      this.compact(directory, config);
+      FileUtils.zip(directory, file, monitor);
+    }
+  }
+
+  /**
+   * Copy the current tree file and journal of the given directory into a new snapshot,
+   * then delete the oldest snapshots. Errors are logged, they do not prevent saving.
+   *
+   * @param directory A tree’s directory.
+   */
+  private void takeSnapshot(@NotNull Path directory) {
+    final Path treeFile = directory.resolve(TREE_FILE_NAME);
+    if (!Files.exists(treeFile))
+      return;
+    try {
+      final Path snapshotsDir = directory.resolve(SNAPSHOTS_DIR);
+      final String name = SNAPSHOT_NAME_FORMATTER.format(LocalDateTime.now());
+      Path snapshotDir = snapshotsDir.resolve(name);
+      // Saves may happen within the same millisecond
+      for (int i = 1; Files.exists(snapshotDir); i++)
+        snapshotDir = snapshotsDir.resolve(name + "-" + i);
+      Files.createDirectories(snapshotDir);
+      // Tree files are never modified in place, they can be shared
+      FileUtils.linkOrCopy(treeFile, snapshotDir.resolve(TREE_FILE_NAME));
+      final Path journalFile = directory.resolve(JOURNAL_FILE_NAME);
+      if (Files.exists(journalFile))
+        // Journals are appended to in place, they must be copied
+        Files.copy(journalFile, snapshotDir.resolve(JOURNAL_FILE_NAME));
+      final List<Path> snapshots = listSnapshots(directory);
+      for (int i = MAX_SNAPSHOTS; i < snapshots.size(); i++)
+        FileUtils.deleteRecursively(snapshots.get(i));
+    } catch (final IOException e) {
+      App.LOGGER.exception(e);
+    }
+  }
+
+  /**
+   * Save the changes made to a family tree since it was last loaded from or saved to the given directory.
+   *
+   * @param familyTree Family tree object to save. It must have been loaded from or saved to the directory.
+   * @param directory  Directory to write to.
+   * @param config     The app’s config.
+   * @throws IOException If any error occurs.
+   * @see #saveChangesToDirectory(FamilyTree, Path, Config, ProgressMonitor)
+   */
+  public void saveChangesToDirectory(
+      final @NotNull FamilyTree familyTree,
+      @NotNull Path directory,
+      final @NotNull Config config
+  ) throws IOException {
+    this.saveChangesToDirectory(familyTree, directory, config, ProgressMonitor.NONE).apply();
+  }
+
+  /**
+   * Save the changes made to a family tree since it was last loaded from or saved to the given directory.
+   * <p>
+   * Changes are appended as a delta to the tree’s journal, which is much faster than rewriting
+   * the tree file of large trees. Once the journal grows larger than a fraction of the tree file,
+   * it is compacted into a new tree file in a background thread.
+   * <p>
+   * Changes to registries and documents, and file operations, cannot be saved as deltas. If there are any,
+   * or if the directory does not contain any tree file, the tree is fully saved instead,
+   * see {@link #saveToDirectory(FamilyTree, Path, Config, ProgressMonitor)}.
+   * <p>
+   * As with full saves, the returned result must be applied from the thread that modifies the tree.
+   *
+   * @param familyTree Family tree object to save. It must have been loaded from or saved to the directory.
+   * @param directory  Directory to write to.
+   * @param config     The app’s config.
+   * @param monitor    A monitor to report progress to.
+   * @return The updates to make to the tree now that it has been saved.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public SaveResult saveChangesToDirectory(
+      final @NotNull FamilyTree familyTree,
+      @NotNull Path directory,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    final Path treeFile = directory.resolve(TREE_FILE_NAME);
+    if (familyTree.isGlobalDataModified() || !Files.exists(treeFile)
+        || !StagedFileOperations.isEmpty(directory, familyTree.pendingFileOperations())) {
+      return this.saveToDirectory(familyTree, directory, config, monitor);
+    }
+    final var out = new ByteArrayOutputStream();
+    this.treeXMLWriter.writeDelta(familyTree, out, config);
+    if (monitor.isCancellationRequested())
+      throw new CancellationException();
+    final long journalSize;
+    final long treeFileSize;
+    synchronized (TreeDeltaJournal.LOCK) {
+      journalSize = TreeDeltaJournal.append(directory, out.toByteArray());
+      treeFileSize = Files.size(treeFile);
+    }
+    if (journalSize > Math.max(MIN_COMPACTION_SIZE, treeFileSize / COMPACTION_RATIO))
+      COMPACTOR.submit(() -> {
+        try {
+          this.compact(directory, config);
+        } catch (final IOException | RuntimeException e) {
+          App.LOGGER.exception(e);
         }
-      } catch (final IOException e) {
-        App.LOGGER.exception(e);
+      });
+    // Remaining operations do not change any file, e.g. imports generated when the tree was loaded
+    return new SaveResult(familyTree, null, List.of());
+  }
+
+  /**
+   * Rewrite the tree file of the given directory so that it includes the deltas of its journal.
+   * Deltas appended to the journal while this method runs are kept in it.
+   * <p>
+   * The tree is loaded in a separate {@link FamilyTree} object, the tree being edited is never accessed.
+   * Once the tree file has been replaced, the stored files that are no longer used are deleted,
+   * see {@link AttachmentStore#collectGarbage(Path)}.
+   *
+   * @param directory The tree’s directory.
+   * @param config    The app’s config.
+   * @return True if the tree file was replaced; false if the journal was empty,
+   * or if the tree has been fully saved in the meantime.
+   * @throws IOException If any error occurs.
+   */
+  boolean compact(@NotNull Path directory, final @NotNull Config config) throws IOException {
+    final TreeDeltaJournal.Contents journal;
+    synchronized (TreeDeltaJournal.LOCK) {
+      journal = TreeDeltaJournal.read(directory);
+    }
+    if (journal.deltas().isEmpty())
+      return false;
+    final FamilyTree familyTree = new FamilyTreeReader().loadFromDirectory(directory, journal, ProgressMonitor.NONE);
+    final Path tempFile = directory.resolve(TREE_FILE_NAME + COMPACTION_TEMP_FILE_EXTENSION);
+    try {
+      try (final var out = Files.newOutputStream(tempFile)) {
+        // Writers are not thread-safe
+        new TreeXMLWriter(TreeXMLWriter.Mode.STREAMING).writeToStream(familyTree, out, config);
+      }
+      FileUtils.sync(tempFile);
+      synchronized (TreeDeltaJournal.LOCK) {
+        if (!TreeDeltaJournal.replaceTreeFile(directory, journal, tempFile))
+          return false;
+        // Saves that do not move nor delete any file leave stored files that are no longer used
+        AttachmentStore.collectGarbage(directory);
+        return true;
       }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * The updates to make to a family tree once it has been saved. Saving only accesses the file system,
+   * while the tree must only be modified by the thread that owns it, e.g. the JavaFX application thread.
+   *
+   * @param familyTree The saved tree.
+   * @param filesDir   The directory files attached to the tree are now in. Null if no files were moved.
+   * @param operations The file operations that have been performed.
+   */
+  public record SaveResult(
+      @NotNull FamilyTree familyTree,
+      Path filesDir,
+      @NotNull List<FileOperation> operations
+  ) {
+    public SaveResult {
+      Objects.requireNonNull(familyTree);
+      operations = List.copyOf(operations);
+    }
+
+    /**
+     * Forget the tree’s tracked modifications and pending file operations,
+     * and update the paths of the documents that have been moved into the tree’s directory.
+     */
+    public void apply() {
+      this.familyTree.clearModifications();
+      if (this.filesDir != null)
+        for (final FileOperation operation : this.operations) {
+          final AttachedDocument document = operation.document();
+          // Documents may have been removed or renamed by subsequent operations
+          if (this.familyTree.getDocument(document.fileName()).orElse(null) == document)
+            document.setPath(this.filesDir.resolve(document.fileName()));
+        }
+      this.familyTree.clearPendingFileOperations();
     }
-    familyTree.clearPendingFileOperations();
   }
 }
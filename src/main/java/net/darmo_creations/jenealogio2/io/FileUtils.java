@@ -1,17 +1,13 @@
 package net.darmo_creations.jenealogio2.io;
 
-import javafx.embed.swing.*;
-import javafx.scene.image.*;
 import net.darmo_creations.jenealogio2.*;
-import net.darmo_creations.jenealogio2.model.*;
 import org.jetbrains.annotations.*;
 
-import javax.imageio.*;
-import java.awt.image.*;
 import java.io.*;
+import java.nio.channels.*;
 import java.nio.file.*;
 import java.util.*;
-import java.util.zip.*;
+import java.util.concurrent.*;
 
 public final class FileUtils {
   /**
@@ -24,35 +20,31 @@ public final class FileUtils {
    * @throws IOException If any I/O error occurs.
    */
   public static String unzip(final @NotNull Path zipFilePath, @NotNull Path destDir) throws IOException {
+    return unzip(zipFilePath, destDir, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Unzip the given .zip file into the given directory.
+   * The ZIP file’s content will be unzipped in a sub-directory named after the ZIP file.
+   * Files are extracted in parallel, see {@link ZipArchives}.
+   *
+   * @param zipFilePath Path to the file to unzip.
+   * @param destDir     Directory into which to unzip the file.
+   * @param monitor     A monitor to report progress to.
+   * @return The name of the resulting unzipped directory.
+   * @throws IOException           If any I/O error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public static String unzip(
+      final @NotNull Path zipFilePath,
+      @NotNull Path destDir,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
     final String dirName = splitExtension(zipFilePath.getFileName().toString()).fileName();
     destDir = destDir.resolve(dirName);
     if (!Files.exists(destDir))
       Files.createDirectories(destDir);
-
-    final byte[] buffer = new byte[1024];
-    try (final FileInputStream fis = new FileInputStream(zipFilePath.toFile());
-         final ZipInputStream zis = new ZipInputStream(fis)) {
-      ZipEntry ze;
-      do {
-        ze = zis.getNextEntry();
-        if (ze != null) {
-          final Path newFile = destDir.resolve(ze.getName());
-          App.LOGGER.info("Unzipping to " + newFile.toAbsolutePath());
-          if (ze.isDirectory())
-            Files.createDirectories(newFile);
-          else {
-            Files.createDirectories(newFile.getParent());
-            try (final FileOutputStream fos = new FileOutputStream(newFile.toFile())) {
-              int len;
-              while ((len = zis.read(buffer)) > 0)
-                fos.write(buffer, 0, len);
-            }
-          }
-          zis.closeEntry();
-        }
-      } while (ze != null);
-    }
-
+    ZipArchives.extract(zipFilePath, destDir, monitor);
     return dirName;
   }
 
@@ -65,40 +57,52 @@ public final class FileUtils {
    * @throws IOException If any I/O error occurs.
    */
   public static void zip(@NotNull Path targetDirectory, @NotNull Path destFile) throws IOException {
-    try (final var fos = new FileOutputStream(destFile.toFile());
-         final var zipOut = new ZipOutputStream(fos)) {
-      zipFile(targetDirectory, null, zipOut); // Pass null to skip the target directory itself
-    }
+    zip(targetDirectory, destFile, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Zip the given directory’s content into a .zip file.
+   * Files are compressed in parallel, already compressed pictures are stored as is, see {@link ZipArchives}.
+   * The tree’s journal is not archived, it must have been compacted into the tree file beforehand.
+   *
+   * @param targetDirectory Path to the directory to zip.
+   * @param destFile        Path of the resulting zip file.
+   * @param monitor         A monitor to report progress to.
+   * @throws IOException           If any I/O error occurs. The zip file is deleted.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   *                               The zip file is deleted.
+   */
+  public static void zip(
+      @NotNull Path targetDirectory,
+      @NotNull Path destFile,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    final List<ZipArchives.Entry> entries = new ArrayList<>();
+    listZipEntries(targetDirectory, null, entries);
+    ZipArchives.write(destFile, entries, monitor);
   }
 
-  private static void zipFile(
+  private static void listZipEntries(
       @NotNull Path file,
       String fileName,
-      @NotNull ZipOutputStream zipOut
+      @NotNull List<ZipArchives.Entry> entries
   ) throws IOException {
     if (Files.isDirectory(file)) {
-      if (fileName != null) {
-        if (fileName.endsWith("/"))
-          zipOut.putNextEntry(new ZipEntry(fileName));
-        else
-          zipOut.putNextEntry(new ZipEntry(fileName + "/"));
-        zipOut.closeEntry();
-      }
+      // Thumbnails can be regenerated from the files themselves, snapshots and staged files are local,
+      // stored files are already exported through the files directory
+      final String name = file.getFileName().toString();
+      if (name.equals(ImageCache.THUMBNAILS_DIR) || name.equals(TreeFileManager.SNAPSHOTS_DIR)
+          || name.equals(TreeFileManager.STAGING_DIR) || name.equals(TreeFileManager.STORE_DIR))
+        return;
+      if (fileName != null)
+        entries.add(new ZipArchives.Entry(fileName.endsWith("/") ? fileName : fileName + "/", null));
       try (final var files = Files.newDirectoryStream(file)) {
         for (final Path path : files)
-          zipFile(path, (fileName != null ? fileName + "/" : "") + path.getFileName(), zipOut);
-      }
-    } else {
-      try (final var fis = new FileInputStream(file.toFile())) {
-        final ZipEntry zipEntry = new ZipEntry(Objects.requireNonNull(fileName));
-        zipOut.putNextEntry(zipEntry);
-        final byte[] bytes = new byte[1024];
-        int length;
-        while ((length = fis.read(bytes)) >= 0)
-          zipOut.write(bytes, 0, length);
-        zipOut.closeEntry();
+          listZipEntries(path, (fileName != null ? fileName + "/" : "") + path.getFileName(), entries);
       }
-    }
+    } else if (!Objects.requireNonNull(fileName).equals(TreeFileManager.JOURNAL_FILE_NAME))
+      // The journal is compacted into the tree file before exporting, it may only contain its header
+      entries.add(new ZipArchives.Entry(fileName, file));
   }
 
   /**
@@ -118,6 +122,66 @@ public final class FileUtils {
     Files.deleteIfExists(file);
   }
 
+  /**
+   * Move a file to the given path, replacing any existing file.
+   * The file is moved atomically if the file system supports it.
+   *
+   * @param source The file to move.
+   * @param target The path to move the file to.
+   * @throws IOException If any I/O error occurs.
+   */
+  public static void replaceFile(@NotNull Path source, @NotNull Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Create a hard link to the given file. If the file system does not support hard links,
+   * the file is copied instead, keeping its attributes.
+   *
+   * @param source The file to link to.
+   * @param link   The path of the link to create. It must not exist.
+   * @throws IOException If any I/O error occurs.
+   */
+  public static void linkOrCopy(@NotNull Path source, @NotNull Path link) throws IOException {
+    try {
+      Files.createLink(link, source);
+    } catch (final NoSuchFileException | FileAlreadyExistsException e) {
+      throw e;
+    } catch (final UnsupportedOperationException | FileSystemException e) {
+      Files.copy(source, link, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+  }
+
+  /**
+   * Force the contents of the given file to the storage device.
+   *
+   * @param file The file to synchronize.
+   * @throws IOException If any I/O error occurs.
+   */
+  public static void sync(@NotNull Path file) throws IOException {
+    try (final var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Force the entries of the given directory to the storage device, so that files moved into it
+   * are not lost if the system stops. This is a best effort, not all systems support it.
+   *
+   * @param directory The directory to synchronize.
+   */
+  public static void syncDirectory(@NotNull Path directory) {
+    try (final var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (final IOException e) {
+      // Directories cannot be opened on some systems, e.g. Windows
+    }
+  }
+
   /**
    * Open the given file path in the host system’s default file explorer.
    *
@@ -167,44 +231,6 @@ public final class FileUtils {
     return new FileName(fileName, Optional.empty());
   }
 
-  /**
-   * Load the given image. If the file’s format is not supported by JavaFX,
-   * but is in the {@link Picture#FILE_EXTENSIONS} list, the image will be converted in-memory
-   * into a format that JavaFX supports.
-   *
-   * @param path The path to the image file.
-   * @return The loaded image.
-   * @throws IOException              If any I/O error occurs.
-   * @throws IllegalArgumentException If the file’s extension in not in {@link Picture#FILE_EXTENSIONS}.
-   */
-  public static Image loadImage(@NotNull Path path) throws IOException {
-    final FileName fileName = splitExtension(path.getFileName().toString());
-    final Optional<String> ext = fileName.extension();
-
-    if (ext.isEmpty())
-      throw new IllegalArgumentException("Unsupported image format");
-    else if (!Picture.FILE_EXTENSIONS.contains(ext.get().toLowerCase()))
-      throw new IllegalArgumentException("Unsupported image format: " + ext.get());
-
-    if (JAVAFX_FILE_EXTENSIONS.contains(ext.get().toLowerCase()))
-      try (final var inputStream = new FileInputStream(path.toFile())) {
-        return new Image(inputStream);
-      }
-
-    // Load with ImageIO then convert to Image
-    final BufferedImage image = ImageIO.read(path.toFile());
-    return SwingFXUtils.toFXImage(image, null);
-  }
-
-  /**
-   * The list of image formats supported by JavaFX.
-   * <p>
-   * BMP format is excluded as BMP images with an alpha channel are not rendered by {@link ImageView},
-   * see <a href="https://bugs.openjdk.org/browse/JDK-8149621">this JDK bug report</a>.
-   */
-  @Unmodifiable
-  private static final List<String> JAVAFX_FILE_EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".gif");
-
   private FileUtils() {
   }
 }
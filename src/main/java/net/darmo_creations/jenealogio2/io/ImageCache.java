@@ -0,0 +1,289 @@
+package net.darmo_creations.jenealogio2.io;
+
+import javafx.application.*;
+import javafx.embed.swing.*;
+import javafx.scene.image.*;
+import net.darmo_creations.jenealogio2.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import javax.imageio.*;
+import javax.imageio.stream.*;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Provides downscaled versions of picture files.
+ * <p>
+ * Files are only read in a background thread, decoded images are then passed to callbacks
+ * on the JavaFX application thread.
+ * <p>
+ * Decoded images are kept in a bounded in-memory LRU cache. Thumbnails of pictures that are inside
+ * the {@link TreeFileManager#FILES_DIR} directory of a tree are also saved in a {@value #THUMBNAILS_DIR}
+ * sub-directory, so that full-size pictures do not have to be decoded each time a tree is opened.
+ */
+public final class ImageCache {
+  /**
+   * Name of the directory where thumbnails are saved, relative to a tree’s files directory.
+   */
+  public static final String THUMBNAILS_DIR = ".thumbnails";
+
+  private static final String THUMBNAIL_EXTENSION = ".png";
+  /**
+   * Maximum number of pixels to keep in memory.
+   */
+  private static final long MAX_PIXELS = 32L * 1024 * 1024;
+
+  private static final LruCache<Key, Image> CACHE = new LruCache<>(MAX_PIXELS, ImageCache::pixels);
+  /**
+   * Callbacks waiting for images that are being loaded. Guarded by {@link #CACHE}.
+   */
+  private static final Map<Key, List<Consumer<Optional<Image>>>> PENDING = new HashMap<>();
+  private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "Image loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Load a version of the given picture file that fits in a square of the given size,
+   * then pass it to the given callback on the JavaFX application thread.
+   * Pictures smaller than that size are not upscaled.
+   * <p>
+   * If the image is in memory, the callback is called before this method returns.
+   * Otherwise, the file is read in a background thread.
+   * <p>
+   * This method must be called from the JavaFX application thread.
+   *
+   * @param path     Path to the picture file.
+   * @param size     Size of the square the image should fit in, in pixels.
+   * @param callback The function to pass the image to, or an empty {@link Optional} if the file could not be read.
+   */
+  public static void getImage(@NotNull Path path, int size, @NotNull Consumer<Optional<Image>> callback) {
+    getImage(path, size, callback, Platform::runLater);
+  }
+
+  /**
+   * Load a version of the given picture file that fits in a square of the given size,
+   * then pass it to the given callback.
+   *
+   * @param path             Path to the picture file.
+   * @param size             Size of the square the image should fit in, in pixels.
+   * @param callback         The function to pass the image to.
+   * @param callbackExecutor The executor to call the callback with once the image has been loaded.
+   */
+  static void getImage(
+      @NotNull Path path,
+      int size,
+      @NotNull Consumer<Optional<Image>> callback,
+      @NotNull Executor callbackExecutor
+  ) {
+    if (size <= 0)
+      throw new IllegalArgumentException("Size must be > 0");
+    Objects.requireNonNull(callback);
+    final Key key = new Key(path, size);
+    final Optional<Image> cached;
+    synchronized (CACHE) {
+      cached = CACHE.get(key);
+      if (cached.isEmpty()) {
+        final List<Consumer<Optional<Image>>> callbacks = PENDING.get(key);
+        // Only load each image once at a time
+        if (callbacks != null) {
+          callbacks.add(image -> callbackExecutor.execute(() -> callback.accept(image)));
+          return;
+        }
+        PENDING.put(key, new ArrayList<>(List.of(image -> callbackExecutor.execute(() -> callback.accept(image)))));
+      }
+    }
+    if (cached.isPresent()) {
+      callback.accept(cached);
+      return;
+    }
+
+    EXECUTOR.submit(() -> {
+      Optional<Image> image;
+      try {
+        image = Optional.of(SwingFXUtils.toFXImage(loadThumbnail(path, size), null));
+      } catch (final IOException | RuntimeException e) {
+        App.LOGGER.exception(e);
+        image = Optional.empty();
+      }
+      final List<Consumer<Optional<Image>>> callbacks;
+      synchronized (CACHE) {
+        image.ifPresent(i -> CACHE.put(key, i));
+        callbacks = PENDING.remove(key);
+      }
+      for (final var c : callbacks)
+        c.accept(image);
+    });
+  }
+
+  /**
+   * Read the up-to-date thumbnail of the given picture file, or create it.
+   *
+   * @param path Path to the picture file.
+   * @param size Size of the square the image should fit in.
+   * @return The thumbnail.
+   * @throws IOException If the file could not be read or its format is not supported.
+   */
+  private static BufferedImage loadThumbnail(@NotNull Path path, int size) throws IOException {
+    final Optional<Path> thumbnailFile = thumbnailFile(path, size);
+    if (thumbnailFile.isPresent() && isUpToDate(thumbnailFile.get(), path)) {
+      final BufferedImage thumbnail = ImageIO.read(thumbnailFile.get().toFile());
+      if (thumbnail != null)
+        return thumbnail;
+    }
+    final BufferedImage thumbnail = createThumbnail(path, size);
+    if (thumbnailFile.isPresent())
+      writeThumbnail(thumbnail, thumbnailFile.get());
+    return thumbnail;
+  }
+
+  /**
+   * Delete all thumbnails of the given file, on disk and in memory.
+   *
+   * @param filesDir A tree’s files directory.
+   * @param fileName Name of the file whose thumbnails should be deleted.
+   * @throws IOException If any I/O error occurs.
+   */
+  public static void deleteThumbnails(@NotNull Path filesDir, @NotNull String fileName) throws IOException {
+    final Path file = filesDir.resolve(fileName);
+    synchronized (CACHE) {
+      CACHE.removeIf(key -> key.path().equals(file));
+    }
+    final Path thumbnailsDir = filesDir.resolve(THUMBNAILS_DIR);
+    if (!Files.isDirectory(thumbnailsDir))
+      return;
+    try (final var sizeDirs = Files.newDirectoryStream(thumbnailsDir)) {
+      for (final Path sizeDir : sizeDirs)
+        Files.deleteIfExists(sizeDir.resolve(fileName + THUMBNAIL_EXTENSION));
+    }
+  }
+
+  /**
+   * Compute the dimensions of an image so that it fits in a square of the given size.
+   * Images are never upscaled.
+   *
+   * @param width  Width of the image.
+   * @param height Height of the image.
+   * @param size   Size of the square the image should fit in.
+   * @return The new dimensions, each at least 1 pixel.
+   */
+  static Dimension thumbnailSize(int width, int height, int size) {
+    final double scale = Math.min(1, (double) size / Math.max(width, height));
+    return new Dimension(
+        Math.max(1, (int) Math.round(width * scale)),
+        Math.max(1, (int) Math.round(height * scale))
+    );
+  }
+
+  /**
+   * Return the file where the thumbnail of the given size for the given picture should be saved.
+   *
+   * @param path Path to a picture.
+   * @param size The thumbnail’s size.
+   * @return The thumbnail’s path, or an empty {@link Optional} if the picture is not inside a tree’s files directory.
+   */
+  static Optional<Path> thumbnailFile(@NotNull Path path, int size) {
+    final Path filesDir = path.toAbsolutePath().getParent();
+    if (filesDir == null || !filesDir.getFileName().toString().equals(TreeFileManager.FILES_DIR)
+        || !Files.exists(filesDir.resolveSibling(TreeFileManager.TREE_FILE_NAME)))
+      return Optional.empty();
+    return Optional.of(filesDir.resolve(THUMBNAILS_DIR)
+        .resolve(String.valueOf(size))
+        .resolve(path.getFileName() + THUMBNAIL_EXTENSION));
+  }
+
+  /**
+   * Decode the given picture file and scale it down so that it fits in a square of the given size.
+   * Large pictures are subsampled while being decoded to avoid loading all their pixels in memory.
+   *
+   * @param path Path to the picture file.
+   * @param size Size of the square the image should fit in.
+   * @return The scaled down image.
+   * @throws IOException If the file could not be read or its format is not supported.
+   */
+  static BufferedImage createThumbnail(@NotNull Path path, int size) throws IOException {
+    final BufferedImage image;
+    final Dimension dimension;
+    try (final ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+      final ImageReader reader = getReader(in, path);
+      try {
+        reader.setInput(in, true, true);
+        final int width = reader.getWidth(0);
+        final int height = reader.getHeight(0);
+        dimension = thumbnailSize(width, height, size);
+        final ImageReadParam param = reader.getDefaultReadParam();
+        // Keep twice the required resolution for a smoother final scaling
+        final int subsampling = Math.max(1, Math.max(width, height) / (2 * size));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        image = reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+    if (image.getWidth() == dimension.width && image.getHeight() == dimension.height)
+      return image;
+    final BufferedImage thumbnail = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D graphics = thumbnail.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(image, 0, 0, dimension.width, dimension.height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return thumbnail;
+  }
+
+  private static void writeThumbnail(@NotNull BufferedImage thumbnail, @NotNull Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    final Path tempFile = Files.createTempFile(file.getParent(), null, null);
+    try {
+      if (!ImageIO.write(thumbnail, "png", tempFile.toFile()))
+        throw new IOException("No PNG writer available");
+      try {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private static boolean isUpToDate(@NotNull Path thumbnailFile, @NotNull Path path) {
+    try {
+      return Files.exists(thumbnailFile)
+          && Files.getLastModifiedTime(thumbnailFile).compareTo(Files.getLastModifiedTime(path)) >= 0;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  private static ImageReader getReader(ImageInputStream in, @NotNull Path path) throws IOException {
+    if (in == null)
+      throw new FileNotFoundException(path.toString());
+    final Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+    if (!readers.hasNext())
+      throw new IOException("Unsupported image format: " + path);
+    return readers.next();
+  }
+
+  private static long pixels(@NotNull Image image) {
+    return (long) image.getWidth() * (long) image.getHeight();
+  }
+
+  private record Key(@NotNull Path path, int size) {
+  }
+
+  private ImageCache() {
+  }
+}
@@ -0,0 +1,83 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The persons loaded from a tree file or delta, indexed by their ID.
+ * <p>
+ * IDs are dense, persons are thus kept in an array indexed by ID, grown as needed.
+ * IDs that are much larger than the number of persons, e.g. in hand-edited files,
+ * are kept in a map instead so that a single one cannot make the array grow out of proportion.
+ */
+final class PersonIndex {
+  private static final int MIN_CAPACITY = 64;
+  /**
+   * The array may grow up to this many times the number of persons, plus {@link #MIN_CAPACITY}.
+   */
+  private static final int MAX_GROWTH_FACTOR = 4;
+
+  private Person[] persons = new Person[MIN_CAPACITY];
+  private final Map<Integer, Person> sparsePersons = new HashMap<>();
+  private int size;
+
+  /**
+   * Add a person to this index, under its ID.
+   *
+   * @param person The person to add.
+   * @throws IOException If another person already has the same ID.
+   */
+  void put(@NotNull Person person) throws IOException {
+    final int id = person.id();
+    if (this.get(id) != null)
+      throw new IOException("Duplicate person ID: " + id);
+    if (id >= this.persons.length && id < MAX_GROWTH_FACTOR * ((long) this.size + 1) + MIN_CAPACITY)
+      this.persons = Arrays.copyOf(this.persons, Math.max(id + 1, 2 * this.persons.length));
+    if (id < this.persons.length)
+      this.persons[id] = person;
+    else
+      this.sparsePersons.put(id, person);
+    this.size++;
+  }
+
+  /**
+   * Return the person with the given ID, or null if there is none.
+   *
+   * @param id A person ID.
+   */
+  Person get(int id) {
+    if (id < 0)
+      return null;
+    if (id < this.persons.length)
+      return this.persons[id];
+    return this.sparsePersons.get(id);
+  }
+
+  /**
+   * Remove the person with the given ID from this index, if there is one.
+   *
+   * @param id A person ID.
+   */
+  void remove(int id) {
+    final Person removed;
+    if (id < 0)
+      removed = null;
+    else if (id < this.persons.length) {
+      removed = this.persons[id];
+      this.persons[id] = null;
+    } else
+      removed = this.sparsePersons.remove(id);
+    if (removed != null)
+      this.size--;
+  }
+
+  /**
+   * Indicate whether this index contains no persons.
+   */
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+}
@@ -0,0 +1,70 @@
+package net.darmo_creations.jenealogio2.io;
+
+import org.jetbrains.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Receives progress updates from tree readers and writers, and tells them whether they should stop.
+ * <p>
+ * Monitors may be called from any thread.
+ */
+@FunctionalInterface
+public interface ProgressMonitor {
+  /**
+   * A monitor that ignores all updates and never requests cancellation.
+   */
+  ProgressMonitor NONE = (phase, done, total) -> {
+  };
+
+  /**
+   * Called whenever some progress has been made.
+   *
+   * @param phase The current phase of the operation.
+   * @param done  The number of items that have been processed in the current phase.
+   * @param total The total number of items to process in the current phase, -1 if unknown.
+   */
+  void onProgress(@NotNull Phase phase, int done, int total);
+
+  /**
+   * Indicate whether the current operation should be stopped as soon as possible.
+   * Operations may ignore this request once they have started altering files.
+   *
+   * @return True to stop the operation, false to let it continue.
+   */
+  default boolean isCancellationRequested() {
+    return false;
+  }
+
+  /**
+   * Notify this monitor of some progress, after checking that the operation has not been cancelled.
+   *
+   * @param phase The current phase of the operation.
+   * @param done  The number of items that have been processed in the current phase.
+   * @param total The total number of items to process in the current phase, -1 if unknown.
+   * @throws CancellationException If this monitor requested the cancellation of the operation.
+   */
+  default void report(@NotNull Phase phase, int done, int total) {
+    if (this.isCancellationRequested())
+      throw new CancellationException();
+    this.onProgress(phase, done, total);
+  }
+
+  /**
+   * Enumeration of the phases of tree loading and saving operations, and other long operations on trees.
+   */
+  enum Phase {
+    REGISTRIES,
+    DOCUMENTS,
+    PERSONS,
+    LIFE_EVENTS,
+    /**
+     * Files attached to the tree are being copied, renamed or deleted.
+     */
+    FILES,
+    /**
+     * The coordinates of places are being looked up.
+     */
+    PLACES,
+  }
+}
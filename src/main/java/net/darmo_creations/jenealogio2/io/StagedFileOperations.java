@@ -0,0 +1,257 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.*;
+import net.darmo_creations.jenealogio2.io.file_ops.*;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Performs the pending file operations of a tree in two steps around the replacement of its tree file,
+ * so that the files directory always contains all files referenced by the current tree file.
+ * <p>
+ * Before the tree file is replaced, imported files are copied, or linked from the tree’s
+ * {@link AttachmentStore} if deduplication is enabled, and renamed files are linked into
+ * the {@link TreeFileManager#STAGING_DIR} directory, then a manifest is written that lists the files
+ * to move into the files directory and those to delete. This is where errors such as a full disk occur,
+ * the files directory is left untouched. Once the new tree file is in place, staged files are moved
+ * and deleted files are removed.
+ * <p>
+ * The manifest identifies the tree file it applies to by its size and the hash of its contents.
+ * If the application stops before the operations are completed, {@link #recover(Path)} completes them
+ * if the new tree file was moved into place, or discards them otherwise.
+ * <p>
+ * All accesses to the staging directory must be synchronized on {@link TreeDeltaJournal#LOCK}.
+ */
+final class StagedFileOperations {
+  private static final String MANIFEST_FILE_NAME = "manifest";
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final int MAGIC = 0x4a4e5332; // "JNS2"
+
+  /**
+   * Stage the given file operations.
+   *
+   * @param directory   A tree’s directory.
+   * @param operations  The operations to stage, in the order they were made.
+   * @param deduplicate Whether to import files through the tree’s {@link AttachmentStore}.
+   * @param newTreeFile The tree file that references the files as they will be after the operations.
+   *                    Its contents must not change until it is moved into place.
+   * @param monitor     A monitor to report progress to.
+   * @return The staged operations.
+   * @throws IOException           If any I/O error occurs. The staging directory is deleted.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   *                               The staging directory is deleted.
+   */
+  static Plan stage(
+      @NotNull Path directory,
+      final @NotNull List<FileOperation> operations,
+      boolean deduplicate,
+      @NotNull Path newTreeFile,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    final Path filesDir = directory.resolve(TreeFileManager.FILES_DIR);
+    final Path stagingDir = directory.resolve(TreeFileManager.STAGING_DIR);
+    FileUtils.deleteRecursively(stagingDir);
+    final Map<String, Path> files = resolve(filesDir, operations);
+    final Map<String, String> moves = new LinkedHashMap<>();
+    final Set<String> deletions = new HashSet<>();
+    boolean success = false;
+    try {
+      Files.createDirectories(stagingDir);
+      int count = 0;
+      for (final var entry : files.entrySet()) {
+        monitor.report(ProgressMonitor.Phase.FILES, count++, files.size());
+        final String fileName = entry.getKey();
+        final Path source = entry.getValue();
+        if (source == null)
+          deletions.add(fileName);
+        else if (!isSameFile(source, filesDir.resolve(fileName))) {
+          final String stagedName = String.valueOf(moves.size());
+          final Path stagedFile = stagingDir.resolve(stagedName);
+          if (isSameFile(source.getParent(), filesDir)) {
+            // The file is already in the tree, do not copy it
+            try {
+              FileUtils.linkOrCopy(source, stagedFile);
+            } catch (final NoSuchFileException e) {
+              App.LOGGER.exception(e);
+              continue;
+            }
+          } else if (deduplicate)
+            AttachmentStore.link(directory, source, stagedFile);
+          else
+            Files.copy(source, stagedFile);
+          FileUtils.sync(stagedFile);
+          moves.put(fileName, stagedName);
+        }
+      }
+      monitor.onProgress(ProgressMonitor.Phase.FILES, files.size(), files.size());
+      final Plan plan = new Plan(TreeDeltaJournal.Base.of(newTreeFile), moves, deletions);
+      writeManifest(stagingDir, plan);
+      success = true;
+      return plan;
+    } finally {
+      if (!success)
+        FileUtils.deleteRecursively(stagingDir);
+    }
+  }
+
+  /**
+   * Complete the given staged operations, then delete the staging directory.
+   * If any file was moved or deleted, the stored files that are no longer used are deleted too,
+   * otherwise they are left to the next compaction of the tree’s journal.
+   * The tree file the operations apply to must be in place.
+   *
+   * @param directory A tree’s directory.
+   * @param plan      The staged operations.
+   * @throws IOException If any I/O error occurs. The staging directory is kept so that
+   *                     the operations can be completed by {@link #recover(Path)}.
+   */
+  static void complete(@NotNull Path directory, final @NotNull Plan plan) throws IOException {
+    final Path filesDir = directory.resolve(TreeFileManager.FILES_DIR);
+    final Path stagingDir = directory.resolve(TreeFileManager.STAGING_DIR);
+    for (final var move : plan.moves().entrySet()) {
+      final Path stagedFile = stagingDir.resolve(move.getValue());
+      // The file may have been moved before the application stopped
+      if (Files.exists(stagedFile)) {
+        ImageCache.deleteThumbnails(filesDir, move.getKey());
+        FileUtils.replaceFile(stagedFile, filesDir.resolve(move.getKey()));
+      }
+    }
+    for (final String fileName : plan.deletions()) {
+      Files.deleteIfExists(filesDir.resolve(fileName));
+      ImageCache.deleteThumbnails(filesDir, fileName);
+    }
+    FileUtils.syncDirectory(filesDir);
+    FileUtils.deleteRecursively(stagingDir);
+    // Collecting may hash the whole store, only do it if some stored files may no longer be used
+    if (!plan.moves().isEmpty() || !plan.deletions().isEmpty())
+      AttachmentStore.collectGarbage(directory);
+  }
+
+  /**
+   * Complete or discard the operations staged in the given directory, if any.
+   *
+   * @param directory A tree’s directory.
+   * @throws IOException If any I/O error occurs.
+   */
+  static void recover(@NotNull Path directory) throws IOException {
+    final Path stagingDir = directory.resolve(TreeFileManager.STAGING_DIR);
+    if (!Files.exists(stagingDir))
+      return;
+    final Path treeFile = directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final Optional<Plan> plan = readManifest(stagingDir);
+    if (plan.isPresent() && Files.exists(treeFile) && plan.get().base().equals(TreeDeltaJournal.Base.of(treeFile))) {
+      App.LOGGER.info("Completing file operations of interrupted save in " + directory);
+      complete(directory, plan.get());
+    } else
+      FileUtils.deleteRecursively(stagingDir);
+  }
+
+  /**
+   * Indicate whether the given file operations would leave the files directory unchanged,
+   * e.g. if they only import files that are already in it.
+   *
+   * @param directory  A tree’s directory.
+   * @param operations The operations, in the order they were made.
+   * @return True if there is nothing to stage, false otherwise.
+   */
+  static boolean isEmpty(@NotNull Path directory, final @NotNull List<FileOperation> operations) {
+    final Path filesDir = directory.resolve(TreeFileManager.FILES_DIR);
+    return resolve(filesDir, operations).entrySet().stream()
+        .allMatch(e -> isSameFile(e.getValue(), filesDir.resolve(e.getKey())));
+  }
+
+  /**
+   * Compute the file that should be in the files directory under each name affected by the given operations.
+   *
+   * @param filesDir   A tree’s files directory.
+   * @param operations The operations, in the order they were made.
+   * @return A map associating file names to the file that should end up under each of them,
+   * or null if there should be no file under a name.
+   */
+  private static Map<String, Path> resolve(@NotNull Path filesDir, final @NotNull List<FileOperation> operations) {
+    final Map<String, Path> files = new LinkedHashMap<>();
+    for (final FileOperation operation : operations) {
+      if (operation instanceof ImportFileOperation o)
+        files.put(o.fileName(), o.sourceFile());
+      else if (operation instanceof DeleteFileOperation o)
+        files.put(o.fileName(), null);
+      else if (operation instanceof RenameFileOperation o) {
+        final String fileName = o.fileName();
+        files.put(o.newFileName(), files.containsKey(fileName) ? files.get(fileName) : filesDir.resolve(fileName));
+        files.put(fileName, null);
+      }
+    }
+    return files;
+  }
+
+  private static boolean isSameFile(Path path1, @NotNull Path path2) {
+    return path1 != null && path1.toAbsolutePath().normalize().equals(path2.toAbsolutePath().normalize());
+  }
+
+  private static void writeManifest(@NotNull Path stagingDir, final @NotNull Plan plan) throws IOException {
+    final Path tempFile = stagingDir.resolve(MANIFEST_FILE_NAME + TEMP_FILE_EXTENSION);
+    try (final var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeLong(plan.base().size());
+      out.writeUTF(plan.base().hash());
+      out.writeInt(plan.moves().size());
+      for (final var move : plan.moves().entrySet()) {
+        out.writeUTF(move.getKey());
+        out.writeUTF(move.getValue());
+      }
+      out.writeInt(plan.deletions().size());
+      for (final String fileName : plan.deletions())
+        out.writeUTF(fileName);
+    }
+    FileUtils.sync(tempFile);
+    FileUtils.replaceFile(tempFile, stagingDir.resolve(MANIFEST_FILE_NAME));
+    FileUtils.syncDirectory(stagingDir);
+  }
+
+  /**
+   * Read the manifest of the given staging directory.
+   *
+   * @return The staged operations, or an empty {@link Optional} if the manifest is missing or incomplete.
+   */
+  private static Optional<Plan> readManifest(@NotNull Path stagingDir) throws IOException {
+    final Path manifestFile = stagingDir.resolve(MANIFEST_FILE_NAME);
+    if (!Files.exists(manifestFile))
+      return Optional.empty();
+    try (final var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+      if (in.readInt() != MAGIC)
+        return Optional.empty();
+      final TreeDeltaJournal.Base base = new TreeDeltaJournal.Base(in.readLong(), in.readUTF());
+      final Map<String, String> moves = new LinkedHashMap<>();
+      for (int i = in.readInt(); i > 0; i--)
+        moves.put(in.readUTF(), in.readUTF());
+      final Set<String> deletions = new HashSet<>();
+      for (int i = in.readInt(); i > 0; i--)
+        deletions.add(in.readUTF());
+      return Optional.of(new Plan(base, moves, deletions));
+    } catch (final EOFException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * A set of staged file operations.
+   *
+   * @param base      The tree file the operations apply to.
+   * @param moves     A map associating the names of files to replace in the files directory
+   *                  to the names of the staged files that replace them.
+   * @param deletions The names of the files to delete from the files directory.
+   */
+  record Plan(
+      @NotNull TreeDeltaJournal.Base base,
+      @NotNull Map<String, String> moves,
+      @NotNull Set<String> deletions
+  ) {
+  }
+
+  private StagedFileOperations() {
+  }
+}
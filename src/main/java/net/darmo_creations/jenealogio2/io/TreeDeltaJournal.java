@@ -0,0 +1,404 @@
+package net.darmo_creations.jenealogio2.io;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * An append-only file containing deltas, i.e. the changes made to a tree since its tree file was last written.
+ * <p>
+ * The file starts with a header that identifies the tree file the deltas apply to by its size
+ * and the hash of its contents, so that both files can be copied or archived by tools that do not keep
+ * modification times. Journals are only replaced along with their tree file, see
+ * {@link #replaceTreeFile(Path, Path, Path)}, a journal that contains deltas but does not match
+ * the current tree file is thus an error.
+ * <p>
+ * Each delta is then stored as a record made of its length, its CRC32 checksum and its bytes.
+ * An incomplete record or one whose checksum does not match, e.g. because the application stopped
+ * while it was being written, marks the end of the journal.
+ * <p>
+ * All accesses to the tree and journal files of a directory must be synchronized on {@link #LOCK}.
+ */
+final class TreeDeltaJournal {
+  /**
+   * The lock that guards tree and journal files.
+   */
+  static final Object LOCK = new Object();
+
+  private static final int MAGIC = 0x4a4e4a32; // "JNJ2"
+  private static final int HASH_SIZE = 32;
+  private static final int HEADER_SIZE = 4 + 8 + HASH_SIZE;
+  private static final int RECORD_HEADER_SIZE = 4 + 4;
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+  /**
+   * Read all deltas of the journal of the given directory.
+   * <p>
+   * If a previous call to {@link #replaceTreeFile(Path, Contents, Path)} was interrupted,
+   * it is completed first.
+   *
+   * @param directory A tree’s directory.
+   * @return The journal’s deltas. They are empty if there is no journal or if it has no header.
+   * @throws IOException If the tree file does not exist, the journal contains deltas that do not apply
+   *                     to the tree file, or any I/O error occurs.
+   */
+  static Contents read(@NotNull Path directory) throws IOException {
+    final Base base = recover(directory);
+    final Path journalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    if (!Files.exists(journalFile))
+      return new Contents(base, List.of(), 0);
+    try (final var channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+      final List<byte[]> deltas = new ArrayList<>();
+      final long length = scan(channel, base, deltas);
+      if (length < 0)
+        checkEmpty(journalFile, channel);
+      return new Contents(base, deltas, Math.max(length, 0));
+    }
+  }
+
+  /**
+   * Append a delta to the journal of the given directory, then force it to the storage device.
+   * The journal is created if it does not exist or has no header, any incomplete record at its end is discarded.
+   *
+   * @param directory A tree’s directory.
+   * @param delta     The delta to append.
+   * @return The size of the journal, in bytes.
+   * @throws IOException If the tree file does not exist, the journal contains deltas that do not apply
+   *                     to the tree file, or any I/O error occurs.
+   */
+  static long append(@NotNull Path directory, final byte[] delta) throws IOException {
+    final Base base = recover(directory);
+    final Path journalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    try (final var channel = FileChannel.open(journalFile,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long end = scan(channel, base, null);
+      if (end < 0) {
+        checkEmpty(journalFile, channel);
+        channel.truncate(0);
+        writeFully(channel, header(base), 0);
+        end = HEADER_SIZE;
+      } else
+        channel.truncate(end);
+      final CRC32 crc = new CRC32();
+      crc.update(delta);
+      final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + delta.length)
+          .putInt(delta.length)
+          .putInt((int) crc.getValue())
+          .put(delta)
+          .flip();
+      writeFully(channel, record, end);
+      channel.force(false);
+      return end + record.capacity();
+    }
+  }
+
+  /**
+   * Replace the tree file of the given directory by the given one, along with its journal.
+   * <p>
+   * The new journal is written next to the current one before the tree file is moved, if the application stops
+   * before the current journal is replaced, the next call to {@link #read(Path)} or {@link #append(Path, byte[])}
+   * replaces it.
+   *
+   * @param directory      A tree’s directory.
+   * @param newTreeFile    The new tree file. It must be in the same directory.
+   * @param newJournalFile The journal that applies to the new tree file. It is copied. If null,
+   *                       the directory will not have any journal.
+   * @throws IOException If the new journal contains deltas that do not apply to the new tree file,
+   *                     or any I/O error occurs. The tree file and journal are then left untouched.
+   */
+  static void replaceTreeFile(@NotNull Path directory, @NotNull Path newTreeFile, Path newJournalFile)
+      throws IOException {
+    final Path treeFile = directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final Path journalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    // Any new journal left by an interrupted replacement is superseded
+    final Path tempJournalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME + TEMP_FILE_EXTENSION);
+    final Base base = Base.of(newTreeFile);
+    try {
+      try (final var tempChannel = FileChannel.open(tempJournalFile,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        if (newJournalFile != null)
+          try (final var channel = FileChannel.open(newJournalFile, StandardOpenOption.READ)) {
+            channel.transferTo(0, channel.size(), tempChannel);
+          }
+        if (scan(tempChannel, base, null) < 0) {
+          checkEmpty(newJournalFile != null ? newJournalFile : tempJournalFile, tempChannel);
+          tempChannel.truncate(0);
+          writeFully(tempChannel, header(base), 0);
+        }
+        tempChannel.force(false);
+      }
+      FileUtils.replaceFile(newTreeFile, treeFile);
+      Base.remember(treeFile, base);
+      if (newJournalFile != null)
+        FileUtils.replaceFile(tempJournalFile, journalFile);
+      else
+        Files.deleteIfExists(journalFile);
+      FileUtils.syncDirectory(directory);
+    } finally {
+      Files.deleteIfExists(tempJournalFile);
+    }
+  }
+
+  /**
+   * Replace the tree file of the given directory by a new one that includes the given deltas, i.e. compact it.
+   * Deltas appended to the journal after them are kept in a new journal that applies to the new tree file.
+   * <p>
+   * The new tree file is moved first, if the application stops before the new journal is moved too,
+   * the next call to {@link #read(Path)} or {@link #append(Path, byte[])} moves it.
+   *
+   * @param directory   A tree’s directory.
+   * @param applied     The deltas included in the new tree file, as returned by {@link #read(Path)}.
+   * @param newTreeFile The new tree file. It must be in the same directory.
+   * @return True if the tree file was replaced, false if the tree file or journal
+   * are no longer those the deltas were read from.
+   * @throws IOException If any I/O error occurs.
+   */
+  static boolean replaceTreeFile(
+      @NotNull Path directory,
+      final @NotNull Contents applied,
+      @NotNull Path newTreeFile
+  ) throws IOException {
+    final Path treeFile = directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final Path journalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    final Path tempJournalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME + TEMP_FILE_EXTENSION);
+    if (!recover(directory).equals(applied.base()) || !Files.exists(journalFile))
+      return false;
+    boolean treeFileMoved = false;
+    try {
+      try (final var channel = FileChannel.open(journalFile, StandardOpenOption.READ);
+           final var tempChannel = FileChannel.open(tempJournalFile,
+               StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        final long end = scan(channel, applied.base(), null);
+        if (end < applied.length())
+          return false;
+        writeFully(tempChannel, header(Base.of(newTreeFile)), 0);
+        long position = HEADER_SIZE;
+        long offset = applied.length();
+        while (offset < end) {
+          final long n = channel.transferTo(offset, end - offset, tempChannel.position(position));
+          offset += n;
+          position += n;
+        }
+        tempChannel.force(false);
+      }
+      final Base newBase = Base.of(newTreeFile);
+      FileUtils.replaceFile(newTreeFile, treeFile);
+      treeFileMoved = true;
+      Base.remember(treeFile, newBase);
+      FileUtils.replaceFile(tempJournalFile, journalFile);
+      FileUtils.syncDirectory(directory);
+      return true;
+    } finally {
+      // Keep the new journal for recovery if it applies to the new tree file
+      if (!treeFileMoved)
+        Files.deleteIfExists(tempJournalFile);
+    }
+  }
+
+  /**
+   * Complete any interrupted call to {@link #replaceTreeFile(Path, Contents, Path)}
+   * or {@link #replaceTreeFile(Path, Path, Path)} by moving the new journal if it applies
+   * to the current tree file.
+   *
+   * @param directory A tree’s directory.
+   * @return The current tree file’s base.
+   */
+  private static Base recover(@NotNull Path directory) throws IOException {
+    final Base base = Base.of(directory.resolve(TreeFileManager.TREE_FILE_NAME));
+    final Path tempJournalFile = directory.resolve(TreeFileManager.JOURNAL_FILE_NAME + TEMP_FILE_EXTENSION);
+    if (Files.exists(tempJournalFile)) {
+      final boolean applies;
+      try (final var channel = FileChannel.open(tempJournalFile, StandardOpenOption.READ)) {
+        applies = scan(channel, base, null) >= 0;
+      }
+      if (applies)
+        FileUtils.replaceFile(tempJournalFile, directory.resolve(TreeFileManager.JOURNAL_FILE_NAME));
+      else
+        Files.delete(tempJournalFile);
+    }
+    return base;
+  }
+
+  /**
+   * Scan the records of a journal.
+   * <p>
+   * If deltas are not requested, only the checksum of the last record is verified,
+   * as interrupted writes only affect the end of the journal.
+   *
+   * @param channel The journal’s channel.
+   * @param base    The base of the current tree file.
+   * @param deltas  A list to put the deltas into. May be null.
+   * @return The position of the end of the last valid record, or -1 if the journal’s header is missing
+   * or does not match the given base.
+   */
+  private static long scan(
+      @NotNull FileChannel channel,
+      @NotNull Base base,
+      List<byte[]> deltas
+  ) throws IOException {
+    final long size = channel.size();
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (size < HEADER_SIZE || readFully(channel, header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC)
+      return -1;
+    final byte[] hash = new byte[HASH_SIZE];
+    header.get(12, hash);
+    if (!base.equals(new Base(header.getLong(4), HexFormat.of().formatHex(hash))))
+      return -1;
+    final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    long position = HEADER_SIZE;
+    long lastPosition = -1;
+    while (size - position >= RECORD_HEADER_SIZE) {
+      readFully(channel, recordHeader.clear(), position);
+      final int length = recordHeader.getInt(0);
+      if (length < 0 || size - position - RECORD_HEADER_SIZE < length)
+        break;
+      if (deltas != null) {
+        final byte[] delta = readRecord(channel, position, recordHeader.getInt(4), length);
+        if (delta == null)
+          break;
+        deltas.add(delta);
+      }
+      lastPosition = position;
+      position += RECORD_HEADER_SIZE + length;
+    }
+    if (deltas == null && lastPosition >= 0) {
+      readFully(channel, recordHeader.clear(), lastPosition);
+      if (readRecord(channel, lastPosition, recordHeader.getInt(4), recordHeader.getInt(0)) == null)
+        return lastPosition;
+    }
+    return position;
+  }
+
+  /**
+   * Check that a journal whose header is missing or does not match the current tree file does not contain
+   * any delta, i.e. that nothing would be lost by discarding it.
+   *
+   * @param journalFile The journal’s path, for the error message.
+   * @param channel     The journal’s channel.
+   * @throws IOException If the journal contains more than a header.
+   */
+  private static void checkEmpty(@NotNull Path journalFile, @NotNull FileChannel channel) throws IOException {
+    if (channel.size() > HEADER_SIZE)
+      throw new IOException("Journal %s does not apply to the current tree file".formatted(journalFile));
+  }
+
+  /**
+   * Read the bytes of a record.
+   *
+   * @return The record’s bytes, or null if they do not match the given checksum.
+   */
+  private static byte[] readRecord(
+      @NotNull FileChannel channel,
+      long position,
+      int checksum,
+      int length
+  ) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    readFully(channel, buffer, position + RECORD_HEADER_SIZE);
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array());
+    return (int) crc.getValue() == checksum ? buffer.array() : null;
+  }
+
+  private static ByteBuffer header(@NotNull Base base) {
+    return ByteBuffer.allocate(HEADER_SIZE)
+        .putInt(MAGIC)
+        .putLong(base.size())
+        .put(HexFormat.of().parseHex(base.hash()))
+        .flip();
+  }
+
+  private static int readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, position + total);
+      if (n < 0)
+        break;
+      total += n;
+    }
+    return total;
+  }
+
+  private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining())
+      position += channel.write(buffer, position);
+  }
+
+  /**
+   * Identifies the tree file a journal applies to.
+   *
+   * @param size The tree file’s size, in bytes.
+   * @param hash The hexadecimal SHA-256 hash of the tree file’s contents, see {@link AttachmentStore#hash(Path)}.
+   */
+  record Base(long size, @NotNull String hash) {
+    /**
+     * The bases of the tree files read by this application, so that large tree files are not hashed
+     * each time a delta is appended. Entries are only used while the file’s attributes are unchanged.
+     */
+    private static final Map<Path, Cached> CACHE = new ConcurrentHashMap<>();
+
+    public Base {
+      Objects.requireNonNull(hash);
+    }
+
+    /**
+     * Return the base of the given tree file.
+     *
+     * @param treeFile A tree file.
+     * @return The file’s base.
+     * @throws IOException If any I/O error occurs.
+     */
+    static Base of(@NotNull Path treeFile) throws IOException {
+      final Path key = treeFile.toAbsolutePath().normalize();
+      final BasicFileAttributes attributes = Files.readAttributes(treeFile, BasicFileAttributes.class);
+      final Cached cached = CACHE.get(key);
+      if (cached != null && cached.matches(attributes))
+        return cached.base();
+      final Base base = new Base(attributes.size(), AttachmentStore.hash(treeFile));
+      CACHE.put(key, new Cached(base, attributes.lastModifiedTime(), attributes.fileKey()));
+      return base;
+    }
+
+    /**
+     * Remember the base of a tree file that has just been moved, so that it is not hashed again.
+     *
+     * @param treeFile The tree file.
+     * @param base     The file’s base, computed before it was moved.
+     * @throws IOException If any I/O error occurs.
+     */
+    static void remember(@NotNull Path treeFile, @NotNull Base base) throws IOException {
+      final BasicFileAttributes attributes = Files.readAttributes(treeFile, BasicFileAttributes.class);
+      CACHE.put(treeFile.toAbsolutePath().normalize(),
+          new Cached(base, attributes.lastModifiedTime(), attributes.fileKey()));
+    }
+
+    private record Cached(@NotNull Base base, @NotNull FileTime lastModified, Object fileKey) {
+      boolean matches(@NotNull BasicFileAttributes attributes) {
+        return this.base.size() == attributes.size()
+            && this.lastModified.equals(attributes.lastModifiedTime())
+            && Objects.equals(this.fileKey, attributes.fileKey());
+      }
+    }
+  }
+
+  /**
+   * The deltas read from a journal.
+   *
+   * @param base   The tree file the deltas apply to.
+   * @param deltas The deltas, in the order they were appended.
+   * @param length The position of the end of the last delta in the journal.
+   */
+  record Contents(@NotNull Base base, @NotNull List<byte[]> deltas, long length) {
+  }
+
+  private TreeDeltaJournal() {
+  }
+}
@@ -3,7 +3,12 @@ package net.darmo_creations.jenealogio2.io;
 import net.darmo_creations.jenealogio2.model.*;
 import org.jetbrains.annotations.*;
 
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.*;
 import java.util.*;
+import java.util.stream.*;
 
 /**
  * Base class for {@link FamilyTree} readers/writers.
@@ -11,12 +16,28 @@ import java.util.*;
  * The file structure is the following:
  * <ul>
  * <li>{@code tree.xml}: XML file containing the tree’s data.</li>
+ * <li>{@code tree.journal}: optional file containing the changes made to the tree since {@code tree.xml}
+ * was last written, see {@link TreeDeltaJournal}.</li>
  * <li>{@code files/}: folder containing all files.</li>
+ * <li>{@code .staging/}: optional folder containing the file operations of a save that has not completed yet,
+ * see {@link StagedFileOperations}.</li>
+ * <li>{@code .snapshots/}: optional folder containing the previous versions of {@code tree.xml}
+ * and {@code tree.journal}, one sub-folder per version, see {@link #listSnapshots(Path)}.</li>
+ * <li>{@code .store/}: optional folder containing the contents of the files imported while deduplication
+ * was enabled, keyed by their hash, see {@link AttachmentStore}.</li>
  * </ul>
  */
 public abstract class TreeFileManager {
   public static final String TREE_FILE_NAME = "tree.xml";
+  public static final String JOURNAL_FILE_NAME = "tree.journal";
   public static final String FILES_DIR = "files";
+  public static final String STAGING_DIR = ".staging";
+  public static final String SNAPSHOTS_DIR = ".snapshots";
+  public static final String STORE_DIR = ".store";
+  /**
+   * Format of the names of snapshot directories. Names sort in chronological order.
+   */
+  protected static final DateTimeFormatter SNAPSHOT_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
 
   @Unmodifiable
   public static final List<Character> INVALID_PATH_CHARS;
@@ -28,4 +49,40 @@ public abstract class TreeFileManager {
       invalidChars.add((char) i);
     INVALID_PATH_CHARS = Collections.unmodifiableList(invalidChars);
   }
+
+  /**
+   * List the snapshots of the given tree directory. Each snapshot is a directory containing
+   * a tree file and an optional journal, as they were before a save replaced them.
+   *
+   * @param directory A tree’s directory.
+   * @return The snapshot directories, most recent first.
+   * @throws IOException If any I/O error occurs.
+   */
+  public static List<Path> listSnapshots(@NotNull Path directory) throws IOException {
+    final Path snapshotsDir = directory.resolve(SNAPSHOTS_DIR);
+    if (!Files.isDirectory(snapshotsDir))
+      return new ArrayList<>();
+    try (final var files = Files.list(snapshotsDir)) {
+      return files.filter(Files::isDirectory)
+          .sorted(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed())
+          .collect(Collectors.toCollection(ArrayList::new));
+    }
+  }
+
+  /**
+   * Return the date at which the given snapshot was taken.
+   *
+   * @param snapshot A snapshot directory, as returned by {@link #listSnapshots(Path)}.
+   * @return The snapshot’s date, or an empty {@link Optional} if its name is not a date.
+   */
+  public static Optional<LocalDateTime> snapshotDate(@NotNull Path snapshot) {
+    // Snapshots taken within the same millisecond have an additional numbered suffix
+    final List<String> parts = Arrays.asList(snapshot.getFileName().toString().split("-"));
+    try {
+      return Optional.of(LocalDateTime.parse(
+          String.join("-", parts.subList(0, Math.min(3, parts.size()))), SNAPSHOT_NAME_FORMATTER));
+    } catch (final DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
 }
@@ -1,6 +1,11 @@
 package net.darmo_creations.jenealogio2.io;
 
+import org.jetbrains.annotations.*;
+
 import javax.xml.parsers.*;
+import javax.xml.stream.*;
+import java.io.*;
+import java.util.*;
 
 /**
  * Base class for tree XML serializers.
@@ -12,8 +17,11 @@ public abstract class TreeXMLManager {
   protected static final String REGISTRIES_VERSION_ATTR = "version";
   protected static final String FAMILY_TREE_NAME_ATTR = "name";
   protected static final String FAMILY_TREE_ROOT_ATTR = "root";
+  protected static final String FAMILY_TREE_NEXT_ID_ATTR = "nextId";
+  protected static final String DELTA_TAG = "FamilyTreeDelta";
   protected static final String REGISTRIES_TAG = "Registries";
   protected static final String PEOPLE_TAG = "People";
+  protected static final String REMOVED_PEOPLE_TAG = "RemovedPeople";
   protected static final String LIFE_EVENTS_TAG = "LifeEvents";
   protected static final String DOCUMENTS_TAG = "Documents";
   protected static final String GENDERS_TAG = "Genders";
@@ -86,9 +94,26 @@ public abstract class TreeXMLManager {
   public static final String REG_FILE_EXTENSION = ".jtreereg";
 
   private final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+  private final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+  private final Mode mode;
 
-  public TreeXMLManager() {
+  /**
+   * Create a serializer.
+   *
+   * @param mode The way tree files should be processed.
+   */
+  public TreeXMLManager(@NotNull Mode mode) {
+    this.mode = Objects.requireNonNull(mode);
     this.documentBuilderFactory.setIgnoringComments(true);
+    this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  /**
+   * The way this serializer processes tree files.
+   */
+  public Mode mode() {
+    return this.mode;
   }
 
   /**
@@ -101,4 +126,29 @@ public abstract class TreeXMLManager {
       throw new RuntimeException(e); // Should never happen
     }
   }
+
+  /**
+   * Return a new streaming XML reader for the given input stream.
+   *
+   * @param inputStream The stream to read from.
+   * @throws XMLStreamException If the reader could not be created.
+   */
+  protected XMLStreamReader newXMLStreamReader(@NotNull InputStream inputStream) throws XMLStreamException {
+    return this.xmlInputFactory.createXMLStreamReader(inputStream);
+  }
+
+  /**
+   * Enumeration of the ways tree files may be processed.
+   */
+  public enum Mode {
+    /**
+     * The whole XML document is held in memory while being processed.
+     */
+    DOM,
+    /**
+     * The XML document is processed one element at a time, while being read or written.
+     * Memory usage is proportional to the size of the tree rather than that of the document.
+     */
+    STREAMING,
+  }
 }
@@ -9,17 +9,35 @@ import net.darmo_creations.jenealogio2.utils.*;
 import org.jetbrains.annotations.*;
 import org.w3c.dom.*;
 
+import javax.xml.stream.*;
 import java.io.*;
 import java.nio.*;
 import java.nio.file.*;
 import java.time.format.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 
 /**
  * Deserializes {@link FamilyTree} objects from XML data.
  */
 public class TreeXMLReader extends TreeXMLManager {
+  /**
+   * Create a reader that loads whole tree files in memory before deserializing them.
+   */
+  public TreeXMLReader() {
+    this(Mode.DOM);
+  }
+
+  /**
+   * Create a reader.
+   *
+   * @param mode The way tree files should be parsed.
+   */
+  public TreeXMLReader(@NotNull Mode mode) {
+    super(mode);
+  }
+
   // region Public methods
 
   /**
@@ -33,6 +51,46 @@ public class TreeXMLReader extends TreeXMLManager {
   public FamilyTree readFromStream(
       @NotNull InputStream inputStream,
       @NotNull AttachedDocumentBuilder documentBuilder
+  ) throws IOException {
+    return this.readFromStream(inputStream, documentBuilder, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Read a family tree object from an input stream.
+   *
+   * @param inputStream     The stream to read from.
+   * @param documentBuilder Function that provides a document for the given name and data.
+   * @param monitor         A monitor to report progress to.
+   * @return The corresponding family tree object.
+   * @throws IOException           If any error occurs.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public FamilyTree readFromStream(
+      @NotNull InputStream inputStream,
+      @NotNull AttachedDocumentBuilder documentBuilder,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    final FamilyTree familyTree = switch (this.mode()) {
+      case DOM -> this.readFromDocument(inputStream, documentBuilder, monitor);
+      case STREAMING -> this.readFromXMLStream(inputStream, documentBuilder, monitor);
+    };
+    familyTree.clearModifications();
+    return familyTree;
+  }
+
+  /**
+   * Read a family tree object from an input stream by first loading the whole XML document in memory.
+   *
+   * @param inputStream     The stream to read from.
+   * @param documentBuilder Function that provides a document for the given name and data.
+   * @param monitor         A monitor to report progress to.
+   * @return The corresponding family tree object.
+   * @throws IOException If any error occurs.
+   */
+  private FamilyTree readFromDocument(
+      @NotNull InputStream inputStream,
+      @NotNull AttachedDocumentBuilder documentBuilder,
+      @NotNull ProgressMonitor monitor
   ) throws IOException {
     final Document document = XmlUtils.readFile(inputStream);
 
@@ -43,31 +101,354 @@ public class TreeXMLReader extends TreeXMLManager {
 
     final Element peopleElement = XmlUtils.getChildElement(familyTreeElement, PEOPLE_TAG, false).orElseThrow();
     final FamilyTree familyTree = new FamilyTree(name);
+    readNextPersonID(familyTreeElement, familyTree);
 
     final Optional<Element> registriesElement = XmlUtils.getChildElement(familyTreeElement, REGISTRIES_TAG, true);
     if (registriesElement.isPresent())
       this.loadUserRegistries(registriesElement.get(), familyTree);
+    monitor.report(ProgressMonitor.Phase.REGISTRIES, 1, 1);
 
     final Optional<Element> documentsElement = XmlUtils.getChildElement(familyTreeElement, DOCUMENTS_TAG, true);
     if (documentsElement.isPresent())
-      this.loadDocuments(documentsElement.get(), familyTree, documentBuilder);
+      this.loadDocuments(documentsElement.get(), familyTree, documentBuilder, monitor);
 
-    final List<Person> persons = this.readPersons(peopleElement, familyTree);
+    final PersonIndex persons = this.readPersons(peopleElement, familyTree, monitor);
+    this.setRoot(familyTree, persons, rootID);
+    final Optional<Element> eventsElement = XmlUtils.getChildElement(familyTreeElement, LIFE_EVENTS_TAG, true);
+    if (eventsElement.isPresent()) {
+      familyTree.beginLifeEventsBulkUpdate();
+      try {
+        this.readLifeEvents(eventsElement.get(), persons, familyTree, monitor);
+      } finally {
+        familyTree.endLifeEventsBulkUpdate();
+      }
+    }
+
+    return familyTree;
+  }
+
+  /**
+   * Read a family tree object from an input stream, one {@code <Person>}, {@code <LifeEvent>}
+   * or {@code <Document>} element at a time, without ever loading the whole XML document in memory.
+   * <p>
+   * The {@code <Registries>} and {@code <Documents>} tags must appear before the {@code <People>} tag,
+   * and the {@code <LifeEvents>} tag after it, as written by {@link TreeXMLWriter}.
+   *
+   * @param inputStream     The stream to read from.
+   * @param documentBuilder Function that provides a document for the given name and data.
+   * @param monitor         A monitor to report progress to. Totals are always unknown.
+   * @return The corresponding family tree object.
+   * @throws IOException If any error occurs.
+   */
+  private FamilyTree readFromXMLStream(
+      @NotNull InputStream inputStream,
+      @NotNull AttachedDocumentBuilder documentBuilder,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    try {
+      final XMLStreamReader reader = this.newXMLStreamReader(inputStream);
+      try {
+        return this.readFamilyTree(reader, documentBuilder, monitor);
+      } finally {
+        reader.close();
+      }
+    } catch (final XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private FamilyTree readFamilyTree(
+      @NotNull XMLStreamReader reader,
+      @NotNull AttachedDocumentBuilder documentBuilder,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException, XMLStreamException {
+    // Elements are built in this document one at a time then discarded
+    final Document document = this.newDocumentBuilder().newDocument();
+
+    reader.nextTag();
+    final Element familyTreeElement = XmlUtils.readStartElement(reader, document);
+    this.checkRootElement(familyTreeElement, FAMILY_TREE_TAG, FAMILY_TREE_VERSION_ATTR);
+    final String name = XmlUtils.getAttr(familyTreeElement, FAMILY_TREE_NAME_ATTR, s -> s, null, true);
+    final int rootID = XmlUtils.getAttr(familyTreeElement, FAMILY_TREE_ROOT_ATTR, Integer::parseInt, () -> -1, false);
+
+    final FamilyTree familyTree = new FamilyTree(name);
+    readNextPersonID(familyTreeElement, familyTree);
+    final Set<String> readTags = new HashSet<>();
+    PersonIndex persons = null;
+
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      final String tagName = reader.getLocalName();
+      // Only the first occurrence of each tag is read, like the DOM reader does
+      if (!readTags.add(tagName)) {
+        XmlUtils.skipElement(reader);
+        continue;
+      }
+      switch (tagName) {
+        case REGISTRIES_TAG -> {
+          ensureTagOrder(persons == null, REGISTRIES_TAG, PEOPLE_TAG);
+          this.loadUserRegistries(XmlUtils.readElement(reader, document), familyTree);
+          monitor.report(ProgressMonitor.Phase.REGISTRIES, 1, 1);
+        }
+        case DOCUMENTS_TAG -> {
+          ensureTagOrder(persons == null, DOCUMENTS_TAG, PEOPLE_TAG);
+          int count = 0;
+          while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+            if (reader.getLocalName().equals(DOCUMENT_TAG)) {
+              this.readDocument(XmlUtils.readElement(reader, document), familyTree, documentBuilder);
+              monitor.report(ProgressMonitor.Phase.DOCUMENTS, ++count, -1);
+            } else
+              XmlUtils.skipElement(reader);
+        }
+        case PEOPLE_TAG -> {
+          persons = new PersonIndex();
+          final Map<Person, Map<ParentalRelationType, int[]>> parentsIDs = new HashMap<>();
+          int position = 0;
+          while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+            if (reader.getLocalName().equals(PERSON_TAG)) {
+              persons.put(this.readPerson(XmlUtils.readElement(reader, document), position++, familyTree, parentsIDs));
+              monitor.report(ProgressMonitor.Phase.PERSONS, position, -1);
+            } else
+              XmlUtils.skipElement(reader);
+          this.setParents(persons, parentsIDs);
+          this.setRoot(familyTree, persons, rootID);
+        }
+        case LIFE_EVENTS_TAG -> {
+          ensureTagOrder(persons != null, PEOPLE_TAG, LIFE_EVENTS_TAG);
+          familyTree.beginLifeEventsBulkUpdate();
+          try {
+            int count = 0;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT)
+              if (reader.getLocalName().equals(LIFE_EVENT_TAG)) {
+                this.readLifeEvent(XmlUtils.readElement(reader, document), persons, familyTree);
+                monitor.report(ProgressMonitor.Phase.LIFE_EVENTS, ++count, -1);
+              } else
+                XmlUtils.skipElement(reader);
+          } finally {
+            familyTree.endLifeEventsBulkUpdate();
+          }
+        }
+        default -> XmlUtils.skipElement(reader);
+      }
+    }
+
+    if (persons == null)
+      throw new IOException("Missing tag %s in tag %s".formatted(PEOPLE_TAG, FAMILY_TREE_TAG));
+    return familyTree;
+  }
+
+  /**
+   * Ensure that a tag appears before another one in a streamed document.
+   *
+   * @param inOrder Whether tags appear in the right order.
+   * @param before  The tag that should come first.
+   * @param after   The tag that should come last.
+   * @throws IOException If tags are not in the right order.
+   */
+  private static void ensureTagOrder(boolean inOrder, @NotNull String before, @NotNull String after) throws IOException {
+    if (!inOrder)
+      throw new IOException("Tag %s must appear before tag %s".formatted(before, after));
+  }
+
+  /**
+   * Set the root of a family tree.
+   *
+   * @param familyTree The tree to update.
+   * @param persons    Loaded persons, by ID.
+   * @param rootID     ID of the root person, -1 if undefined.
+   * @throws IOException If the ID is undefined while the tree is not empty, or is invalid.
+   */
+  private void setRoot(
+      @NotNull FamilyTree familyTree,
+      final @NotNull PersonIndex persons,
+      int rootID
+  ) throws IOException {
     if (rootID == -1) {
       if (!persons.isEmpty())
         throw new IOException("Missing root attribute");
-    } else {
+    } else
+      familyTree.setRoot(getPerson(persons, rootID));
+  }
+
+  /**
+   * Apply deltas written by {@link TreeXMLWriter#writeDelta} to a family tree.
+   * <p>
+   * For each delta, the events of all listed persons are removed, the persons are then updated, added or removed,
+   * and the delta’s events are finally added back.
+   *
+   * @param deltas     The deltas to apply, in the order they were written.
+   * @param familyTree The tree to update.
+   * @throws IOException If any delta is malformed or references undefined persons.
+   */
+  public void applyDeltas(final @NotNull List<byte[]> deltas, @NotNull FamilyTree familyTree) throws IOException {
+    final PersonIndex persons = new PersonIndex();
+    for (final Person person : familyTree.persons())
+      persons.put(person);
+    for (final byte[] delta : deltas) {
+      final Document document = XmlUtils.readFile(new ByteArrayInputStream(delta));
+      final Element deltaElement = this.getRootElement(document.getChildNodes(), DELTA_TAG, FAMILY_TREE_VERSION_ATTR);
       try {
-        familyTree.setRoot(persons.get(rootID));
-      } catch (final IndexOutOfBoundsException e) {
+        this.applyDelta(deltaElement, persons, familyTree);
+      } catch (final IllegalArgumentException | NoSuchElementException e) {
         throw new IOException(e);
       }
     }
-    final Optional<Element> eventsElement = XmlUtils.getChildElement(familyTreeElement, LIFE_EVENTS_TAG, true);
-    if (eventsElement.isPresent())
-      this.readLifeEvents(eventsElement.get(), persons, familyTree);
+  }
 
-    return familyTree;
+  /**
+   * Apply a delta to a family tree.
+   *
+   * @param deltaElement The delta’s root element.
+   * @param persons      The tree’s persons, by ID. Updated as persons are added and removed.
+   * @param familyTree   The tree to update.
+   * @throws IOException If the delta is malformed or references undefined persons.
+   */
+  private void applyDelta(
+      final @NotNull Element deltaElement,
+      @NotNull PersonIndex persons,
+      @NotNull FamilyTree familyTree
+  ) throws IOException {
+    final String name = XmlUtils.getAttr(deltaElement, FAMILY_TREE_NAME_ATTR, s -> s, null, true);
+    final int rootID = XmlUtils.getAttr(deltaElement, FAMILY_TREE_ROOT_ATTR, Integer::parseInt, () -> -1, false);
+    final List<Element> personElements = XmlUtils.getChildElement(deltaElement, PEOPLE_TAG, true)
+        .map(e -> XmlUtils.getChildElements(e, PERSON_TAG))
+        .orElse(List.of());
+    final List<Element> removedElements = XmlUtils.getChildElement(deltaElement, REMOVED_PEOPLE_TAG, true)
+        .map(e -> XmlUtils.getChildElements(e, PERSON_TAG))
+        .orElse(List.of());
+
+    // The delta contains all the current events of the listed persons
+    final Set<LifeEvent> lifeEvents = new HashSet<>();
+    for (final Element personElement : personElements)
+      findPerson(persons, personElement).ifPresent(p -> lifeEvents.addAll(p.lifeEvents()));
+    for (final Element personElement : removedElements)
+      findPerson(persons, personElement).ifPresent(p -> lifeEvents.addAll(p.lifeEvents()));
+    lifeEvents.forEach(familyTree::deleteLifeEvent);
+
+    final Map<Person, Map<ParentalRelationType, int[]>> parentsIDs = new HashMap<>();
+    for (final Element personElement : personElements) {
+      final Optional<Person> person = findPerson(persons, personElement);
+      if (person.isPresent()) {
+        clearPerson(person.get(), familyTree);
+        this.readPersonData(personElement, person.get(), familyTree, parentsIDs);
+      } else
+        persons.put(this.readPerson(personElement, -1, familyTree, parentsIDs));
+    }
+    familyTree.setName(name);
+    readNextPersonID(deltaElement, familyTree);
+    if (rootID != -1)
+      familyTree.setRoot(getPerson(persons, rootID));
+    for (final Element personElement : removedElements) {
+      final Optional<Person> person = findPerson(persons, personElement);
+      if (person.isPresent()) {
+        familyTree.removePerson(person.get());
+        persons.remove(person.get().id());
+      }
+    }
+    this.setParents(persons, parentsIDs);
+
+    final Optional<Element> eventsElement = XmlUtils.getChildElement(deltaElement, LIFE_EVENTS_TAG, true);
+    if (eventsElement.isPresent()) {
+      familyTree.beginLifeEventsBulkUpdate();
+      try {
+        for (final Element eventElement : XmlUtils.getChildElements(eventsElement.get(), LIFE_EVENT_TAG))
+          this.readLifeEvent(eventElement, persons, familyTree);
+      } finally {
+        familyTree.endLifeEventsBulkUpdate();
+      }
+    }
+  }
+
+  /**
+   * Set the ID of the next person of the given tree from the given root or delta element, if it has one.
+   *
+   * @param element    The element to read from.
+   * @param familyTree The tree to update.
+   * @throws IOException If the attribute is malformed.
+   */
+  private static void readNextPersonID(final @NotNull Element element, @NotNull FamilyTree familyTree)
+      throws IOException {
+    final int nextID = XmlUtils.getAttr(element, FAMILY_TREE_NEXT_ID_ATTR, Integer::parseInt, () -> 0, false);
+    try {
+      familyTree.setNextPersonID(nextID);
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Get the person referenced by the ID attribute of the given {@code <Person>} element.
+   *
+   * @param persons       Loaded persons, by ID.
+   * @param personElement The element.
+   * @return The person or an empty {@link Optional} if no person has the element’s ID.
+   * @throws IOException If the element has no valid ID.
+   */
+  private static Optional<Person> findPerson(
+      final @NotNull PersonIndex persons,
+      final @NotNull Element personElement
+  ) throws IOException {
+    final int id = XmlUtils.getAttr(personElement, PERSON_ID_ATTR, Integer::parseInt, null, false);
+    return Optional.ofNullable(persons.get(id));
+  }
+
+  /**
+   * Reset all the data of a person that is written in its {@code <Person>} element,
+   * except its ID and life status.
+   *
+   * @param person     The person to reset.
+   * @param familyTree The tree the person belongs to.
+   */
+  private static void clearPerson(@NotNull Person person, @NotNull FamilyTree familyTree) {
+    for (final AttachedDocument document : new ArrayList<>(person.documents()))
+      familyTree.removeDocumentFromObject(document.fileName(), person);
+    for (final Set<Person> parents : person.parents().values())
+      parents.forEach(person::removeParent);
+    person.setDisambiguationID(null)
+        .setLegalLastName(null)
+        .setLegalFirstNames(List.of())
+        .setPublicLastName(null)
+        .setPublicFirstNames(List.of())
+        .setNicknames(List.of())
+        .setAssignedGenderAtBirth(null)
+        .setGender(null)
+        .setMainOccupation(null)
+        .setNotes(null)
+        .setSources(null);
+  }
+
+  /**
+   * Read the name of a family tree from an input stream without loading the tree itself.
+   * <p>
+   * Only the root element is parsed, reading stops right after it.
+   *
+   * @param inputStream The stream to read from.
+   * @return The tree’s name.
+   * @throws IOException If the root element is missing or malformed, or the file version is not supported.
+   */
+  public String readTreeName(@NotNull InputStream inputStream) throws IOException {
+    try {
+      final XMLStreamReader reader = this.newXMLStreamReader(inputStream);
+      try {
+        while (reader.hasNext())
+          if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+            if (!reader.getLocalName().equals(FAMILY_TREE_TAG))
+              throw new IOException("Missing root element");
+            final String version = reader.getAttributeValue(null, FAMILY_TREE_VERSION_ATTR);
+            if (!String.valueOf(VERSION).equals(version))
+              throw new IOException("Unsupported XML file version: " + version);
+            final String name = reader.getAttributeValue(null, FAMILY_TREE_NAME_ATTR);
+            if (name == null || name.isBlank())
+              throw new IOException("Missing or empty attribute %s on element %s"
+                  .formatted(FAMILY_TREE_NAME_ATTR, FAMILY_TREE_TAG));
+            return name.strip();
+          }
+      } finally {
+        reader.close();
+      }
+    } catch (final XMLStreamException e) {
+      throw new IOException(e);
+    }
+    throw new IOException("Missing root element");
   }
 
   /**
@@ -97,12 +478,20 @@ public class TreeXMLReader extends TreeXMLManager {
     if (childNodes.getLength() != 1)
       throw new IOException("Parse error");
     final Element familyTreeElement = (Element) childNodes.item(0);
-    if (!familyTreeElement.getTagName().equals(rootTagName))
+    this.checkRootElement(familyTreeElement, rootTagName, documentVersionAttr);
+    return familyTreeElement;
+  }
+
+  private void checkRootElement(
+      final @NotNull Element rootElement,
+      @NotNull String rootTagName,
+      @NotNull String documentVersionAttr
+  ) throws IOException {
+    if (!rootElement.getTagName().equals(rootTagName))
       throw new IOException("Missing root element");
-    final int version = XmlUtils.getAttr(familyTreeElement, documentVersionAttr, Integer::parseInt, null, false);
+    final int version = XmlUtils.getAttr(rootElement, documentVersionAttr, Integer::parseInt, null, false);
     if (version != 1)
       throw new IOException("Unsupported XML file version: " + version);
-    return familyTreeElement;
   }
 
   /**
@@ -180,23 +569,43 @@ public class TreeXMLReader extends TreeXMLManager {
    * @param documentsElement XML element containing the documents’ definitions.
    * @param familyTree       The family tree to load documents into.
    * @param documentBuilder  Function that provides an {@link AttachedDocument} for the given name.
+   * @param monitor          A monitor to report progress to.
    * @throws IOException In any error occurs.
    */
   private void loadDocuments(
       @NotNull Element documentsElement,
       @NotNull FamilyTree familyTree,
-      @NotNull AttachedDocumentBuilder documentBuilder
+      @NotNull AttachedDocumentBuilder documentBuilder,
+      @NotNull ProgressMonitor monitor
   ) throws IOException {
     final List<Element> documentElements = XmlUtils.getChildElements(documentsElement, DOCUMENT_TAG);
+    int count = 0;
     for (final Element documentElement : documentElements) {
-      final String name = XmlUtils.getAttr(documentElement, DOCUMENT_NAME_ATTR, s -> s, () -> null, false);
-      final Optional<Element> descElement = XmlUtils.getChildElement(documentElement, DOCUMENT_DESC_TAG, true);
-      final String desc = descElement.map(Element::getTextContent).orElse(null);
-      final DateTime date = this.readDateTag(documentElement, true);
-      familyTree.addDocument(documentBuilder.build(name, desc, date));
+      this.readDocument(documentElement, familyTree, documentBuilder);
+      monitor.report(ProgressMonitor.Phase.DOCUMENTS, ++count, documentElements.size());
     }
   }
 
+  /**
+   * Load a document from a {@code <Document>} tag.
+   *
+   * @param documentElement XML element containing the document’s definition.
+   * @param familyTree      The family tree to load the document into.
+   * @param documentBuilder Function that provides an {@link AttachedDocument} for the given name.
+   * @throws IOException In any error occurs.
+   */
+  private void readDocument(
+      @NotNull Element documentElement,
+      @NotNull FamilyTree familyTree,
+      @NotNull AttachedDocumentBuilder documentBuilder
+  ) throws IOException {
+    final String name = XmlUtils.getAttr(documentElement, DOCUMENT_NAME_ATTR, s -> s, () -> null, false);
+    final Optional<Element> descElement = XmlUtils.getChildElement(documentElement, DOCUMENT_DESC_TAG, true);
+    final String desc = descElement.map(Element::getTextContent).orElse(null);
+    final DateTime date = this.readDateTag(documentElement, true);
+    familyTree.addDocument(documentBuilder.build(name, desc, date));
+  }
+
   // endregion
   // region Persons
 
@@ -205,41 +614,23 @@ public class TreeXMLReader extends TreeXMLManager {
    *
    * @param peopleElement XML element containing Person elements.
    * @param familyTree    The family tree to populate.
-   * @return The list of loaded persons.
+   * @param monitor       A monitor to report progress to.
+   * @return The loaded persons, by ID.
    * @throws IOException In any error occurs.
    */
-  private List<Person> readPersons(
+  private PersonIndex readPersons(
       final @NotNull Element peopleElement,
-      @NotNull FamilyTree familyTree
+      @NotNull FamilyTree familyTree,
+      @NotNull ProgressMonitor monitor
   ) throws IOException {
-    final List<Person> persons = new LinkedList<>();
-    final Map<Person, Map<ParentalRelationType, List<Integer>>> parentsIDs = new HashMap<>();
-
-    for (final Element personElement : XmlUtils.getChildElements(peopleElement, PERSON_TAG)) {
-      final Person person = new Person();
-
-      this.readDocumentsTag(personElement, person, familyTree);
-      this.readDisambiguationIdTag(personElement, person);
-      this.readLifeStatusTag(personElement, person);
-      // Legal last name
-      this.readName(personElement, LEGAL_LAST_NAME_TAG, person::setLegalLastName);
-      // Legal first names
-      this.readNames(personElement, LEGAL_FIRST_NAMES_TAG, person::setLegalFirstNames);
-      // Public last name
-      this.readName(personElement, PUBLIC_LAST_NAME_TAG, person::setPublicLastName);
-      // Public first names
-      this.readNames(personElement, PUBLIC_FIRST_NAMES_TAG, person::setPublicFirstNames);
-      // Nicknames
-      this.readNames(personElement, NICKNAMES_TAG, person::setNicknames);
-      this.readGenderTag(personElement, familyTree, AGAB_TAG, AGAB_KEY_ATTR, person::setAssignedGenderAtBirth);
-      this.readGenderTag(personElement, familyTree, GENDER_TAG, GENDER_KEY_ATTR, person::setGender);
-      this.readMainOccupationTag(personElement, person);
-      this.readParentsTag(personElement, person, parentsIDs);
-      this.readNotesTag(personElement, person);
-      this.readSourcesTag(personElement, person);
-
-      familyTree.addPerson(person);
-      persons.add(person);
+    final PersonIndex persons = new PersonIndex();
+    final Map<Person, Map<ParentalRelationType, int[]>> parentsIDs = new HashMap<>();
+
+    final List<Element> personElements = XmlUtils.getChildElements(peopleElement, PERSON_TAG);
+    int position = 0;
+    for (final Element personElement : personElements) {
+      persons.put(this.readPerson(personElement, position++, familyTree, parentsIDs));
+      monitor.report(ProgressMonitor.Phase.PERSONS, position, personElements.size());
     }
 
     this.setParents(persons, parentsIDs);
@@ -247,6 +638,85 @@ public class TreeXMLReader extends TreeXMLManager {
     return persons;
   }
 
+  /**
+   * Read a Person XML element. Parents are not set but put into the given map.
+   *
+   * @param personElement XML element to read.
+   * @param defaultID     ID to give the person if the element has none,
+   *                      i.e. its position in files written before IDs were persisted.
+   * @param familyTree    The family tree to add the person to.
+   * @param parentsIDs    Map into which to put all the parents of the person.
+   * @return The loaded person.
+   * @throws IOException In any error occurs.
+   */
+  private Person readPerson(
+      final @NotNull Element personElement,
+      int defaultID,
+      @NotNull FamilyTree familyTree,
+      @NotNull Map<Person, Map<ParentalRelationType, int[]>> parentsIDs
+  ) throws IOException {
+    final Person person = new Person();
+    final int id = XmlUtils.getAttr(personElement, PERSON_ID_ATTR, Integer::parseInt, () -> defaultID, false);
+    this.readPersonData(personElement, person, familyTree, parentsIDs);
+    try {
+      familyTree.addPerson(person, id);
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+    return person;
+  }
+
+  /**
+   * Read the data of a Person XML element into the given person. Parents are not set but put into the given map.
+   *
+   * @param personElement XML element to read.
+   * @param person        The person to update.
+   * @param familyTree    The family tree the person belongs or will belong to.
+   * @param parentsIDs    Map into which to put all the parents of the person.
+   * @throws IOException In any error occurs.
+   */
+  private void readPersonData(
+      final @NotNull Element personElement,
+      @NotNull Person person,
+      @NotNull FamilyTree familyTree,
+      @NotNull Map<Person, Map<ParentalRelationType, int[]>> parentsIDs
+  ) throws IOException {
+    this.readDocumentsTag(personElement, person, familyTree);
+    this.readDisambiguationIdTag(personElement, person);
+    this.readLifeStatusTag(personElement, person);
+    // Legal last name
+    this.readName(personElement, LEGAL_LAST_NAME_TAG, person::setLegalLastName);
+    // Legal first names
+    this.readNames(personElement, LEGAL_FIRST_NAMES_TAG, person::setLegalFirstNames);
+    // Public last name
+    this.readName(personElement, PUBLIC_LAST_NAME_TAG, person::setPublicLastName);
+    // Public first names
+    this.readNames(personElement, PUBLIC_FIRST_NAMES_TAG, person::setPublicFirstNames);
+    // Nicknames
+    this.readNames(personElement, NICKNAMES_TAG, person::setNicknames);
+    this.readGenderTag(personElement, familyTree, AGAB_TAG, AGAB_KEY_ATTR, person::setAssignedGenderAtBirth);
+    this.readGenderTag(personElement, familyTree, GENDER_TAG, GENDER_KEY_ATTR, person::setGender);
+    this.readMainOccupationTag(personElement, person);
+    this.readParentsTag(personElement, person, parentsIDs);
+    this.readNotesTag(personElement, person);
+    this.readSourcesTag(personElement, person);
+  }
+
+  /**
+   * Get the loaded person with the given ID.
+   *
+   * @param persons Loaded persons, by ID.
+   * @param id      The ID of the person to get.
+   * @return The person.
+   * @throws IOException If no person has the given ID.
+   */
+  private static Person getPerson(final @NotNull PersonIndex persons, int id) throws IOException {
+    final Person person = persons.get(id);
+    if (person == null)
+      throw new IOException("Undefined person ID: " + id);
+    return person;
+  }
+
   /**
    * Read the {@code <Documents>} tag for the given object.
    *
@@ -368,11 +838,11 @@ public class TreeXMLReader extends TreeXMLManager {
   private void readParentsTag(
       final @NotNull Element personElement,
       final @NotNull Person person,
-      @NotNull Map<Person, Map<ParentalRelationType, List<Integer>>> relativesIDs
+      @NotNull Map<Person, Map<ParentalRelationType, int[]>> relativesIDs
   ) throws IOException {
     final Optional<Element> relativesElement = XmlUtils.getChildElement(personElement, PARENTS_TAG, true);
     if (relativesElement.isPresent()) {
-      final HashMap<ParentalRelationType, List<Integer>> groupsMap = new HashMap<>();
+      final Map<ParentalRelationType, int[]> groupsMap = new EnumMap<>(ParentalRelationType.class);
       relativesIDs.put(person, groupsMap);
       for (final Element groupElement : XmlUtils.getChildElements(relativesElement.get(), PARENT_GROUP_TAG)) {
         final int ordinal = XmlUtils.getAttr(groupElement, PARENT_GROUP_ORDINAL_ATTR, Integer::parseInt, null, false);
@@ -382,12 +852,14 @@ public class TreeXMLReader extends TreeXMLManager {
         } catch (final IndexOutOfBoundsException e) {
           throw new IOException(e);
         }
-        final LinkedList<Integer> parentsList = new LinkedList<>();
-        groupsMap.put(parentType, parentsList);
-        for (final Element parentElement : XmlUtils.getChildElements(groupElement, PARENT_TAG)) {
+        final List<Element> parentElements = XmlUtils.getChildElements(groupElement, PARENT_TAG);
+        final int[] parentIDs = new int[parentElements.size()];
+        int i = 0;
+        for (final Element parentElement : parentElements) {
           // Defer setting relatives to when all person objects have been deserialized
-          parentsList.add(XmlUtils.getAttr(parentElement, PARENT_ID_ATTR, Integer::parseInt, null, false));
+          parentIDs[i++] = XmlUtils.getAttr(parentElement, PARENT_ID_ATTR, Integer::parseInt, null, false);
         }
+        groupsMap.put(parentType, parentIDs);
       }
     }
   }
@@ -420,20 +892,23 @@ public class TreeXMLReader extends TreeXMLManager {
     sourcesElement.ifPresent(e -> o.setSources(e.getTextContent().strip()));
   }
 
+  /**
+   * Set the parents of all persons in the given map.
+   *
+   * @param persons    Loaded persons, by ID.
+   * @param parentsIDs Map containing the IDs of the parents of each person.
+   * @throws IOException If any ID is invalid.
+   */
   private void setParents(
-      final @NotNull List<Person> persons,
-      final @NotNull Map<Person, Map<ParentalRelationType, List<Integer>>> parentsIDs
+      final @NotNull PersonIndex persons,
+      final @NotNull Map<Person, Map<ParentalRelationType, int[]>> parentsIDs
   ) throws IOException {
     for (final var entry : parentsIDs.entrySet()) {
       final Person person = entry.getKey();
       for (final var group : entry.getValue().entrySet()) {
         final ParentalRelationType type = group.getKey();
         for (final int personID : group.getValue())
-          try {
-            person.addParent(persons.get(personID), type);
-          } catch (final IndexOutOfBoundsException e) {
-            throw new IOException(e);
-          }
+          person.addParent(getPerson(persons, personID), type);
       }
     }
   }
@@ -493,36 +968,57 @@ public class TreeXMLReader extends TreeXMLManager {
    * Read all LifeEvent XML elements.
    *
    * @param eventsElement XML element to read from.
-   * @param persons       List of loaded persons to fetch IDs from.
+   * @param persons       Loaded persons to fetch IDs from, by ID.
+   * @param monitor       A monitor to report progress to.
    * @throws IOException If any error occurs.
    */
   private void readLifeEvents(
       final @NotNull Element eventsElement,
-      final @NotNull List<Person> persons,
-      @NotNull FamilyTree familyTree
+      final @NotNull PersonIndex persons,
+      @NotNull FamilyTree familyTree,
+      @NotNull ProgressMonitor monitor
   ) throws IOException {
-    for (final Element eventElement : XmlUtils.getChildElements(eventsElement, LIFE_EVENT_TAG)) {
-      final LifeEvent lifeEvent;
-      final DateTime date = this.readDateTag(eventElement, false);
-      final LifeEventType type = this.readLifeEventTypeTag(eventElement, familyTree);
-      final List<Person> actors = this.readActorsTag(eventElement, type, persons);
+    final List<Element> eventElements = XmlUtils.getChildElements(eventsElement, LIFE_EVENT_TAG);
+    int count = 0;
+    for (final Element eventElement : eventElements) {
+      this.readLifeEvent(eventElement, persons, familyTree);
+      monitor.report(ProgressMonitor.Phase.LIFE_EVENTS, ++count, eventElements.size());
+    }
+  }
 
-      try {
-        //noinspection DataFlowIssue
-        lifeEvent = new LifeEvent(date, type);
-        familyTree.setLifeEventActors(lifeEvent, new HashSet<>(actors));
-      } catch (final IllegalArgumentException e) {
-        throw new IOException(e);
-      }
+  /**
+   * Read a LifeEvent XML element.
+   *
+   * @param eventElement XML element to read.
+   * @param persons      Loaded persons to fetch IDs from, by ID.
+   * @param familyTree   The family tree to add the event to.
+   * @throws IOException If any error occurs.
+   */
+  private void readLifeEvent(
+      final @NotNull Element eventElement,
+      final @NotNull PersonIndex persons,
+      @NotNull FamilyTree familyTree
+  ) throws IOException {
+    final LifeEvent lifeEvent;
+    final DateTime date = this.readDateTag(eventElement, false);
+    final LifeEventType type = this.readLifeEventTypeTag(eventElement, familyTree);
+    final List<Person> actors = this.readActorsTag(eventElement, type, persons);
 
-      this.readDocumentsTag(eventElement, lifeEvent, familyTree);
-      // Witnesses
-      this.extractPersons(eventElement, WITNESSES_TAG, persons,
-          p -> familyTree.addWitnessToLifeEvent(lifeEvent, p), true);
-      this.readPlaceTag(eventElement, lifeEvent);
-      this.readNotesTag(eventElement, lifeEvent);
-      this.readSourcesTag(eventElement, lifeEvent);
+    try {
+      //noinspection DataFlowIssue
+      lifeEvent = new LifeEvent(date, type);
+      familyTree.setLifeEventActors(lifeEvent, new HashSet<>(actors));
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e);
     }
+
+    this.readDocumentsTag(eventElement, lifeEvent, familyTree);
+    // Witnesses
+    this.extractPersons(eventElement, WITNESSES_TAG, persons,
+        p -> familyTree.addWitnessToLifeEvent(lifeEvent, p), true);
+    this.readPlaceTag(eventElement, lifeEvent);
+    this.readNotesTag(eventElement, lifeEvent);
+    this.readSourcesTag(eventElement, lifeEvent);
   }
 
   /**
@@ -615,14 +1111,14 @@ public class TreeXMLReader extends TreeXMLManager {
    *
    * @param eventElement {@code <LifeEvent>} element to extract actors from.
    * @param type         The type of the event.
-   * @param persons      List of all persons from the current family tree.
+   * @param persons      All persons from the current family tree, by ID.
    * @return The list of all actors for the event.
    * @throws IOException If the XML subtree is malformed or the event has an invalid number of actors.
    */
   private List<Person> readActorsTag(
       final @NotNull Element eventElement,
       final @NotNull LifeEventType type,
-      final @NotNull List<Person> persons
+      final @NotNull PersonIndex persons
   ) throws IOException {
     final List<Person> actors = new LinkedList<>();
     this.extractPersons(eventElement, ACTORS_TAG, persons, actors::add, false);
@@ -657,7 +1153,7 @@ public class TreeXMLReader extends TreeXMLManager {
    *
    * @param eventElement LifeEvent element to read from.
    * @param elementName  Name of the element to read.
-   * @param persons      List of loaded persons to fetch IDs from.
+   * @param persons      Loaded persons to fetch IDs from, by ID.
    * @param consumer     Function that consumes the read persons.
    * @param allowMissing True to allow the element designated by {@code elementName} to be missing;
    *                     false to throw an error if missing.
@@ -666,7 +1162,7 @@ public class TreeXMLReader extends TreeXMLManager {
   private void extractPersons(
       final @NotNull Element eventElement,
       @NotNull String elementName,
-      final @NotNull List<Person> persons,
+      final @NotNull PersonIndex persons,
       @NotNull Consumer<Person> consumer,
       boolean allowMissing
   ) throws IOException {
@@ -675,9 +1171,10 @@ public class TreeXMLReader extends TreeXMLManager {
       return;
     for (final Element actorElement : XmlUtils.getChildElements(personsElement.get(), PERSON_TAG)) {
       final int id = XmlUtils.getAttr(actorElement, PERSON_ID_ATTR, Integer::parseInt, null, false);
+      final Person person = getPerson(persons, id);
       try {
-        consumer.accept(persons.get(id));
-      } catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+        consumer.accept(person);
+      } catch (final IllegalArgumentException e) {
         throw new IOException(e);
       }
     }
@@ -13,12 +13,29 @@ import java.io.*;
 import java.nio.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 
 /**
  * Serializes {@link FamilyTree} objects to XML data.
  */
 public class TreeXMLWriter extends TreeXMLManager {
+  /**
+   * Create a writer that builds whole XML documents in memory before writing them.
+   */
+  public TreeXMLWriter() {
+    this(Mode.DOM);
+  }
+
+  /**
+   * Create a writer.
+   *
+   * @param mode The way tree files should be written.
+   */
+  public TreeXMLWriter(@NotNull Mode mode) {
+    super(mode);
+  }
+
   // region Public methods
 
   /**
@@ -32,30 +49,192 @@ public class TreeXMLWriter extends TreeXMLManager {
       final @NotNull FamilyTree familyTree,
       @NotNull OutputStream outputStream,
       final @NotNull Config config
+  ) {
+    this.writeToStream(familyTree, outputStream, config, ProgressMonitor.NONE);
+  }
+
+  /**
+   * Save a family tree to an output stream.
+   *
+   * @param familyTree   Family tree object to save.
+   * @param outputStream Stream to write to.
+   * @param config       The app’s config.
+   * @param monitor      A monitor to report progress to.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   *                               The stream may then contain partial data.
+   */
+  public void writeToStream(
+      final @NotNull FamilyTree familyTree,
+      @NotNull OutputStream outputStream,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
+  ) {
+    switch (this.mode()) {
+      case DOM -> this.writeToDocument(familyTree, outputStream, config, monitor);
+      case STREAMING -> this.writeToXMLStream(familyTree, outputStream, config, monitor);
+    }
+  }
+
+  /**
+   * Save a family tree to an output stream by first building the whole XML document in memory.
+   *
+   * @param familyTree   Family tree object to save.
+   * @param outputStream Stream to write to.
+   * @param config       The app’s config.
+   * @param monitor      A monitor to report progress to.
+   */
+  private void writeToDocument(
+      final @NotNull FamilyTree familyTree,
+      @NotNull OutputStream outputStream,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
   ) {
     final Document document = this.newDocumentBuilder().newDocument();
 
     final Element familyTreeElement = (Element) document.appendChild(document.createElement(FAMILY_TREE_TAG));
     XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_VERSION_ATTR, String.valueOf(VERSION));
     XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_NAME_ATTR, familyTree.name());
-
-    final Map<Person, Integer> personIDs = new HashMap<>();
-    final List<Person> persons = new LinkedList<>(familyTree.persons());
-    for (int i = 0; i < persons.size(); i++)
-      personIDs.put(persons.get(i), i);
+    XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_NEXT_ID_ATTR, String.valueOf(familyTree.nextPersonID()));
 
     this.writeUserRegistryEntries(document, familyTreeElement, familyTree, null);
-    this.writeDocuments(document, familyTreeElement, familyTree);
+    monitor.report(ProgressMonitor.Phase.REGISTRIES, 1, 1);
+    this.writeDocuments(document, familyTreeElement, familyTree, monitor);
     final Element peopleElement = (Element) familyTreeElement.appendChild(document.createElement(PEOPLE_TAG));
-    this.writePersons(document, familyTreeElement, peopleElement, familyTree, persons, personIDs);
+    this.writePersons(document, familyTreeElement, peopleElement, familyTree, monitor);
     final Element lifeEventsElement = document.createElement(LIFE_EVENTS_TAG);
-    this.writeEvents(document, lifeEventsElement, familyTree.lifeEvents(), personIDs);
+    this.writeEvents(document, lifeEventsElement, familyTree.lifeEvents(), monitor);
     if (lifeEventsElement.hasChildNodes())
       familyTreeElement.appendChild(lifeEventsElement);
 
     XmlUtils.writeFile(outputStream, document, config);
   }
 
+  /**
+   * Save a family tree to an output stream, one {@code <Person>}, {@code <LifeEvent>}
+   * or {@code <Document>} element at a time, without ever building the whole XML document in memory.
+   * The output is identical to that of {@link Mode#DOM}.
+   *
+   * @param familyTree   Family tree object to save.
+   * @param outputStream Stream to write to.
+   * @param config       The app’s config.
+   * @param monitor      A monitor to report progress to.
+   */
+  private void writeToXMLStream(
+      final @NotNull FamilyTree familyTree,
+      @NotNull OutputStream outputStream,
+      final @NotNull Config config,
+      @NotNull ProgressMonitor monitor
+  ) {
+    // Elements are built in this document one at a time then discarded
+    final Document document = this.newDocumentBuilder().newDocument();
+    final StreamingXmlWriter writer = new StreamingXmlWriter(outputStream, config.isDebug());
+
+    final Element familyTreeElement = document.createElement(FAMILY_TREE_TAG);
+    XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_VERSION_ATTR, String.valueOf(VERSION));
+    XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_NAME_ATTR, familyTree.name());
+    XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_NEXT_ID_ATTR, String.valueOf(familyTree.nextPersonID()));
+    familyTree.root().ifPresent(root ->
+        XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_ROOT_ATTR, String.valueOf(root.id())));
+
+    try {
+      writer.writeStartDocument();
+      writer.writeStartElement(familyTreeElement);
+
+      // Registries are small enough to be built at once
+      this.writeUserRegistryEntries(document, familyTreeElement, familyTree, null);
+      if (familyTreeElement.hasChildNodes())
+        writer.writeElement((Element) familyTreeElement.getFirstChild());
+      monitor.report(ProgressMonitor.Phase.REGISTRIES, 1, 1);
+
+      final List<AttachedDocument> documents = sortedDocuments(familyTree.documents());
+      if (!documents.isEmpty()) {
+        writer.writeStartElement(document.createElement(DOCUMENTS_TAG));
+        int count = 0;
+        for (final AttachedDocument doc : documents) {
+          writer.writeElement(this.writeDocument(document, doc));
+          monitor.report(ProgressMonitor.Phase.DOCUMENTS, ++count, documents.size());
+        }
+        writer.writeEndElement();
+      }
+
+      writer.writeStartElement(document.createElement(PEOPLE_TAG));
+      final List<Person> persons = sortedPersons(familyTree.persons());
+      int count = 0;
+      for (final Person person : persons) {
+        writer.writeElement(this.writePerson(document, person));
+        monitor.report(ProgressMonitor.Phase.PERSONS, ++count, persons.size());
+      }
+      writer.writeEndElement();
+
+      final Set<LifeEvent> lifeEvents = familyTree.lifeEvents();
+      if (!lifeEvents.isEmpty()) {
+        writer.writeStartElement(document.createElement(LIFE_EVENTS_TAG));
+        count = 0;
+        for (final LifeEvent lifeEvent : lifeEvents) {
+          writer.writeElement(this.writeEvent(document, lifeEvent));
+          monitor.report(ProgressMonitor.Phase.LIFE_EVENTS, ++count, lifeEvents.size());
+        }
+        writer.writeEndElement();
+      }
+
+      writer.writeEndDocument();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Save the changes made to a family tree since its modifications were last cleared to an output stream.
+   * <p>
+   * The delta contains the tree’s name and root, the modified persons that are still members of the tree,
+   * the IDs of those that have been removed, and all the life events of the tree that any of them acts in
+   * or witnesses. Registries and documents are not included, see {@link FamilyTree#isGlobalDataModified()}.
+   *
+   * @param familyTree   Family tree object whose changes should be saved.
+   * @param outputStream Stream to write to.
+   * @param config       The app’s config.
+   * @see FamilyTree#modifiedPersons()
+   */
+  public void writeDelta(
+      final @NotNull FamilyTree familyTree,
+      @NotNull OutputStream outputStream,
+      final @NotNull Config config
+  ) {
+    final Document document = this.newDocumentBuilder().newDocument();
+
+    final Element deltaElement = (Element) document.appendChild(document.createElement(DELTA_TAG));
+    XmlUtils.setAttr(document, deltaElement, FAMILY_TREE_VERSION_ATTR, String.valueOf(VERSION));
+    XmlUtils.setAttr(document, deltaElement, FAMILY_TREE_NAME_ATTR, familyTree.name());
+    XmlUtils.setAttr(document, deltaElement, FAMILY_TREE_NEXT_ID_ATTR, String.valueOf(familyTree.nextPersonID()));
+    familyTree.root().ifPresent(root ->
+        XmlUtils.setAttr(document, deltaElement, FAMILY_TREE_ROOT_ATTR, String.valueOf(root.id())));
+
+    final Element peopleElement = document.createElement(PEOPLE_TAG);
+    final Element removedPeopleElement = document.createElement(REMOVED_PEOPLE_TAG);
+    final Set<LifeEvent> lifeEvents = new LinkedHashSet<>();
+    for (final Person person : sortedPersons(familyTree.modifiedPersons())) {
+      if (familyTree.containsPerson(person)) {
+        peopleElement.appendChild(this.writePerson(document, person));
+        for (final LifeEvent lifeEvent : person.lifeEvents())
+          if (familyTree.containsLifeEvent(lifeEvent))
+            lifeEvents.add(lifeEvent);
+      } else {
+        final Element personElement = (Element) removedPeopleElement.appendChild(document.createElement(PERSON_TAG));
+        XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(person.id()));
+      }
+    }
+    if (peopleElement.hasChildNodes())
+      deltaElement.appendChild(peopleElement);
+    if (removedPeopleElement.hasChildNodes())
+      deltaElement.appendChild(removedPeopleElement);
+    final Element lifeEventsElement = document.createElement(LIFE_EVENTS_TAG);
+    this.writeEvents(document, lifeEventsElement, lifeEvents, ProgressMonitor.NONE);
+    if (lifeEventsElement.hasChildNodes())
+      deltaElement.appendChild(lifeEventsElement);
+
+    XmlUtils.writeFile(outputStream, document, config);
+  }
+
   /**
    * Save registries from a {@link FamilyTree} to a {@code .reg} file.
    *
@@ -102,9 +281,13 @@ public class TreeXMLWriter extends TreeXMLManager {
   ) {
     final Element registriesElement = document.createElement(REGISTRIES_TAG);
     final List<LifeEventType> userLifeEventTypes = familyTree.lifeEventTypeRegistry().serializableEntries().stream()
-        .filter((Predicate<RegistryEntry>) entry -> keep == null || keep.lifeEventTypeKeys().contains(entry.key())).toList();
+        .filter((Predicate<RegistryEntry>) entry -> keep == null || keep.lifeEventTypeKeys().contains(entry.key()))
+        .sorted(Comparator.comparing(entry -> entry.key().fullName()))
+        .toList();
     final List<Gender> userGenders = familyTree.genderRegistry().serializableEntries().stream()
-        .filter((Predicate<RegistryEntry>) entry -> keep == null || keep.genderKeys().contains(entry.key())).toList();
+        .filter((Predicate<RegistryEntry>) entry -> keep == null || keep.genderKeys().contains(entry.key()))
+        .sorted(Comparator.comparing(entry -> entry.key().fullName()))
+        .toList();
 
     if (!userGenders.isEmpty()) {
       final Element gendersElement = document.createElement(GENDERS_TAG);
@@ -163,78 +346,123 @@ public class TreeXMLWriter extends TreeXMLManager {
   private void writeDocuments(
       @NotNull Document document,
       @NotNull Element familyTreeElement,
-      @NotNull FamilyTree familyTree
+      @NotNull FamilyTree familyTree,
+      @NotNull ProgressMonitor monitor
   ) {
-    final Collection<AttachedDocument> documents = familyTree.documents();
+    final List<AttachedDocument> documents = sortedDocuments(familyTree.documents());
     if (!documents.isEmpty()) {
       final Element documentsElement = document.createElement(DOCUMENTS_TAG);
-      documents.forEach(doc -> {
-        final Element documentElement = (Element) documentsElement.appendChild(document.createElement(DOCUMENT_TAG));
-        XmlUtils.setAttr(document, documentElement, DOCUMENT_NAME_ATTR, doc.fileName());
-        final Element descElement = document.createElement(DOCUMENT_DESC_TAG);
-        doc.description().ifPresent(descElement::setTextContent);
-        doc.date().ifPresent(date -> this.writeDateTag(document, documentElement, date));
-        documentElement.appendChild(descElement);
-      });
+      int count = 0;
+      for (final AttachedDocument doc : documents) {
+        documentsElement.appendChild(this.writeDocument(document, doc));
+        monitor.report(ProgressMonitor.Phase.DOCUMENTS, ++count, documents.size());
+      }
       familyTreeElement.appendChild(documentsElement);
     }
   }
 
+  /**
+   * Create the {@code <Document>} element for the given document.
+   *
+   * @param document Current XML document.
+   * @param doc      The document to write.
+   * @return The created element, not attached to any parent.
+   */
+  private Element writeDocument(
+      @NotNull Document document,
+      final @NotNull AttachedDocument doc
+  ) {
+    final Element documentElement = document.createElement(DOCUMENT_TAG);
+    XmlUtils.setAttr(document, documentElement, DOCUMENT_NAME_ATTR, doc.fileName());
+    final Element descElement = document.createElement(DOCUMENT_DESC_TAG);
+    doc.description().ifPresent(descElement::setTextContent);
+    doc.date().ifPresent(date -> this.writeDateTag(document, documentElement, date));
+    documentElement.appendChild(descElement);
+    return documentElement;
+  }
+
+  /**
+   * Sort the given documents by file name, for them to always be written in the same order.
+   *
+   * @param documents The documents to sort.
+   * @return A new sorted list.
+   */
+  private static List<AttachedDocument> sortedDocuments(final @NotNull Collection<AttachedDocument> documents) {
+    return documents.stream().sorted(Comparator.comparing(AttachedDocument::fileName)).toList();
+  }
+
   // endregion
   // region Persons
 
   /**
-   * Write all persons from the tree.
+   * Write all persons from the tree, ordered by ID.
    *
    * @param document          Current XML document.
    * @param familyTreeElement Root element.
    * @param peopleElement     Element to write to.
-   * @param familyTree        Family tree object to get root from.
-   * @param persons           List of persons to write to the document.
-   * @param personIDs         Map to get person IDs from.
+   * @param familyTree        Family tree object to get persons and root from.
+   * @param monitor           A monitor to report progress to.
    */
   private void writePersons(
       @NotNull Document document,
       @NotNull Element familyTreeElement,
       @NotNull Element peopleElement,
       final @NotNull FamilyTree familyTree,
-      final @NotNull List<Person> persons,
-      final @NotNull Map<Person, Integer> personIDs
+      @NotNull ProgressMonitor monitor
   ) {
+    final List<Person> persons = sortedPersons(familyTree.persons());
+    int count = 0;
     for (final Person person : persons) {
       // Set root ID attribute
       if (familyTree.isRoot(person))
-        XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_ROOT_ATTR, String.valueOf(personIDs.get(person)));
-
-      final Element personElement = (Element) peopleElement.appendChild(document.createElement(PERSON_TAG));
-
-      this.writePicturesTag(document, personElement, person);
-      this.writeDisambiguationIdTag(document, personElement, person);
-      this.writeLifeStatusTag(document, personElement, person);
-      this.writeLegalLastNameTag(document, personElement, person);
-      // Legal first names
-      this.writeNames(document, personElement, LEGAL_FIRST_NAMES_TAG, person.legalFirstNames());
-      this.writePublicLastNameTag(document, personElement, person);
-      // Public first names
-      this.writeNames(document, personElement, PUBLIC_FIRST_NAMES_TAG, person.publicFirstNames());
-      // Nicknames
-      this.writeNames(document, personElement, NICKNAMES_TAG, person.nicknames());
-      this.writeGenderTag(document, personElement, AGAB_TAG, AGAB_KEY_ATTR, person::assignedGenderAtBirth);
-      if (!person.assignedGenderAtBirth().equals(person.gender()))
-        this.writeGenderTag(document, personElement, GENDER_TAG, GENDER_KEY_ATTR, person::gender);
-      this.writeMainOccupationTag(document, personElement, person);
-      this.writeParentsTag(document, personElement, person, personIDs);
-      this.writeNotesTag(document, personElement, person);
-      this.writeSourcesTag(document, personElement, person);
+        XmlUtils.setAttr(document, familyTreeElement, FAMILY_TREE_ROOT_ATTR, String.valueOf(person.id()));
+
+      peopleElement.appendChild(this.writePerson(document, person));
+      monitor.report(ProgressMonitor.Phase.PERSONS, ++count, persons.size());
     }
   }
 
+  /**
+   * Create the {@code <Person>} element for the given person.
+   *
+   * @param document Current XML document.
+   * @param person   The person to write.
+   * @return The created element, not attached to any parent.
+   */
+  private Element writePerson(
+      @NotNull Document document,
+      final @NotNull Person person
+  ) {
+    final Element personElement = document.createElement(PERSON_TAG);
+    XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(person.id()));
+
+    this.writePicturesTag(document, personElement, person);
+    this.writeDisambiguationIdTag(document, personElement, person);
+    this.writeLifeStatusTag(document, personElement, person);
+    this.writeLegalLastNameTag(document, personElement, person);
+    // Legal first names
+    this.writeNames(document, personElement, LEGAL_FIRST_NAMES_TAG, person.legalFirstNames());
+    this.writePublicLastNameTag(document, personElement, person);
+    // Public first names
+    this.writeNames(document, personElement, PUBLIC_FIRST_NAMES_TAG, person.publicFirstNames());
+    // Nicknames
+    this.writeNames(document, personElement, NICKNAMES_TAG, person.nicknames());
+    this.writeGenderTag(document, personElement, AGAB_TAG, AGAB_KEY_ATTR, person::assignedGenderAtBirth);
+    if (!person.assignedGenderAtBirth().equals(person.gender()))
+      this.writeGenderTag(document, personElement, GENDER_TAG, GENDER_KEY_ATTR, person::gender);
+    this.writeMainOccupationTag(document, personElement, person);
+    this.writeParentsTag(document, personElement, person);
+    this.writeNotesTag(document, personElement, person);
+    this.writeSourcesTag(document, personElement, person);
+    return personElement;
+  }
+
   private void writePicturesTag(
       @NotNull Document document,
       @NotNull Element element,
       final @NotNull GenealogyObject<?> o
   ) {
-    final Collection<AttachedDocument> documents = o.documents();
+    final List<AttachedDocument> documents = sortedDocuments(o.documents());
     if (!documents.isEmpty()) {
       final Element picturesElement = document.createElement(DOCUMENTS_TAG);
       documents.forEach(doc -> {
@@ -325,19 +553,18 @@ public class TreeXMLWriter extends TreeXMLManager {
   private void writeParentsTag(
       @NotNull Document document,
       @NotNull Element personElement,
-      final @NotNull Person person,
-      final @NotNull Map<Person, Integer> personIDs
+      final @NotNull Person person
   ) {
     final Element parentsElement = document.createElement(PARENTS_TAG);
     for (final var type : ParentalRelationType.values()) {
-      final Set<Person> parents = person.parents(type);
+      final List<Person> parents = sortedPersons(person.parents(type));
       if (parents.isEmpty())
         continue;
       final Element groupElement = (Element) parentsElement.appendChild(document.createElement(PARENT_GROUP_TAG));
       XmlUtils.setAttr(document, groupElement, PARENT_GROUP_ORDINAL_ATTR, String.valueOf(type.ordinal()));
       for (final Person parent : parents) {
         final Element parentElement = (Element) groupElement.appendChild(document.createElement(PARENT_TAG));
-        XmlUtils.setAttr(document, parentElement, PARENT_ID_ATTR, String.valueOf(personIDs.get(parent)));
+        XmlUtils.setAttr(document, parentElement, PARENT_ID_ATTR, String.valueOf(parent.id()));
       }
     }
     if (parentsElement.hasChildNodes())
@@ -390,6 +617,16 @@ public class TreeXMLWriter extends TreeXMLManager {
     });
   }
 
+  /**
+   * Sort the given persons by ID, for them to always be written in the same order.
+   *
+   * @param persons The persons to sort.
+   * @return A new sorted list.
+   */
+  private static List<Person> sortedPersons(final @NotNull Collection<Person> persons) {
+    return persons.stream().sorted(Comparator.comparingInt(Person::id)).toList();
+  }
+
   // endregion
   // region Life events
 
@@ -399,28 +636,45 @@ public class TreeXMLWriter extends TreeXMLManager {
    * @param document          Current XML document.
    * @param lifeEventsElement Element to write to.
    * @param lifeEvents        Set of life events to write.
-   * @param personIDs         Map to extract person IDs from.
+   * @param monitor           A monitor to report progress to.
    */
   private void writeEvents(
       @NotNull Document document,
       @NotNull Element lifeEventsElement,
       final @NotNull Set<LifeEvent> lifeEvents,
-      final @NotNull Map<Person, Integer> personIDs
+      @NotNull ProgressMonitor monitor
   ) {
+    int count = 0;
     for (final LifeEvent lifeEvent : lifeEvents) {
-      final Element lifeEventElement = (Element) lifeEventsElement.appendChild(document.createElement(LIFE_EVENT_TAG));
-
-      this.writePicturesTag(document, lifeEventElement, lifeEvent);
-      this.writeDateTag(document, lifeEventElement, lifeEvent.date());
-      this.writeLifeEventTypeTag(document, lifeEventElement, lifeEvent);
-      this.writePlace(document, lifeEventElement, lifeEvent);
-      this.writeActorsTag(document, lifeEventElement, lifeEvent, personIDs);
-      this.writeWitnessesTag(document, lifeEventElement, lifeEvent, personIDs);
-      this.writeNotesTag(document, lifeEventElement, lifeEvent);
-      this.writeSourcesTag(document, lifeEventElement, lifeEvent);
+      lifeEventsElement.appendChild(this.writeEvent(document, lifeEvent));
+      monitor.report(ProgressMonitor.Phase.LIFE_EVENTS, ++count, lifeEvents.size());
     }
   }
 
+  /**
+   * Create the {@code <LifeEvent>} element for the given life event.
+   *
+   * @param document  Current XML document.
+   * @param lifeEvent The life event to write.
+   * @return The created element, not attached to any parent.
+   */
+  private Element writeEvent(
+      @NotNull Document document,
+      final @NotNull LifeEvent lifeEvent
+  ) {
+    final Element lifeEventElement = document.createElement(LIFE_EVENT_TAG);
+
+    this.writePicturesTag(document, lifeEventElement, lifeEvent);
+    this.writeDateTag(document, lifeEventElement, lifeEvent.date());
+    this.writeLifeEventTypeTag(document, lifeEventElement, lifeEvent);
+    this.writePlace(document, lifeEventElement, lifeEvent);
+    this.writeActorsTag(document, lifeEventElement, lifeEvent);
+    this.writeWitnessesTag(document, lifeEventElement, lifeEvent);
+    this.writeNotesTag(document, lifeEventElement, lifeEvent);
+    this.writeSourcesTag(document, lifeEventElement, lifeEvent);
+    return lifeEventElement;
+  }
+
   private void writeDateTag(
       @NotNull Document document,
       @NotNull Element element,
@@ -475,26 +729,24 @@ public class TreeXMLWriter extends TreeXMLManager {
   private void writeActorsTag(
       @NotNull Document document,
       @NotNull Element lifeEventElement,
-      final @NotNull LifeEvent lifeEvent,
-      final @NotNull Map<Person, Integer> personIDs
+      final @NotNull LifeEvent lifeEvent
   ) {
     final Element actorsElement = (Element) lifeEventElement.appendChild(document.createElement(ACTORS_TAG));
-    lifeEvent.actors().forEach(person -> {
+    sortedPersons(lifeEvent.actors()).forEach(person -> {
       final Element personElement = (Element) actorsElement.appendChild(document.createElement(PERSON_TAG));
-      XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(personIDs.get(person)));
+      XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(person.id()));
     });
   }
 
   private void writeWitnessesTag(
       @NotNull Document document,
       @NotNull Element lifeEventElement,
-      final @NotNull LifeEvent lifeEvent,
-      final @NotNull Map<Person, Integer> personIDs
+      final @NotNull LifeEvent lifeEvent
   ) {
     final Element witnessesElement = document.createElement(WITNESSES_TAG);
-    lifeEvent.witnesses().forEach(person -> {
+    sortedPersons(lifeEvent.witnesses()).forEach(person -> {
       final Element personElement = (Element) witnessesElement.appendChild(document.createElement(PERSON_TAG));
-      XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(personIDs.get(person)));
+      XmlUtils.setAttr(document, personElement, PERSON_ID_ATTR, String.valueOf(person.id()));
     });
     if (witnessesElement.hasChildNodes())
       lifeEventElement.appendChild(witnessesElement);
@@ -24,10 +24,25 @@ public final class TreesMetadataManager {
   private static final String TREE_METADATA_TAG = "TreeMetadata";
   private static final String DIRECTORY_NAME_ATTR = "directoryName";
   private static final String LAST_OPENING_DATE_ATTR = "lastOpeningDate";
+  private static final String NAME_ATTR = "name";
+  private static final String FILE_SIZE_ATTR = "fileSize";
+  private static final String LAST_MODIFIED_ATTR = "lastModified";
 
   private final Map<String, TreeMetadata> trees = new HashMap<>();
+  /**
+   * Size and last modification time of each tree’s file, as they were when the tree’s name was last read.
+   */
+  private final Map<String, FileStamp> fileStamps = new HashMap<>();
 
-  public TreesMetadataManager() {
+  /**
+   * Create a manager and scan {@link App#USER_DATA_DIR} for trees.
+   * <p>
+   * Names cached in the metadata file are reused for trees whose file did not change since the last scan,
+   * other trees only have the root element of their file read.
+   *
+   * @param config The app’s config.
+   */
+  public TreesMetadataManager(final @NotNull Config config) {
     if (!Files.exists(App.USER_DATA_DIR))
       try {
         Files.createDirectory(App.USER_DATA_DIR);
@@ -35,40 +50,47 @@ public final class TreesMetadataManager {
         throw new RuntimeException(e);
       }
 
+    boolean updated = false;
     try (final var files = Files.newDirectoryStream(App.USER_DATA_DIR)) {
-      final var openingDates = this.readMetadataFile();
+      final var cachedEntries = this.readMetadataFile();
+      final TreeXMLReader reader = new TreeXMLReader();
       for (final var path : files) {
-        if (!Files.isDirectory(path) || !Files.exists(path.resolve(TreeFileManager.TREE_FILE_NAME)))
+        final Path treeFile = path.resolve(TreeFileManager.TREE_FILE_NAME);
+        if (!Files.isDirectory(path) || !Files.exists(treeFile))
           continue;
         final String dirName = path.getFileName().toString();
-        final FamilyTree tree;
-        try (final var in = Files.newInputStream(path.resolve(TreeFileManager.TREE_FILE_NAME))) {
-          tree = new TreeXMLReader().readFromStream(
-              in,
-              (name, description, date) -> {
-                final Path filePath = path.resolve(name);
-                final Optional<String> ext = FileUtils.splitExtension(name).extension();
-                if (ext.isPresent() && Picture.FILE_EXTENSIONS.contains(ext.get().toLowerCase()))
-                  return new Picture(null, filePath, description, date);
-                return new AttachedDocument(filePath, description, date);
-              }
-          );
+        final CachedEntry cachedEntry = cachedEntries.get(dirName);
+        final FileStamp stamp;
+        final String treeName;
+        try {
+          stamp = FileStamp.of(treeFile);
+          if (cachedEntry != null && cachedEntry.name() != null && stamp.equals(cachedEntry.stamp()))
+            treeName = cachedEntry.name();
+          else {
+            try (final var in = Files.newInputStream(treeFile)) {
+              treeName = reader.readTreeName(in);
+            }
+            updated = true;
+          }
         } catch (final IOException e) {
           App.LOGGER.exception(e);
           continue;
         }
-        final LocalDateTime lastOpeningDate = Optional.ofNullable(openingDates.get(dirName))
-            .flatMap(Function.identity())
-            .orElse(null);
-        this.trees.put(dirName, new TreeMetadata(tree.name(), dirName, lastOpeningDate));
+        final LocalDateTime lastOpeningDate = cachedEntry != null ? cachedEntry.lastOpeningDate() : null;
+        this.trees.put(dirName, new TreeMetadata(treeName, dirName, lastOpeningDate));
+        this.fileStamps.put(dirName, stamp);
       }
+      if (!updated)
+        updated = !cachedEntries.keySet().equals(this.trees.keySet());
     } catch (final IOException e) {
       throw new RuntimeException(e);
     }
+    if (updated)
+      this.writeMetadataFile(config);
   }
 
-  private Map<String, Optional<LocalDateTime>> readMetadataFile() {
-    final Map<String, Optional<LocalDateTime>> extracted = new HashMap<>();
+  private Map<String, CachedEntry> readMetadataFile() {
+    final Map<String, CachedEntry> extracted = new HashMap<>();
     final Path metadataFile = App.CURRENT_DIR.resolve(METADATA_FILE_NAME);
     if (Files.exists(metadataFile)) {
       try (final var metadata = Files.newInputStream(metadataFile)) {
@@ -85,7 +107,16 @@ public final class TreesMetadataManager {
                   treeElement, DIRECTORY_NAME_ATTR, Function.identity(), null, false);
               final LocalDateTime lastOpeningDate = XmlUtils.getAttr(
                   treeElement, LAST_OPENING_DATE_ATTR, LocalDateTime::parse, () -> null, false);
-              extracted.put(dirName, Optional.ofNullable(lastOpeningDate));
+              final String name = XmlUtils.getAttr(
+                  treeElement, NAME_ATTR, Function.identity(), () -> null, false);
+              final Long fileSize = XmlUtils.getAttr(
+                  treeElement, FILE_SIZE_ATTR, Long::parseLong, () -> null, false);
+              final Long lastModified = XmlUtils.getAttr(
+                  treeElement, LAST_MODIFIED_ATTR, Long::parseLong, () -> null, false);
+              final FileStamp stamp = fileSize != null && lastModified != null
+                  ? new FileStamp(fileSize, lastModified)
+                  : null;
+              extracted.put(dirName, new CachedEntry(name, stamp, lastOpeningDate));
             } catch (final IOException e) {
               App.LOGGER.exception(e);
             }
@@ -109,15 +140,36 @@ public final class TreesMetadataManager {
       final @NotNull Config config
   ) {
     this.trees.put(directoryName, new TreeMetadata(tree.name(), directoryName, LocalDateTime.now()));
+    final Path treeFile = App.USER_DATA_DIR.resolve(directoryName).resolve(TreeFileManager.TREE_FILE_NAME);
+    this.fileStamps.remove(directoryName);
+    if (Files.exists(treeFile))
+      try {
+        this.fileStamps.put(directoryName, FileStamp.of(treeFile));
+      } catch (final IOException e) {
+        App.LOGGER.exception(e);
+      }
+    this.writeMetadataFile(config);
+  }
+
+  /**
+   * Write the metadata of all trees to the metadata.xml file.
+   *
+   * @param config The app’s config.
+   */
+  private void writeMetadataFile(final @NotNull Config config) {
     final Document document = XmlUtils.newDocumentBuilder().newDocument();
     final Element root = (Element) document.appendChild(document.createElement(METADATA_TAG));
     final Element treesElement = (Element) root.appendChild(document.createElement(TREES_TAG));
     for (final TreeMetadata metadata : this.trees.values()) {
       final Element treeMetadata = document.createElement(TREE_METADATA_TAG);
       XmlUtils.setAttr(document, treeMetadata, DIRECTORY_NAME_ATTR, metadata.directoryName());
-      final LocalDateTime date = directoryName.equals(metadata.directoryName())
-          ? LocalDateTime.now()
-          : metadata.lastOpenDate();
+      XmlUtils.setAttr(document, treeMetadata, NAME_ATTR, metadata.name());
+      final FileStamp stamp = this.fileStamps.get(metadata.directoryName());
+      if (stamp != null) {
+        XmlUtils.setAttr(document, treeMetadata, FILE_SIZE_ATTR, String.valueOf(stamp.size()));
+        XmlUtils.setAttr(document, treeMetadata, LAST_MODIFIED_ATTR, String.valueOf(stamp.lastModified()));
+      }
+      final LocalDateTime date = metadata.lastOpenDate();
       if (date != null)
         XmlUtils.setAttr(document, treeMetadata, LAST_OPENING_DATE_ATTR, date.withNano(0).toString());
       treesElement.appendChild(treeMetadata);
@@ -144,4 +196,26 @@ public final class TreesMetadataManager {
   public Map<String, TreeMetadata> treesMetadata() {
     return Collections.unmodifiableMap(this.trees);
   }
+
+  /**
+   * Size and last modification time of a tree file.
+   *
+   * @param size         File’s size in bytes.
+   * @param lastModified File’s last modification time in milliseconds since the epoch.
+   */
+  private record FileStamp(long size, long lastModified) {
+    static FileStamp of(@NotNull Path file) throws IOException {
+      return new FileStamp(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+  }
+
+  /**
+   * Tree metadata as read from the metadata.xml file.
+   *
+   * @param name            The tree’s cached name. May be null.
+   * @param stamp           The tree file’s stamp when the name was cached. May be null.
+   * @param lastOpeningDate The date the tree was last opened. May be null.
+   */
+  private record CachedEntry(String name, FileStamp stamp, LocalDateTime lastOpeningDate) {
+  }
 }
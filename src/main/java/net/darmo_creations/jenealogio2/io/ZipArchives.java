@@ -0,0 +1,447 @@
+package net.darmo_creations.jenealogio2.io;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Writes and extracts ZIP archives using several threads.
+ * <p>
+ * When writing, entries are prepared by a pool of threads: their checksum is computed and,
+ * unless their content is already compressed, they are deflated, in memory for small files
+ * or into a temporary file otherwise. Prepared entries are written in order by the calling thread
+ * as soon as they are ready. Files whose extension indicates an already compressed format,
+ * and files that deflating would not make smaller, are stored as is. Archives larger than 4 GiB
+ * or with more than 65535 entries use the ZIP64 extensions.
+ * <p>
+ * When extracting, files are inflated by a pool of threads.
+ */
+final class ZipArchives {
+  /**
+   * Extensions of files whose content is already compressed.
+   */
+  private static final Set<String> STORED_EXTENSIONS = Set.of(
+      ".jpg", ".jpeg", ".png", ".gif", ".webp", ".mp3", ".mp4", ".ogg", ".webm", ".zip", ".gz", ".7z", ".rar");
+  /**
+   * Maximum size of a file, in bytes, to be deflated in memory.
+   */
+  private static final long MAX_IN_MEMORY_SIZE = 1024 * 1024;
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+  /**
+   * Maximum number of entries being prepared ahead of the one being written.
+   */
+  private static final int MAX_PENDING_ENTRIES = 2 * THREADS;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final short ZIP64_EXTRA_ID = 0x0001;
+  private static final short VERSION = 20;
+  private static final short ZIP64_VERSION = 45;
+  private static final short UTF8_FLAG = 0x0800;
+  private static final long ZIP64_LIMIT = 0xffffffffL;
+  private static final int ZIP64_ENTRIES_LIMIT = 0xffff;
+  private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+  /**
+   * Write a ZIP archive.
+   *
+   * @param file    The archive to write. It is replaced if it exists.
+   * @param entries The entries to write, in order.
+   * @param monitor A monitor to report progress to.
+   * @throws IOException           If any I/O error occurs. The archive is deleted.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   *                               The archive is deleted.
+   */
+  static void write(
+      @NotNull Path file,
+      final @NotNull List<Entry> entries,
+      @NotNull ProgressMonitor monitor
+  ) throws IOException {
+    final ExecutorService executor = newExecutor("Zip writer");
+    final Deque<Future<PreparedEntry>> pending = new ArrayDeque<>();
+    final List<WrittenEntry> writtenEntries = new ArrayList<>(entries.size());
+    boolean success = false;
+    try (final var channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      int next = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        monitor.report(ProgressMonitor.Phase.FILES, i, entries.size());
+        // Limit the number of deflated entries kept in memory or in temporary files
+        while (next < entries.size() && pending.size() < MAX_PENDING_ENTRIES) {
+          final Entry entry = entries.get(next++);
+          pending.add(executor.submit(() -> prepare(entry)));
+        }
+        final PreparedEntry entry = get(pending.remove());
+        try {
+          writtenEntries.add(writeEntry(channel, entry));
+        } finally {
+          entry.discard();
+        }
+      }
+      writeCentralDirectory(channel, writtenEntries);
+      monitor.onProgress(ProgressMonitor.Phase.FILES, entries.size(), entries.size());
+      success = true;
+    } finally {
+      // Tasks that have not started yet would never complete otherwise
+      for (final Runnable task : executor.shutdownNow())
+        ((Future<?>) task).cancel(false);
+      for (final Future<PreparedEntry> future : pending)
+        discard(future);
+      if (!success)
+        Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Extract all entries of a ZIP archive into a directory.
+   *
+   * @param file      The archive to extract.
+   * @param directory The directory to extract entries into.
+   * @param monitor   A monitor to report progress to.
+   * @throws IOException           If any I/O error occurs or any entry would be extracted outside the directory.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  static void extract(@NotNull Path file, @NotNull Path directory, @NotNull ProgressMonitor monitor) throws IOException {
+    final Path targetDir = directory.toAbsolutePath().normalize();
+    try (final var zipFile = new ZipFile(file.toFile(), StandardCharsets.UTF_8)) {
+      final ExecutorService executor = newExecutor("Zip extractor");
+      try {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+          final Path target = targetDir.resolve(entry.getName()).normalize();
+          if (!target.startsWith(targetDir))
+            throw new IOException("Invalid ZIP entry name: " + entry.getName());
+          if (entry.isDirectory())
+            Files.createDirectories(target);
+          else
+            futures.add(executor.submit(() -> {
+              extractEntry(zipFile, entry, target);
+              return null;
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          monitor.report(ProgressMonitor.Phase.FILES, i, futures.size());
+          get(futures.get(i));
+        }
+        monitor.onProgress(ProgressMonitor.Phase.FILES, futures.size(), futures.size());
+      } finally {
+        executor.shutdownNow();
+        try {
+          // The archive must not be closed while entries are being extracted
+          executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private static void extractEntry(@NotNull ZipFile zipFile, @NotNull ZipEntry entry, @NotNull Path target)
+      throws IOException {
+    Files.createDirectories(target.getParent());
+    try (final var in = Channels.newChannel(zipFile.getInputStream(entry));
+         final var out = FileChannel.open(target,
+             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      while (in.read(buffer) >= 0) {
+        out.write(buffer.flip());
+        buffer.compact();
+      }
+      buffer.flip();
+      while (buffer.hasRemaining())
+        out.write(buffer);
+    }
+  }
+
+  /**
+   * Compute the checksum of the given entry’s file and deflate it if relevant.
+   */
+  private static PreparedEntry prepare(@NotNull Entry entry) throws IOException {
+    final Path file = entry.file();
+    if (file == null)
+      return new PreparedEntry(entry, ZipEntry.STORED, 0, 0, 0, System.currentTimeMillis(), new byte[0], null, false);
+    final long size = Files.size(file);
+    final long lastModified = Files.getLastModifiedTime(file).toMillis();
+    final CRC32 crc = new CRC32();
+    final String fileName = file.getFileName().toString();
+    final boolean compressed = FileUtils.splitExtension(fileName).extension()
+        .map(e -> STORED_EXTENSIONS.contains(e.toLowerCase()))
+        .orElse(false);
+    if (compressed || size == 0) {
+      try (final var in = FileChannel.open(file, StandardOpenOption.READ)) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (in.read(buffer) >= 0) {
+          crc.update(buffer.flip());
+          buffer.clear();
+        }
+      }
+      return new PreparedEntry(entry, ZipEntry.STORED, crc.getValue(), size, size, lastModified, null, file, false);
+    }
+
+    final Path tempFile = size > MAX_IN_MEMORY_SIZE ? Files.createTempFile("jenealogio2-zip", null) : null;
+    final var bytesOut = tempFile == null ? new ByteArrayOutputStream((int) size / 2) : null;
+    final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    boolean success = false;
+    try {
+      try (final var in = FileChannel.open(file, StandardOpenOption.READ);
+           final var out = new DeflaterOutputStream(
+               tempFile != null ? Files.newOutputStream(tempFile) : bytesOut, deflater, BUFFER_SIZE)) {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (in.read(buffer) >= 0) {
+          crc.update(buffer.array(), 0, buffer.position());
+          out.write(buffer.array(), 0, buffer.position());
+          buffer.clear();
+        }
+      }
+      final long compressedSize = deflater.getBytesWritten();
+      success = true;
+      if (compressedSize >= size) {
+        if (tempFile != null)
+          Files.delete(tempFile);
+        return new PreparedEntry(entry, ZipEntry.STORED, crc.getValue(), size, size, lastModified, null, file, false);
+      }
+      if (tempFile != null)
+        return new PreparedEntry(entry, ZipEntry.DEFLATED, crc.getValue(), deflater.getBytesRead(), compressedSize,
+            lastModified, null, tempFile, true);
+      return new PreparedEntry(entry, ZipEntry.DEFLATED, crc.getValue(), deflater.getBytesRead(), compressedSize,
+          lastModified, bytesOut.toByteArray(), null, false);
+    } finally {
+      deflater.end();
+      if (!success && tempFile != null)
+        Files.deleteIfExists(tempFile);
+    }
+  }
+
+  /**
+   * Write the local header and data of an entry at the current position of the given channel.
+   */
+  private static WrittenEntry writeEntry(@NotNull FileChannel channel, final @NotNull PreparedEntry entry)
+      throws IOException {
+    final long offset = channel.position();
+    final byte[] name = entry.entry().name().getBytes(StandardCharsets.UTF_8);
+    final boolean zip64 = entry.size() >= ZIP64_LIMIT || entry.compressedSize() >= ZIP64_LIMIT;
+    final ByteBuffer header = newBuffer(30 + name.length + (zip64 ? 20 : 0))
+        .putInt(LOCAL_HEADER_SIGNATURE)
+        .putShort(zip64 ? ZIP64_VERSION : VERSION)
+        .putShort(UTF8_FLAG)
+        .putShort((short) entry.method())
+        .putInt(dosTime(entry.lastModified()))
+        .putInt((int) entry.crc())
+        .putInt((int) (zip64 ? ZIP64_LIMIT : entry.compressedSize()))
+        .putInt((int) (zip64 ? ZIP64_LIMIT : entry.size()))
+        .putShort((short) name.length)
+        .putShort((short) (zip64 ? 20 : 0))
+        .put(name);
+    if (zip64)
+      header.putShort(ZIP64_EXTRA_ID)
+          .putShort((short) 16)
+          .putLong(entry.size())
+          .putLong(entry.compressedSize());
+    writeFully(channel, header.flip());
+    if (entry.data() != null)
+      writeFully(channel, ByteBuffer.wrap(entry.data()));
+    else if (entry.dataFile() != null)
+      try (final var in = FileChannel.open(entry.dataFile(), StandardOpenOption.READ)) {
+        long position = 0;
+        while (position < entry.compressedSize()) {
+          final long n = in.transferTo(position, entry.compressedSize() - position, channel);
+          if (n <= 0)
+            throw new IOException("File changed while being archived: " + entry.entry().file());
+          position += n;
+        }
+      }
+    return new WrittenEntry(entry.entry().name(), entry.entry().file() == null, entry.method(), entry.crc(),
+        entry.size(), entry.compressedSize(), entry.lastModified(), offset);
+  }
+
+  private static void writeCentralDirectory(@NotNull FileChannel channel, final @NotNull List<WrittenEntry> entries)
+      throws IOException {
+    final long start = channel.position();
+    for (final WrittenEntry entry : entries) {
+      final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+      final boolean zip64 = entry.size() >= ZIP64_LIMIT || entry.compressedSize() >= ZIP64_LIMIT
+          || entry.offset() >= ZIP64_LIMIT;
+      final ByteBuffer header = newBuffer(46 + name.length + (zip64 ? 28 : 0))
+          .putInt(CENTRAL_HEADER_SIGNATURE)
+          .putShort(ZIP64_VERSION)
+          .putShort(zip64 ? ZIP64_VERSION : VERSION)
+          .putShort(UTF8_FLAG)
+          .putShort((short) entry.method())
+          .putInt(dosTime(entry.lastModified()))
+          .putInt((int) entry.crc())
+          .putInt((int) (zip64 ? ZIP64_LIMIT : entry.compressedSize()))
+          .putInt((int) (zip64 ? ZIP64_LIMIT : entry.size()))
+          .putShort((short) name.length)
+          .putShort((short) (zip64 ? 28 : 0))
+          .putShort((short) 0) // Comment length
+          .putShort((short) 0) // Disk number
+          .putShort((short) 0) // Internal attributes
+          .putInt(entry.directory() ? DIRECTORY_ATTRIBUTE : 0)
+          .putInt((int) (zip64 ? ZIP64_LIMIT : entry.offset()))
+          .put(name);
+      if (zip64)
+        header.putShort(ZIP64_EXTRA_ID)
+            .putShort((short) 24)
+            .putLong(entry.size())
+            .putLong(entry.compressedSize())
+            .putLong(entry.offset());
+      writeFully(channel, header.flip());
+    }
+    final long end = channel.position();
+    final long size = end - start;
+    final boolean zip64 = entries.size() >= ZIP64_ENTRIES_LIMIT || start >= ZIP64_LIMIT || size >= ZIP64_LIMIT;
+    if (zip64) {
+      writeFully(channel, newBuffer(56 + 20)
+          .putInt(ZIP64_END_SIGNATURE)
+          .putLong(44) // Size of the remaining record
+          .putShort(ZIP64_VERSION)
+          .putShort(ZIP64_VERSION)
+          .putInt(0) // Disk number
+          .putInt(0) // Disk with the central directory
+          .putLong(entries.size())
+          .putLong(entries.size())
+          .putLong(size)
+          .putLong(start)
+          .putInt(ZIP64_LOCATOR_SIGNATURE)
+          .putInt(0) // Disk with the ZIP64 end record
+          .putLong(end)
+          .putInt(1) // Number of disks
+          .flip());
+    }
+    writeFully(channel, newBuffer(22)
+        .putInt(END_SIGNATURE)
+        .putShort((short) 0) // Disk number
+        .putShort((short) 0) // Disk with the central directory
+        .putShort((short) (zip64 ? ZIP64_ENTRIES_LIMIT : entries.size()))
+        .putShort((short) (zip64 ? ZIP64_ENTRIES_LIMIT : entries.size()))
+        .putInt((int) (zip64 ? ZIP64_LIMIT : size))
+        .putInt((int) (zip64 ? ZIP64_LIMIT : start))
+        .putShort((short) 0) // Comment length
+        .flip());
+  }
+
+  /**
+   * Convert a timestamp to the MS-DOS date and time format used by ZIP archives.
+   */
+  private static int dosTime(long millis) {
+    final LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    if (time.getYear() < 1980)
+      return (1 << 21) | (1 << 16); // 1980-01-01 00:00:00
+    return (time.getYear() - 1980) << 25
+        | time.getMonthValue() << 21
+        | time.getDayOfMonth() << 16
+        | time.getHour() << 11
+        | time.getMinute() << 5
+        | time.getSecond() >> 1;
+  }
+
+  private static ByteBuffer newBuffer(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  private static ExecutorService newExecutor(@NotNull String threadName) {
+    return Executors.newFixedThreadPool(THREADS, runnable -> {
+      final Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Wait for the result of the given future, unwrapping any exception it failed with.
+   */
+  private static <T> T get(@NotNull Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe)
+        throw ioe;
+      if (cause instanceof RuntimeException re)
+        throw re;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Discard the temporary file of an entry that will not be written.
+   */
+  private static void discard(@NotNull Future<PreparedEntry> future) {
+    try {
+      future.get().discard();
+    } catch (final InterruptedException | ExecutionException | CancellationException | IOException e) {
+      // Nothing to discard
+    }
+  }
+
+  /**
+   * An entry to write to an archive.
+   *
+   * @param name The entry’s name. Directory names must end with a slash.
+   * @param file The file to write, or null if the entry is a directory.
+   */
+  record Entry(@NotNull String name, Path file) {
+  }
+
+  /**
+   * An entry whose data is ready to be written.
+   *
+   * @param data     The entry’s data, or null if it is in a file.
+   * @param dataFile The file containing the entry’s data, or null if it is in memory.
+   * @param temporary Whether the data file must be deleted once the entry has been written.
+   */
+  private record PreparedEntry(
+      @NotNull Entry entry,
+      int method,
+      long crc,
+      long size,
+      long compressedSize,
+      long lastModified,
+      byte[] data,
+      Path dataFile,
+      boolean temporary
+  ) {
+    void discard() throws IOException {
+      if (this.temporary)
+        Files.deleteIfExists(this.dataFile);
+    }
+  }
+
+  /**
+   * An entry that has been written, as listed in the central directory.
+   */
+  private record WrittenEntry(
+      @NotNull String name,
+      boolean directory,
+      int method,
+      long crc,
+      long size,
+      long compressedSize,
+      long lastModified,
+      long offset
+  ) {
+  }
+
+  private ZipArchives() {
+  }
+}
@@ -0,0 +1,233 @@
+package net.darmo_creations.jenealogio2.model;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * Records the changes made to a {@link FamilyTree} and its objects so that they can be undone and redone.
+ * <p>
+ * Changes are grouped into steps, delimited by calls to {@link #beginStep()} and {@link #endStep()}.
+ * Each change is recorded as a delta, i.e. an action that reverts it. Undoing a step runs its deltas in reverse order,
+ * the deltas recorded while doing so form the step that redoes it. Undoing a step is thus proportional
+ * to the size of the changes it contains, not to the size of the tree.
+ * <p>
+ * The memory used by a journal is bounded by a maximum number of steps and a maximum total number of deltas.
+ * The oldest steps are discarded first. A step that contains more deltas than the maximum cannot be undone,
+ * the journal is cleared once it ends.
+ * <p>
+ * Changes made outside any step cannot be undone, they clear this journal as the recorded steps
+ * may no longer apply to the current state of the tree.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ChangeJournal {
+  public static final int DEFAULT_MAX_STEPS = 100;
+  public static final int DEFAULT_MAX_DELTAS = 100_000;
+
+  private final int maxSteps;
+  private final int maxDeltas;
+  // First elements are the most recent steps
+  private final Deque<List<Runnable>> undoSteps = new ArrayDeque<>();
+  private final Deque<List<Runnable>> redoSteps = new ArrayDeque<>();
+  /**
+   * Total number of deltas in {@link #undoSteps} and {@link #redoSteps}.
+   */
+  private int deltasCount;
+  private List<Runnable> currentStep;
+  private int stepDepth;
+  private boolean stepOverflowed;
+  /**
+   * The step that receives the deltas recorded while undoing or redoing another step.
+   */
+  private List<Runnable> replayStep;
+
+  /**
+   * Create an empty journal with the default bounds.
+   */
+  public ChangeJournal() {
+    this(DEFAULT_MAX_STEPS, DEFAULT_MAX_DELTAS);
+  }
+
+  /**
+   * Create an empty journal.
+   *
+   * @param maxSteps  The maximum number of steps that can be undone.
+   * @param maxDeltas The maximum total number of deltas of the undoable and redoable steps.
+   * @throws IllegalArgumentException If any of the bounds is not strictly positive.
+   */
+  public ChangeJournal(int maxSteps, int maxDeltas) {
+    if (maxSteps <= 0)
+      throw new IllegalArgumentException("Max steps must be > 0");
+    if (maxDeltas <= 0)
+      throw new IllegalArgumentException("Max deltas must be > 0");
+    this.maxSteps = maxSteps;
+    this.maxDeltas = maxDeltas;
+  }
+
+  /**
+   * Begin a new step. All changes made until the matching call to {@link #endStep()} will be undone together.
+   * <p>
+   * Steps may be nested, nested steps are merged into the outermost one.
+   *
+   * @throws IllegalStateException If a step is being undone or redone.
+   */
+  public void beginStep() {
+    if (this.replayStep != null)
+      throw new IllegalStateException("Cannot begin a step while undoing or redoing");
+    if (this.stepDepth++ == 0) {
+      this.currentStep = new ArrayList<>();
+      this.stepOverflowed = false;
+    }
+  }
+
+  /**
+   * End the current step. If it is the outermost one and it contains any change, it becomes the step
+   * returned by the next undo and all redoable steps are discarded.
+   *
+   * @throws IllegalStateException If no step was begun.
+   */
+  public void endStep() {
+    if (this.stepDepth == 0)
+      throw new IllegalStateException("No step to end");
+    if (--this.stepDepth > 0)
+      return;
+    final List<Runnable> step = this.currentStep;
+    this.currentStep = null;
+    if (this.stepOverflowed)
+      this.clear();
+    else if (!step.isEmpty()) {
+      this.deltasCount -= this.redoSteps.stream().mapToInt(List::size).sum();
+      this.redoSteps.clear();
+      this.pushStep(this.undoSteps, step);
+    }
+  }
+
+  /**
+   * Run the given action in a step.
+   *
+   * @param action The action to run.
+   * @throws IllegalStateException If a step is being undone or redone.
+   */
+  public void runAsStep(@NotNull Runnable action) {
+    this.beginStep();
+    try {
+      action.run();
+    } finally {
+      this.endStep();
+    }
+  }
+
+  /**
+   * Indicate whether a step is currently open.
+   */
+  public boolean isInStep() {
+    return this.stepDepth > 0;
+  }
+
+  /**
+   * Record a change.
+   *
+   * @param undo An action that reverts the change.
+   */
+  void record(@NotNull Runnable undo) {
+    Objects.requireNonNull(undo);
+    if (this.replayStep != null)
+      this.replayStep.add(undo);
+    else if (this.currentStep == null)
+      this.clear();
+    else if (!this.stepOverflowed) {
+      if (this.currentStep.size() == this.maxDeltas) {
+        this.stepOverflowed = true;
+        this.currentStep.clear();
+      } else
+        this.currentStep.add(undo);
+    }
+  }
+
+  /**
+   * Indicate whether there is any step to undo.
+   */
+  public boolean canUndo() {
+    return !this.undoSteps.isEmpty();
+  }
+
+  /**
+   * Indicate whether there is any step to redo.
+   */
+  public boolean canRedo() {
+    return !this.redoSteps.isEmpty();
+  }
+
+  /**
+   * Undo the most recent step.
+   *
+   * @throws IllegalStateException If there is no step to undo or a step is currently open.
+   */
+  public void undo() {
+    this.replay(this.undoSteps, this.redoSteps);
+  }
+
+  /**
+   * Redo the most recently undone step.
+   *
+   * @throws IllegalStateException If there is no step to redo or a step is currently open.
+   */
+  public void redo() {
+    this.replay(this.redoSteps, this.undoSteps);
+  }
+
+  /**
+   * Revert the first step of the given stack and push the resulting step onto the other stack.
+   * If any delta fails, this journal is cleared as the tree is left in an intermediate state.
+   */
+  private void replay(@NotNull Deque<List<Runnable>> from, @NotNull Deque<List<Runnable>> to) {
+    if (this.stepDepth > 0)
+      throw new IllegalStateException("Cannot undo or redo while a step is open");
+    if (from.isEmpty())
+      throw new IllegalStateException("No step to replay");
+    final List<Runnable> step = from.pop();
+    this.deltasCount -= step.size();
+    this.replayStep = new ArrayList<>(step.size());
+    try {
+      for (final ListIterator<Runnable> iterator = step.listIterator(step.size()); iterator.hasPrevious(); )
+        iterator.previous().run();
+    } catch (final RuntimeException e) {
+      this.replayStep = null;
+      this.clear();
+      throw e;
+    }
+    final List<Runnable> inverseStep = this.replayStep;
+    this.replayStep = null;
+    this.pushStep(to, inverseStep);
+  }
+
+  private void pushStep(@NotNull Deque<List<Runnable>> stack, @NotNull List<Runnable> step) {
+    stack.push(step);
+    this.deltasCount += step.size();
+    // Discard the oldest undoable steps first, but never the step that was just pushed
+    final int keptUndoSteps = stack == this.undoSteps ? 1 : 0;
+    while (this.undoSteps.size() > keptUndoSteps
+        && (this.undoSteps.size() > this.maxSteps || this.deltasCount > this.maxDeltas))
+      this.deltasCount -= this.undoSteps.removeLast().size();
+    final int keptRedoSteps = stack == this.redoSteps ? 1 : 0;
+    while (this.redoSteps.size() > keptRedoSteps && this.deltasCount > this.maxDeltas)
+      this.deltasCount -= this.redoSteps.removeLast().size();
+  }
+
+  /**
+   * Discard all undoable and redoable steps. The currently open step, if any, is kept.
+   */
+  public void clear() {
+    this.undoSteps.clear();
+    this.redoSteps.clear();
+    this.deltasCount = 0;
+  }
+
+  /**
+   * The total number of deltas of the undoable and redoable steps.
+   */
+  public int deltasCount() {
+    return this.deltasCount;
+  }
+}
@@ -2,6 +2,9 @@ package net.darmo_creations.jenealogio2.model;
 
 import net.darmo_creations.jenealogio2.io.*;
 import net.darmo_creations.jenealogio2.io.file_ops.*;
+import net.darmo_creations.jenealogio2.model.consistency.*;
+import net.darmo_creations.jenealogio2.model.kinship.*;
+import net.darmo_creations.jenealogio2.utils.*;
 import org.jetbrains.annotations.*;
 
 import java.util.*;
@@ -9,17 +12,46 @@ import java.util.*;
 /**
  * A family tree has a name and contains a set of persons that belong to it.
  * Trees also have a root which is the person diplayed by default.
+ * <p>
+ * This class is not thread-safe. A tree and its objects must only be modified from a single thread,
+ * the JavaFX application thread in the app. Other threads may only read them while that thread
+ * does not modify them, e.g. while it waits for a tree to be saved.
  */
 public class FamilyTree {
   private final GenderRegistry genderRegistry = new GenderRegistry();
   private final LifeEventTypeRegistry lifeEventTypeRegistry = new LifeEventTypeRegistry();
 
-  private final Set<Person> persons = new HashSet<>();
-  private final Set<LifeEvent> lifeEvents = new HashSet<>();
+  // Linked sets keep serialized trees in a stable order
+  private final Set<Person> persons = new LinkedHashSet<>();
+  private final Set<LifeEvent> lifeEvents = new LinkedHashSet<>();
+  private final Set<Person> personsView = Collections.unmodifiableSet(this.persons);
+  private final Set<LifeEvent> lifeEventsView = Collections.unmodifiableSet(this.lifeEvents);
+  private final Map<Integer, Person> personsByID = new HashMap<>();
   private final Map<String, AttachedDocument> documents = new HashMap<>();
   private final List<FileOperation> fileOperations = new LinkedList<>();
+  private final NGramIndex<Person> personsIndex = new NGramIndex<>();
+  private final NGramIndex<Place> placesIndex = new NGramIndex<>();
+  /**
+   * Number of events of this tree that reference each place.
+   */
+  private final Map<Place, Integer> placesUsages = new HashMap<>();
+  private final List<FamilyTreeListener> listeners = new ArrayList<>();
+  private final ChangeJournal journal = new ChangeJournal();
+  private KinshipCalculator kinship;
+  private ConsistencyChecker consistencyChecker;
+  /**
+   * Persons whose data or life events changed since the last call to {@link #clearModifications()},
+   * including those that have been removed since.
+   */
+  private final Set<Person> modifiedPersons = new HashSet<>();
+  private boolean globalDataModified;
   private String name;
   private Person root;
+  /**
+   * The ID that will be given to the next person added to this tree without one.
+   * It is greater than the IDs of all persons that are or have been in this tree.
+   */
+  private int nextPersonID;
 
   /**
    * Create a new family tree.
@@ -27,7 +59,137 @@ public class FamilyTree {
    * @param name Tree’s name.
    */
   public FamilyTree(@NotNull String name) {
-    this.setName(name);
+    this.name = Objects.requireNonNull(name);
+  }
+
+  /**
+   * Add a listener that will be notified of every change made to this tree and its objects.
+   *
+   * @param listener The listener to add.
+   */
+  public void addListener(@NotNull FamilyTreeListener listener) {
+    this.listeners.add(Objects.requireNonNull(listener));
+  }
+
+  /**
+   * Remove a listener from this tree.
+   *
+   * @param listener The listener to remove.
+   */
+  public void removeListener(@NotNull FamilyTreeListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Notify all listeners of the given change.
+   *
+   * @param change The change to publish.
+   */
+  private void fireChange(@NotNull FamilyTreeChange change) {
+    if (this.listeners.isEmpty())
+      return;
+    // Copy in case a listener adds or removes listeners
+    for (final FamilyTreeListener listener : new ArrayList<>(this.listeners))
+      listener.onChange(change);
+  }
+
+  /**
+   * The journal that records the changes made to this tree and its objects.
+   */
+  public ChangeJournal journal() {
+    return this.journal;
+  }
+
+  /**
+   * The calculator of the relationships between the persons of this tree.
+   */
+  public KinshipCalculator kinship() {
+    if (this.kinship == null)
+      this.kinship = new KinshipCalculator(this);
+    return this.kinship;
+  }
+
+  /**
+   * The checker of the consistency of this tree’s persons and life events, running the default rules.
+   */
+  public ConsistencyChecker consistencyChecker() {
+    if (this.consistencyChecker == null)
+      this.consistencyChecker = new ConsistencyChecker(this);
+    return this.consistencyChecker;
+  }
+
+  /**
+   * Start a new traversal session over the parental links between the persons of this tree.
+   *
+   * @param relationTypes The types of parental links to follow.
+   * @return A new session.
+   */
+  public Traversal traversal(final @NotNull ParentalRelationType... relationTypes) {
+    return new Traversal(Arrays.asList(relationTypes));
+  }
+
+  /**
+   * Record a change made to this tree or one of its objects.
+   *
+   * @param undo An action that reverts the change.
+   */
+  void record(@NotNull Runnable undo) {
+    this.journal.record(undo);
+  }
+
+  /**
+   * An unmodifiable view of the persons whose data or life events changed since the last call to
+   * {@link #clearModifications()}. Persons that have been removed from this tree since then are included.
+   * <p>
+   * A life event that changed is reported through all the persons that act in or witness it,
+   * before and after the change.
+   */
+  public @UnmodifiableView Set<Person> modifiedPersons() {
+    return Collections.unmodifiableSet(this.modifiedPersons);
+  }
+
+  /**
+   * Indicate whether this tree’s name, registries or documents may have changed
+   * since the last call to {@link #clearModifications()}.
+   */
+  public boolean isGlobalDataModified() {
+    return this.globalDataModified;
+  }
+
+  /**
+   * Signal that this tree’s registries, or the description or date of any of its documents changed.
+   * Unlike persons and life events, these objects do not notify the tree they belong to of their changes.
+   */
+  public void markGlobalDataModified() {
+    this.globalDataModified = true;
+  }
+
+  /**
+   * Forget all modifications tracked since the last call to this method, e.g. after this tree has been saved.
+   */
+  public void clearModifications() {
+    this.modifiedPersons.clear();
+    this.globalDataModified = false;
+  }
+
+  /**
+   * Mark the given person as modified if it is a member of this tree.
+   *
+   * @param person The modified person.
+   */
+  void markModified(@NotNull Person person) {
+    if (this.persons.contains(person))
+      this.modifiedPersons.add(person);
+  }
+
+  /**
+   * Mark all actors and witnesses of the given event as modified.
+   *
+   * @param lifeEvent The modified event.
+   */
+  private void markParticipantsModified(@NotNull LifeEvent lifeEvent) {
+    lifeEvent.actors().forEach(this::markModified);
+    lifeEvent.witnesses().forEach(this::markModified);
   }
 
   /**
@@ -39,25 +201,51 @@ public class FamilyTree {
 
   /**
    * Set tree’s name.
+   * <p>
+   * The name is part of the global data, so that renaming the tree rewrites its tree file
+   * from which tree lists read the name.
    *
    * @param name The new name.
    */
   public void setName(@NotNull String name) {
-    this.name = Objects.requireNonNull(name);
+    if (Objects.requireNonNull(name).equals(this.name))
+      return;
+    this.name = name;
+    this.globalDataModified = true;
+  }
+
+  /**
+   * An unmodifiable view of this tree’s members set, in insertion order.
+   * <p>
+   * The view reflects later changes to this tree, it must not be iterated over while persons are added or removed.
+   * Callers that need to do so should iterate over a copy.
+   */
+  public @UnmodifiableView Set<Person> persons() {
+    return this.personsView;
+  }
+
+  /**
+   * The number of members of this tree.
+   */
+  public int personCount() {
+    return this.persons.size();
   }
 
   /**
-   * A copy of this tree’s members set.
+   * An unmodifiable view of this tree’s life events set, in insertion order.
+   * <p>
+   * The view reflects later changes to this tree, it must not be iterated over while life events are added or removed.
+   * Callers that need to do so should iterate over a copy.
    */
-  public Set<Person> persons() {
-    return new HashSet<>(this.persons);
+  public @UnmodifiableView Set<LifeEvent> lifeEvents() {
+    return this.lifeEventsView;
   }
 
   /**
-   * A copy of this tree’s life events set.
+   * The number of life events of this tree.
    */
-  public Set<LifeEvent> lifeEvents() {
-    return new HashSet<>(this.lifeEvents);
+  public int lifeEventCount() {
+    return this.lifeEvents.size();
   }
 
   /**
@@ -86,22 +274,98 @@ public class FamilyTree {
 
   /**
    * Clear all pending file operations of this tree.
+   * <p>
+   * Deleted files cannot be restored, if any file deletion was pending,
+   * the changes recorded in this tree’s journal can no longer be undone.
    */
   public void clearPendingFileOperations() {
+    if (this.fileOperations.stream().anyMatch(o -> o instanceof DeleteFileOperation))
+      this.journal.clear();
     this.fileOperations.clear();
   }
 
+  private void addFileOperation(@NotNull FileOperation operation) {
+    this.fileOperations.add(operation);
+    this.record(() -> this.revertFileOperation(operation));
+  }
+
+  /**
+   * Revert the given file operation. If it is still pending, it is simply discarded,
+   * otherwise an operation with the opposite effect is added.
+   *
+   * @param operation The operation to revert.
+   * @throws IllegalStateException If the operation is a file deletion that has already been performed.
+   */
+  private void revertFileOperation(@NotNull FileOperation operation) {
+    if (this.fileOperations.remove(operation))
+      this.record(() -> this.addFileOperation(operation));
+    else if (operation instanceof ImportFileOperation o)
+      this.addFileOperation(new DeleteFileOperation(o.fileName(), o.document()));
+    else if (operation instanceof RenameFileOperation o)
+      this.addFileOperation(new RenameFileOperation(o.newFileName(), o.fileName(), o.document()));
+    else
+      throw new IllegalStateException("File %s has already been deleted".formatted(operation.fileName()));
+  }
+
+  /**
+   * The ID that will be given to the next person added to this tree without one.
+   * It is greater than the IDs of all persons that are or have been in this tree.
+   */
+  public int nextPersonID() {
+    return this.nextPersonID;
+  }
+
+  /**
+   * Set the ID that will be given to the next person added to this tree without one,
+   * e.g. so that the IDs of persons removed before this tree was saved are not reused once it is loaded again.
+   * IDs lower than that of a person that is or has been in this tree are ignored.
+   * <p>
+   * This method is intended for deserialization.
+   *
+   * @param id The ID of the next person.
+   * @throws IllegalArgumentException If the ID is negative.
+   */
+  public void setNextPersonID(int id) {
+    if (id < 0)
+      throw new IllegalArgumentException("Person ID must be >= 0");
+    this.nextPersonID = Math.max(this.nextPersonID, id);
+  }
+
   /**
    * Add a person to this tree.
    * If this tree has no root yet, the passed person will become it.
+   * <p>
+   * If the person has no ID yet, it is given one that was never used in this tree.
    *
    * @param person The person to add.
    */
   public void addPerson(@NotNull Person person) {
-    if (this.persons.isEmpty())
-      this.root = person;
+    this.addPerson(person, person.id() >= 0 ? person.id() : this.nextPersonID);
+  }
+
+  /**
+   * Add a person to this tree with the given ID.
+   * If this tree has no root yet, the passed person will become it.
+   * <p>
+   * This method is intended for deserialization.
+   *
+   * @param person The person to add.
+   * @param id     The person’s ID.
+   * @throws IllegalArgumentException If the ID is negative or another person of this tree already has it.
+   */
+  public void addPerson(@NotNull Person person, int id) {
+    if (id < 0)
+      throw new IllegalArgumentException("Person ID must be >= 0");
+    final Person other = this.personsByID.get(id);
+    if (other != null && other != person)
+      throw new IllegalArgumentException("Person ID %d is already used".formatted(id));
+    final boolean first = this.persons.isEmpty();
     person.setFamilyTree(this);
-    this.persons.add(person);
+    person.setID(id);
+    this.nextPersonID = Math.max(this.nextPersonID, id + 1);
+    this.attachPerson(person);
+    if (first)
+      this.changeRoot(person);
   }
 
   /**
@@ -122,9 +386,27 @@ public class FamilyTree {
     for (final LifeEvent lifeEvent : person.lifeEvents()) {
       this.removeActorFromLifeEvent(lifeEvent, person);
       lifeEvent.removeWitness(person);
-      this.lifeEvents.remove(lifeEvent);
+      this.removeLifeEvent(lifeEvent);
     }
+    this.detachPerson(person);
+  }
+
+  private void attachPerson(@NotNull Person person) {
+    this.persons.add(person);
+    this.personsByID.put(person.id(), person);
+    this.markModified(person);
+    this.indexPerson(person);
+    this.record(() -> this.detachPerson(person));
+    this.fireChange(new FamilyTreeChange.PersonAdded(person));
+  }
+
+  private void detachPerson(@NotNull Person person) {
+    this.markModified(person);
     this.persons.remove(person);
+    this.personsByID.remove(person.id());
+    this.personsIndex.remove(person);
+    this.record(() -> this.attachPerson(person));
+    this.fireChange(new FamilyTreeChange.PersonRemoved(person));
   }
 
   /**
@@ -134,8 +416,27 @@ public class FamilyTree {
    * @param actors    Persons to set as actors.
    */
   public void setLifeEventActors(@NotNull LifeEvent lifeEvent, final @NotNull Set<Person> actors) {
-    this.lifeEvents.add(lifeEvent);
+    this.addLifeEvent(lifeEvent);
     lifeEvent.setActors(actors);
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+  }
+
+  /**
+   * Defer the sorting of the life events of this tree’s current members
+   * until {@link #endLifeEventsBulkUpdate()} is called.
+   * <p>
+   * This avoids inserting each event at its sorted position when adding many events at once,
+   * e.g. when loading a tree from a file. Events of a person are sorted only once at the end.
+   */
+  public void beginLifeEventsBulkUpdate() {
+    this.persons.forEach(p -> p.setDeferLifeEventsSorting(true));
+  }
+
+  /**
+   * Sort all life events added since the last call to {@link #beginLifeEventsBulkUpdate()}.
+   */
+  public void endLifeEventsBulkUpdate() {
+    this.persons.forEach(p -> p.setDeferLifeEventsSorting(false));
   }
 
   /**
@@ -149,12 +450,21 @@ public class FamilyTree {
     if (!lifeEvent.hasActor(actor))
       return;
     if (lifeEvent.actors().size() <= lifeEvent.type().minActors()) {
-      lifeEvent.actors().forEach(a -> a.removeLifeEvent(lifeEvent));
-      lifeEvent.witnesses().forEach(w -> w.removeLifeEvent(lifeEvent));
-      actor.removeLifeEvent(lifeEvent);
-      this.lifeEvents.remove(lifeEvent);
+      this.detachLifeEventParticipants(lifeEvent);
+      this.removeLifeEvent(lifeEvent);
     } else
       lifeEvent.removeActor(actor);
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+  }
+
+  /**
+   * Remove the given event from this tree. All its actors and witnesses are detached from it.
+   *
+   * @param lifeEvent The event to remove.
+   */
+  public void deleteLifeEvent(@NotNull LifeEvent lifeEvent) {
+    this.detachLifeEventParticipants(lifeEvent);
+    this.removeLifeEvent(lifeEvent);
   }
 
   /**
@@ -164,8 +474,9 @@ public class FamilyTree {
    * @param witness   The witness to add.
    */
   public void addWitnessToLifeEvent(@NotNull LifeEvent lifeEvent, @NotNull Person witness) {
-    this.lifeEvents.add(lifeEvent);
+    this.addLifeEvent(lifeEvent);
     lifeEvent.addWitness(witness);
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
   }
 
   /**
@@ -176,6 +487,208 @@ public class FamilyTree {
    */
   public void removeWitnessFromLifeEvent(@NotNull LifeEvent lifeEvent, @NotNull Person witness) {
     lifeEvent.removeWitness(witness);
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+  }
+
+  /**
+   * Remove the given event from the events lists of its actors and witnesses.
+   * The event keeps its actors and witnesses.
+   */
+  private void detachLifeEventParticipants(@NotNull LifeEvent lifeEvent) {
+    lifeEvent.actors().forEach(a -> a.removeLifeEvent(lifeEvent));
+    lifeEvent.witnesses().forEach(w -> w.removeLifeEvent(lifeEvent));
+    this.record(() -> this.attachLifeEventParticipants(lifeEvent));
+  }
+
+  private void attachLifeEventParticipants(@NotNull LifeEvent lifeEvent) {
+    lifeEvent.actors().forEach(a -> a.addLifeEvent(lifeEvent));
+    lifeEvent.witnesses().forEach(w -> w.addLifeEvent(lifeEvent));
+    this.record(() -> this.detachLifeEventParticipants(lifeEvent));
+  }
+
+  private void addLifeEvent(@NotNull LifeEvent lifeEvent) {
+    if (this.lifeEvents.add(lifeEvent)) {
+      lifeEvent.setFamilyTree(this);
+      this.markParticipantsModified(lifeEvent);
+      lifeEvent.place().ifPresent(this::addPlaceUsage);
+      this.record(() -> this.removeLifeEvent(lifeEvent));
+      this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+    }
+  }
+
+  private void removeLifeEvent(@NotNull LifeEvent lifeEvent) {
+    if (this.lifeEvents.remove(lifeEvent)) {
+      lifeEvent.setFamilyTree(null);
+      this.markParticipantsModified(lifeEvent);
+      lifeEvent.place().ifPresent(this::removePlaceUsage);
+      this.record(() -> this.addLifeEvent(lifeEvent));
+      this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+    }
+  }
+
+  /**
+   * Indicate whether the given person is a member of this tree.
+   *
+   * @param person The person to check.
+   * @return True if the person is in this tree’s members set, false otherwise.
+   */
+  public boolean containsPerson(@NotNull Person person) {
+    return this.persons.contains(person);
+  }
+
+  /**
+   * Indicate whether the given event belongs to this tree.
+   *
+   * @param lifeEvent The event to check.
+   * @return True if the event is in this tree’s events set, false otherwise.
+   */
+  public boolean containsLifeEvent(@NotNull LifeEvent lifeEvent) {
+    return this.lifeEvents.contains(lifeEvent);
+  }
+
+  /**
+   * Return all members of this tree that have a name containing the given text,
+   * ignoring case and accents. Legal, public and nicknames are searched,
+   * as well as the name returned by {@link Person#toString()}.
+   *
+   * @param query The text to search for.
+   * @return The set of matching persons. An empty query matches all persons.
+   */
+  public Set<Person> searchPersons(@NotNull String query) {
+    return this.personsIndex.search(query);
+  }
+
+  /**
+   * Return all places used by this tree’s life events whose address contains the given text,
+   * ignoring case and accents.
+   *
+   * @param query The text to search for.
+   * @return The set of matching places. An empty query matches all places.
+   */
+  public Set<Place> searchPlaces(@NotNull String query) {
+    return this.placesIndex.search(query);
+  }
+
+  /**
+   * Called by {@link Person} objects whenever any of their attributes that are not published
+   * as {@link FamilyTreeChange}s changed.
+   *
+   * @param person The changed person.
+   * @param undo   An action that reverts the change.
+   */
+  void onPersonChanged(@NotNull Person person, @NotNull Runnable undo) {
+    if (this.persons.contains(person)) {
+      this.markModified(person);
+      this.record(undo);
+    }
+  }
+
+  /**
+   * Called by {@link Person} objects whenever any of their names changed.
+   *
+   * @param person The person whose names changed.
+   * @param undo   An action that reverts the change.
+   */
+  void onPersonNamesChanged(@NotNull Person person, @NotNull Runnable undo) {
+    if (this.persons.contains(person)) {
+      this.markModified(person);
+      this.indexPerson(person);
+      this.record(undo);
+      this.fireChange(new FamilyTreeChange.PersonRenamed(person));
+    }
+  }
+
+  /**
+   * Called by {@link Person} objects whenever any of their attributes other than names changed.
+   *
+   * @param person The updated person.
+   * @param undo   An action that reverts the change.
+   */
+  void onPersonUpdated(@NotNull Person person, @NotNull Runnable undo) {
+    if (this.persons.contains(person)) {
+      this.markModified(person);
+      this.record(undo);
+      this.fireChange(new FamilyTreeChange.PersonUpdated(person));
+    }
+  }
+
+  /**
+   * Called by {@link Person} objects whenever a parent was added or removed.
+   *
+   * @param child The person whose parents changed.
+   * @param undo  An action that reverts the change.
+   */
+  void onParentsChanged(@NotNull Person child, @NotNull Runnable undo) {
+    if (this.persons.contains(child)) {
+      this.markModified(child);
+      this.record(undo);
+      this.fireChange(new FamilyTreeChange.ParentsChanged(child));
+    }
+  }
+
+  /**
+   * Called by {@link LifeEvent} objects whenever their date, type, actors or witnesses changed.
+   *
+   * @param lifeEvent The changed event.
+   * @param undo      An action that reverts the change.
+   */
+  void onLifeEventChanged(@NotNull LifeEvent lifeEvent, @NotNull Runnable undo) {
+    this.markParticipantsModified(lifeEvent);
+    this.record(undo);
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+  }
+
+  /**
+   * Called by {@link LifeEvent} objects whenever any of their attributes that are not published
+   * as {@link FamilyTreeChange}s changed.
+   *
+   * @param lifeEvent The changed event.
+   * @param undo      An action that reverts the change.
+   */
+  void onLifeEventDataChanged(@NotNull LifeEvent lifeEvent, @NotNull Runnable undo) {
+    this.markParticipantsModified(lifeEvent);
+    this.record(undo);
+  }
+
+  /**
+   * Called by {@link LifeEvent} objects whenever their place changed.
+   *
+   * @param lifeEvent The changed event.
+   * @param oldPlace  The previous place.
+   * @param newPlace  The new place.
+   */
+  void onLifeEventPlaceChanged(@NotNull LifeEvent lifeEvent, Place oldPlace, Place newPlace) {
+    if (oldPlace != null)
+      this.removePlaceUsage(oldPlace);
+    if (newPlace != null)
+      this.addPlaceUsage(newPlace);
+    this.markParticipantsModified(lifeEvent);
+    this.record(() -> lifeEvent.setPlace(oldPlace));
+    this.fireChange(new FamilyTreeChange.LifeEventChanged(lifeEvent));
+  }
+
+  private void indexPerson(@NotNull Person person) {
+    final List<String> names = new ArrayList<>();
+    names.add(person.toString());
+    person.legalLastName().ifPresent(names::add);
+    person.publicLastName().ifPresent(names::add);
+    names.addAll(person.legalFirstNames());
+    names.addAll(person.publicFirstNames());
+    names.addAll(person.nicknames());
+    this.personsIndex.put(person, names);
+  }
+
+  private void addPlaceUsage(@NotNull Place place) {
+    if (this.placesUsages.merge(place, 1, Integer::sum) == 1)
+      this.placesIndex.put(place, List.of(place.address()));
+  }
+
+  private void removePlaceUsage(@NotNull Place place) {
+    final int count = this.placesUsages.merge(place, -1, Integer::sum);
+    if (count <= 0) {
+      this.placesUsages.remove(place);
+      this.placesIndex.remove(place);
+    }
   }
 
   /**
@@ -187,8 +700,8 @@ public class FamilyTree {
   public boolean addDocument(@NotNull AttachedDocument document) {
     if (this.documents.containsKey(document.fileName()))
       return false;
-    this.documents.put(document.fileName(), document);
-    this.fileOperations.add(new ImportFileOperation(document.fileName(), document.path(), document));
+    this.putDocument(document.fileName(), document);
+    this.addFileOperation(new ImportFileOperation(document.fileName(), document.path(), document));
     return true;
   }
 
@@ -205,8 +718,8 @@ public class FamilyTree {
     Objects.requireNonNull(fileName);
     this.persons.forEach(p -> this.removeDocumentFromObject(fileName, p));
     this.lifeEvents.forEach(l -> this.removeDocumentFromObject(fileName, l));
-    final AttachedDocument document = this.documents.remove(fileName);
-    this.fileOperations.add(new DeleteFileOperation(fileName, document));
+    final AttachedDocument document = this.takeDocument(fileName);
+    this.addFileOperation(new DeleteFileOperation(fileName, document));
     return document;
   }
 
@@ -228,10 +741,32 @@ public class FamilyTree {
       throw new IllegalArgumentException("No document with name \"%s\"".formatted(oldFileName));
     if (this.documents.containsKey(newFileName))
       throw new IllegalArgumentException("A document with the name \"%s\" already exists".formatted(newFileName));
-    final AttachedDocument document = this.documents.remove(oldFileName);
-    document.setName(newName);
-    this.documents.put(newFileName, document);
-    this.fileOperations.add(new RenameFileOperation(oldFileName, newFileName, document));
+    final AttachedDocument document = this.takeDocument(oldFileName);
+    this.setDocumentName(document, newName);
+    this.putDocument(newFileName, document);
+    this.addFileOperation(new RenameFileOperation(oldFileName, newFileName, document));
+  }
+
+  private void putDocument(@NotNull String fileName, @NotNull AttachedDocument document) {
+    this.documents.put(fileName, document);
+    this.globalDataModified = true;
+    this.record(() -> this.takeDocument(fileName));
+    this.fireChange(new FamilyTreeChange.DocumentChanged(fileName));
+  }
+
+  private AttachedDocument takeDocument(@NotNull String fileName) {
+    final AttachedDocument document = this.documents.remove(fileName);
+    this.globalDataModified = true;
+    this.record(() -> this.putDocument(fileName, document));
+    this.fireChange(new FamilyTreeChange.DocumentChanged(fileName));
+    return document;
+  }
+
+  private void setDocumentName(@NotNull AttachedDocument document, @NotNull String name) {
+    final String oldName = document.name();
+    document.setName(name);
+    this.globalDataModified = true;
+    this.record(() -> this.setDocumentName(document, oldName));
   }
 
   /**
@@ -245,6 +780,7 @@ public class FamilyTree {
     if (!this.documents.containsKey(fileName))
       throw new NoSuchElementException("No document with name " + fileName);
     o.addDocument(this.documents.get(Objects.requireNonNull(fileName)));
+    this.fireChange(new FamilyTreeChange.DocumentChanged(fileName));
   }
 
   /**
@@ -255,6 +791,7 @@ public class FamilyTree {
    */
   public void removeDocumentFromObject(@NotNull String fileName, @NotNull GenealogyObject<?> o) {
     o.removeDocument(fileName);
+    this.fireChange(new FamilyTreeChange.DocumentChanged(fileName));
   }
 
   /**
@@ -267,6 +804,8 @@ public class FamilyTree {
    */
   public void setMainPictureOfObject(String fileName, @NotNull GenealogyObject<?> o) {
     o.setMainPicture(fileName);
+    if (fileName != null)
+      this.fireChange(new FamilyTreeChange.DocumentChanged(fileName));
   }
 
   /**
@@ -303,6 +842,20 @@ public class FamilyTree {
   public void setRoot(@NotNull Person root) {
     if (!this.persons.contains(root))
       throw new NoSuchElementException("Person %s is not in this family tree".formatted(root));
-    this.root = Objects.requireNonNull(root);
+    if (this.root != root)
+      this.changeRoot(root);
+  }
+
+  /**
+   * Set this tree’s root without any check.
+   *
+   * @param root The new root, null if this tree no longer has any member.
+   */
+  private void changeRoot(Person root) {
+    final Person oldRoot = this.root;
+    this.root = root;
+    this.record(() -> this.changeRoot(oldRoot));
+    if (root != null)
+      this.fireChange(new FamilyTreeChange.RootChanged(oldRoot, root));
   }
 }
@@ -0,0 +1,75 @@
+package net.darmo_creations.jenealogio2.model;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * A change made to a {@link FamilyTree} or one of its objects, published to {@link FamilyTreeListener}s.
+ * <p>
+ * Changes are records, equal changes may thus be merged when they are coalesced.
+ */
+public sealed interface FamilyTreeChange {
+  /**
+   * A person was added to the tree.
+   *
+   * @param person The added person.
+   */
+  record PersonAdded(@NotNull Person person) implements FamilyTreeChange {
+  }
+
+  /**
+   * A person was removed from the tree.
+   *
+   * @param person The removed person.
+   */
+  record PersonRemoved(@NotNull Person person) implements FamilyTreeChange {
+  }
+
+  /**
+   * Any of the names or the disambiguation ID of a person changed.
+   *
+   * @param person The renamed person.
+   */
+  record PersonRenamed(@NotNull Person person) implements FamilyTreeChange {
+  }
+
+  /**
+   * The life status, gender, or main occupation of a person changed.
+   *
+   * @param person The updated person.
+   */
+  record PersonUpdated(@NotNull Person person) implements FamilyTreeChange {
+  }
+
+  /**
+   * A parent was added to or removed from a person.
+   *
+   * @param child The person whose parents changed.
+   */
+  record ParentsChanged(@NotNull Person child) implements FamilyTreeChange {
+  }
+
+  /**
+   * A life event was added to or removed from the tree, or its date, type, place, actors or witnesses changed.
+   *
+   * @param lifeEvent The changed event.
+   */
+  record LifeEventChanged(@NotNull LifeEvent lifeEvent) implements FamilyTreeChange {
+  }
+
+  /**
+   * A document was added, removed or renamed, or it was attached to or detached from an object.
+   *
+   * @param fileName The document’s file name. For renamed documents, there is one change for each name.
+   */
+  record DocumentChanged(@NotNull String fileName) implements FamilyTreeChange {
+  }
+
+  /**
+   * The tree’s root changed.
+   *
+   * @param oldRoot The previous root, null if the tree had none.
+   * @param newRoot The new root.
+   */
+  record RootChanged(Person oldRoot, @NotNull Person newRoot) implements FamilyTreeChange {
+  }
+}
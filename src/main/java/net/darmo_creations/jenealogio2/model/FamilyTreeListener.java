@@ -0,0 +1,18 @@
+package net.darmo_creations.jenealogio2.model;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Listener notified of each change made to a {@link FamilyTree}.
+ * <p>
+ * Listeners are called synchronously, from the thread that made the change.
+ */
+@FunctionalInterface
+public interface FamilyTreeListener {
+  /**
+   * Called right after the given change has been made.
+   *
+   * @param change The change.
+   */
+  void onChange(@NotNull FamilyTreeChange change);
+}
@@ -22,6 +22,13 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
    */
   public abstract String name(@NotNull Language language);
 
+  /**
+   * Record a change made to this object in the journal of the family tree it belongs to, if any.
+   *
+   * @param undo An action that reverts the change.
+   */
+  abstract void recordChange(@NotNull Runnable undo);
+
   /**
    * This object’s notes.
    */
@@ -37,7 +44,9 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
    */
   @SuppressWarnings("unchecked")
   public T setNotes(String notes) {
+    final String oldNotes = this.notes;
     this.notes = StringUtils.stripNullable(notes).orElse(null);
+    this.recordChange(() -> this.setNotes(oldNotes));
     return (T) this;
   }
 
@@ -56,7 +65,9 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
    */
   @SuppressWarnings("unchecked")
   public T setSources(String sources) {
+    final String oldSources = this.sources;
     this.sources = StringUtils.stripNullable(sources).orElse(null);
+    this.recordChange(() -> this.setSources(oldSources));
     return (T) this;
   }
 
@@ -80,7 +91,7 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
    * @param document The document to add.
    */
   void addDocument(@NotNull AttachedDocument document) {
-    this.documents.put(document.fileName(), document);
+    this.putDocument(document.fileName(), document);
   }
 
   /**
@@ -92,7 +103,23 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
     Objects.requireNonNull(fileName);
     if (this.mainPicture != null && this.mainPicture.fileName().equals(fileName))
       this.setMainPicture(null);
-    this.documents.remove(fileName);
+    this.takeDocument(fileName);
+  }
+
+  private void putDocument(@NotNull String fileName, @NotNull AttachedDocument document) {
+    final AttachedDocument previous = this.documents.put(fileName, document);
+    this.recordChange(() -> {
+      if (previous != null)
+        this.putDocument(fileName, previous);
+      else
+        this.takeDocument(fileName);
+    });
+  }
+
+  private void takeDocument(@NotNull String fileName) {
+    final AttachedDocument document = this.documents.remove(fileName);
+    if (document != null)
+      this.recordChange(() -> this.putDocument(fileName, document));
   }
 
   /**
@@ -108,8 +135,14 @@ public abstract class GenealogyObject<T extends GenealogyObject<T>> {
         throw new IllegalArgumentException("No such picture: " + fileName);
       if (!(this.documents.get(fileName) instanceof Picture p))
         throw new ClassCastException("File \"%s\" is not an image".formatted(fileName));
-      this.mainPicture = p;
+      this.replaceMainPicture(p);
     } else
-      this.mainPicture = null;
+      this.replaceMainPicture(null);
+  }
+
+  private void replaceMainPicture(Picture picture) {
+    final Picture oldPicture = this.mainPicture;
+    this.mainPicture = picture;
+    this.recordChange(() -> this.replaceMainPicture(oldPicture));
   }
 }
@@ -23,6 +23,7 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
   private DateTime date;
   private LifeEventType type;
   private Place place;
+  private FamilyTree familyTree;
 
   /**
    * Create a new life event.
@@ -44,6 +45,22 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
     return "%s (%s)".formatted(name, actorsNames);
   }
 
+  @Override
+  void recordChange(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onLifeEventDataChanged(this, undo);
+  }
+
+  /**
+   * Notify this event’s family tree that its date, type, actors or witnesses changed.
+   *
+   * @param undo An action that reverts the change.
+   */
+  private void onChanged(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onLifeEventChanged(this, undo);
+  }
+
   /**
    * This event’s date.
    */
@@ -58,7 +75,11 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
    * @return This object.
    */
   public LifeEvent setDate(@NotNull DateTime date) {
+    final DateTime oldDate = this.date;
     this.date = Objects.requireNonNull(date);
+    this.actors.forEach(p -> p.onLifeEventDateChanged(this));
+    this.witnesses.forEach(p -> p.onLifeEventDateChanged(this));
+    this.onChanged(() -> this.setDate(oldDate));
     return this;
   }
 
@@ -76,7 +97,10 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
    * @return This object.
    */
   public LifeEvent setType(@NotNull LifeEventType type) {
+    final LifeEventType oldType = this.type;
     this.type = Objects.requireNonNull(type);
+    this.actors.forEach(Person::invalidateVitalEvents);
+    this.onChanged(() -> this.setType(oldType));
     return this;
   }
 
@@ -94,10 +118,22 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
    * @return This object.
    */
   public LifeEvent setPlace(Place place) {
+    final Place oldPlace = this.place;
     this.place = place;
+    if (this.familyTree != null && !Objects.equals(oldPlace, place))
+      this.familyTree.onLifeEventPlaceChanged(this, oldPlace, place);
     return this;
   }
 
+  /**
+   * Set the family tree this event belongs to.
+   *
+   * @param familyTree A family tree, null if the event was removed from its tree.
+   */
+  void setFamilyTree(FamilyTree familyTree) {
+    this.familyTree = familyTree;
+  }
+
   /**
    * A copy of this event’s actors.
    */
@@ -118,12 +154,23 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
           .formatted(this.type.minActors(), this.type.maxActors(), actors.size()));
     if (actors.stream().anyMatch(this::hasWitness))
       throw new IllegalArgumentException("Same person cannot be both witness and actor of same event");
+    this.replaceActors(actors);
+  }
+
+  /**
+   * Replace all current actors by the given ones without any check. Updates the {@link Person} objects.
+   *
+   * @param actors Persons to set as actors of this life event.
+   */
+  private void replaceActors(final @NotNull Set<Person> actors) {
+    final Set<Person> oldActors = new HashSet<>(this.actors);
     // Dissociate current actors
     this.actors.forEach(p -> p.removeLifeEvent(this));
     this.actors.clear();
     // Associate new actors
     this.actors.addAll(actors);
     actors.forEach(actor -> actor.addLifeEvent(this));
+    this.onChanged(() -> this.replaceActors(oldActors));
   }
 
   /**
@@ -135,8 +182,12 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
   void removeActor(final @NotNull Person actor) {
     if (this.actors.size() == this.type.minActors() && this.hasActor(actor))
       throw new IllegalStateException("Cannot remove any more actors");
+    if (!this.hasActor(actor))
+      return;
+    final Set<Person> oldActors = new HashSet<>(this.actors);
     this.actors.remove(actor);
     actor.removeLifeEvent(this);
+    this.onChanged(() -> this.replaceActors(oldActors));
   }
 
   /**
@@ -166,8 +217,10 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
     Objects.requireNonNull(witness);
     if (this.hasActor(witness))
       throw new IllegalArgumentException("Same person cannot be both witness and actor of same event");
-    this.witnesses.add(witness);
+    if (!this.witnesses.add(witness))
+      return;
     witness.addLifeEvent(this);
+    this.onChanged(() -> this.removeWitness(witness));
   }
 
   /**
@@ -180,6 +233,7 @@ public class LifeEvent extends GenealogyObject<LifeEvent> implements Comparable<
       return;
     this.witnesses.remove(witness);
     witness.removeLifeEvent(this);
+    this.onChanged(() -> this.addWitness(witness));
   }
 
   /**
@@ -15,6 +15,9 @@ import java.util.stream.*;
 public class Person extends GenealogyObject<Person> {
   public static final String NAME_SEPARATOR = " ";
 
+  private static final RegistryEntryKey BIRTH_EVENT_KEY = new RegistryEntryKey(Registry.BUILTIN_NS, "birth");
+  private static final RegistryEntryKey DEATH_EVENT_KEY = new RegistryEntryKey(Registry.BUILTIN_NS, "death");
+
   private static final Comparator<Person> LAST_THEN_FIRST_NAMES_COMPARATOR = (p1, p2) -> {
     int c1 = p1.getLastName().orElse("")
         .compareTo(p2.getLastName().orElse(""));
@@ -53,6 +56,10 @@ public class Person extends GenealogyObject<Person> {
       BIRTH_DATE_THEN_NAME_COMPARATOR_FACTORY.apply(true);
 
   private FamilyTree familyTree;
+  /**
+   * Identifier of this person within its family tree, -1 if it has never been added to one.
+   */
+  private int id = -1;
   private Integer disambiguationID;
   private LifeStatus lifeStatus = LifeStatus.LIVING;
   private final List<String> legalFirstNames = new ArrayList<>();
@@ -71,7 +78,12 @@ public class Person extends GenealogyObject<Person> {
   /**
    * Ordered list of all life events this person was an actor in.
    */
-  private final List<LifeEvent> lifeEvents = new ArrayList<>();
+  private final SortedLifeEvents lifeEvents = new SortedLifeEvents();
+  /**
+   * Cached birth and death events of this person, only valid if {@link #vitalEventsValid} is true.
+   */
+  private LifeEvent birthEvent, deathEvent;
+  private boolean vitalEventsValid;
 
   /**
    * Create a new alive person.
@@ -99,6 +111,63 @@ public class Person extends GenealogyObject<Person> {
     this.familyTree = Objects.requireNonNull(familyTree);
   }
 
+  @Override
+  void recordChange(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onPersonChanged(this, undo);
+  }
+
+  /**
+   * Notify this person’s family tree that its names changed.
+   *
+   * @param undo An action that reverts the change.
+   */
+  private void onNamesChanged(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onPersonNamesChanged(this, undo);
+  }
+
+  /**
+   * Notify this person’s family tree that any of its other attributes changed.
+   *
+   * @param undo An action that reverts the change.
+   */
+  private void onUpdated(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onPersonUpdated(this, undo);
+  }
+
+  /**
+   * Notify this person’s family tree that its parents changed.
+   *
+   * @param undo An action that reverts the change.
+   */
+  private void onParentsChanged(@NotNull Runnable undo) {
+    if (this.familyTree != null)
+      this.familyTree.onParentsChanged(this, undo);
+  }
+
+  /**
+   * The identifier of this person within its family tree, or -1 if it has never been added to one.
+   * <p>
+   * Unlike the disambiguation ID, this identifier is not meant to be shown to users.
+   * It is persisted in tree files and never reused by another person of the same tree.
+   *
+   * @see FamilyTree#addPerson(Person, int)
+   */
+  public int id() {
+    return this.id;
+  }
+
+  /**
+   * Set the identifier of this person within its family tree.
+   *
+   * @param id The identifier.
+   */
+  void setID(int id) {
+    this.id = id;
+  }
+
   @Override
   public String name(@NotNull Language language) {
     return this.toString();
@@ -125,7 +194,9 @@ public class Person extends GenealogyObject<Person> {
   public Person setDisambiguationID(Integer disambiguationID) {
     if (disambiguationID != null && disambiguationID < 1)
       throw new IllegalArgumentException("Disambiguation ID must be > 0");
+    final Integer oldID = this.disambiguationID;
     this.disambiguationID = disambiguationID;
+    this.onNamesChanged(() -> this.setDisambiguationID(oldID));
     return this;
   }
 
@@ -149,7 +220,9 @@ public class Person extends GenealogyObject<Person> {
     final boolean isDead = this.getLifeEventsAsActor().stream().anyMatch(e -> e.type().indicatesDeath());
     if (isDead && lifeStatus != LifeStatus.DECEASED)
       throw new IllegalArgumentException("cannot change status of a person with at least one event indicating death");
+    final LifeStatus oldStatus = this.lifeStatus;
     this.lifeStatus = Objects.requireNonNull(lifeStatus);
+    this.onUpdated(() -> this.setLifeStatus(oldStatus));
     return this;
   }
 
@@ -182,8 +255,10 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setLegalFirstNames(final @NotNull List<String> legalFirstNames) {
+    final List<String> oldNames = new ArrayList<>(this.legalFirstNames);
     this.legalFirstNames.clear();
     this.legalFirstNames.addAll(this.filterOutEmptyStrings(legalFirstNames));
+    this.onNamesChanged(() -> this.setLegalFirstNames(oldNames));
     return this;
   }
 
@@ -206,7 +281,9 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setLegalLastName(String legalLastName) {
+    final String oldName = this.legalLastName;
     this.legalLastName = StringUtils.stripNullable(legalLastName).orElse(null);
+    this.onNamesChanged(() -> this.setLegalLastName(oldName));
     return this;
   }
 
@@ -239,8 +316,10 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setPublicFirstNames(final @NotNull List<String> publicFirstNames) {
+    final List<String> oldNames = new ArrayList<>(this.publicFirstNames);
     this.publicFirstNames.clear();
     this.publicFirstNames.addAll(this.filterOutEmptyStrings(publicFirstNames));
+    this.onNamesChanged(() -> this.setPublicFirstNames(oldNames));
     return this;
   }
 
@@ -263,7 +342,9 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setPublicLastName(String publicLastName) {
+    final String oldName = this.publicLastName;
     this.publicLastName = StringUtils.stripNullable(publicLastName).orElse(null);
+    this.onNamesChanged(() -> this.setPublicLastName(oldName));
     return this;
   }
 
@@ -289,8 +370,10 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setNicknames(final @NotNull List<String> nicknames) {
+    final List<String> oldNames = new ArrayList<>(this.nicknames);
     this.nicknames.clear();
     this.nicknames.addAll(this.filterOutEmptyStrings(nicknames));
+    this.onNamesChanged(() -> this.setNicknames(oldNames));
     return this;
   }
 
@@ -343,7 +426,9 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setAssignedGenderAtBirth(Gender assignedGenderAtBirth) {
+    final Gender oldAssignedGenderAtBirth = this.assignedGenderAtBirth;
     this.assignedGenderAtBirth = assignedGenderAtBirth;
+    this.onUpdated(() -> this.setAssignedGenderAtBirth(oldAssignedGenderAtBirth));
     return this;
   }
 
@@ -362,7 +447,9 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setGender(Gender gender) {
+    final Gender oldGender = this.gender;
     this.gender = gender;
+    this.onUpdated(() -> this.setGender(oldGender));
     return this;
   }
 
@@ -380,7 +467,9 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("_ -> this")
   public Person setMainOccupation(String mainOccupation) {
+    final String oldMainOccupation = this.mainOccupation;
     this.mainOccupation = mainOccupation;
+    this.onUpdated(() -> this.setMainOccupation(oldMainOccupation));
     return this;
   }
 
@@ -440,6 +529,7 @@ public class Person extends GenealogyObject<Person> {
 
     this.parents.get(type).add(parent);
     parent.children.get(type).add(this);
+    this.onParentsChanged(() -> this.removeParent(parent));
   }
 
   /**
@@ -456,6 +546,7 @@ public class Person extends GenealogyObject<Person> {
       if (parents.contains(parent)) {
         parents.remove(parent);
         parent.children.get(relationType).remove(this);
+        this.onParentsChanged(() -> this.addParent(parent, relationType));
         break;
       }
     }
@@ -703,35 +794,57 @@ public class Person extends GenealogyObject<Person> {
   }
 
   /**
-   * Calculate then return this person’s birth date.
+   * Return this person’s birth date.
    * <p>
-   * The date is calculated by looking for a life event of type {@code builtin:birth} and returning its date.
+   * The date is that of the life event of type {@code builtin:birth} this person acted in, if any.
+   * The event is looked up once then cached until this person’s events change.
    *
-   * @return The computed birth date.
+   * @return The birth date.
    */
   public Optional<DateTime> getBirthDate() {
-    final LifeEventType birthEventType = this.familyTree.lifeEventTypeRegistry()
-        .getEntry(new RegistryEntryKey(Registry.BUILTIN_NS, "birth"));
-    return this.getActedInEventsStream()
-        .filter(lifeEvent -> lifeEvent.type().equals(birthEventType))
-        .findFirst()
-        .map(LifeEvent::date);
+    this.ensureVitalEventsAreValid();
+    return Optional.ofNullable(this.birthEvent).map(LifeEvent::date);
   }
 
   /**
-   * Calculate then return this person’s death date.
+   * Return this person’s death date.
    * <p>
-   * The date is calculated by looking for a life event of type {@code builtin:death} and returning its date.
+   * The date is that of the life event of type {@code builtin:death} this person acted in, if any.
+   * The event is looked up once then cached until this person’s events change.
    *
-   * @return The computed death date.
+   * @return The death date.
    */
   public Optional<DateTime> getDeathDate() {
-    final LifeEventType deathEventType = this.familyTree.lifeEventTypeRegistry()
-        .getEntry(new RegistryEntryKey(Registry.BUILTIN_NS, "death"));
-    return this.getActedInEventsStream()
-        .filter(lifeEvent -> lifeEvent.type().equals(deathEventType))
-        .findFirst()
-        .map(LifeEvent::date);
+    this.ensureVitalEventsAreValid();
+    return Optional.ofNullable(this.deathEvent).map(LifeEvent::date);
+  }
+
+  /**
+   * Look up this person’s birth and death events if the cached ones are no longer valid.
+   */
+  private void ensureVitalEventsAreValid() {
+    if (this.vitalEventsValid)
+      return;
+    this.birthEvent = null;
+    this.deathEvent = null;
+    for (final LifeEvent lifeEvent : this.lifeEvents.view()) {
+      if (!lifeEvent.hasActor(this))
+        continue;
+      final RegistryEntryKey key = lifeEvent.type().key();
+      if (this.birthEvent == null && key.equals(BIRTH_EVENT_KEY))
+        this.birthEvent = lifeEvent;
+      else if (this.deathEvent == null && key.equals(DEATH_EVENT_KEY))
+        this.deathEvent = lifeEvent;
+    }
+    this.vitalEventsValid = true;
+  }
+
+  /**
+   * Invalidate the cached birth and death events of this person.
+   * Should be called whenever the date or type of one of this person’s life events changes.
+   */
+  void invalidateVitalEvents() {
+    this.vitalEventsValid = false;
   }
 
   /**
@@ -741,7 +854,7 @@ public class Person extends GenealogyObject<Person> {
    */
   @Contract("-> new")
   public List<LifeEvent> lifeEvents() {
-    return new ArrayList<>(this.lifeEvents);
+    return new ArrayList<>(this.lifeEvents.view());
   }
 
   /**
@@ -781,12 +894,23 @@ public class Person extends GenealogyObject<Person> {
         && this.getActedInEventsStream().anyMatch(e -> e.type().equals(event.type())))
       throw new IllegalArgumentException("%s already acts in an event of type '%s'"
           .formatted(this, event.type().key().fullName()));
-    if (event.hasActor(this) && event.type().indicatesDeath())
-      this.lifeStatus = LifeStatus.DECEASED;
-    if (!this.lifeEvents.contains(event)) {
-      this.lifeEvents.add(event);
-      this.lifeEvents.sort(null);
-    }
+    if (event.hasActor(this) && event.type().indicatesDeath() && this.lifeStatus != LifeStatus.DECEASED)
+      this.restoreLifeStatus(LifeStatus.DECEASED);
+    this.lifeEvents.add(event);
+    this.invalidateVitalEvents();
+    if (this.familyTree != null)
+      this.familyTree.markModified(this);
+  }
+
+  /**
+   * Set this person’s life status without checking its life events.
+   *
+   * @param lifeStatus The new status.
+   */
+  private void restoreLifeStatus(@NotNull LifeStatus lifeStatus) {
+    final LifeStatus oldStatus = this.lifeStatus;
+    this.lifeStatus = lifeStatus;
+    this.onUpdated(() -> this.restoreLifeStatus(oldStatus));
   }
 
   /**
@@ -795,7 +919,34 @@ public class Person extends GenealogyObject<Person> {
    * @param event Life event to remove.
    */
   void removeLifeEvent(final LifeEvent event) {
-    this.lifeEvents.remove(event);
+    if (this.lifeEvents.remove(event)) {
+      this.invalidateVitalEvents();
+      if (this.familyTree != null)
+        this.familyTree.markModified(this);
+    }
+  }
+
+  /**
+   * Move the given life event to its sorted position in this person’s events.
+   * Should be called whenever the date of one of this person’s life events changes.
+   *
+   * @param event The life event whose date changed.
+   */
+  void onLifeEventDateChanged(final @NotNull LifeEvent event) {
+    this.lifeEvents.reposition(event);
+    this.invalidateVitalEvents();
+  }
+
+  /**
+   * Set whether the sorting of this person’s life events should be deferred.
+   * If set to false, events added in the meantime are sorted.
+   *
+   * @param deferSorting True to defer sorting, false to sort pending events.
+   * @see FamilyTree#beginLifeEventsBulkUpdate()
+   */
+  void setDeferLifeEventsSorting(boolean deferSorting) {
+    if (this.lifeEvents.setDeferSorting(deferSorting))
+      this.invalidateVitalEvents();
   }
 
   /**
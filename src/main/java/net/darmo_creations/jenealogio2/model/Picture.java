@@ -1,11 +1,13 @@
 package net.darmo_creations.jenealogio2.model;
 
 import javafx.scene.image.*;
+import net.darmo_creations.jenealogio2.io.*;
 import net.darmo_creations.jenealogio2.model.datetime.*;
 import org.jetbrains.annotations.*;
 
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.*;
 
 /**
  * This class represents a picture (file) that can be attached to a {@link Person} or {@link LifeEventType}.
@@ -17,25 +19,28 @@ public class Picture extends AttachedDocument {
   @Unmodifiable
   public static final List<String> FILE_EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".gif", ".bmp", ".webp");
 
-  private final Image image;
-
   /**
    * Create a new picture.
    *
-   * @param image       The picture’s {@link Image} object.
    * @param path        The picture’s path on the file system.
    * @param description The picture’s description.
    * @param date        The date of the picture.
    */
-  public Picture(final Image image, @NotNull Path path, String description, final DateTime date) {
+  public Picture(@NotNull Path path, String description, final DateTime date) {
     super(path, description, date);
-    this.image = image;
   }
 
   /**
-   * This picture’s {@link Image} object.
+   * Load an {@link Image} of this picture that fits in a square of the given size.
+   * The file is read in the background, see {@link ImageCache#getImage(Path, int, Consumer)}.
+   * <p>
+   * This method must be called from the JavaFX application thread.
+   *
+   * @param size     Size of the square the image should fit in, in pixels.
+   * @param callback The function to pass the image to, on the JavaFX application thread,
+   *                 or an empty {@link Optional} if the file could not be read.
    */
-  public Optional<Image> image() {
-    return Optional.ofNullable(this.image);
+  public void image(int size, @NotNull Consumer<Optional<Image>> callback) {
+    ImageCache.getImage(this.path(), size, callback);
   }
 }
@@ -0,0 +1,136 @@
+package net.darmo_creations.jenealogio2.model;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Collection of the {@link LifeEvent}s a {@link Person} is associated with, kept sorted according to their natural ordering.
+ * <p>
+ * Events are inserted at their sorted position using a binary search, and membership is checked through their identity.
+ * Events that compare as equal are kept in insertion order.
+ * <p>
+ * Sorting may be deferred while many events are being added at once (e.g. when loading a tree) with
+ * {@link #setDeferSorting(boolean)}. While sorting is deferred, events are appended in insertion order.
+ */
+final class SortedLifeEvents {
+  private final List<LifeEvent> events = new ArrayList<>();
+  private final Set<LifeEvent> members = Collections.newSetFromMap(new IdentityHashMap<>());
+  private boolean deferSorting;
+  private boolean sorted = true;
+
+  /**
+   * Add an event to this collection.
+   *
+   * @param event The event to add.
+   * @return True if the event was added, false if it was already present.
+   */
+  boolean add(@NotNull LifeEvent event) {
+    if (!this.members.add(Objects.requireNonNull(event)))
+      return false;
+    if (this.deferSorting) {
+      if (this.sorted && !this.events.isEmpty() && this.events.get(this.events.size() - 1).compareTo(event) > 0)
+        this.sorted = false;
+      this.events.add(event);
+    } else
+      this.events.add(this.insertionIndex(event), event);
+    return true;
+  }
+
+  /**
+   * Remove an event from this collection.
+   *
+   * @param event The event to remove.
+   * @return True if the event was removed, false if it was not present.
+   */
+  boolean remove(final LifeEvent event) {
+    if (!this.members.remove(event))
+      return false;
+    this.events.remove(this.indexOf(event));
+    return true;
+  }
+
+  /**
+   * Move the given event to its sorted position. Should be called whenever the date of a contained event changes.
+   *
+   * @param event The event to move.
+   */
+  void reposition(final @NotNull LifeEvent event) {
+    if (!this.members.contains(event))
+      return;
+    this.events.remove(this.indexOf(event));
+    if (this.deferSorting) {
+      this.events.add(event);
+      this.sorted = false;
+    } else
+      this.events.add(this.insertionIndex(event), event);
+  }
+
+  /**
+   * Indicate whether this collection contains the given event.
+   *
+   * @param event The event to check.
+   * @return True if the event is in this collection, false otherwise.
+   */
+  boolean contains(final LifeEvent event) {
+    return this.members.contains(event);
+  }
+
+  /**
+   * Set whether sorting should be deferred. If set to false, any unsorted events are sorted.
+   *
+   * @param deferSorting True to defer sorting, false to sort the events immediately.
+   * @return True if events had to be sorted, false otherwise.
+   */
+  boolean setDeferSorting(boolean deferSorting) {
+    this.deferSorting = deferSorting;
+    if (!deferSorting && !this.sorted) {
+      this.events.sort(null);
+      this.sorted = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * An unmodifiable view of the events of this collection.
+   */
+  @UnmodifiableView
+  List<LifeEvent> view() {
+    return Collections.unmodifiableList(this.events);
+  }
+
+  /**
+   * A stream of the events of this collection.
+   */
+  Stream<LifeEvent> stream() {
+    return this.events.stream();
+  }
+
+  /**
+   * Return the index after the last event that is not greater than the given one.
+   */
+  private int insertionIndex(final @NotNull LifeEvent event) {
+    int low = 0;
+    int high = this.events.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (this.events.get(mid).compareTo(event) <= 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Return the index of the given event based on its identity.
+   */
+  private int indexOf(final @NotNull LifeEvent event) {
+    for (int i = 0; i < this.events.size(); i++)
+      if (this.events.get(i) == event)
+        return i;
+    throw new NoSuchElementException(); // Should never happen
+  }
+}
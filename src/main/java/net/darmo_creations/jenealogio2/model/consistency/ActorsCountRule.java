@@ -0,0 +1,29 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.function.*;
+
+/**
+ * Reports life events whose number of actors does not match their type,
+ * which can happen when an event’s type is changed afterwards.
+ */
+public class ActorsCountRule implements ConsistencyRule {
+  @Override
+  public String key() {
+    return "actors_count";
+  }
+
+  @Override
+  public void check(@NotNull LifeEvent lifeEvent, @NotNull Consumer<Finding> reporter) {
+    final LifeEventType type = lifeEvent.type();
+    final int count = lifeEvent.actors().size();
+    if (count < type.minActors() || count > type.maxActors())
+      reporter.accept(new Finding(this, lifeEvent,
+          new FormatArg("count", count),
+          new FormatArg("min", type.minActors()),
+          new FormatArg("max", type.maxActors())));
+  }
+}
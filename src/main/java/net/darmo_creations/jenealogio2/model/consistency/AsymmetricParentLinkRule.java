@@ -0,0 +1,33 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Reports parents that do not list a person among their children of the same type,
+ * and children that do not list a person among their parents of the same type.
+ */
+public class AsymmetricParentLinkRule implements ConsistencyRule {
+  @Override
+  public String key() {
+    return "asymmetric_parent_link";
+  }
+
+  @Override
+  public void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+    person.parents().forEach((type, parents) -> {
+      for (final Person parent : parents)
+        if (!parent.children(type).contains(person))
+          reporter.accept(new Finding(this, person, new FormatArg("relative", parent)));
+    });
+    person.children().forEach((type, children) -> {
+      for (final Person child : children)
+        if (!child.getParentType(person).equals(Optional.of(type)))
+          reporter.accept(new Finding(this, person, new FormatArg("relative", child)));
+    });
+  }
+}
@@ -0,0 +1,26 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.function.*;
+
+/**
+ * Reports persons who were certainly born before one of their genetic parents.
+ * Findings are reported on the child.
+ */
+public class ChildBornBeforeParentRule implements ConsistencyRule {
+  @Override
+  public String key() {
+    return "child_born_before_parent";
+  }
+
+  @Override
+  public void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+    final DateBounds birth = DateBounds.of(person.getBirthDate());
+    for (final Person parent : person.getGeneticParents())
+      if (birth.isBefore(DateBounds.of(parent.getBirthDate())))
+        reporter.accept(new Finding(this, person, new FormatArg("parent", parent)));
+  }
+}
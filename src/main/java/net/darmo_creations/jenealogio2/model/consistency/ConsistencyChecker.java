@@ -0,0 +1,259 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs {@link ConsistencyRule}s over the persons and life events of a {@link FamilyTree}.
+ * <p>
+ * The first check goes over the whole tree, split into slices that are checked in parallel
+ * in the common {@link ForkJoinPool}. Findings are then kept, and the checker listens to the tree’s changes
+ * to only check again the persons and events that changed since, along with their parents and children.
+ * <p>
+ * Instances are obtained through {@link FamilyTree#consistencyChecker()}. Like the tree itself, this class is not
+ * thread-safe, it must only be used from the thread that modifies the tree. Worker threads only read the tree
+ * while that thread waits for them.
+ */
+public final class ConsistencyChecker {
+  /**
+   * The maximum number of persons or events that are checked by a single task.
+   */
+  private static final int SLICE_SIZE = 256;
+
+  private final FamilyTree familyTree;
+  private final List<ConsistencyRule> rules;
+  private final Map<Person, List<Finding>> personFindings = new HashMap<>();
+  private final Map<LifeEvent, List<Finding>> eventFindings = new HashMap<>();
+  /**
+   * The parents and children of each person at the time they were last checked.
+   */
+  private final Map<Person, Set<Person>> checkedRelatives = new HashMap<>();
+  /**
+   * The persons that took part in each event at the time they were last checked.
+   */
+  private final Map<LifeEvent, Set<Person>> checkedParticipants = new HashMap<>();
+  private final Set<Person> dirtyPersons = new HashSet<>();
+  private final Set<LifeEvent> dirtyEvents = new HashSet<>();
+  private boolean fullCheckNeeded = true;
+
+  /**
+   * Create a checker with the {@link #defaultRules()}.
+   *
+   * @param familyTree The tree to check.
+   */
+  public ConsistencyChecker(@NotNull FamilyTree familyTree) {
+    this(familyTree, defaultRules());
+  }
+
+  /**
+   * Create a checker with the given rules.
+   *
+   * @param familyTree The tree to check.
+   * @param rules      The rules to run.
+   */
+  public ConsistencyChecker(@NotNull FamilyTree familyTree, final @NotNull List<ConsistencyRule> rules) {
+    this.familyTree = Objects.requireNonNull(familyTree);
+    this.rules = List.copyOf(rules);
+    familyTree.addListener(this::onChange);
+  }
+
+  /**
+   * Return new instances of the rules run by default.
+   */
+  public static List<ConsistencyRule> defaultRules() {
+    return List.of(
+        new DeathBeforeBirthRule(),
+        new ChildBornBeforeParentRule(),
+        new ParentTooYoungRule(),
+        new DuplicateUniqueEventRule(),
+        new AsymmetricParentLinkRule(),
+        new ActorsCountRule()
+    );
+  }
+
+  /**
+   * The rules run by this checker.
+   */
+  public @Unmodifiable List<ConsistencyRule> rules() {
+    return this.rules;
+  }
+
+  private void onChange(@NotNull FamilyTreeChange change) {
+    if (this.fullCheckNeeded)
+      return;
+    if (change instanceof FamilyTreeChange.PersonAdded c)
+      this.dirtyPersons.add(c.person());
+    else if (change instanceof FamilyTreeChange.PersonRemoved c)
+      this.dirtyPersons.add(c.person());
+    else if (change instanceof FamilyTreeChange.PersonUpdated c)
+      this.dirtyPersons.add(c.person());
+    else if (change instanceof FamilyTreeChange.ParentsChanged c)
+      this.dirtyPersons.add(c.child());
+    else if (change instanceof FamilyTreeChange.LifeEventChanged c)
+      this.dirtyEvents.add(c.lifeEvent());
+  }
+
+  /**
+   * Discard all findings so that the next check goes over the whole tree again.
+   * Should be called when something that is not reported to listeners changes, e.g. a life event type.
+   */
+  public void invalidate() {
+    this.fullCheckNeeded = true;
+  }
+
+  /**
+   * Check the tree. Only persons and events that changed since the last check are checked again.
+   *
+   * @return All findings, those about persons first, in the order persons and events were added to the tree.
+   */
+  public List<Finding> check() {
+    final List<Person> persons;
+    final List<LifeEvent> lifeEvents;
+    if (this.fullCheckNeeded) {
+      this.personFindings.clear();
+      this.eventFindings.clear();
+      this.checkedRelatives.clear();
+      this.checkedParticipants.clear();
+      persons = new ArrayList<>(this.familyTree.persons());
+      lifeEvents = new ArrayList<>(this.familyTree.lifeEvents());
+    } else {
+      final Set<Person> personsToCheck = new HashSet<>();
+      for (final LifeEvent lifeEvent : this.dirtyEvents) {
+        this.dirtyPersons.addAll(lifeEvent.actors());
+        this.dirtyPersons.addAll(lifeEvent.witnesses());
+        this.dirtyPersons.addAll(this.checkedParticipants.getOrDefault(lifeEvent, Set.of()));
+      }
+      // Rules may look at the parents and children of a person, their findings may thus change too
+      for (final Person person : this.dirtyPersons) {
+        personsToCheck.add(person);
+        personsToCheck.addAll(relatives(person));
+        personsToCheck.addAll(this.checkedRelatives.getOrDefault(person, Set.of()));
+      }
+      persons = new ArrayList<>();
+      for (final Person person : personsToCheck) {
+        if (this.familyTree.containsPerson(person))
+          persons.add(person);
+        else {
+          this.personFindings.remove(person);
+          this.checkedRelatives.remove(person);
+        }
+      }
+      lifeEvents = new ArrayList<>();
+      for (final LifeEvent lifeEvent : this.dirtyEvents) {
+        if (this.familyTree.containsLifeEvent(lifeEvent))
+          lifeEvents.add(lifeEvent);
+        else {
+          this.eventFindings.remove(lifeEvent);
+          this.checkedParticipants.remove(lifeEvent);
+        }
+      }
+    }
+    this.dirtyPersons.clear();
+    this.dirtyEvents.clear();
+    this.fullCheckNeeded = false;
+
+    // Birth and death dates are cached lazily, make sure they are not computed concurrently
+    for (final Person person : persons) {
+      person.getBirthDate();
+      person.getDeathDate();
+      for (final Person relative : relatives(person)) {
+        relative.getBirthDate();
+        relative.getDeathDate();
+      }
+    }
+
+    final List<Result> results = ForkJoinPool.commonPool().invoke(new CheckTask(
+        persons.toArray(Person[]::new), lifeEvents.toArray(LifeEvent[]::new), 0, persons.size() + lifeEvents.size()));
+    for (final Result result : results) {
+      if (result.person() != null) {
+        this.personFindings.put(result.person(), result.findings());
+        this.checkedRelatives.put(result.person(), result.relatives());
+      } else {
+        this.eventFindings.put(result.lifeEvent(), result.findings());
+        this.checkedParticipants.put(result.lifeEvent(), result.relatives());
+      }
+    }
+
+    final List<Finding> findings = new ArrayList<>();
+    for (final Person person : this.familyTree.persons())
+      findings.addAll(this.personFindings.getOrDefault(person, List.of()));
+    for (final LifeEvent lifeEvent : this.familyTree.lifeEvents())
+      findings.addAll(this.eventFindings.getOrDefault(lifeEvent, List.of()));
+    return findings;
+  }
+
+  /**
+   * Return the parents and children of the given person, of all types.
+   */
+  private static Set<Person> relatives(@NotNull Person person) {
+    final Set<Person> relatives = new HashSet<>();
+    person.parents().values().forEach(relatives::addAll);
+    person.children().values().forEach(relatives::addAll);
+    return relatives;
+  }
+
+  /**
+   * The findings of a single person or life event.
+   *
+   * @param person    The checked person, null if a life event was checked.
+   * @param lifeEvent The checked life event, null if a person was checked.
+   * @param findings  The findings.
+   * @param relatives The parents and children of the person, or the participants of the event.
+   */
+  private record Result(Person person, LifeEvent lifeEvent, List<Finding> findings, Set<Person> relatives) {
+  }
+
+  /**
+   * Checks a slice of the persons then events to check, splitting it in halves until it is small enough.
+   * Indices after the last person are those of events.
+   * <p>
+   * Tasks are never serialized, they only live during a call to {@link #check()}.
+   */
+  @SuppressWarnings("serial")
+  private final class CheckTask extends RecursiveTask<List<Result>> {
+    private final Person[] persons;
+    private final LifeEvent[] lifeEvents;
+    private final int start, end;
+
+    CheckTask(final @NotNull Person[] persons, final @NotNull LifeEvent[] lifeEvents, int start, int end) {
+      this.persons = persons;
+      this.lifeEvents = lifeEvents;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected List<Result> compute() {
+      if (this.end - this.start > SLICE_SIZE) {
+        final int middle = (this.start + this.end) >>> 1;
+        final CheckTask left = new CheckTask(this.persons, this.lifeEvents, this.start, middle);
+        left.fork();
+        final List<Result> right = new CheckTask(this.persons, this.lifeEvents, middle, this.end).compute();
+        final List<Result> results = left.join();
+        results.addAll(right);
+        return results;
+      }
+      final List<Result> results = new ArrayList<>(this.end - this.start);
+      for (int i = this.start; i < this.end; i++) {
+        final List<Finding> findings = new ArrayList<>();
+        if (i < this.persons.length) {
+          final Person person = this.persons[i];
+          for (final ConsistencyRule rule : ConsistencyChecker.this.rules)
+            rule.check(person, findings::add);
+          results.add(new Result(person, null, findings, relatives(person)));
+        } else {
+          final LifeEvent lifeEvent = this.lifeEvents[i - this.persons.length];
+          for (final ConsistencyRule rule : ConsistencyChecker.this.rules)
+            rule.check(lifeEvent, findings::add);
+          final Set<Person> participants = new HashSet<>(lifeEvent.actors());
+          participants.addAll(lifeEvent.witnesses());
+          results.add(new Result(null, lifeEvent, findings, participants));
+        }
+      }
+      return results;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.function.*;
+
+/**
+ * A rule that looks for inconsistencies in the data of persons and life events.
+ * <p>
+ * Rules are run by a {@link ConsistencyChecker}, from several threads at once. They must not modify
+ * the objects they check and must not keep any state between calls.
+ * <p>
+ * A rule that checks a person may only look at the person, their events and their parents and children,
+ * as only those are checked again when one of them changes.
+ */
+public interface ConsistencyRule {
+  /**
+   * The key of this rule, used to translate the messages of its findings.
+   */
+  String key();
+
+  /**
+   * Check the given person.
+   *
+   * @param person   The person to check.
+   * @param reporter A function to report findings to.
+   */
+  default void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+  }
+
+  /**
+   * Check the given life event.
+   *
+   * @param lifeEvent The life event to check.
+   * @param reporter  A function to report findings to.
+   */
+  default void check(@NotNull LifeEvent lifeEvent, @NotNull Consumer<Finding> reporter) {
+  }
+}
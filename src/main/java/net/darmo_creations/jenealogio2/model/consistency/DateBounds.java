@@ -0,0 +1,82 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.datetime.*;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.*;
+import org.jetbrains.annotations.*;
+
+import java.time.*;
+import java.time.temporal.*;
+import java.util.*;
+
+/**
+ * The earliest and latest instants a {@link DateTime} may stand for.
+ * <p>
+ * Approximate dates ({@link DateTimePrecision#ABOUT} and {@link DateTimePrecision#POSSIBLY}) have no bounds,
+ * so that rules only report dates that are inconsistent for sure.
+ *
+ * @param earliest The earliest instant, or null if unbounded.
+ * @param latest   The latest instant, or null if unbounded.
+ */
+record DateBounds(LocalDateTime earliest, LocalDateTime latest) {
+  private static final DateBounds UNBOUNDED = new DateBounds(null, null);
+
+  /**
+   * Return the bounds of the given date.
+   *
+   * @param date A date. May be absent.
+   * @return The date’s bounds.
+   */
+  static DateBounds of(@SuppressWarnings("OptionalUsedAsFieldOrParameterType") final @NotNull Optional<DateTime> date) {
+    return date.map(DateBounds::of).orElse(UNBOUNDED);
+  }
+
+  /**
+   * Return the bounds of the given date.
+   *
+   * @param date A date.
+   * @return The date’s bounds.
+   */
+  static DateBounds of(@NotNull DateTime date) {
+    if (date instanceof DateTimeWithPrecision d) {
+      final LocalDateTime instant = d.date().toISO8601Date();
+      return switch (d.precision()) {
+        case EXACT -> new DateBounds(instant, instant);
+        case BEFORE -> new DateBounds(null, instant);
+        case AFTER -> new DateBounds(instant, null);
+        case ABOUT, POSSIBLY -> UNBOUNDED;
+      };
+    }
+    if (date instanceof DateTimeRange d)
+      return new DateBounds(d.startDate().toISO8601Date(), d.endDate().toISO8601Date());
+    if (date instanceof DateTimeAlternative d) {
+      final List<LocalDateTime> instants = d.dates().stream()
+          .map(CalendarSpecificDateTime::toISO8601Date)
+          .sorted()
+          .toList();
+      return new DateBounds(instants.get(0), instants.get(instants.size() - 1));
+    }
+    return UNBOUNDED;
+  }
+
+  /**
+   * Check whether these bounds are certainly before the given ones.
+   *
+   * @param other Other bounds.
+   * @return True if the latest instant of these bounds is before the earliest of the other ones.
+   */
+  boolean isBefore(@NotNull DateBounds other) {
+    return this.latest != null && other.earliest != null && this.latest.isBefore(other.earliest);
+  }
+
+  /**
+   * Return the greatest possible number of whole years between these bounds and the given ones.
+   *
+   * @param other Later bounds.
+   * @return The number of years, or an empty value if it is unbounded.
+   */
+  OptionalLong maxYearsUntil(@NotNull DateBounds other) {
+    if (this.earliest == null || other.latest == null)
+      return OptionalLong.empty();
+    return OptionalLong.of(ChronoUnit.YEARS.between(this.earliest, other.latest));
+  }
+}
@@ -0,0 +1,22 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.function.*;
+
+/**
+ * Reports persons who certainly died before they were born.
+ */
+public class DeathBeforeBirthRule implements ConsistencyRule {
+  @Override
+  public String key() {
+    return "death_before_birth";
+  }
+
+  @Override
+  public void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+    if (DateBounds.of(person.getDeathDate()).isBefore(DateBounds.of(person.getBirthDate())))
+      reporter.accept(new Finding(this, person));
+  }
+}
@@ -0,0 +1,27 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Reports persons who act in several events of a type that may only happen once,
+ * which can happen when a type is made unique or an event’s type is changed afterwards.
+ * One finding is reported for each extra event.
+ */
+public class DuplicateUniqueEventRule implements ConsistencyRule {
+  @Override
+  public String key() {
+    return "duplicate_unique_event";
+  }
+
+  @Override
+  public void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+    final Set<LifeEventType> seenTypes = new HashSet<>();
+    for (final LifeEvent lifeEvent : person.getLifeEventsAsActor())
+      if (lifeEvent.type().isUnique() && !seenTypes.add(lifeEvent.type()))
+        reporter.accept(new Finding(this.key(), person, lifeEvent, List.of()));
+  }
+}
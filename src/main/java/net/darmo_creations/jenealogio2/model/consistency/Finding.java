@@ -0,0 +1,66 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * An inconsistency found by a {@link ConsistencyRule}.
+ *
+ * @param ruleKey   The key of the rule that reported this finding.
+ * @param person    The person to show to fix this finding. May be null if a life event has no actors.
+ * @param lifeEvent The life event this finding is about. May be null.
+ * @param args      Arguments to format the finding’s message with.
+ */
+public record Finding(
+    @NotNull String ruleKey,
+    Person person,
+    LifeEvent lifeEvent,
+    @NotNull @Unmodifiable List<FormatArg> args
+) {
+  public Finding {
+    Objects.requireNonNull(ruleKey);
+    args = List.copyOf(args);
+  }
+
+  /**
+   * Create a finding about a person.
+   *
+   * @param rule   The rule that reported the finding.
+   * @param person The person the finding is about.
+   * @param args   Arguments to format the finding’s message with.
+   */
+  public Finding(@NotNull ConsistencyRule rule, @NotNull Person person, final @NotNull FormatArg... args) {
+    this(rule.key(), Objects.requireNonNull(person), null, List.of(args));
+  }
+
+  /**
+   * Create a finding about a life event.
+   *
+   * @param rule      The rule that reported the finding.
+   * @param lifeEvent The life event the finding is about.
+   * @param args      Arguments to format the finding’s message with.
+   */
+  public Finding(@NotNull ConsistencyRule rule, @NotNull LifeEvent lifeEvent, final @NotNull FormatArg... args) {
+    this(rule.key(), lifeEvent.actors().stream().findFirst().orElse(null), lifeEvent, List.of(args));
+  }
+
+  /**
+   * The message of this finding. The person and life event can be referenced by the message
+   * as {@code {person}} and {@code {event}}.
+   *
+   * @param language The language to translate the message in.
+   * @return The translated message.
+   */
+  public String message(@NotNull Language language) {
+    final List<FormatArg> formatArgs = new ArrayList<>(this.args);
+    if (this.person != null)
+      formatArgs.add(new FormatArg("person", this.person));
+    if (this.lifeEvent != null)
+      formatArgs.add(new FormatArg("event", this.lifeEvent.name(language)));
+    return language.translate("consistency_rule." + this.ruleKey, formatArgs.toArray(FormatArg[]::new));
+  }
+}
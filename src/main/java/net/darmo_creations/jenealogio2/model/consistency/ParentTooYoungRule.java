@@ -0,0 +1,60 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Reports persons whose genetic parents were certainly younger than a minimum age when they were born.
+ * Findings are reported on the child.
+ */
+public class ParentTooYoungRule implements ConsistencyRule {
+  /**
+   * The default minimum age of parents, in years.
+   */
+  public static final int DEFAULT_MIN_AGE = 12;
+
+  private final int minAge;
+
+  /**
+   * Create a rule with the {@link #DEFAULT_MIN_AGE}.
+   */
+  public ParentTooYoungRule() {
+    this(DEFAULT_MIN_AGE);
+  }
+
+  /**
+   * Create a rule with the given minimum age.
+   *
+   * @param minAge The minimum age of parents at the birth of their children, in years.
+   * @throws IllegalArgumentException If the age is negative.
+   */
+  public ParentTooYoungRule(int minAge) {
+    if (minAge < 0)
+      throw new IllegalArgumentException("minAge must be >= 0");
+    this.minAge = minAge;
+  }
+
+  @Override
+  public String key() {
+    return "parent_too_young";
+  }
+
+  @Override
+  public void check(@NotNull Person person, @NotNull Consumer<Finding> reporter) {
+    final DateBounds birth = DateBounds.of(person.getBirthDate());
+    for (final Person parent : person.getGeneticParents()) {
+      final DateBounds parentBirth = DateBounds.of(parent.getBirthDate());
+      // Already reported by ChildBornBeforeParentRule
+      if (birth.isBefore(parentBirth))
+        continue;
+      final OptionalLong age = parentBirth.maxYearsUntil(birth);
+      if (age.isPresent() && age.getAsLong() < this.minAge)
+        reporter.accept(new Finding(this, person,
+            new FormatArg("parent", parent), new FormatArg("age", age.getAsLong())));
+    }
+  }
+}
@@ -16,9 +16,10 @@ public record DateTimeRange(@NotNull CalendarSpecificDateTime startDate,
                             @NotNull CalendarSpecificDateTime endDate)
     implements DateTime {
   public DateTimeRange {
-    if (startDate.toISO8601Date().isAfter(endDate.toISO8601Date()))
+    final int c = startDate.compareTo(endDate);
+    if (c > 0)
       throw new IllegalArgumentException("start date is after end date");
-    if (startDate.toISO8601Date().equals(endDate.toISO8601Date()))
+    if (c == 0)
       throw new IllegalArgumentException("start date is equal to end date");
     Objects.requireNonNull(startDate);
     Objects.requireNonNull(endDate);
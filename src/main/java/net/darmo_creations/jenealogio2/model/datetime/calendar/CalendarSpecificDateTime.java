@@ -20,6 +20,13 @@ public abstract class CalendarSpecificDateTime implements Comparable<CalendarSpe
   private final Integer hour;
   private final Integer minute;
   private final boolean isTimeSet;
+  /**
+   * Sort key of this date, only valid if {@link #sortKeyComputed} is true.
+   * It is the value of {@link #toISO8601Date()} as epoch seconds and nanoseconds of second.
+   */
+  private long sortKeySeconds;
+  private int sortKeyNanos;
+  private volatile boolean sortKeyComputed;
 
   /**
    * Create a calendar-specific date-time object. Only hours’ and minutes’ bounds are checked,
@@ -126,9 +133,38 @@ public abstract class CalendarSpecificDateTime implements Comparable<CalendarSpe
    */
   public abstract LocalDateTime toISO8601Date();
 
+  /**
+   * Compare this date to another one based on their {@link #toISO8601Date()} value.
+   * <p>
+   * The ISO-8601 conversion is only performed once per object, subsequent comparisons do not allocate anything.
+   *
+   * @param o The date to compare to.
+   * @return The comparator value, negative if this date is before the other one,
+   * positive if it is after, 0 if both represent the same instant.
+   */
   @Override
   public final int compareTo(final @NotNull CalendarSpecificDateTime o) {
-    return this.toISO8601Date().compareTo(o.toISO8601Date());
+    this.ensureSortKeyIsComputed();
+    o.ensureSortKeyIsComputed();
+    final int c = Long.compare(this.sortKeySeconds, o.sortKeySeconds);
+    if (c != 0)
+      return c;
+    return Integer.compare(this.sortKeyNanos, o.sortKeyNanos);
+  }
+
+  /**
+   * Compute the sort key of this date if it has not been yet.
+   * <p>
+   * The key cannot be computed in the constructor
+   * as sub-classes may need their own fields to perform the ISO-8601 conversion.
+   */
+  private void ensureSortKeyIsComputed() {
+    if (this.sortKeyComputed)
+      return;
+    final LocalDateTime date = this.toISO8601Date();
+    this.sortKeySeconds = date.toEpochSecond(ZoneOffset.UTC);
+    this.sortKeyNanos = date.getNano();
+    this.sortKeyComputed = true;
   }
 
   @Override
@@ -0,0 +1,253 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * A precomputed index of the ancestors of a set of persons, following only some types of parental links.
+ * <p>
+ * Persons are numbered from 0 to n-1. For each person, the index stores the numbers of all of their ancestors,
+ * sorted, along with the smallest number of generations between the person and each ancestor.
+ * Both are packed into a single {@code long} per ancestor. Sorted arrays are used rather than bitsets
+ * as persons usually have few ancestors compared to the size of the tree, bitsets would take n²/8 bytes.
+ * <p>
+ * The index is built in a single pass over the persons in topological order, the ancestors of each person
+ * being the merge of those of their parents. Links that form cycles, which may only come from bad data,
+ * are ignored.
+ * <p>
+ * Indices are immutable and do not reflect later changes made to persons.
+ */
+final class AncestorIndex {
+  private static final long[] NO_ANCESTORS = new long[0];
+
+  private final Map<Person, Integer> numbers = new HashMap<>();
+  private final Person[] persons;
+  private final int[][] parents;
+  private final int[][] children;
+  private final int[] depths;
+  private final long[][] ancestors;
+  private final boolean hasCycles;
+
+  /**
+   * Build the index of the given persons.
+   *
+   * @param persons       The persons to index. Parents that are not in this collection are ignored.
+   * @param relationTypes The types of parental links to follow.
+   */
+  AncestorIndex(final @NotNull Collection<Person> persons, final @NotNull Set<ParentalRelationType> relationTypes) {
+    final int n = persons.size();
+    this.persons = persons.toArray(new Person[0]);
+    for (int i = 0; i < n; i++)
+      this.numbers.put(this.persons[i], i);
+
+    this.parents = new int[n][];
+    final int[] childrenCounts = new int[n];
+    for (int i = 0; i < n; i++) {
+      final int[] personParents = this.persons[i].parents().entrySet().stream()
+          .filter(e -> relationTypes.contains(e.getKey()))
+          .flatMap(e -> e.getValue().stream())
+          .mapToInt(p -> this.numbers.getOrDefault(p, -1))
+          .filter(p -> p >= 0)
+          .distinct()
+          .toArray();
+      this.parents[i] = personParents;
+      for (final int p : personParents)
+        childrenCounts[p]++;
+    }
+    this.children = new int[n][];
+    for (int i = 0; i < n; i++)
+      this.children[i] = new int[childrenCounts[i]];
+    for (int i = 0; i < n; i++)
+      for (final int p : this.parents[i])
+        this.children[p][--childrenCounts[p]] = i;
+
+    this.depths = new int[n];
+    this.ancestors = new long[n][];
+    this.hasCycles = !this.computeAncestors();
+  }
+
+  /**
+   * Compute the ancestors and depth of each person, parents before children (Kahn’s algorithm).
+   *
+   * @return False if some links form cycles, true otherwise.
+   */
+  private boolean computeAncestors() {
+    final int n = this.persons.length;
+    final int[] pendingParents = new int[n];
+    final int[] queue = new int[n];
+    int head = 0, tail = 0;
+    for (int i = 0; i < n; i++) {
+      pendingParents[i] = this.parents[i].length;
+      if (pendingParents[i] == 0)
+        queue[tail++] = i;
+    }
+    while (head < tail) {
+      final int i = queue[head++];
+      this.computeAncestors(i);
+      for (final int child : this.children[i])
+        if (--pendingParents[child] == 0)
+          queue[tail++] = child;
+    }
+    if (tail == n)
+      return true;
+    // Persons in or below a cycle, only keep links to parents whose ancestors are known
+    for (int i = 0; i < n; i++)
+      if (this.ancestors[i] == null)
+        this.computeAncestors(i);
+    return false;
+  }
+
+  private void computeAncestors(int i) {
+    long[] merged = NO_ANCESTORS;
+    int depth = 0;
+    for (final int p : this.parents[i]) {
+      final long[] parentAncestors = this.ancestors[p];
+      if (parentAncestors == null)
+        continue;
+      merged = merge(merged, withSelf(p, parentAncestors, 1));
+      depth = Math.max(depth, this.depths[p] + 1);
+    }
+    this.ancestors[i] = merged;
+    this.depths[i] = depth;
+  }
+
+  /**
+   * Indicate whether some parental links formed cycles and have been ignored.
+   */
+  boolean hasCycles() {
+    return this.hasCycles;
+  }
+
+  /**
+   * The number of indexed persons.
+   */
+  int size() {
+    return this.persons.length;
+  }
+
+  /**
+   * The number of the given person.
+   *
+   * @param person A person.
+   * @return The person’s number, or -1 if they are not indexed.
+   */
+  int numberOf(@NotNull Person person) {
+    return this.numbers.getOrDefault(person, -1);
+  }
+
+  /**
+   * The person with the given number.
+   */
+  Person person(int number) {
+    return this.persons[number];
+  }
+
+  /**
+   * The numbers of the parents of the given person.
+   */
+  int[] parents(int number) {
+    return this.parents[number];
+  }
+
+  /**
+   * The numbers of the children of the given person.
+   */
+  int[] children(int number) {
+    return this.children[number];
+  }
+
+  /**
+   * The number of generations of known ancestors above the given person, 0 if they have no parents.
+   */
+  int depth(int number) {
+    return this.depths[number];
+  }
+
+  /**
+   * The ancestors of the given person, including the person themself at distance 0.
+   *
+   * @param number A person’s number.
+   * @return The packed ancestors, see {@link #number(long)} and {@link #distance(long)}, sorted by number.
+   */
+  long[] ancestorsAndSelf(int number) {
+    return withSelf(number, this.ancestors[number], 0);
+  }
+
+  /**
+   * The smallest number of generations between a person and one of their ancestors.
+   *
+   * @param number         A person’s number.
+   * @param ancestorNumber A possible ancestor’s number.
+   * @return The number of generations, 0 if both numbers are equal, or -1 if the second person
+   * is not an ancestor of the first one.
+   */
+  int distance(int number, int ancestorNumber) {
+    if (number == ancestorNumber)
+      return 0;
+    final long[] personAncestors = this.ancestors[number];
+    int low = 0, high = personAncestors.length - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int n = number(personAncestors[middle]);
+      if (n < ancestorNumber)
+        low = middle + 1;
+      else if (n > ancestorNumber)
+        high = middle - 1;
+      else
+        return distance(personAncestors[middle]);
+    }
+    return -1;
+  }
+
+  static int number(long packedAncestor) {
+    return (int) (packedAncestor >>> 32);
+  }
+
+  static int distance(long packedAncestor) {
+    return (int) packedAncestor;
+  }
+
+  private static long pack(int number, int distance) {
+    return ((long) number << 32) | distance;
+  }
+
+  /**
+   * Insert a person into their sorted ancestors array and add an offset to all distances.
+   */
+  private static long[] withSelf(int number, final long @NotNull [] ancestors, int offset) {
+    final long[] result = new long[ancestors.length + 1];
+    int i = 0, j = 0;
+    while (i < ancestors.length && number(ancestors[i]) < number)
+      result[j++] = ancestors[i++] + offset;
+    result[j++] = pack(number, offset);
+    while (i < ancestors.length)
+      result[j++] = ancestors[i++] + offset;
+    return result;
+  }
+
+  /**
+   * Merge two sorted ancestors arrays, keeping the smallest distance of ancestors that are in both.
+   */
+  private static long[] merge(final long @NotNull [] ancestors1, final long @NotNull [] ancestors2) {
+    if (ancestors1.length == 0)
+      return ancestors2;
+    final long[] result = new long[ancestors1.length + ancestors2.length];
+    int i = 0, j = 0, k = 0;
+    while (i < ancestors1.length && j < ancestors2.length) {
+      final int n1 = number(ancestors1[i]), n2 = number(ancestors2[j]);
+      if (n1 < n2)
+        result[k++] = ancestors1[i++];
+      else if (n1 > n2)
+        result[k++] = ancestors2[j++];
+      else
+        result[k++] = Math.min(ancestors1[i++], ancestors2[j++]);
+    }
+    while (i < ancestors1.length)
+      result[k++] = ancestors1[i++];
+    while (j < ancestors2.length)
+      result[k++] = ancestors2[j++];
+    return k == result.length ? result : Arrays.copyOf(result, k);
+  }
+}
@@ -0,0 +1,193 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * Computes the relationships between the persons of a {@link FamilyTree}.
+ * <p>
+ * Relationships are found through the lowest common ancestors of both persons, i.e. their common ancestors
+ * that are not an ancestor of another one of their common ancestors. These are looked up in an {@link AncestorIndex}
+ * per {@link Lineage}, built the first time it is needed and discarded whenever persons or parental links
+ * of the tree change.
+ * <p>
+ * Instances are obtained through {@link FamilyTree#kinship()}. Like the tree itself, this class is not thread-safe,
+ * it must only be used from the thread that modifies the tree.
+ */
+public final class KinshipCalculator {
+  private final FamilyTree familyTree;
+  private final Map<Lineage, AncestorIndex> indices = new EnumMap<>(Lineage.class);
+
+  /**
+   * Create a calculator for the given tree.
+   *
+   * @param familyTree The tree whose persons’ relationships are to be computed.
+   */
+  public KinshipCalculator(@NotNull FamilyTree familyTree) {
+    this.familyTree = Objects.requireNonNull(familyTree);
+    familyTree.addListener(this::onChange);
+  }
+
+  private void onChange(@NotNull FamilyTreeChange change) {
+    if (change instanceof FamilyTreeChange.PersonAdded
+        || change instanceof FamilyTreeChange.PersonRemoved
+        || change instanceof FamilyTreeChange.ParentsChanged)
+      this.indices.clear();
+  }
+
+  /**
+   * Return the closest relationship between two persons, looking up the lineages in declaration order.
+   *
+   * @param person1 A person.
+   * @param person2 Another person.
+   * @return The relationship of the first person to the second one, or an empty value if they are not related.
+   */
+  public Optional<Relationship> relationship(@NotNull Person person1, @NotNull Person person2) {
+    return this.relationships(person1, person2).stream().findFirst();
+  }
+
+  /**
+   * Return all relationships between two persons, in all lineages.
+   * Relationships of the {@link Lineage#ADOPTIVE} lineage that only go through biological parents
+   * are omitted as they are already returned for the {@link Lineage#GENETIC} lineage.
+   *
+   * @param person1 A person.
+   * @param person2 Another person.
+   * @return The relationships of the first person to the second one, by lineage then closest first.
+   */
+  public List<Relationship> relationships(@NotNull Person person1, @NotNull Person person2) {
+    final List<Relationship> relationships = new LinkedList<>();
+    for (final Lineage lineage : Lineage.values())
+      for (final Relationship relationship : this.relationships(person1, person2, lineage))
+        if (relationships.stream().noneMatch(r -> isSameRelationship(r, relationship)))
+          relationships.add(relationship);
+    return relationships;
+  }
+
+  private static boolean isSameRelationship(@NotNull Relationship r1, @NotNull Relationship r2) {
+    return r1.firstGenerations() == r2.firstGenerations()
+        && r1.secondGenerations() == r2.secondGenerations()
+        && r1.commonAncestors().equals(r2.commonAncestors());
+  }
+
+  /**
+   * Return all relationships between two persons in the given lineage.
+   * There may be several if the persons are related through different common ancestors,
+   * e.g. if they are both cousins and siblings-in-law that had children together.
+   *
+   * @param person1 A person.
+   * @param person2 Another person.
+   * @param lineage The kind of parental links to follow.
+   * @return The relationships of the first person to the second one, closest first.
+   */
+  public List<Relationship> relationships(
+      @NotNull Person person1,
+      @NotNull Person person2,
+      @NotNull Lineage lineage
+  ) {
+    final AncestorIndex index = this.index(lineage);
+    final int n1 = index.numberOf(person1);
+    final int n2 = index.numberOf(person2);
+    if (n1 < 0 || n2 < 0)
+      return List.of();
+    if (n1 == n2)
+      return List.of(new Relationship(lineage, 0, 0, false, Set.of(person1)));
+
+    // Group the lowest common ancestors by their distance to both persons
+    final Map<Long, List<Integer>> groups = new HashMap<>();
+    final int[][] lcas = lowestCommonAncestors(index, n1, n2);
+    for (final int[] lca : lcas)
+      groups.computeIfAbsent(((long) lca[1] << 32) | lca[2], k -> new LinkedList<>()).add(lca[0]);
+
+    final List<Relationship> relationships = new ArrayList<>();
+    groups.forEach((distances, ancestors) -> {
+      final int d1 = (int) (distances >>> 32), d2 = (int) (long) distances;
+      final boolean half = ancestors.size() == 1 && d1 > 0 && d2 > 0
+          && hasOtherParent(index, n1, ancestors.get(0), d1)
+          && hasOtherParent(index, n2, ancestors.get(0), d2);
+      final Set<Person> persons = new HashSet<>();
+      ancestors.forEach(a -> persons.add(index.person(a)));
+      relationships.add(new Relationship(lineage, d1, d2, half, persons));
+    });
+    relationships.sort(Comparator.<Relationship>comparingInt(r -> r.firstGenerations() + r.secondGenerations())
+        .thenComparingInt(Relationship::removed)
+        .thenComparingInt(Relationship::firstGenerations));
+    return relationships;
+  }
+
+  /**
+   * Return the lowest common ancestors of two persons, i.e. their common ancestors
+   * that are not an ancestor of another one of their common ancestors.
+   * If one of the persons is an ancestor of the other, only that person is returned.
+   *
+   * @param person1 A person.
+   * @param person2 Another person.
+   * @param lineage The kind of parental links to follow.
+   * @return The lowest common ancestors. Empty if the persons are not related.
+   */
+  public Set<Person> lowestCommonAncestors(
+      @NotNull Person person1,
+      @NotNull Person person2,
+      @NotNull Lineage lineage
+  ) {
+    final AncestorIndex index = this.index(lineage);
+    final int n1 = index.numberOf(person1);
+    final int n2 = index.numberOf(person2);
+    if (n1 < 0 || n2 < 0)
+      return Set.of();
+    final Set<Person> persons = new HashSet<>();
+    for (final int[] lca : lowestCommonAncestors(index, n1, n2))
+      persons.add(index.person(lca[0]));
+    return persons;
+  }
+
+  /**
+   * Return the index for the given lineage, building it if necessary.
+   */
+  AncestorIndex index(@NotNull Lineage lineage) {
+    return this.indices.computeIfAbsent(lineage,
+        l -> new AncestorIndex(this.familyTree.persons(), l.relationTypes()));
+  }
+
+  /**
+   * Return the lowest common ancestors of two persons.
+   *
+   * @return An array of {number, distance to first person, distance to second person} triplets.
+   */
+  private static int[][] lowestCommonAncestors(@NotNull AncestorIndex index, int n1, int n2) {
+    final long[] ancestors1 = index.ancestorsAndSelf(n1);
+    final long[] ancestors2 = index.ancestorsAndSelf(n2);
+    final List<int[]> common = new ArrayList<>();
+    int i = 0, j = 0;
+    while (i < ancestors1.length && j < ancestors2.length) {
+      final int a1 = AncestorIndex.number(ancestors1[i]), a2 = AncestorIndex.number(ancestors2[j]);
+      if (a1 < a2)
+        i++;
+      else if (a1 > a2)
+        j++;
+      else
+        common.add(new int[] {a1, AncestorIndex.distance(ancestors1[i++]), AncestorIndex.distance(ancestors2[j++])});
+    }
+    // A common ancestor that is the ancestor of another one is not the lowest
+    return common.stream()
+        .filter(c -> common.stream().noneMatch(other -> other[0] != c[0] && index.distance(other[0], c[0]) > 0))
+        .toArray(int[][]::new);
+  }
+
+  /**
+   * Check whether the child of the given ancestor a person descends from has another known parent.
+   *
+   * @param index    The index to look up.
+   * @param number   The person’s number.
+   * @param ancestor The ancestor’s number.
+   * @param distance The number of generations between the person and the ancestor.
+   */
+  private static boolean hasOtherParent(@NotNull AncestorIndex index, int number, int ancestor, int distance) {
+    for (final int child : index.children(ancestor))
+      if (index.distance(number, child) == distance - 1 && index.parents(child).length > 1)
+        return true;
+    return false;
+  }
+}
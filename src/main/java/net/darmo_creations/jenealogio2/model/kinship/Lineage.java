@@ -0,0 +1,49 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * Enumeration of the kinds of parental links relationships may go through.
+ * <p>
+ * Surrogate parents do not create any relationship.
+ */
+public enum Lineage {
+  /**
+   * Links between a child and the persons they inherited their genes from.
+   */
+  GENETIC(ParentalRelationType.GENETIC_RELATIONS),
+  /**
+   * Links between a child and the persons that raise them as their own,
+   * i.e. their biological, non-biological and adoptive parents.
+   */
+  ADOPTIVE(
+      ParentalRelationType.BIOLOGICAL_PARENT,
+      ParentalRelationType.NON_BIOLOGICAL_PARENT,
+      ParentalRelationType.ADOPTIVE_PARENT
+  ),
+  /**
+   * Links between a child and their foster parents.
+   */
+  FOSTER(ParentalRelationType.FOSTER_PARENT),
+  /**
+   * Links between a child and their godparents.
+   */
+  GODPARENT(ParentalRelationType.GODPARENT),
+  ;
+
+  private final Set<ParentalRelationType> relationTypes;
+
+  Lineage(final @NotNull ParentalRelationType... relationTypes) {
+    this.relationTypes = Collections.unmodifiableSet(EnumSet.copyOf(List.of(relationTypes)));
+  }
+
+  /**
+   * The types of parental links followed by this lineage.
+   */
+  public @Unmodifiable Set<ParentalRelationType> relationTypes() {
+    return this.relationTypes;
+  }
+}
@@ -0,0 +1,259 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.math.*;
+import java.util.*;
+
+/**
+ * The genetic pedigree of a person, with the Sosa-Stradonitz (Ahnentafel) numbers of their ancestors
+ * and the pedigree collapse (implex) of each generation.
+ * <p>
+ * The person has number 1, the father of the person with number n has number 2n and their mother 2n+1.
+ * An ancestor that can be reached through several lines, i.e. a collapsed ancestor, has one number per line.
+ * The number of lines doubles with each generation, so numbers are never enumerated: the number of lines
+ * leading to each ancestor is counted generation by generation, which takes time proportional
+ * to the number of generations times the number of parental links. Only the smallest numbers of each ancestor
+ * are kept.
+ * <p>
+ * Parents are placed on the father’s side if they are sperm donors or were assigned male at birth,
+ * and on the mother’s side if they are egg donors or were assigned female at birth.
+ * Other parents are ordered by birth date then name.
+ * <p>
+ * Pedigrees are immutable and do not reflect later changes made to persons.
+ */
+public final class Pedigree {
+  /**
+   * The default maximum number of Sosa numbers to keep per ancestor.
+   */
+  public static final int DEFAULT_MAX_NUMBERS = 10;
+
+  private static final RegistryEntryKey MALE = new RegistryEntryKey(Registry.BUILTIN_NS, "male");
+  private static final RegistryEntryKey FEMALE = new RegistryEntryKey(Registry.BUILTIN_NS, "female");
+
+  private final Person root;
+  private final List<Generation> generations = new ArrayList<>();
+  private final Map<Person, BigInteger> lineCounts = new HashMap<>();
+  private final Map<Person, List<BigInteger>> sosaNumbers = new HashMap<>();
+  private final Map<Person, Person[]> orderedParents = new HashMap<>();
+  private final boolean hasCycles;
+
+  /**
+   * Compute the pedigree of the given person, keeping {@link #DEFAULT_MAX_NUMBERS} Sosa numbers per ancestor.
+   *
+   * @param root The person whose ancestors are to be numbered.
+   */
+  public Pedigree(@NotNull Person root) {
+    this(root, DEFAULT_MAX_NUMBERS);
+  }
+
+  /**
+   * Compute the pedigree of the given person.
+   *
+   * @param root       The person whose ancestors are to be numbered.
+   * @param maxNumbers The maximum number of Sosa numbers to keep per ancestor.
+   * @throws IllegalArgumentException If maxNumbers is not strictly positive.
+   */
+  public Pedigree(@NotNull Person root, int maxNumbers) {
+    if (maxNumbers <= 0)
+      throw new IllegalArgumentException("maxNumbers must be > 0");
+    this.root = Objects.requireNonNull(root);
+    final Traversal traversal = new Traversal(Lineage.GENETIC.relationTypes());
+    // Lines cannot be longer than the number of ancestors, unless links form cycles
+    final long ancestorsCount = traversal.ancestors(root, Traversal.ALL_GENERATIONS).count();
+
+    // Lines leading to each person of the current generation, along with their smallest numbers
+    Map<Person, BigInteger> counts = Map.of(root, BigInteger.ONE);
+    Map<Person, List<BigInteger>> numbers = Map.of(root, List.of(BigInteger.ONE));
+    int generation = 0;
+    while (generation < ancestorsCount) {
+      generation++;
+      final Map<Person, BigInteger> nextCounts = new LinkedHashMap<>();
+      final Map<Person, List<BigInteger>> nextNumbers = new HashMap<>();
+      for (final var entry : counts.entrySet()) {
+        final Person child = entry.getKey();
+        final Person[] parents = this.orderedParents(child, traversal);
+        for (int side = 0; side < 2; side++) {
+          final Person parent = parents[side];
+          if (parent == null)
+            continue;
+          nextCounts.merge(parent, entry.getValue(), BigInteger::add);
+          final BigInteger bit = BigInteger.valueOf(side);
+          final List<BigInteger> parentNumbers = numbers.get(child).stream()
+              .map(n -> n.shiftLeft(1).add(bit))
+              .toList();
+          nextNumbers.merge(parent, parentNumbers, (l1, l2) -> mergeSmallest(l1, l2, maxNumbers));
+        }
+      }
+      if (nextCounts.isEmpty())
+        break;
+      final BigInteger lines = nextCounts.values().stream().reduce(BigInteger.ZERO, BigInteger::add);
+      this.generations.add(new Generation(generation, lines, nextCounts.size()));
+      nextCounts.forEach((person, count) -> this.lineCounts.merge(person, count, BigInteger::add));
+      // Numbers of later generations are always greater
+      nextNumbers.forEach((person, personNumbers) -> this.sosaNumbers.merge(person, personNumbers,
+          (l1, l2) -> mergeSmallest(l1, l2, maxNumbers)));
+      counts = nextCounts;
+      numbers = nextNumbers;
+    }
+    this.hasCycles = generation == ancestorsCount && counts.keySet().stream()
+        .anyMatch(p -> !traversal.parents(p).isEmpty()) || traversal.hasCycles();
+  }
+
+  /**
+   * Return the two genetic parents of a person, father’s side first. Missing parents are null.
+   */
+  private Person[] orderedParents(@NotNull Person person, @NotNull Traversal traversal) {
+    return this.orderedParents.computeIfAbsent(person, p -> {
+      final List<Person> parents = traversal.parents(p).stream()
+          .sorted(Comparator.<Person>comparingInt(parent -> side(p, parent))
+              .thenComparing(Person.birthDateThenNameComparator(false)))
+          .toList();
+      final Person[] sides = new Person[2];
+      if (parents.size() == 1)
+        sides[side(p, parents.get(0)) == 2 ? 1 : 0] = parents.get(0);
+      else
+        for (int i = 0; i < Math.min(2, parents.size()); i++)
+          sides[i] = parents.get(i);
+      return sides;
+    });
+  }
+
+  /**
+   * Return 0 if the given parent belongs on the father’s side, 2 if on the mother’s side, 1 if unknown.
+   */
+  private static int side(@NotNull Person child, @NotNull Person parent) {
+    final Optional<ParentalRelationType> type = child.getParentType(parent);
+    if (type.isPresent() && type.get() == ParentalRelationType.SPERM_DONOR)
+      return 0;
+    if (type.isPresent() && type.get() == ParentalRelationType.EGG_DONOR)
+      return 2;
+    final Optional<RegistryEntryKey> gender = parent.assignedGenderAtBirth().map(RegistryEntry::key);
+    if (gender.isPresent() && gender.get().equals(MALE))
+      return 0;
+    if (gender.isPresent() && gender.get().equals(FEMALE))
+      return 2;
+    return 1;
+  }
+
+  /**
+   * Merge two sorted lists of numbers, keeping at most the given number of the smallest ones.
+   */
+  private static List<BigInteger> mergeSmallest(
+      final @NotNull List<BigInteger> l1,
+      final @NotNull List<BigInteger> l2,
+      int max
+  ) {
+    final List<BigInteger> merged = new ArrayList<>(Math.min(max, l1.size() + l2.size()));
+    int i = 0, j = 0;
+    while (merged.size() < max && (i < l1.size() || j < l2.size())) {
+      if (j == l2.size() || i < l1.size() && l1.get(i).compareTo(l2.get(j)) <= 0)
+        merged.add(l1.get(i++));
+      else
+        merged.add(l2.get(j++));
+    }
+    return Collections.unmodifiableList(merged);
+  }
+
+  /**
+   * The person whose ancestors are numbered.
+   */
+  public Person root() {
+    return this.root;
+  }
+
+  /**
+   * The known generations of ancestors, parents first.
+   */
+  public @Unmodifiable List<Generation> generations() {
+    return Collections.unmodifiableList(this.generations);
+  }
+
+  /**
+   * The root’s distinct ancestors.
+   */
+  public @UnmodifiableView Set<Person> ancestors() {
+    return Collections.unmodifiableSet(this.lineCounts.keySet());
+  }
+
+  /**
+   * Indicate whether some parental links form cycles. If so, numbering stopped after
+   * as many generations as there are ancestors.
+   */
+  public boolean hasCycles() {
+    return this.hasCycles;
+  }
+
+  /**
+   * Return the number of lines from the root to the given person, i.e. their number of Sosa numbers.
+   *
+   * @param person A person.
+   * @return The number of lines, 0 if the person is not an ancestor of the root.
+   */
+  public BigInteger lineCount(@NotNull Person person) {
+    if (person == this.root)
+      return BigInteger.ONE;
+    return this.lineCounts.getOrDefault(person, BigInteger.ZERO);
+  }
+
+  /**
+   * Return the smallest Sosa numbers of the given person.
+   *
+   * @param person A person.
+   * @return The person’s smallest numbers, sorted. Empty if the person is not an ancestor of the root.
+   * There may be fewer numbers than {@link #lineCount(Person)}.
+   */
+  public @Unmodifiable List<BigInteger> sosaNumbers(@NotNull Person person) {
+    if (person == this.root)
+      return List.of(BigInteger.ONE);
+    return this.sosaNumbers.getOrDefault(person, List.of());
+  }
+
+  /**
+   * The pedigree collapse over all generations: 0 if all known ancestors are distinct,
+   * closer to 1 as the same ancestors appear in more lines.
+   */
+  public double implex() {
+    final BigInteger lines = this.generations.stream()
+        .map(Generation::lines)
+        .reduce(BigInteger.ZERO, BigInteger::add);
+    if (lines.signum() == 0)
+      return 0;
+    return 1 - new BigDecimal(this.lineCounts.size()).divide(new BigDecimal(lines), MathContext.DECIMAL64).doubleValue();
+  }
+
+  /**
+   * A generation of ancestors.
+   *
+   * @param number            The generation’s number, 1 for parents, 2 for grandparents, etc.
+   * @param lines             The number of known ancestors in this generation, counting collapsed ancestors
+   *                          once per line they appear in.
+   * @param distinctAncestors The number of distinct ancestors in this generation.
+   */
+  public record Generation(int number, @NotNull BigInteger lines, int distinctAncestors) {
+    /**
+     * The number of ancestors in this generation if all were known and distinct, i.e. 2<sup>number</sup>.
+     */
+    public BigInteger theoreticalAncestors() {
+      return BigInteger.ONE.shiftLeft(this.number);
+    }
+
+    /**
+     * The pedigree collapse of this generation: 0 if all known ancestors are distinct,
+     * closer to 1 as the same ancestors appear in more lines.
+     */
+    public double implex() {
+      return 1 - new BigDecimal(this.distinctAncestors).divide(new BigDecimal(this.lines), MathContext.DECIMAL64)
+          .doubleValue();
+    }
+
+    /**
+     * The proportion of lines of this generation that lead to a known ancestor.
+     */
+    public double completeness() {
+      return new BigDecimal(this.lines).divide(new BigDecimal(this.theoreticalAncestors()), MathContext.DECIMAL64)
+          .doubleValue();
+    }
+  }
+}
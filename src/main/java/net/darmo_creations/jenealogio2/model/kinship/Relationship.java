@@ -0,0 +1,148 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * A relationship between two persons, through their lowest common ancestors.
+ * <p>
+ * Relationships are oriented: they describe what the first person is to the second one,
+ * e.g. a relationship of kind {@link Kind#PIBLING} means that the first person is an uncle or aunt
+ * of the second one.
+ *
+ * @param lineage           The kind of parental links this relationship goes through.
+ * @param firstGenerations  The number of generations between the first person and the common ancestors.
+ * @param secondGenerations The number of generations between the second person and the common ancestors.
+ * @param half              Whether both persons only share one of the two parents
+ *                          of the common ancestors’ children they descend from.
+ * @param commonAncestors   The lowest common ancestors of both persons
+ *                          at these numbers of generations.
+ */
+public record Relationship(
+    @NotNull Lineage lineage,
+    int firstGenerations,
+    int secondGenerations,
+    boolean half,
+    @NotNull @Unmodifiable Set<Person> commonAncestors
+) {
+  public Relationship {
+    Objects.requireNonNull(lineage);
+    if (firstGenerations < 0 || secondGenerations < 0)
+      throw new IllegalArgumentException("generations must be >= 0");
+    commonAncestors = Set.copyOf(commonAncestors);
+  }
+
+  /**
+   * The kind of this relationship.
+   */
+  public Kind kind() {
+    if (this.firstGenerations == 0 && this.secondGenerations == 0)
+      return Kind.SELF;
+    if (this.firstGenerations == 0)
+      return Kind.ANCESTOR;
+    if (this.secondGenerations == 0)
+      return Kind.DESCENDANT;
+    if (this.firstGenerations == 1 && this.secondGenerations == 1)
+      return Kind.SIBLING;
+    if (this.firstGenerations == 1)
+      return Kind.PIBLING;
+    if (this.secondGenerations == 1)
+      return Kind.NIBLING;
+    return Kind.COUSIN;
+  }
+
+  /**
+   * The degree of this relationship if both persons are cousins: 1 for first cousins, 2 for second cousins, etc.
+   */
+  public int cousinDegree() {
+    return Math.min(this.firstGenerations, this.secondGenerations) - 1;
+  }
+
+  /**
+   * The number of generations that separate both persons: 1 for a parent or cousins once removed, etc.
+   */
+  public int removed() {
+    return Math.abs(this.firstGenerations - this.secondGenerations);
+  }
+
+  /**
+   * The name of this relationship, i.e. what the first person is to the second one.
+   *
+   * @param language The language to name the relationship in.
+   * @return The translated name.
+   */
+  public String name(@NotNull Language language) {
+    if (this.lineage == Lineage.GODPARENT && this.removed() == 1) {
+      if (this.kind() == Kind.ANCESTOR)
+        return language.translate("relationship.godparent");
+      if (this.kind() == Kind.DESCENDANT)
+        return language.translate("relationship.godchild");
+    }
+    String name = switch (this.kind()) {
+      case SELF -> language.translate("relationship.self");
+      case ANCESTOR -> translateGenerations(language, "relationship.ancestor", this.secondGenerations);
+      case DESCENDANT -> translateGenerations(language, "relationship.descendant", this.firstGenerations);
+      case SIBLING -> language.translate(this.half ? "relationship.half_sibling" : "relationship.sibling");
+      case PIBLING -> translateGenerations(language, "relationship.pibling", this.secondGenerations - 1);
+      case NIBLING -> translateGenerations(language, "relationship.nibling", this.firstGenerations - 1);
+      case COUSIN -> {
+        final String cousin = language.translate("relationship.cousin", this.cousinDegree(),
+            new FormatArg("degree", this.cousinDegree()));
+        yield this.removed() == 0 ? cousin : language.translate("relationship.removed", this.removed(),
+            new FormatArg("relationship", cousin), new FormatArg("count", this.removed()));
+      }
+    };
+    if (this.half && this.kind() != Kind.SIBLING)
+      name = language.translate("relationship.half", new FormatArg("relationship", name));
+    if (this.lineage != Lineage.GENETIC && this.kind() != Kind.SELF)
+      name = language.translate("relationship.lineage." + this.lineage.name().toLowerCase(),
+          new FormatArg("relationship", name));
+    return name;
+  }
+
+  /**
+   * Translate a key whose plurals depend on a number of generations.
+   * The number of “great-” prefixes for the given number of generations is passed as the {@code greats} argument.
+   */
+  private static String translateGenerations(@NotNull Language language, @NotNull String key, int generations) {
+    return language.translate(key, generations, new FormatArg("greats", generations - 2));
+  }
+
+  /**
+   * Enumeration of the kinds of relationships, from the point of view of the first person.
+   */
+  public enum Kind {
+    /**
+     * Both persons are the same.
+     */
+    SELF,
+    /**
+     * The first person is a parent, grandparent, etc. of the second one.
+     */
+    ANCESTOR,
+    /**
+     * The first person is a child, grandchild, etc. of the second one.
+     */
+    DESCENDANT,
+    /**
+     * Both persons are siblings or half-siblings.
+     */
+    SIBLING,
+    /**
+     * The first person is an uncle, aunt, great-uncle, etc. of the second one.
+     */
+    PIBLING,
+    /**
+     * The first person is a nephew, niece, grandnephew, etc. of the second one.
+     */
+    NIBLING,
+    /**
+     * Both persons are cousins, possibly removed.
+     */
+    COUSIN,
+  }
+}
@@ -0,0 +1,224 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * A traversal session over the parental links of persons, following only some types of links.
+ * <p>
+ * Ancestors and descendants are returned breadth-first along with their generation, i.e. the smallest number
+ * of links between them and the starting person. Each relative is returned only once, even if they can be reached
+ * through several paths, so that traversals always end even if links form cycles. Cycles, which may only come
+ * from bad data, are reported by {@link #hasCycles()} whenever a traversal reaches one, even if it does not
+ * go through the starting person. The starting person is never returned as their own relative.
+ * <p>
+ * The parents, children and closures computed during a session are memoized, so that building a chart
+ * does not walk the same links several times. As a consequence, a session does not see changes
+ * made to persons after its creation, and should be discarded once the chart or report is built.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class Traversal {
+  /**
+   * Value to pass to {@link #ancestors(Person, int)} and {@link #descendants(Person, int)}
+   * to return relatives from all generations.
+   */
+  public static final int ALL_GENERATIONS = Integer.MAX_VALUE;
+
+  private final Set<ParentalRelationType> relationTypes;
+  private final Map<Person, List<Person>> parents = new HashMap<>();
+  private final Map<Person, List<Person>> children = new HashMap<>();
+  private final Map<Person, Closure> ancestors = new HashMap<>();
+  private final Map<Person, Closure> descendants = new HashMap<>();
+  private boolean hasCycles;
+
+  /**
+   * Create a traversal session.
+   *
+   * @param relationTypes The types of parental links to follow.
+   */
+  public Traversal(final @NotNull Collection<ParentalRelationType> relationTypes) {
+    final Set<ParentalRelationType> types = EnumSet.noneOf(ParentalRelationType.class);
+    types.addAll(relationTypes);
+    this.relationTypes = Collections.unmodifiableSet(types);
+  }
+
+  /**
+   * The types of parental links followed by this traversal.
+   */
+  public @Unmodifiable Set<ParentalRelationType> relationTypes() {
+    return this.relationTypes;
+  }
+
+  /**
+   * Indicate whether the links followed by a traversal of this session formed cycles.
+   */
+  public boolean hasCycles() {
+    return this.hasCycles;
+  }
+
+  /**
+   * Return the parents of the given person through the followed types of links.
+   *
+   * @param person A person.
+   * @return The person’s parents.
+   */
+  public @Unmodifiable List<Person> parents(@NotNull Person person) {
+    return this.parents.computeIfAbsent(person, p -> this.neighbors(p.parents()));
+  }
+
+  /**
+   * Return the children of the given person through the followed types of links.
+   *
+   * @param person A person.
+   * @return The person’s children.
+   */
+  public @Unmodifiable List<Person> children(@NotNull Person person) {
+    return this.children.computeIfAbsent(person, p -> this.neighbors(p.children()));
+  }
+
+  private List<Person> neighbors(final @NotNull Map<ParentalRelationType, Set<Person>> relatives) {
+    final List<Person> neighbors = new ArrayList<>();
+    relatives.forEach((type, persons) -> {
+      if (this.relationTypes.contains(type))
+        neighbors.addAll(persons);
+    });
+    return List.copyOf(neighbors);
+  }
+
+  /**
+   * Return the ancestors of the given person, breadth-first.
+   *
+   * @param person         A person.
+   * @param maxGenerations The maximum generation of the returned ancestors, 1 for parents only.
+   *                       Pass {@link #ALL_GENERATIONS} to return all ancestors.
+   * @return The person’s ancestors, sorted by generation.
+   */
+  public Stream<Relative> ancestors(@NotNull Person person, int maxGenerations) {
+    return this.closure(person, maxGenerations, this.ancestors, this::parents);
+  }
+
+  /**
+   * Return the descendants of the given person, breadth-first.
+   *
+   * @param person         A person.
+   * @param maxGenerations The maximum generation of the returned descendants, 1 for children only.
+   *                       Pass {@link #ALL_GENERATIONS} to return all descendants.
+   * @return The person’s descendants, sorted by generation.
+   */
+  public Stream<Relative> descendants(@NotNull Person person, int maxGenerations) {
+    return this.closure(person, maxGenerations, this.descendants, this::children);
+  }
+
+  /**
+   * Check whether a person is an ancestor of another.
+   *
+   * @param ancestor   A possible ancestor.
+   * @param descendant A person.
+   * @return True if the first person is among the ancestors of the second one.
+   */
+  public boolean isAncestor(@NotNull Person ancestor, @NotNull Person descendant) {
+    return this.ancestors(descendant, ALL_GENERATIONS).anyMatch(r -> r.person() == ancestor);
+  }
+
+  private Stream<Relative> closure(
+      @NotNull Person person,
+      int maxGenerations,
+      @NotNull Map<Person, Closure> cache,
+      @NotNull Function<Person, List<Person>> neighbors
+  ) {
+    Objects.requireNonNull(person);
+    if (maxGenerations < 0)
+      throw new IllegalArgumentException("maxGenerations must be >= 0");
+    Closure closure = cache.get(person);
+    if (closure == null || !closure.covers(maxGenerations)) {
+      closure = this.walk(person, maxGenerations, neighbors);
+      cache.put(person, closure);
+    }
+    return closure.relatives().stream().takeWhile(r -> r.generation() <= maxGenerations);
+  }
+
+  /**
+   * Walk the links from the given person breadth-first.
+   */
+  private Closure walk(@NotNull Person start, int maxGenerations, @NotNull Function<Person, List<Person>> neighbors) {
+    final List<Relative> relatives = new ArrayList<>();
+    final Set<Person> visited = new HashSet<>();
+    visited.add(start);
+    List<Person> level = List.of(start);
+    int generation = 0;
+    while (!level.isEmpty() && generation < maxGenerations) {
+      generation++;
+      final List<Person> nextLevel = new ArrayList<>();
+      for (final Person person : level)
+        for (final Person neighbor : neighbors.apply(person))
+          if (visited.add(neighbor)) {
+            relatives.add(new Relative(neighbor, generation));
+            nextLevel.add(neighbor);
+          }
+      level = nextLevel;
+    }
+    if (!this.hasCycles)
+      this.hasCycles = hasCycles(visited, neighbors);
+    // The walk stopped before the generation limit, there are no further relatives
+    final boolean complete = level.isEmpty();
+    return new Closure(complete ? ALL_GENERATIONS : maxGenerations, Collections.unmodifiableList(relatives));
+  }
+
+  /**
+   * Check whether the links between the given persons form cycles, by removing persons without incoming links
+   * until none remain (Kahn’s algorithm). Persons that remain are in or after a cycle.
+   *
+   * @param persons   The persons reached by a walk.
+   * @param neighbors The function that returns the persons each person links to.
+   * @return True if some links form cycles, false otherwise.
+   */
+  private static boolean hasCycles(final @NotNull Set<Person> persons, @NotNull Function<Person, List<Person>> neighbors) {
+    final Map<Person, Integer> pendingLinks = new HashMap<>();
+    for (final Person person : persons)
+      for (final Person neighbor : neighbors.apply(person))
+        if (persons.contains(neighbor))
+          pendingLinks.merge(neighbor, 1, Integer::sum);
+    final Deque<Person> queue = new ArrayDeque<>();
+    for (final Person person : persons)
+      if (!pendingLinks.containsKey(person))
+        queue.add(person);
+    int removed = 0;
+    while (!queue.isEmpty()) {
+      final Person person = queue.poll();
+      removed++;
+      for (final Person neighbor : neighbors.apply(person))
+        if (persons.contains(neighbor) && pendingLinks.merge(neighbor, -1, Integer::sum) == 0)
+          queue.add(neighbor);
+    }
+    return removed < persons.size();
+  }
+
+  /**
+   * A relative of the person a traversal started from.
+   *
+   * @param person     The relative.
+   * @param generation The smallest number of links between the relative and the starting person, at least 1.
+   */
+  public record Relative(@NotNull Person person, int generation) {
+    public Relative {
+      Objects.requireNonNull(person);
+    }
+  }
+
+  /**
+   * The relatives of a person up to some generation.
+   *
+   * @param maxGenerations The generation up to which the relatives are known.
+   * @param relatives      The relatives, sorted by generation.
+   */
+  private record Closure(int maxGenerations, @NotNull List<Relative> relatives) {
+    boolean covers(int maxGenerations) {
+      return maxGenerations <= this.maxGenerations;
+    }
+  }
+}
@@ -14,6 +14,7 @@ public enum Icon {
   MANAGE_TREES("tree_gear"),
   IMPORT_TREE_FILE("tree_down"),
   EXPORT_TREE_FILE("tree_up"),
+  RESTORE_SNAPSHOT("clock"),
   SAVE("diskette"),
   SETTINGS("cog"),
   QUIT("door_in"),
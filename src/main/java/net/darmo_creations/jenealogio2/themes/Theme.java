@@ -8,6 +8,8 @@ import org.jetbrains.annotations.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * A theme defines the appearence of the application.
@@ -29,6 +31,19 @@ public final class Theme {
   public static final String DEFAULT_THEME_ID = THEME_IDS[0];
 
   private static final String ICONS_PATH = App.IMAGES_PATH + "icons/";
+  /**
+   * Icons that are shown in most views, loaded by {@link #preloadIcons()}.
+   */
+  private static final List<IconKey> COMMON_ICONS = List.of(
+      new IconKey(Icon.TREE_ROOT, Icon.Size.SMALL),
+      new IconKey(Icon.MORE, Icon.Size.SMALL),
+      new IconKey(Icon.BIRTH, Icon.Size.SMALL),
+      new IconKey(Icon.DEATH, Icon.Size.SMALL),
+      new IconKey(Icon.GO_TO, Icon.Size.SMALL),
+      new IconKey(Icon.HELP, Icon.Size.SMALL),
+      new IconKey(Icon.INFO, Icon.Size.SMALL),
+      new IconKey(Icon.NO_IMAGE, Icon.Size.BIG)
+  );
 
   private static final Map<String, Theme> THEMES = new HashMap<>();
 
@@ -72,6 +87,12 @@ public final class Theme {
 
   private final String id;
   private final String name;
+  /**
+   * Cache of decoded icons. Icons that could not be loaded are cached as empty {@link Optional}s.
+   */
+  private final Map<IconKey, Optional<Image>> iconsCache = new ConcurrentHashMap<>();
+  private final AtomicLong iconsCacheHits = new AtomicLong();
+  private final AtomicLong iconsCacheMisses = new AtomicLong();
 
   /**
    * Create a theme.
@@ -112,21 +133,57 @@ public final class Theme {
 
   /**
    * Return an {@link Image} for the given icon.
+   * <p>
+   * Images are decoded once then cached. The same {@link Image} object is returned for each call with the same arguments.
    *
    * @param icon The icon to load.
    * @param size Icon’s size.
    * @return An {@link Image} object or null if the icon could not be loaded.
    */
   public @Nullable Image getIconImage(@NotNull Icon icon, @NotNull Icon.Size size) {
-    final String path = "%s%s_%d.png".formatted(ICONS_PATH, icon.baseName(), size.pixels());
+    final IconKey key = new IconKey(icon, size);
+    Optional<Image> image = this.iconsCache.get(key);
+    if (image != null)
+      this.iconsCacheHits.incrementAndGet();
+    else {
+      this.iconsCacheMisses.incrementAndGet();
+      image = this.iconsCache.computeIfAbsent(key, this::loadIconImage);
+    }
+    return image.orElse(null);
+  }
+
+  /**
+   * Load the icons that are used by most views, so that they do not have to be decoded when first shown.
+   */
+  public void preloadIcons() {
+    for (final IconKey key : COMMON_ICONS)
+      this.iconsCache.computeIfAbsent(key, this::loadIconImage);
+  }
+
+  /**
+   * The number of calls to {@link #getIconImage(Icon, Icon.Size)} that found the image in the cache.
+   */
+  public long iconsCacheHits() {
+    return this.iconsCacheHits.get();
+  }
+
+  /**
+   * The number of calls to {@link #getIconImage(Icon, Icon.Size)} that had to load the image.
+   */
+  public long iconsCacheMisses() {
+    return this.iconsCacheMisses.get();
+  }
+
+  private Optional<Image> loadIconImage(@NotNull IconKey key) {
+    final String path = "%s%s_%d.png".formatted(ICONS_PATH, key.icon().baseName(), key.size().pixels());
     try (final var stream = this.getClass().getResourceAsStream(path)) {
       if (stream == null) {
-        App.LOGGER.warn("Missing icon: " + icon.baseName());
-        return null;
+        App.LOGGER.warn("Missing icon: " + key.icon().baseName());
+        return Optional.empty();
       }
-      return new Image(stream);
+      return Optional.of(new Image(stream));
     } catch (final IOException e) {
-      return null;
+      return Optional.empty();
     }
   }
 
@@ -171,4 +228,7 @@ public final class Theme {
   public String toString() {
     return this.name;
   }
+
+  private record IconKey(@NotNull Icon icon, @NotNull Icon.Size size) {
+  }
 }
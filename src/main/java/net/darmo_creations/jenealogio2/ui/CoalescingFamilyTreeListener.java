@@ -0,0 +1,59 @@
+package net.darmo_creations.jenealogio2.ui;
+
+import javafx.application.*;
+import net.darmo_creations.jenealogio2.model.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A {@link FamilyTreeListener} that collects changes and hands them over in a single batch
+ * on the next JavaFX pulse, so that views are updated once per user action.
+ * Equal changes are merged, the batch keeps the order in which each distinct change first occurred.
+ * <p>
+ * Changes must be made on the JavaFX application thread.
+ */
+public class CoalescingFamilyTreeListener implements FamilyTreeListener {
+  private final Consumer<Set<FamilyTreeChange>> consumer;
+  private final Set<FamilyTreeChange> pendingChanges = new LinkedHashSet<>();
+  private boolean flushScheduled;
+
+  /**
+   * Create a listener.
+   *
+   * @param consumer The function to call with each batch of changes.
+   */
+  public CoalescingFamilyTreeListener(@NotNull Consumer<Set<FamilyTreeChange>> consumer) {
+    this.consumer = Objects.requireNonNull(consumer);
+  }
+
+  @Override
+  public void onChange(@NotNull FamilyTreeChange change) {
+    this.pendingChanges.add(change);
+    if (!this.flushScheduled) {
+      this.flushScheduled = true;
+      Platform.runLater(this::flush);
+    }
+  }
+
+  /**
+   * Immediately hand over all pending changes, if any.
+   * Should be called before any action that depends on the views being up-to-date.
+   */
+  public void flush() {
+    this.flushScheduled = false;
+    if (this.pendingChanges.isEmpty())
+      return;
+    final Set<FamilyTreeChange> changes = new LinkedHashSet<>(this.pendingChanges);
+    this.pendingChanges.clear();
+    this.consumer.accept(Collections.unmodifiableSet(changes));
+  }
+
+  /**
+   * Discard all pending changes.
+   */
+  public void clear() {
+    this.pendingChanges.clear();
+  }
+}
@@ -18,6 +18,9 @@ import java.util.*;
 
 /**
  * JavaFX component displaying the list of all persons in a family tree.
+ * <p>
+ * The list is kept sorted by {@link Person#lastThenFirstNamesComparator()}. {@link #refresh()} rebuilds it entirely,
+ * {@link #updatePerson(Person)} and {@link #removePerson(Person)} should be preferred when a single person changed.
  */
 public class FamilyMembersTreeView extends FamilyTreeComponent {
   private final Config config;
@@ -25,6 +28,10 @@ public class FamilyMembersTreeView extends FamilyTreeComponent {
   private final ObservableSet<TreeItem<Object>> searchMatches = FXCollections.observableSet(new HashSet<>());
   private final TreeView<Object> treeView = new TreeView<>();
   private final TreeItem<Object> personsItem;
+  /**
+   * Maps each displayed person to its tree item.
+   */
+  private final Map<Person, PersonItem> personsItems = new HashMap<>();
   private final ToggleButton syncTreeButton;
 
   private boolean internalSelectionChange;
@@ -106,19 +113,22 @@ public class FamilyMembersTreeView extends FamilyTreeComponent {
     this.internalSelectionChange = true;
     final Optional<Person> selectedPerson = this.getSelectedPerson();
     this.personsItem.getChildren().clear();
+    this.personsItems.clear();
     this.searchField.textField().clear();
     this.familyTree().ifPresent(familyTree -> {
-      familyTree.persons().stream()
-          .sorted(Person.lastThenFirstNamesComparator())
-          .forEach(person -> this.personsItem.getChildren().add(new TreeItem<>(person)));
+      final List<PersonItem> items = new ArrayList<>(familyTree.personCount());
+      for (final Person person : familyTree.persons()) {
+        final PersonItem item = new PersonItem(person);
+        this.personsItems.put(person, item);
+        items.add(item);
+      }
+      items.sort(Comparator.comparing(item -> item.sortKey));
+      this.personsItem.getChildren().setAll(items);
       this.personsItem.setExpanded(true);
     });
     // Option may have been updated from elsewhere
     this.syncTreeButton.setSelected(this.config.shouldSyncTreeWithMainPane());
-    selectedPerson.ifPresent(p -> { // Keep current selection
-      if (this.familyTree().isPresent() && this.familyTree().get().persons().contains(p))
-        this.select(p, false);
-    });
+    selectedPerson.ifPresent(p -> this.select(p, false)); // Keep current selection
     this.internalSelectionChange = false;
   }
 
@@ -139,16 +149,121 @@ public class FamilyMembersTreeView extends FamilyTreeComponent {
 
   @Override
   public void select(@NotNull Person person, boolean updateTarget) {
+    final TreeItem<Object> item = this.personsItems.get(Objects.requireNonNull(person));
+    if (item != null) {
+      this.internalSelectionChange = true;
+      this.treeView.getSelectionModel().select(item);
+      this.internalSelectionChange = false;
+    }
+  }
+
+  /**
+   * Add the given person to this view if it is not already present,
+   * otherwise move it to its new position if its name changed.
+   * The current selection and search filter are kept.
+   *
+   * @param person The person that was added or updated.
+   */
+  public void updatePerson(@NotNull Person person) {
     Objects.requireNonNull(person);
-    for (int i = 0; i < this.personsItem.getChildren().size(); i++) {
-      final TreeItem<Object> item = this.personsItem.getChildren().get(i);
-      if (item.getValue() == person) {
-        this.internalSelectionChange = true;
-        this.treeView.getSelectionModel().select(item);
+    final List<TreeItem<Object>> children = this.personsItem.getChildren();
+    PersonItem item = this.personsItems.get(person);
+    boolean selected = false;
+    this.internalSelectionChange = true;
+    if (item != null) {
+      // The item is still placed according to the key it was last sorted with
+      final int index = this.indexOf(item);
+      item.sortKey = SortKey.of(person);
+      if (this.isAtSortedPosition(index)) {
+        this.treeView.refresh(); // Only redraw visible cells
+        this.updateSearchMatch(item);
         this.internalSelectionChange = false;
-        break;
+        return;
       }
+      selected = this.treeView.getSelectionModel().getSelectedItem() == item;
+      children.remove(index);
+    } else {
+      item = new PersonItem(person);
+      this.personsItems.put(person, item);
+    }
+    children.add(this.insertionIndex(item.sortKey), item);
+    if (selected)
+      this.treeView.getSelectionModel().select(item);
+    this.internalSelectionChange = false;
+    this.updateSearchMatch(item);
+  }
+
+  /**
+   * Remove the given person from this view.
+   *
+   * @param person The person that was removed from the tree.
+   */
+  public void removePerson(@NotNull Person person) {
+    final PersonItem item = this.personsItems.remove(Objects.requireNonNull(person));
+    if (item == null)
+      return;
+    this.internalSelectionChange = true;
+    this.personsItem.getChildren().remove(this.indexOf(item));
+    this.internalSelectionChange = false;
+    this.searchMatches.remove(item);
+  }
+
+  /**
+   * Indicate whether the item at the given index is correctly placed relative to its neighbors.
+   */
+  private boolean isAtSortedPosition(int index) {
+    final SortKey key = this.sortKeyAt(index);
+    return (index == 0 || this.sortKeyAt(index - 1).compareTo(key) <= 0)
+        && (index == this.personsItem.getChildren().size() - 1 || key.compareTo(this.sortKeyAt(index + 1)) <= 0);
+  }
+
+  /**
+   * Find the index of the given item using a binary search on the key it was last sorted with.
+   *
+   * @param item An item of this view.
+   * @return The item’s index.
+   */
+  private int indexOf(@NotNull PersonItem item) {
+    final List<TreeItem<Object>> children = this.personsItem.getChildren();
+    // Find the first item with an equal key, then the item itself among those
+    int low = 0;
+    int high = children.size();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (this.sortKeyAt(middle).compareTo(item.sortKey) < 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    for (int i = low; i < children.size() && this.sortKeyAt(i).compareTo(item.sortKey) == 0; i++)
+      if (children.get(i) == item)
+        return i;
+    throw new IllegalStateException("Item of %s is not sorted".formatted(item.getValue()));
+  }
+
+  /**
+   * Find the index at which to insert an item with the given key, after any item with an equal key,
+   * using a binary search.
+   */
+  private int insertionIndex(@NotNull SortKey key) {
+    final List<TreeItem<Object>> children = this.personsItem.getChildren();
+    int low = 0;
+    int high = children.size();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (this.sortKeyAt(middle).compareTo(key) <= 0)
+        low = middle + 1;
+      else
+        high = middle;
     }
+    return low;
+  }
+
+  /**
+   * The key the item at the given index was last sorted with.
+   */
+  private SortKey sortKeyAt(int index) {
+    return ((PersonItem) this.personsItem.getChildren().get(index)).sortKey;
   }
 
   /**
@@ -159,28 +274,29 @@ public class FamilyMembersTreeView extends FamilyTreeComponent {
   private void onSearchFilterChange(String text) {
     this.searchMatches.clear();
     final Optional<String> filter = StringUtils.stripNullable(text);
-    if (filter.isEmpty())
+    if (filter.isEmpty() || this.familyTree().isEmpty())
       return;
     final Set<TreeItem<Object>> matches = new HashSet<>();
-    this.searchMatchingItems(this.personsItem, matches, filter.get());
+    for (final Person person : this.familyTree().get().searchPersons(filter.get())) {
+      final TreeItem<Object> item = this.personsItems.get(person);
+      if (item != null)
+        matches.add(item);
+    }
     this.searchMatches.addAll(matches);
   }
 
   /**
-   * Search for tree items matching the given search query.
+   * Update the search match status of the given item according to the current search filter.
    *
-   * @param searchNode   Tree item to search children of.
-   * @param matches      Set to populate with matches.
-   * @param searchFilter Search filter.
+   * @param item The item to update.
    */
-  private void searchMatchingItems(
-      final @NotNull TreeItem<Object> searchNode,
-      @NotNull Set<TreeItem<Object>> matches,
-      @NotNull String searchFilter
-  ) {
-    for (final TreeItem<Object> item : searchNode.getChildren())
-      if (item.getValue().toString().toLowerCase().contains(searchFilter.toLowerCase()))
-        matches.add(item);
+  private void updateSearchMatch(@NotNull TreeItem<Object> item) {
+    final Optional<String> filter = StringUtils.stripNullable(this.searchField.textField().getText());
+    if (filter.isPresent() && this.familyTree().isPresent()
+        && this.familyTree().get().searchPersons(filter.get()).contains((Person) item.getValue()))
+      this.searchMatches.add(item);
+    else
+      this.searchMatches.remove(item);
   }
 
   /**
@@ -215,4 +331,46 @@ public class FamilyMembersTreeView extends FamilyTreeComponent {
         this.setGraphic(null);
     }
   }
+
+  /**
+   * A tree item that shows a person. It keeps the key it was last sorted with,
+   * so that it can be found with a binary search after the person’s name changed.
+   */
+  private static class PersonItem extends TreeItem<Object> {
+    private SortKey sortKey;
+
+    public PersonItem(final @NotNull Person person) {
+      super(person);
+      this.sortKey = SortKey.of(person);
+    }
+  }
+
+  /**
+   * The properties persons are sorted by in this view, in the order of {@link Person#lastThenFirstNamesComparator()}.
+   *
+   * @param lastName         The person’s last name, empty if they have none.
+   * @param firstNames       The person’s first names, empty if they have none.
+   * @param disambiguationID The person’s disambiguation ID, -1 if they have none.
+   */
+  private record SortKey(@NotNull String lastName, @NotNull String firstNames, int disambiguationID)
+      implements Comparable<SortKey> {
+    public static SortKey of(final @NotNull Person person) {
+      return new SortKey(
+          person.getLastName().orElse(""),
+          person.getFirstNames().orElse(""),
+          person.disambiguationID().orElse(-1)
+      );
+    }
+
+    @Override
+    public int compareTo(final @NotNull SortKey o) {
+      final int c1 = this.lastName.compareTo(o.lastName);
+      if (c1 != 0)
+        return c1;
+      final int c2 = this.firstNames.compareTo(o.firstNames);
+      if (c2 != 0)
+        return c2;
+      return Integer.compare(this.disambiguationID, o.disambiguationID);
+    }
+  }
 }
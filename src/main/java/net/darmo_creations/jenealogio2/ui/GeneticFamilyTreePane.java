@@ -2,6 +2,7 @@ package net.darmo_creations.jenealogio2.ui;
 
 import net.darmo_creations.jenealogio2.config.*;
 import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.model.kinship.*;
 import net.darmo_creations.jenealogio2.ui.components.*;
 import org.jetbrains.annotations.*;
 
@@ -17,6 +18,10 @@ public class GeneticFamilyTreePane extends PersonTreeView {
   public static final int DEFAULT_MAX_HEIGHT = 4;
 
   private int maxHeight;
+  /**
+   * The traversal session of the tree being built.
+   */
+  private Traversal traversal;
 
   /**
    * Create an empty genetic family tree pane.
@@ -40,10 +45,15 @@ public class GeneticFamilyTreePane extends PersonTreeView {
 
   @Override
   protected PersonWidget buildTree(final @NotNull FamilyTree familyTree, final @NotNull Person targettedPerson) {
-    final PersonWidget root = this.buildParentsTree(familyTree, targettedPerson);
-    this.drawChildToParentsLines();
-    this.buildChildrenAndSiblingsAndPartnersTree(root, familyTree);
-    return root;
+    this.traversal = familyTree.traversal(ParentalRelationType.GENETIC_RELATIONS);
+    try {
+      final PersonWidget root = this.buildParentsTree(familyTree, targettedPerson);
+      this.drawChildToParentsLines();
+      this.buildChildrenAndSiblingsAndPartnersTree(root, familyTree);
+      return root;
+    } finally {
+      this.traversal = null;
+    }
   }
 
   /**
@@ -66,7 +76,7 @@ public class GeneticFamilyTreePane extends PersonTreeView {
           final Optional<Person> childOpt = childWidget.person();
           if (childOpt.isPresent()) {
             final Person child = childOpt.get();
-            final List<Person> parents = child.getGeneticParents().stream()
+            final List<Person> parents = this.traversal.parents(child).stream()
                 .sorted(Person.birthDateThenNameComparator(false))
                 .toList();
             final Person parent1 = !parents.isEmpty() ? parents.get(0) : null;
@@ -142,7 +152,7 @@ public class GeneticFamilyTreePane extends PersonTreeView {
   ) {
     final var partnersAndGeneticChildren = parent.getPartnersAndGeneticChildren();
     // Any hidden parents
-    return treeLevel == this.maxHeight && !parent.getGeneticParents().isEmpty() ||
+    return treeLevel == this.maxHeight && !this.traversal.parents(parent).isEmpty() ||
         // Any hidden partners
         partnersAndGeneticChildren.keySet().stream()
             .filter(Optional::isPresent)
@@ -9,6 +9,7 @@ import javafx.scene.text.*;
 import net.darmo_creations.jenealogio2.*;
 import net.darmo_creations.jenealogio2.config.*;
 import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.model.kinship.*;
 import net.darmo_creations.jenealogio2.themes.*;
 import net.darmo_creations.jenealogio2.ui.components.*;
 import net.darmo_creations.jenealogio2.ui.dialogs.*;
@@ -16,8 +17,11 @@ import net.darmo_creations.jenealogio2.ui.events.*;
 import net.darmo_creations.jenealogio2.utils.*;
 import org.jetbrains.annotations.*;
 
+import java.math.*;
+import java.text.*;
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.*;
 
 /**
  * This view shows all available information about a specific {@link Person} object.
@@ -32,6 +36,15 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
 
   private Person person;
   private FamilyTree familyTree;
+  private final FamilyTreeListener familyTreeListener = this::onFamilyTreeChange;
+  /**
+   * The pedigree of the tree’s root, computed on demand and dropped whenever the tree changes.
+   */
+  private Pedigree rootPedigree;
+  /**
+   * The pedigree of the current person, computed on demand and dropped whenever the tree changes.
+   */
+  private Pedigree personPedigree;
 
   private final Tab profileTab = new Tab();
   private final Tab eventsTab = new Tab();
@@ -43,6 +56,9 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
   private final GenderLabel agabLabel;
   private final GenderLabel genderLabel;
   private final Label occupationLabel = new Label();
+  private final Label relationshipLabel = new Label();
+  private final Label sosaNumbersLabel = new Label();
+  private final Label implexLabel = new Label();
   private final Label publicLastNameLabel = new Label();
   private final Label publicFirstNamesLabel = new Label();
   private final Label nicknamesLabel = new Label();
@@ -139,13 +155,19 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     this.genderLabel.setWrapText(true);
     this.occupationLabel.getStyleClass().add("person-details-occupation");
     this.occupationLabel.setWrapText(true);
+    this.relationshipLabel.setWrapText(true);
+    this.sosaNumbersLabel.setWrapText(true);
+    this.implexLabel.setWrapText(true);
     final VBox headerTexts = new VBox(
         5,
         this.fullNameLabel,
         this.genderLabel,
         new Label(language.translate("person_details_view.agab")),
         this.agabLabel,
-        this.occupationLabel
+        this.occupationLabel,
+        this.relationshipLabel,
+        this.sosaNumbersLabel,
+        this.implexLabel
     );
     header.getChildren().addAll(this.imageView, headerTexts);
     vHeader.getChildren().add(header);
@@ -370,10 +392,25 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     if (person != null && this.person == person)
       return;
     this.person = person;
-    this.familyTree = Objects.requireNonNull(familyTree);
+    if (this.familyTree != Objects.requireNonNull(familyTree)) {
+      if (this.familyTree != null)
+        this.familyTree.removeListener(this.familyTreeListener);
+      familyTree.addListener(this.familyTreeListener);
+      this.familyTree = familyTree;
+      this.rootPedigree = null;
+      this.personPedigree = null;
+    }
     this.refresh();
   }
 
+  private void onFamilyTreeChange(@NotNull FamilyTreeChange change) {
+    // Sosa numbers depend on parental links but also on the sexes, birth dates and names of parents
+    if (!(change instanceof FamilyTreeChange.DocumentChanged)) {
+      this.rootPedigree = null;
+      this.personPedigree = null;
+    }
+  }
+
   public void refresh() {
     final LifeEvent displayedEvent = this.displayedLifeEvent;
     this.resetLists();
@@ -422,6 +459,10 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     this.genderLabel.setGender(null);
     this.occupationLabel.setText(null);
     this.occupationLabel.setTooltip(null);
+    this.relationshipLabel.setText(null);
+    this.sosaNumbersLabel.setText(null);
+    this.implexLabel.setText(null);
+    this.implexLabel.setTooltip(null);
     this.publicLastNameLabel.setText("-");
     this.publicLastNameLabel.setTooltip(null);
     this.publicFirstNamesLabel.setText("-");
@@ -430,12 +471,82 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     this.nicknamesLabel.setTooltip(null);
   }
 
+  /**
+   * Return the name of the closest relationship of the current person to the tree’s root.
+   */
+  private Optional<String> getRelationshipToRoot() {
+    final Language language = this.config.language();
+    return this.familyTree.root()
+        .filter(root -> root != this.person)
+        .flatMap(root -> this.familyTree.kinship().relationship(this.person, root)
+            .map(relationship -> language.translate(
+                "person_details_view.relationship_to_root",
+                new FormatArg("relationship", relationship.name(language)),
+                new FormatArg("root", root)
+            )));
+  }
+
+  /**
+   * Return the Sosa numbers of the current person in the pedigree of the tree’s root.
+   */
+  private Optional<String> getSosaNumbersInRootPedigree() {
+    final Optional<Person> root = this.familyTree.root().filter(r -> r != this.person);
+    if (root.isEmpty())
+      return Optional.empty();
+    if (this.rootPedigree == null || this.rootPedigree.root() != root.get())
+      this.rootPedigree = new Pedigree(root.get());
+    final Pedigree pedigree = this.rootPedigree;
+    final List<BigInteger> numbers = pedigree.sosaNumbers(this.person);
+    if (numbers.isEmpty())
+      return Optional.empty();
+    final BigInteger lineCount = pedigree.lineCount(this.person);
+    String joinedNumbers = numbers.stream().map(BigInteger::toString).collect(Collectors.joining(", "));
+    if (lineCount.compareTo(BigInteger.valueOf(numbers.size())) > 0)
+      joinedNumbers += ", …";
+    return Optional.of(this.config.language().translate(
+        "person_details_view.sosa_numbers",
+        lineCount.min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue(),
+        new FormatArg("root", root.get()),
+        new FormatArg("numbers", joinedNumbers)
+    ));
+  }
+
+  /**
+   * Show the pedigree collapse of the current person, with the details of each generation in a tooltip.
+   */
+  private void populateImplexLabel() {
+    if (this.personPedigree == null || this.personPedigree.root() != this.person)
+      this.personPedigree = new Pedigree(this.person);
+    final Pedigree pedigree = this.personPedigree;
+    final List<Pedigree.Generation> generations = pedigree.generations();
+    if (generations.isEmpty()) {
+      this.implexLabel.setText(null);
+      this.implexLabel.setTooltip(null);
+      return;
+    }
+    final Language language = this.config.language();
+    final NumberFormat percentFormat = NumberFormat.getPercentInstance(language.locale());
+    percentFormat.setMaximumFractionDigits(1);
+    this.implexLabel.setText(language.translate(
+        "person_details_view.implex",
+        generations.size(),
+        new FormatArg("implex", percentFormat.format(pedigree.implex())),
+        new FormatArg("generations", generations.size())
+    ));
+    final String details = generations.stream()
+        .map(generation -> language.translate(
+            "person_details_view.implex.generation",
+            new FormatArg("generation", generation.number()),
+            new FormatArg("distinct", generation.distinctAncestors()),
+            new FormatArg("lines", generation.lines()),
+            new FormatArg("implex", percentFormat.format(generation.implex()))
+        ))
+        .collect(Collectors.joining("\n"));
+    this.implexLabel.setTooltip(new Tooltip(details));
+  }
+
   private void populateFields() {
-    final Optional<Image> image = this.person.mainPicture()
-        .map(picture -> picture.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
-    this.imageView.setImage(image.orElse(null));
-    this.imageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.map(Image::getHeight).orElse(Double.MAX_VALUE)));
-    this.imageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.map(Image::getWidth).orElse(Double.MAX_VALUE)));
+    PictureViews.show(this.imageView, this.person.mainPicture().orElse(null), MAX_IMAGE_SIZE, null, this.config);
     this.fullNameLabel.setText(this.person.toString());
     this.fullNameLabel.setTooltip(new Tooltip(this.person.toString()));
     this.agabLabel.setGender(this.person.assignedGenderAtBirth().orElse(null));
@@ -444,6 +555,9 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     this.genderLabel.setGender(this.person.gender().orElse(null));
     this.occupationLabel.setText(this.person.mainOccupation().orElse(null));
     this.occupationLabel.setTooltip(this.person.mainOccupation().map(Tooltip::new).orElse(null));
+    this.relationshipLabel.setText(this.getRelationshipToRoot().orElse(null));
+    this.sosaNumbersLabel.setText(this.getSosaNumbersInRootPedigree().orElse(null));
+    this.populateImplexLabel();
     this.publicLastNameLabel.setText(this.person.publicLastName().orElse("-"));
     this.publicLastNameLabel.setTooltip(this.person.publicLastName().map(Tooltip::new).orElse(null));
     this.publicFirstNamesLabel.setText(this.person.getJoinedPublicFirstNames().orElse("-"));
@@ -537,11 +651,7 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
     this.eventDateLabel.setDateTime(lifeEvent.date());
     this.eventPlaceLabel.setText(lifeEvent.place().map(Place::address).orElse("-"));
 
-    final Optional<Image> image = lifeEvent.mainPicture()
-        .map(picture -> picture.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
-    this.eventImageView.setImage(image.orElse(null));
-    this.eventImageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.map(Image::getHeight).orElse(Double.MAX_VALUE)));
-    this.eventImageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.map(Image::getWidth).orElse(Double.MAX_VALUE)));
+    PictureViews.show(this.eventImageView, lifeEvent.mainPicture().orElse(null), MAX_IMAGE_SIZE, null, this.config);
 
     this.eventNotesTextFlow.getChildren().clear();
     lifeEvent.notes().ifPresent(s -> this.eventNotesTextFlow.getChildren().addAll(StringUtils.parseText(s, App::openURL)));
@@ -678,11 +788,8 @@ public class PersonDetailsView extends TabPane implements PersonClickObservable
         event.consume();
       });
 
-      final Optional<Image> image = person.mainPicture()
-          .map(p -> p.image().orElse(PersonDetailsView.this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
-      this.imageView.setImage(image.orElse(PersonWidget.DEFAULT_IMAGE));
-      this.imageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.map(Image::getHeight).orElse(Double.MAX_VALUE)));
-      this.imageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.map(Image::getWidth).orElse(Double.MAX_VALUE)));
+      PictureViews.show(this.imageView, person.mainPicture().orElse(null), MAX_IMAGE_SIZE,
+          PersonWidget.DEFAULT_IMAGE, PersonDetailsView.this.config);
 
       final String name = person.toString();
       this.nameLabel.setText(name);
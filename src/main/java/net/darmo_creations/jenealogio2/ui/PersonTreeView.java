@@ -97,7 +97,7 @@ public abstract class PersonTreeView extends FamilyTreeComponent {
     if (this.familyTree().isEmpty())
       return;
     final FamilyTree familyTree = this.familyTree().get();
-    if (!familyTree.persons().contains(this.targettedPerson)) {
+    if (!familyTree.containsPerson(this.targettedPerson)) {
       final Optional<Person> root = familyTree.root();
       if (root.isEmpty())
         return;
@@ -107,7 +107,7 @@ public abstract class PersonTreeView extends FamilyTreeComponent {
     this.adjustView();
 
     this.scrollPane.layout(); // Allows proper positioning when scrolling to a specific widget
-    if (selectedPerson.isPresent() && familyTree.persons().contains(selectedPerson.get())) { // Keep current selection
+    if (selectedPerson.isPresent() && familyTree.containsPerson(selectedPerson.get())) { // Keep current selection
       this.internalClick = true;
       this.select(selectedPerson.get(), false);
       this.internalClick = false;
@@ -10,6 +10,7 @@ import net.darmo_creations.jenealogio2.model.*;
 import net.darmo_creations.jenealogio2.themes.*;
 import org.jetbrains.annotations.*;
 
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -41,12 +42,9 @@ public class DocumentView extends HBox implements Comparable<DocumentView> {
     this.document = Objects.requireNonNull(document);
     final Node imageNode;
     if (document instanceof Picture p) {
-      final Image image = p.image().orElse(config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG));
-      final ImageView imageView = new ImageView(image);
+      final ImageView imageView = new ImageView();
       imageView.setPreserveRatio(true);
-      //noinspection DataFlowIssue
-      imageView.setFitHeight(Math.min(IMAGE_SIZE, image.getHeight()));
-      imageView.setFitWidth(Math.min(IMAGE_SIZE, image.getWidth()));
+      PictureViews.show(imageView, p, IMAGE_SIZE, null, config);
       imageNode = imageView;
     } else {
       ImageView imageView = config.theme().getIcon(Icon.forFile(document.fileName()), Icon.Size.BIG);
@@ -89,6 +87,6 @@ public class DocumentView extends HBox implements Comparable<DocumentView> {
     this.nameLabel.setText(this.document.fileName());
     this.dateLabel.setDateTime(this.document.date().orElse(null));
     this.descLabel.setText(this.document.description().orElse(""));
-    this.openFileButton.setDisable(this.document instanceof Picture p && p.image().isEmpty());
+    this.openFileButton.setDisable(!Files.exists(this.document.path()));
   }
 }
@@ -231,7 +231,7 @@ public class LifeEventView extends TitledPane implements PersonRequester, Coordi
     this.fetchLatLonButton.setDisable(true);
     StringUtils.stripNullable(this.placeAddressField.getText())
         .ifPresent(address ->
-            GeoCoder.geoCode(address).thenAcceptAsync(latLon ->
+            GeoCoder.instance().geoCode(address).thenAcceptAsync(latLon ->
                 Platform.runLater(() -> {
                   this.loadingLabel.setGraphic(null);
                   this.fetchLatLonButton.setDisable(false);
@@ -257,12 +257,7 @@ public class LifeEventView extends TitledPane implements PersonRequester, Coordi
   }
 
   private Collection<Place> onPlaceSuggestionRequest(@NotNull AutoCompletionBinding.ISuggestionRequest request) {
-    final String userText = request.getUserText().toLowerCase();
-    return this.familyTree.lifeEvents().stream()
-        .filter(e -> e.place().isPresent() && e.place().get().address().toLowerCase().contains(userText))
-        .map(e -> e.place().orElseThrow())
-        .distinct()
-        .toList();
+    return this.familyTree.searchPlaces(request.getUserText());
   }
 
   private void onPlaceCompletion(@NotNull Place place) {
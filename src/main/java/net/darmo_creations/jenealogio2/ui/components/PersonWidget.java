@@ -216,11 +216,7 @@ public class PersonWidget extends AnchorPane {
       return;
     }
 
-    final Optional<Image> image = this.person.mainPicture()
-        .map(p -> p.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
-    this.imageView.setImage(image.orElse(DEFAULT_IMAGE));
-    this.imageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.map(Image::getHeight).orElse(Double.MAX_VALUE)));
-    this.imageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.map(Image::getWidth).orElse(Double.MAX_VALUE)));
+    PictureViews.show(this.imageView, this.person.mainPicture().orElse(null), MAX_IMAGE_SIZE, DEFAULT_IMAGE, this.config);
 
     final String firstNames = this.person.getFirstNames().orElse(EMPTY_LABEL_VALUE);
     this.firstNameLabel.setText(firstNames);
@@ -0,0 +1,56 @@
+package net.darmo_creations.jenealogio2.ui.components;
+
+import javafx.scene.image.*;
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.themes.*;
+import org.jetbrains.annotations.*;
+
+/**
+ * This class provides methods to show {@link Picture}s in {@link ImageView}s while they are loaded in the background.
+ */
+public final class PictureViews {
+  /**
+   * Key of the property that holds the picture that was last requested for an image view.
+   */
+  private static final Object PICTURE_KEY = new Object();
+
+  /**
+   * Show a picture in the given image view, scaled down to fit in a square of the given size.
+   * The view stays empty until the picture has been loaded. If another picture is shown in the same view
+   * in the meantime, the previous one is discarded once loaded.
+   *
+   * @param imageView    The view to show the picture in.
+   * @param picture      The picture to show. May be null.
+   * @param size         Size of the square the picture should fit in, in pixels.
+   * @param defaultImage The image to show if the picture is null. May be null.
+   * @param config       The app’s config.
+   */
+  public static void show(
+      @NotNull ImageView imageView,
+      final Picture picture,
+      int size,
+      final Image defaultImage,
+      final @NotNull Config config
+  ) {
+    imageView.getProperties().put(PICTURE_KEY, picture);
+    if (picture == null) {
+      setImage(imageView, defaultImage, size);
+      return;
+    }
+    imageView.setImage(null);
+    picture.image(size, image -> {
+      if (imageView.getProperties().get(PICTURE_KEY) == picture)
+        setImage(imageView, image.orElse(config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)), size);
+    });
+  }
+
+  private static void setImage(@NotNull ImageView imageView, final Image image, int size) {
+    imageView.setImage(image);
+    imageView.setFitHeight(Math.min(size, image != null ? image.getHeight() : Double.MAX_VALUE));
+    imageView.setFitWidth(Math.min(size, image != null ? image.getWidth() : Double.MAX_VALUE));
+  }
+
+  private PictureViews() {
+  }
+}
@@ -10,6 +10,7 @@ import net.darmo_creations.jenealogio2.utils.*;
 import org.jetbrains.annotations.*;
 
 import java.util.*;
+import java.util.function.*;
 
 /**
  * This class provides methods to open alert dialogs.
@@ -160,6 +161,44 @@ public final class Alerts {
     return Optional.empty();
   }
 
+  /**
+   * Open an alert dialog to prompt the user to choose an item from a list.
+   *
+   * @param config      The app’s config.
+   * @param headerKey   Header text key.
+   * @param labelKey    Choice box label text key.
+   * @param titleKey    Title key.
+   * @param choices     The items to choose from. The first one is selected by default.
+   * @param toString    A function that returns the text to show for an item.
+   * @param contentArgs Format arguments to apply to the header, label and title.
+   * @param <T>         Type of the items.
+   * @return The selected item.
+   */
+  public static <T> Optional<T> chooser(
+      final @NotNull Config config,
+      @NotNull String headerKey,
+      @NotNull String labelKey,
+      String titleKey,
+      final @NotNull List<T> choices,
+      @NotNull Function<T, String> toString,
+      final @NotNull FormatArg... contentArgs
+  ) {
+    final Alert alert = getAlert(config, AlertType.TEXT, headerKey, titleKey, contentArgs);
+    final HBox hBox = new HBox(5);
+    final ComboBox<String> comboBox = new ComboBox<>();
+    choices.forEach(choice -> comboBox.getItems().add(toString.apply(choice)));
+    comboBox.getSelectionModel().selectFirst();
+    final Label label = new Label(config.language().translate(labelKey, contentArgs));
+    hBox.getChildren().addAll(label, comboBox);
+    hBox.setAlignment(Pos.CENTER);
+    alert.getDialogPane().setContent(hBox);
+    final Optional<ButtonType> buttonType = alert.showAndWait();
+    final int index = comboBox.getSelectionModel().getSelectedIndex();
+    if (buttonType.isPresent() && !buttonType.get().getButtonData().isCancelButton() && index >= 0)
+      return Optional.of(choices.get(index));
+    return Optional.empty();
+  }
+
   private static Optional<ButtonType> alert(
       final @NotNull Config config,
       @NotNull AlertType type,
@@ -20,6 +20,8 @@ import java.util.*;
  * This dialog allows editing the description of an {@link AttachedDocument}.
  */
 public class EditDocumentDialog extends DialogBase<ButtonType> {
+  private static final int MAX_IMAGE_SIZE = 1000;
+
   private AttachedDocument document;
   private FamilyTree familyTree;
   private final HBox imageViewBox;
@@ -89,7 +91,8 @@ public class EditDocumentDialog extends DialogBase<ButtonType> {
         final String newName = StringUtils.stripNullable(this.documentNameField.getText())
             .orElseThrow(() -> new RuntimeException("Document name cannot be empty"));
         if (!this.document.name().equals(newName))
-          this.familyTree.renameDocument(this.document.fileName(), newName);
+          this.familyTree.journal().runAsStep(
+              () -> this.familyTree.renameDocument(this.document.fileName(), newName));
         this.document.setDescription(StringUtils.stripNullable(this.documentDescTextInput.getText()).orElse(null));
         this.document.setDate(this.dateTimeSelector.getDateTime());
       }
@@ -127,12 +130,17 @@ public class EditDocumentDialog extends DialogBase<ButtonType> {
     this.setTitle(this.config.language().translate("dialog.edit_document.title",
         new FormatArg("name", document.fileName())));
     final Icon fileTypeIcon = Icon.forFile(document.fileName());
-    final Image image;
-    if (document instanceof Picture pic)
-      image = pic.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG));
-    else
-      image = this.config.theme().getIconImage(fileTypeIcon, Icon.Size.BIG);
-    this.imageView.setImage(image);
+    if (document instanceof Picture pic) {
+      this.imageView.setImage(null);
+      pic.image(MAX_IMAGE_SIZE, image -> {
+        // Ignore the picture if another document was set while it was loading
+        if (this.document == pic) {
+          this.imageView.setImage(image.orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
+          this.updateImageViewSize();
+        }
+      });
+    } else
+      this.imageView.setImage(this.config.theme().getIconImage(fileTypeIcon, Icon.Size.BIG));
     this.documentNameField.setText(document.name());
     // Disable renaming if document is not yet registered in the tree
     this.documentNameField.setDisable(familyTree.getDocument(document.fileName()).isEmpty());
@@ -0,0 +1,98 @@
+package net.darmo_creations.jenealogio2.ui.dialogs;
+
+import javafx.geometry.*;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.*;
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.model.consistency.*;
+import net.darmo_creations.jenealogio2.themes.*;
+import net.darmo_creations.jenealogio2.ui.components.*;
+import net.darmo_creations.jenealogio2.ui.events.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * Dialog that displays the inconsistencies found in a family tree by its {@link ConsistencyChecker}.
+ * Each inconsistency has a button to go to the person it concerns.
+ */
+public class InconsistenciesDialog extends DialogBase<ButtonType> implements PersonClickObservable {
+  private final Label summaryLabel = new Label();
+  private final ListView<FindingItem> findingsList = new ListView<>();
+
+  private final List<PersonClickListener> personClickListeners = new LinkedList<>();
+
+  /**
+   * Create a dialog that shows the inconsistencies of a family tree.
+   *
+   * @param config The app’s config.
+   */
+  public InconsistenciesDialog(final @NotNull Config config) {
+    super(config, "inconsistencies", true, false, ButtonTypes.CLOSE);
+
+    this.findingsList.setSelectionModel(new NoSelectionModel<>());
+    VBox.setVgrow(this.findingsList, Priority.ALWAYS);
+    final VBox content = new VBox(5, this.summaryLabel, this.findingsList);
+    content.setPrefWidth(800);
+    content.setPrefHeight(500);
+    this.getDialogPane().setContent(content);
+
+    final Stage stage = this.stage();
+    stage.setMinWidth(400);
+    stage.setMinHeight(300);
+  }
+
+  /**
+   * Check the given tree and display the inconsistencies that were found.
+   *
+   * @param familyTree Tree to check.
+   */
+  public void refresh(final @NotNull FamilyTree familyTree) {
+    final List<Finding> findings = familyTree.consistencyChecker().check();
+    final Language language = this.config.language();
+    if (findings.isEmpty())
+      this.summaryLabel.setText(language.translate("dialog.inconsistencies.none"));
+    else
+      this.summaryLabel.setText(language.translate(
+          "dialog.inconsistencies.count",
+          findings.size(),
+          new FormatArg("count", findings.size())
+      ));
+    this.findingsList.getItems().clear();
+    findings.forEach(finding -> this.findingsList.getItems().add(new FindingItem(finding)));
+  }
+
+  @Override
+  public List<PersonClickListener> personClickListeners() {
+    return this.personClickListeners;
+  }
+
+  @Override
+  public List<NewParentClickListener> newParentClickListeners() {
+    throw new UnsupportedOperationException();
+  }
+
+  private void firePersonClickEvent(final @NotNull Person person) {
+    this.firePersonClickEvent(new PersonClickedEvent(person, PersonClickedEvent.Action.SET_AS_TARGET));
+  }
+
+  private class FindingItem extends HBox {
+    public FindingItem(final @NotNull Finding finding) {
+      super(5);
+      this.setAlignment(Pos.CENTER_LEFT);
+      final Config config = InconsistenciesDialog.this.config;
+      final Person person = finding.person();
+      if (person != null) {
+        final Button button = new Button(person.toString(), config.theme().getIcon(Icon.GO_TO, Icon.Size.SMALL));
+        button.setOnAction(event -> InconsistenciesDialog.this.firePersonClickEvent(person));
+        this.getChildren().add(button);
+      }
+      final Label label = new Label(finding.message(config.language()));
+      label.setWrapText(true);
+      this.getChildren().add(label);
+    }
+  }
+}
@@ -222,10 +222,7 @@ public class ManageDocumentsDialog extends DialogBase<ManageDocumentsDialog.Resu
       final Optional<Picture> picture = this.genealogyObject.mainPicture();
       this.mainPicture = picture.orElse(null);
       final Image defaultImage = object instanceof Person ? PersonWidget.DEFAULT_IMAGE : PersonDetailsView.DEFAULT_EVENT_IMAGE;
-      final Optional<Image> image = picture.map(p -> p.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG)));
-      this.mainImageView.setImage(image.orElse(defaultImage));
-      this.mainImageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.map(Image::getHeight).orElse(Double.MAX_VALUE)));
-      this.mainImageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.map(Image::getWidth).orElse(Double.MAX_VALUE)));
+      PictureViews.show(this.mainImageView, this.mainPicture, MAX_IMAGE_SIZE, defaultImage, this.config);
       this.removeMainImageButton.setDisable(picture.isEmpty());
       this.addDocumentButton.setText(language.translate("dialog.manage_object_documents.add_document"));
       this.editDocumentDescButton.setText(language.translate("dialog.manage_object_documents.edit_document_desc"));
@@ -271,11 +268,7 @@ public class ManageDocumentsDialog extends DialogBase<ManageDocumentsDialog.Resu
     if (!(dv.document() instanceof Picture pic))
       return;
     this.mainPicture = pic;
-    final Image image = this.mainPicture.image().orElse(this.config.theme().getIconImage(Icon.NO_IMAGE, Icon.Size.BIG));
-    this.mainImageView.setImage(image);
-    //noinspection DataFlowIssue
-    this.mainImageView.setFitHeight(Math.min(MAX_IMAGE_SIZE, image.getHeight()));
-    this.mainImageView.setFitWidth(Math.min(MAX_IMAGE_SIZE, image.getWidth()));
+    PictureViews.show(this.mainImageView, this.mainPicture, MAX_IMAGE_SIZE, null, this.config);
     this.pendingUpdates = true;
     this.updateButtons();
   }
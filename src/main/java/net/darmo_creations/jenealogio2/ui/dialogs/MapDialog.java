@@ -101,7 +101,7 @@ public class MapDialog extends DialogBase<ButtonType> {
       this.removeResultMarker();
       this.searchButton.setDisable(true);
       this.searchField.setDisable(true);
-      GeoCoder.geoCode(s).thenAcceptAsync(latLon ->
+      GeoCoder.instance().geoCode(s).thenAcceptAsync(latLon ->
           Platform.runLater(() -> {
             this.searchButton.setDisable(false);
             this.searchField.setDisable(false);
@@ -89,7 +89,7 @@ public class SelectCoordinatesDialog extends DialogBase<LatLon> {
       this.removeClickedMarker();
       this.searchButton.setDisable(true);
       this.searchField.setDisable(true);
-      GeoCoder.geoCode(s).thenAcceptAsync(latLon ->
+      GeoCoder.instance().geoCode(s).thenAcceptAsync(latLon ->
           Platform.runLater(() -> {
             this.searchButton.setDisable(false);
             this.searchField.setDisable(false);
@@ -225,7 +225,7 @@ public class SelectDocumentDialog extends DialogBase<Collection<AttachedDocument
     final AttachedDocument document;
     final Optional<String> ext = FileUtils.splitExtension(file.getFileName().toString()).extension();
     if (ext.isPresent() && Picture.FILE_EXTENSIONS.contains(ext.get().toLowerCase()))
-      document = new Picture(FileUtils.loadImage(file), file, null, null);
+      document = new Picture(file, null, null);
     else
       document = new AttachedDocument(file, null, null);
     final DocumentView dv = new DocumentView(document, true, this.config);
@@ -22,6 +22,7 @@ public class SelectPersonDialog extends DialogBase<Person> {
   private final TextField filterTextInput = new TextField();
   private final ListView<PersonView> personListView = new ListView<>();
   private final ObservableList<PersonView> personList = FXCollections.observableArrayList();
+  private FamilyTree familyTree;
 
   /**
    * Create a new dialog to select a person.
@@ -36,13 +37,14 @@ public class SelectPersonDialog extends DialogBase<Person> {
     this.filterTextInput.setPromptText(language.translate("dialog.select_person.filter"));
     final FilteredList<PersonView> filteredList = new FilteredList<>(this.personList, data -> true);
     this.personListView.setItems(filteredList);
-    this.filterTextInput.textProperty().addListener((observable, oldValue, newValue) ->
-        filteredList.setPredicate(pictureView -> {
-          if (newValue == null || newValue.isEmpty())
-            return true;
-          return pictureView.person().matchesName(newValue.toLowerCase(), language);
-        })
-    );
+    this.filterTextInput.textProperty().addListener((observable, oldValue, newValue) -> {
+      if (newValue == null || newValue.isEmpty() || this.familyTree == null)
+        filteredList.setPredicate(personView -> true);
+      else {
+        final Set<Person> matches = this.familyTree.searchPersons(newValue);
+        filteredList.setPredicate(personView -> matches.contains(personView.person()));
+      }
+    });
 
     this.personListView.getSelectionModel().selectedItemProperty()
         .addListener((observable, oldValue, newValue) -> this.updateButtons());
@@ -82,6 +84,7 @@ public class SelectPersonDialog extends DialogBase<Person> {
    * @param exclusionList List of persons to NOT add to the list view.
    */
   public void updatePersonList(@NotNull FamilyTree tree, final @NotNull Collection<Person> exclusionList) {
+    this.familyTree = tree;
     this.filterTextInput.setText(null);
     this.personList.clear();
     tree.persons().stream()
@@ -114,7 +117,12 @@ public class SelectPersonDialog extends DialogBase<Person> {
     public PersonView(final @NotNull Person person) {
       super(5);
       this.person = person;
-      final ImageView imageView = new ImageView(person.mainPicture().flatMap(Picture::image).orElse(PersonWidget.DEFAULT_IMAGE));
+      final ImageView imageView = new ImageView();
+      final Optional<Picture> picture = person.mainPicture();
+      if (picture.isPresent())
+        picture.get().image(IMAGE_SIZE, image -> imageView.setImage(image.orElse(PersonWidget.DEFAULT_IMAGE)));
+      else
+        imageView.setImage(PersonWidget.DEFAULT_IMAGE);
       imageView.setPreserveRatio(true);
       imageView.setFitWidth(IMAGE_SIZE);
       imageView.setFitHeight(IMAGE_SIZE);
@@ -23,6 +23,7 @@ public class SettingsDialog extends DialogBase<ButtonType> {
   private final ComboBox<NotNullComboBoxItem<DateFormat>> dateFormatCombo = new ComboBox<>();
   private final ComboBox<NotNullComboBoxItem<TimeFormat>> timeFormatCombo = new ComboBox<>();
   private final Spinner<Integer> maxTreeHeightField = new Spinner<>(1, 7, 1);
+  private final CheckBox deduplicateFilesCheckBox = new CheckBox();
 
   private Config localConfig;
 
@@ -34,7 +35,8 @@ public class SettingsDialog extends DialogBase<ButtonType> {
   public SettingsDialog(final @NotNull Config config) {
     super(config, "settings", false, ButtonTypes.OK, ButtonTypes.CANCEL);
 
-    final VBox content = new VBox(this.createInterfaceForm(), new Separator(), this.createTreeForm());
+    final VBox content = new VBox(this.createInterfaceForm(), new Separator(), this.createTreeForm(),
+        new Separator(), this.createFilesForm());
     content.setPrefWidth(500);
     this.getDialogPane().setContent(content);
 
@@ -100,6 +102,17 @@ public class SettingsDialog extends DialogBase<ButtonType> {
     );
   }
 
+  private BorderPane createFilesForm() {
+    this.deduplicateFilesCheckBox.selectedProperty()
+        .addListener((observable, oldValue, newValue) -> this.onDeduplicateFilesUpdate(newValue));
+
+    //noinspection unchecked
+    return this.getBorderPane(
+        "dialog.settings.files_box.title",
+        new Pair<>("dialog.settings.files_box.deduplicate.label", this.deduplicateFilesCheckBox)
+    );
+  }
+
   @SuppressWarnings("unchecked")
   private BorderPane getBorderPane(
       @NotNull String title,
@@ -149,6 +162,7 @@ public class SettingsDialog extends DialogBase<ButtonType> {
     this.maxTreeHeightField.getValueFactory().setValue(this.localConfig.maxTreeHeight());
     this.dateFormatCombo.getSelectionModel().select(new NotNullComboBoxItem<>(this.localConfig.dateFormat()));
     this.timeFormatCombo.getSelectionModel().select(new NotNullComboBoxItem<>(this.localConfig.timeFormat()));
+    this.deduplicateFilesCheckBox.setSelected(this.localConfig.shouldDeduplicateFiles());
 
     this.updateState();
   }
@@ -198,6 +212,11 @@ public class SettingsDialog extends DialogBase<ButtonType> {
     this.updateState();
   }
 
+  private void onDeduplicateFilesUpdate(boolean newValue) {
+    this.localConfig.setShouldDeduplicateFiles(newValue);
+    this.updateState();
+  }
+
   /**
    * Enumeration of the differente types of config changes.
    */
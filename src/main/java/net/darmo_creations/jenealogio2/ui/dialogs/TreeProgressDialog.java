@@ -0,0 +1,151 @@
+package net.darmo_creations.jenealogio2.ui.dialogs;
+
+import javafx.concurrent.*;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.io.*;
+import net.darmo_creations.jenealogio2.utils.*;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Modal dialog that runs a tree loading or saving operation in a background thread while showing its progress.
+ * The UI keeps being refreshed while the operation runs, but the user cannot interact with the other windows.
+ * <p>
+ * Each dialog can run a single operation.
+ */
+public class TreeProgressDialog extends DialogBase<ButtonType> {
+  private final Label messageLabel = new Label();
+  private final ProgressBar progressBar = new ProgressBar();
+  private volatile boolean cancellationRequested;
+  private boolean running;
+
+  /**
+   * Create a progress dialog.
+   *
+   * @param config      The app’s config.
+   * @param name        Dialog’s name. Used for the title’s translation key.
+   * @param cancellable Whether the user may cancel the operation.
+   */
+  public TreeProgressDialog(@NotNull Config config, @NotNull String name, boolean cancellable) {
+    super(config, name, false, cancellable ? new ButtonType[] {ButtonTypes.CANCEL} : new ButtonType[0]);
+    this.progressBar.setPrefWidth(400);
+    this.getDialogPane().setContent(new VBox(5, this.messageLabel, this.progressBar));
+    // Covers the cancel button, the window’s close button and the escape key
+    this.setOnCloseRequest(event -> {
+      if (this.running) {
+        event.consume();
+        this.requestCancellation();
+      }
+    });
+  }
+
+  /**
+   * Run the given operation in a background thread and show this dialog until it has finished.
+   * UI events are still processed while waiting.
+   *
+   * @param operation The operation to run.
+   * @param <T>       Type of the operation’s result.
+   * @return The operation’s result.
+   * @throws IOException           If the operation failed.
+   * @throws CancellationException If the user cancelled the operation before it could complete.
+   */
+  public <T> T run(@NotNull Operation<T> operation) throws IOException {
+    final OperationTask<T> task = new OperationTask<>(operation);
+    task.setOnSucceeded(event -> this.onTaskDone());
+    task.setOnFailed(event -> this.onTaskDone());
+    this.messageLabel.textProperty().bind(task.messageProperty());
+    this.progressBar.progressProperty().bind(task.progressProperty());
+
+    this.running = true;
+    final Thread thread = new Thread(task, "Tree I/O");
+    thread.setDaemon(true);
+    thread.start();
+    this.showAndWait();
+
+    final Throwable e = task.getException();
+    if (e == null)
+      return task.getValue();
+    if (e instanceof CancellationException ce)
+      throw ce;
+    if (e instanceof IOException ioe)
+      throw ioe;
+    throw new IOException(e);
+  }
+
+  private void requestCancellation() {
+    if (this.cancellationRequested)
+      return;
+    this.cancellationRequested = true;
+    this.messageLabel.textProperty().unbind();
+    this.messageLabel.setText(this.config.language().translate("dialog.tree_progress.cancelling"));
+    final Button cancelButton = (Button) this.getDialogPane().lookupButton(ButtonTypes.CANCEL);
+    if (cancelButton != null)
+      cancelButton.setDisable(true);
+  }
+
+  private void onTaskDone() {
+    this.running = false;
+    // Setting the result closes the dialog
+    this.setResult(ButtonTypes.CLOSE);
+  }
+
+  /**
+   * An operation that reports its progress to a {@link ProgressMonitor}.
+   *
+   * @param <T> Type of the operation’s result.
+   */
+  @FunctionalInterface
+  public interface Operation<T> {
+    /**
+     * Run this operation.
+     *
+     * @param monitor The monitor to report progress to.
+     * @return The operation’s result.
+     * @throws IOException If any error occurs.
+     */
+    T run(@NotNull ProgressMonitor monitor) throws IOException;
+  }
+
+  /**
+   * A task that runs an {@link Operation} and converts its progress reports into messages.
+   *
+   * @param <T> Type of the operation’s result.
+   */
+  private class OperationTask<T> extends Task<T> implements ProgressMonitor {
+    private final Operation<T> operation;
+
+    private OperationTask(@NotNull Operation<T> operation) {
+      this.operation = operation;
+    }
+
+    @Override
+    protected T call() throws IOException {
+      return this.operation.run(this);
+    }
+
+    @Override
+    public void onProgress(@NotNull Phase phase, int done, int total) {
+      final Language language = TreeProgressDialog.this.config.language();
+      final var phaseArg = new FormatArg(
+          "phase", language.translate("dialog.tree_progress.phase." + phase.name().toLowerCase()));
+      final var doneArg = new FormatArg("done", done);
+      if (total < 0) {
+        this.updateMessage(language.translate("dialog.tree_progress.count_unknown_total", phaseArg, doneArg));
+        this.updateProgress(-1, -1);
+      } else {
+        this.updateMessage(language.translate("dialog.tree_progress.count", phaseArg, doneArg,
+            new FormatArg("total", total)));
+        this.updateProgress(done, total);
+      }
+    }
+
+    @Override
+    public boolean isCancellationRequested() {
+      return TreeProgressDialog.this.cancellationRequested;
+    }
+  }
+}
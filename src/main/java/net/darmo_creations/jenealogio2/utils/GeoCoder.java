@@ -1,6 +1,8 @@
 package net.darmo_creations.jenealogio2.utils;
 
 import com.google.gson.*;
+import net.darmo_creations.jenealogio2.*;
+import net.darmo_creations.jenealogio2.io.*;
 import net.darmo_creations.jenealogio2.model.*;
 import org.jetbrains.annotations.*;
 
@@ -8,6 +10,7 @@ import java.io.*;
 import java.net.*;
 import java.net.http.*;
 import java.nio.charset.*;
+import java.nio.file.*;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
@@ -15,70 +18,248 @@ import java.util.concurrent.*;
 /**
  * This class provides a {@link #geoCode(String)} method that returns the coordinates of any address.
  * <p>
- * Coordinates are cached.
+ * Addresses are looked up through an {@link Endpoint}. Requests to the endpoint are rate-limited
+ * and concurrent lookups of the same address share a single request.
+ * <p>
+ * Found coordinates are cached and saved to a file, so that they are kept between runs.
+ * Addresses that could not be found are only remembered until the application stops.
+ * <p>
+ * This class is thread-safe.
  */
 public final class GeoCoder {
-  private static final String BASE_URL = "https://nominatim.openstreetmap.org/search?q=%s&format=json";
-  private static final HashMap<String, LatLon> LAT_LON_CACHE = new HashMap<>();
-  private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
-      .version(HttpClient.Version.HTTP_1_1)
-      .followRedirects(HttpClient.Redirect.NORMAL)
-      .connectTimeout(Duration.ofSeconds(30))
-      .build();
+  /**
+   * The file the default geocoder saves its cache to.
+   */
+  public static final Path CACHE_FILE = App.CURRENT_DIR.resolve("geocoding_cache.json");
+
+  private static final String TEMP_FILE_EXTENSION = ".tmp";
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private static GeoCoder instance;
+
+  /**
+   * The geocoder used by the application. It looks addresses up with {@link NominatimEndpoint}
+   * and saves its cache to {@link #CACHE_FILE}.
+   */
+  public static synchronized GeoCoder instance() {
+    if (instance == null)
+      instance = new GeoCoder(new NominatimEndpoint(), CACHE_FILE, NominatimEndpoint.MAX_REQUESTS_PER_SECOND);
+    return instance;
+  }
+
+  private final Endpoint endpoint;
+  private final Path cacheFile;
+  private final TokenBucket rateLimiter;
+  private final Map<String, LatLon> cache = new ConcurrentHashMap<>();
+  private final Set<String> notFound = ConcurrentHashMap.newKeySet();
+  private final Map<String, CompletableFuture<Optional<LatLon>>> pendingLookups = new ConcurrentHashMap<>();
+  private final Object cacheFileLock = new Object();
+
+  /**
+   * Create a geocoder. If the cache file exists, its entries are loaded.
+   *
+   * @param endpoint          The endpoint to look addresses up with.
+   * @param cacheFile         The file to save the cache to. May be null to only keep it in memory.
+   * @param requestsPerSecond The maximum number of requests to send to the endpoint per second.
+   */
+  public GeoCoder(@NotNull Endpoint endpoint, Path cacheFile, double requestsPerSecond) {
+    this.endpoint = Objects.requireNonNull(endpoint);
+    this.cacheFile = cacheFile;
+    this.rateLimiter = new TokenBucket(1, requestsPerSecond);
+    if (cacheFile != null && Files.exists(cacheFile))
+      this.loadCache();
+  }
 
   /**
    * Get the latitude and longitude of the given address.
-   * <p>
-   * Coordinates are cached.
    *
    * @param address The address to get the coordinates of.
    * @return A {@link CompletableFuture} that upon completion provides the address’ coordinates,
-   * or an empty value if none were found or a network error occured.
+   * or an empty value if none were found or a network error occured. It never completes exceptionally.
    */
-  @SuppressWarnings("unchecked")
-  public static CompletableFuture<Optional<LatLon>> geoCode(@NotNull String address) {
-    final String strippedAddress = address.strip();
-    if (LAT_LON_CACHE.containsKey(strippedAddress))
-      return CompletableFuture.completedFuture(Optional.of(LAT_LON_CACHE.get(strippedAddress)));
-
-    final CompletableFuture<HttpResponse<String>> future;
-    try {
-      future = getHttp(new URL(BASE_URL.formatted(URLEncoder.encode(strippedAddress, StandardCharsets.UTF_8))));
-    } catch (final IOException e) {
+  public CompletableFuture<Optional<LatLon>> geoCode(@NotNull String address) {
+    final String key = normalize(address);
+    final LatLon cached = this.cache.get(key);
+    if (cached != null)
+      return CompletableFuture.completedFuture(Optional.of(cached));
+    if (key.isEmpty() || this.notFound.contains(key))
       return CompletableFuture.completedFuture(Optional.empty());
+
+    final CompletableFuture<Optional<LatLon>> lookup = new CompletableFuture<>();
+    final CompletableFuture<Optional<LatLon>> pending = this.pendingLookups.putIfAbsent(key, lookup);
+    if (pending != null)
+      return pending.copy();
+
+    // Another lookup may have completed since the cache was checked
+    final LatLon found = this.cache.get(key);
+    if (found != null || this.notFound.contains(key)) {
+      this.pendingLookups.remove(key);
+      lookup.complete(Optional.ofNullable(found));
+      return lookup.copy();
     }
 
-    return future.thenApply(resp -> {
-      if (resp.statusCode() != 200)
-        return Optional.empty();
-      final Gson gson = new Gson();
-      final List<Map<String, ?>> data = gson.fromJson(resp.body(), List.class);
-      for (final var entry : data)
-        if (entry.containsKey("lat") && entry.containsKey("lon")) {
-          final double lat = Double.parseDouble(String.valueOf(entry.get("lat")));
-          final double lon = Double.parseDouble(String.valueOf(entry.get("lon")));
-          final LatLon latLon = new LatLon(lat, lon);
-          LAT_LON_CACHE.put(strippedAddress, latLon);
-          return Optional.of(latLon);
-        }
-      return Optional.empty();
-    });
+    final Executor delayedExecutor = CompletableFuture.delayedExecutor(this.rateLimiter.reserve(), TimeUnit.NANOSECONDS);
+    CompletableFuture.runAsync(() -> {
+        }, delayedExecutor)
+        .thenCompose(v -> this.endpoint.search(key))
+        .whenComplete((latLon, error) -> {
+          if (error != null)
+            App.LOGGER.exception(error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error);
+          else if (latLon.isPresent()) {
+            this.cache.put(key, latLon.get());
+            this.saveCache();
+          } else
+            this.notFound.add(key);
+          this.pendingLookups.remove(key);
+          lookup.complete(error != null ? Optional.empty() : latLon);
+        });
+    return lookup.copy();
   }
 
-  private static CompletableFuture<HttpResponse<String>> getHttp(@NotNull URL url) throws IOException {
-    final HttpRequest request;
-    try {
-      request = HttpRequest.newBuilder()
-          .uri(url.toURI())
-          .timeout(Duration.ofMinutes(1))
-          .GET()
-          .build();
-    } catch (final URISyntaxException e) {
-      throw new IOException(e);
+  /**
+   * Get the coordinates of the given addresses, one after the other.
+   * The calling thread is blocked until all addresses have been looked up.
+   *
+   * @param addresses The addresses to get the coordinates of.
+   * @param monitor   A monitor to report progress to, in the {@link ProgressMonitor.Phase#PLACES} phase.
+   * @return A map associating the given addresses to their coordinates.
+   * Addresses that could not be found are absent.
+   * @throws CancellationException If the monitor requested the cancellation of the operation.
+   */
+  public Map<String, LatLon> geoCodeAll(final @NotNull Collection<String> addresses, @NotNull ProgressMonitor monitor) {
+    final Set<String> distinctAddresses = new LinkedHashSet<>(addresses);
+    final Map<String, LatLon> results = new HashMap<>();
+    int count = 0;
+    for (final String address : distinctAddresses) {
+      monitor.report(ProgressMonitor.Phase.PLACES, count++, distinctAddresses.size());
+      this.geoCode(address).join().ifPresent(latLon -> results.put(address, latLon));
     }
-    return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    monitor.onProgress(ProgressMonitor.Phase.PLACES, distinctAddresses.size(), distinctAddresses.size());
+    return results;
+  }
+
+  /**
+   * Return the key under which the coordinates of the given address are cached.
+   * Addresses that only differ by their case or spacing share the same key.
+   */
+  private static String normalize(@NotNull String address) {
+    return address.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
   }
 
-  private GeoCoder() {
+  private void loadCache() {
+    try (final var reader = Files.newBufferedReader(this.cacheFile, StandardCharsets.UTF_8)) {
+      final JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+      for (final var entry : json.entrySet())
+        this.cache.put(entry.getKey(), LatLon.fromString(entry.getValue().getAsString()));
+    } catch (final IOException | RuntimeException e) {
+      App.LOGGER.error("Could not load geocoding cache from " + this.cacheFile);
+      App.LOGGER.exception(e);
+    }
+  }
+
+  /**
+   * Save the cache to the cache file, replacing it atomically.
+   */
+  private void saveCache() {
+    if (this.cacheFile == null)
+      return;
+    synchronized (this.cacheFileLock) {
+      final JsonObject json = new JsonObject();
+      new TreeMap<>(this.cache).forEach((address, latLon) -> json.addProperty(address, latLon.toString()));
+      final Path tempFile = this.cacheFile.resolveSibling(this.cacheFile.getFileName() + TEMP_FILE_EXTENSION);
+      try {
+        Files.writeString(tempFile, GSON.toJson(json), StandardCharsets.UTF_8);
+        FileUtils.replaceFile(tempFile, this.cacheFile);
+      } catch (final IOException e) {
+        App.LOGGER.error("Could not save geocoding cache to " + this.cacheFile);
+        App.LOGGER.exception(e);
+      }
+    }
+  }
+
+  /**
+   * A service that returns the coordinates of addresses.
+   */
+  @FunctionalInterface
+  public interface Endpoint {
+    /**
+     * Look the given address up.
+     *
+     * @param address The address to get the coordinates of.
+     * @return A {@link CompletableFuture} that upon completion provides the address’ coordinates,
+     * or an empty value if none were found. It completes exceptionally if an error occurs.
+     */
+    CompletableFuture<Optional<LatLon>> search(@NotNull String address);
+  }
+
+  /**
+   * An endpoint that looks addresses up with the search API of a Nominatim server.
+   */
+  public static final class NominatimEndpoint implements Endpoint {
+    /**
+     * The maximum number of requests per second allowed by the usage policy of OpenStreetMap’s server.
+     */
+    public static final double MAX_REQUESTS_PER_SECOND = 1;
+
+    private static final String DEFAULT_BASE_URL = "https://nominatim.openstreetmap.org/search";
+    private static final String USER_AGENT = "%s/%s".formatted(App.NAME, App.VERSION);
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(Duration.ofSeconds(30))
+        .build();
+
+    private final String baseUrl;
+
+    /**
+     * Create an endpoint for OpenStreetMap’s Nominatim server.
+     */
+    public NominatimEndpoint() {
+      this(DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Create an endpoint for the given Nominatim server.
+     *
+     * @param baseUrl The URL of the server’s search API.
+     */
+    public NominatimEndpoint(@NotNull String baseUrl) {
+      this.baseUrl = Objects.requireNonNull(baseUrl);
+    }
+
+    @Override
+    public CompletableFuture<Optional<LatLon>> search(@NotNull String address) {
+      final HttpRequest request;
+      try {
+        request = HttpRequest.newBuilder()
+            .uri(new URI(this.baseUrl + "?format=json&limit=1&q=" + URLEncoder.encode(address, StandardCharsets.UTF_8)))
+            .header("User-Agent", USER_AGENT)
+            .timeout(Duration.ofMinutes(1))
+            .GET()
+            .build();
+      } catch (final URISyntaxException | IllegalArgumentException e) {
+        return CompletableFuture.failedFuture(new IOException(e));
+      }
+      return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+        if (response.statusCode() != 200)
+          throw new CompletionException(new IOException(
+              "Geocoding request for '%s' failed with status %d".formatted(address, response.statusCode())));
+        return parseResponse(response.body());
+      });
+    }
+
+    /**
+     * Extract the coordinates of the first result of a search response.
+     *
+     * @param body The response’s body.
+     * @return The coordinates, or an empty value if there are no results.
+     */
+    static Optional<LatLon> parseResponse(@NotNull String body) {
+      for (final JsonElement element : JsonParser.parseString(body).getAsJsonArray())
+        if (element instanceof JsonObject result && result.has("lat") && result.has("lon"))
+          return Optional.of(new LatLon(result.get("lat").getAsDouble(), result.get("lon").getAsDouble()));
+      return Optional.empty();
+    }
   }
 }
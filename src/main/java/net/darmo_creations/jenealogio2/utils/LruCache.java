@@ -0,0 +1,111 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A cache that evicts its least recently used entries once the total weight of its values exceeds a given maximum.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
+public class LruCache<K, V> {
+  private final Map<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+  private long weight;
+
+  /**
+   * Create an empty cache.
+   *
+   * @param maxWeight The maximum total weight of the cached values.
+   * @param weigher   A function that returns the weight of a value. Weights must not change over time.
+   * @throws IllegalArgumentException If the maximum weight is negative.
+   */
+  public LruCache(long maxWeight, @NotNull ToLongFunction<V> weigher) {
+    if (maxWeight < 0)
+      throw new IllegalArgumentException("Max weight must be >= 0");
+    this.maxWeight = maxWeight;
+    this.weigher = Objects.requireNonNull(weigher);
+  }
+
+  /**
+   * Get the value for the given key and mark it as the most recently used one.
+   *
+   * @param key The key to get the value of.
+   * @return The value or an empty {@link Optional} if the key is not in this cache.
+   */
+  public Optional<V> get(@NotNull K key) {
+    final Entry<V> entry = this.entries.get(key);
+    return entry == null ? Optional.empty() : Optional.of(entry.value());
+  }
+
+  /**
+   * Put a value in this cache, evicting the least recently used entries if necessary.
+   * Values that are heavier than this cache’s maximum weight are not stored.
+   *
+   * @param key   The value’s key.
+   * @param value The value.
+   */
+  public void put(@NotNull K key, @NotNull V value) {
+    this.remove(key);
+    final long valueWeight = this.weigher.applyAsLong(value);
+    if (valueWeight > this.maxWeight)
+      return;
+    this.entries.put(key, new Entry<>(Objects.requireNonNull(value), valueWeight));
+    this.weight += valueWeight;
+    final var iterator = this.entries.values().iterator();
+    while (this.weight > this.maxWeight) {
+      this.weight -= iterator.next().weight();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Remove the value for the given key.
+   *
+   * @param key The key to remove.
+   */
+  public void remove(@NotNull K key) {
+    final Entry<V> entry = this.entries.remove(key);
+    if (entry != null)
+      this.weight -= entry.weight();
+  }
+
+  /**
+   * Remove all entries whose key matches the given predicate.
+   *
+   * @param predicate A predicate on keys.
+   */
+  public void removeIf(@NotNull Predicate<K> predicate) {
+    final var iterator = this.entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final var entry = iterator.next();
+      if (predicate.test(entry.getKey())) {
+        this.weight -= entry.getValue().weight();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * The number of entries in this cache.
+   */
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * The total weight of the values in this cache.
+   */
+  public long weight() {
+    return this.weight;
+  }
+
+  private record Entry<V>(@NotNull V value, long weight) {
+  }
+}
@@ -0,0 +1,149 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.jetbrains.annotations.*;
+
+import java.text.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * A text index that finds the items that have at least one text containing a given query.
+ * <p>
+ * Texts are normalized by {@link #normalize(String)} before being indexed, so that searches
+ * are case-insensitive and ignore accents. Each normalized text is split into overlapping trigrams,
+ * a query is then only checked against the items that contain all of its trigrams.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <T> Type of indexed items.
+ */
+public class NGramIndex<T> {
+  private static final int N = 3;
+  private static final Pattern DIACRITICS_PATTERN = Pattern.compile("\\p{M}+");
+
+  private final Map<String, Set<T>> postings = new HashMap<>();
+  private final Map<T, List<String>> texts = new HashMap<>();
+
+  /**
+   * Index the given item under the given texts, replacing any texts it was previously indexed under.
+   *
+   * @param item  The item to index.
+   * @param texts The texts to index the item under. Null texts are ignored.
+   */
+  public synchronized void put(@NotNull T item, final @NotNull Collection<String> texts) {
+    this.remove(item);
+    final List<String> normalizedTexts = new ArrayList<>(texts.size());
+    for (final String text : texts)
+      if (text != null)
+        normalizedTexts.add(normalize(text));
+    this.texts.put(item, normalizedTexts);
+    for (final String gram : grams(normalizedTexts))
+      this.postings.computeIfAbsent(gram, k -> new HashSet<>()).add(item);
+  }
+
+  /**
+   * Remove the given item from this index.
+   *
+   * @param item The item to remove.
+   */
+  public synchronized void remove(@NotNull T item) {
+    final List<String> normalizedTexts = this.texts.remove(item);
+    if (normalizedTexts == null)
+      return;
+    for (final String gram : grams(normalizedTexts)) {
+      final Set<T> items = this.postings.get(gram);
+      items.remove(item);
+      if (items.isEmpty())
+        this.postings.remove(gram);
+    }
+  }
+
+  /**
+   * Remove all items from this index.
+   */
+  public synchronized void clear() {
+    this.postings.clear();
+    this.texts.clear();
+  }
+
+  /**
+   * Indicate whether the given item is in this index.
+   *
+   * @param item An item.
+   * @return True if the item is indexed, false otherwise.
+   */
+  public synchronized boolean contains(@NotNull T item) {
+    return this.texts.containsKey(item);
+  }
+
+  /**
+   * The number of items in this index.
+   */
+  public synchronized int size() {
+    return this.texts.size();
+  }
+
+  /**
+   * Return all items that have at least one text that contains the given query, ignoring case and accents.
+   * An empty query matches all items.
+   *
+   * @param query The text to search for.
+   * @return The set of matching items.
+   */
+  public synchronized Set<T> search(@NotNull String query) {
+    final String normalizedQuery = normalize(query);
+    final Collection<T> candidates;
+    if (normalizedQuery.length() < N)
+      candidates = this.texts.keySet();
+    else {
+      Set<T> smallest = null;
+      for (final String gram : grams(List.of(normalizedQuery))) {
+        final Set<T> items = this.postings.get(gram);
+        if (items == null)
+          return new HashSet<>();
+        if (smallest == null || items.size() < smallest.size())
+          smallest = items;
+      }
+      candidates = Objects.requireNonNull(smallest);
+    }
+    final Set<T> results = new HashSet<>();
+    for (final T item : candidates)
+      if (this.matches(item, normalizedQuery))
+        results.add(item);
+    return results;
+  }
+
+  /**
+   * Check whether the given item matches the given normalized query.
+   * Trigrams alone do not guarantee that the query appears in a text as a contiguous substring.
+   */
+  private boolean matches(@NotNull T item, @NotNull String normalizedQuery) {
+    for (final String text : this.texts.get(item))
+      if (text.contains(normalizedQuery))
+        return true;
+    return false;
+  }
+
+  /**
+   * Return the set of all distinct trigrams of the given texts.
+   * Texts shorter than {@link #N} have no trigrams.
+   */
+  private static Set<String> grams(final @NotNull List<String> texts) {
+    final Set<String> grams = new HashSet<>();
+    for (final String text : texts)
+      for (int i = 0; i + N <= text.length(); i++)
+        grams.add(text.substring(i, i + N));
+    return grams;
+  }
+
+  /**
+   * Normalize the given text for searching. The text is converted to lower case and diacritics are removed.
+   *
+   * @param text The text to normalize.
+   * @return The normalized text.
+   */
+  public static String normalize(@NotNull String text) {
+    final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    return DIACRITICS_PATTERN.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+}
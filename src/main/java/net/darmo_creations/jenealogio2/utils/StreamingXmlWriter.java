@@ -0,0 +1,202 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.jetbrains.annotations.*;
+import org.w3c.dom.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Writes an XML document to an output stream incrementally, without building the whole document in memory.
+ * <p>
+ * The output is byte-for-byte identical to that of {@link XmlUtils#writeFile}
+ * for the same elements: attributes are written in the order of the DOM, escaping rules are the same
+ * and elements are indented by 4 spaces when indentation is enabled.
+ * <p>
+ * Elements may either be written one tag at a time or as whole DOM subtrees with {@link #writeElement(Element)}.
+ */
+public final class StreamingXmlWriter {
+  private static final String INDENT = "    ";
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  private final Writer writer;
+  private final boolean indent;
+  private final Deque<String> openElements = new ArrayDeque<>();
+  /**
+   * Whether each open element has child elements, in the same order as {@link #openElements}.
+   */
+  private final Deque<Boolean> hasChildElements = new ArrayDeque<>();
+  private boolean startTagOpen;
+
+  /**
+   * Create a writer that writes UTF-8 encoded XML to the given stream.
+   * The stream is buffered by this writer and is not closed by it.
+   *
+   * @param outputStream The stream to write to.
+   * @param indent       Whether to indent elements.
+   */
+  public StreamingXmlWriter(@NotNull OutputStream outputStream, boolean indent) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    this.indent = indent;
+  }
+
+  /**
+   * Write the XML declaration.
+   *
+   * @throws IOException If any error occurs.
+   */
+  public void writeStartDocument() throws IOException {
+    this.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+    if (this.indent)
+      this.writer.write(LINE_SEPARATOR);
+  }
+
+  /**
+   * Write the start tag of the given element along with its attributes, but none of its child nodes.
+   * The element stays open until {@link #writeEndElement()} is called.
+   *
+   * @param element The element whose start tag should be written.
+   * @throws IOException If any error occurs.
+   */
+  public void writeStartElement(final @NotNull Element element) throws IOException {
+    this.closeStartTag();
+    if (!this.openElements.isEmpty()) {
+      this.hasChildElements.pop();
+      this.hasChildElements.push(true);
+      this.newLine(this.openElements.size());
+    }
+    final String name = element.getTagName();
+    this.writer.write('<');
+    this.writer.write(name);
+    final NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      final Node attr = attributes.item(i);
+      this.writer.write(' ');
+      this.writer.write(attr.getNodeName());
+      this.writer.write("=\"");
+      this.writeEscaped(attr.getNodeValue(), true);
+      this.writer.write('"');
+    }
+    this.startTagOpen = true;
+    this.openElements.push(name);
+    this.hasChildElements.push(false);
+  }
+
+  /**
+   * Write the end tag of the last opened element.
+   * If nothing was written since its start tag, the element is written as an empty-element tag.
+   *
+   * @throws IOException If any error occurs.
+   * @throws IllegalStateException If there is no open element.
+   */
+  public void writeEndElement() throws IOException {
+    if (this.openElements.isEmpty())
+      throw new IllegalStateException("no open element");
+    final String name = this.openElements.pop();
+    final boolean hadChildElements = this.hasChildElements.pop();
+    if (this.startTagOpen) {
+      this.writer.write("/>");
+      this.startTagOpen = false;
+      return;
+    }
+    if (hadChildElements)
+      this.newLine(this.openElements.size());
+    this.writer.write("</");
+    this.writer.write(name);
+    this.writer.write('>');
+  }
+
+  /**
+   * Write some text inside the last opened element.
+   *
+   * @param text The text to write. It is escaped as needed.
+   * @throws IOException If any error occurs.
+   */
+  public void writeCharacters(@NotNull String text) throws IOException {
+    if (text.isEmpty())
+      return;
+    this.closeStartTag();
+    this.writeEscaped(text, false);
+  }
+
+  /**
+   * Write the given element along with all its attributes and child nodes.
+   *
+   * @param element The element to write.
+   * @throws IOException If any error occurs.
+   */
+  public void writeElement(final @NotNull Element element) throws IOException {
+    this.writeStartElement(element);
+    final NodeList childNodes = element.getChildNodes();
+    for (int i = 0; i < childNodes.getLength(); i++) {
+      final Node child = childNodes.item(i);
+      if (child instanceof Element e)
+        this.writeElement(e);
+      else if (child instanceof Text t)
+        this.writeCharacters(t.getData());
+    }
+    this.writeEndElement();
+  }
+
+  /**
+   * Close all open elements and flush the underlying stream.
+   *
+   * @throws IOException If any error occurs.
+   */
+  public void writeEndDocument() throws IOException {
+    while (!this.openElements.isEmpty())
+      this.writeEndElement();
+    if (this.indent)
+      this.writer.write(LINE_SEPARATOR);
+    this.writer.flush();
+  }
+
+  private void closeStartTag() throws IOException {
+    if (this.startTagOpen) {
+      this.writer.write('>');
+      this.startTagOpen = false;
+    }
+  }
+
+  private void newLine(int depth) throws IOException {
+    if (this.indent) {
+      this.writer.write(LINE_SEPARATOR);
+      for (int i = 0; i < depth; i++)
+        this.writer.write(INDENT);
+    }
+  }
+
+  /**
+   * Write the given string, escaping special characters.
+   * Control and supplementary characters are written as character references.
+   *
+   * @param s         The string to write.
+   * @param attribute Whether the string is an attribute value.
+   * @throws IOException If any error occurs.
+   */
+  private void writeEscaped(@NotNull String s, boolean attribute) throws IOException {
+    final int length = s.length();
+    int start = 0;
+    for (int i = 0; i < length; ) {
+      final int c = s.codePointAt(i);
+      final int charCount = Character.charCount(c);
+      final String replacement = switch (c) {
+        case '&' -> "&amp;";
+        case '<' -> "&lt;";
+        case '>' -> "&gt;";
+        case '"' -> attribute ? "&quot;" : null;
+        case '\t' -> attribute ? "&#9;" : null;
+        case '\n' -> attribute ? "&#10;" : LINE_SEPARATOR;
+        default -> c < 0x20 || charCount > 1 || !attribute && c >= 0x7f && c <= 0x9f ? "&#" + c + ";" : null;
+      };
+      if (replacement != null) {
+        this.writer.write(s, start, i - start);
+        this.writer.write(replacement);
+        start = i + charCount;
+      }
+      i += charCount;
+    }
+    this.writer.write(s, start, length - start);
+  }
+}
@@ -0,0 +1,69 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A token bucket rate limiter. The bucket holds at most a given number of tokens
+ * and is refilled at a constant rate, each operation takes one token.
+ * <p>
+ * Tokens are reserved rather than waited for, so that asynchronous callers can schedule their operation
+ * after the returned delay instead of blocking a thread. Reservations made while the bucket is empty
+ * are served in order.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TokenBucket {
+  private final double capacity;
+  private final double tokensPerNano;
+  private final LongSupplier clock;
+  private double tokens;
+  private long lastRefill;
+
+  /**
+   * Create a full bucket.
+   *
+   * @param capacity        The maximum number of tokens, i.e. the number of operations that may run in a burst.
+   * @param tokensPerSecond The number of tokens added to the bucket each second.
+   * @throws IllegalArgumentException If any argument is not strictly positive.
+   */
+  public TokenBucket(int capacity, double tokensPerSecond) {
+    this(capacity, tokensPerSecond, System::nanoTime);
+  }
+
+  /**
+   * Create a full bucket.
+   *
+   * @param capacity        The maximum number of tokens.
+   * @param tokensPerSecond The number of tokens added to the bucket each second.
+   * @param clock           A function that returns the current time, in nanoseconds.
+   * @throws IllegalArgumentException If any numeric argument is not strictly positive.
+   */
+  TokenBucket(int capacity, double tokensPerSecond, @NotNull LongSupplier clock) {
+    if (capacity <= 0)
+      throw new IllegalArgumentException("capacity must be > 0");
+    if (!(tokensPerSecond > 0))
+      throw new IllegalArgumentException("tokensPerSecond must be > 0");
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / 1e9;
+    this.clock = Objects.requireNonNull(clock);
+    this.tokens = capacity;
+    this.lastRefill = clock.getAsLong();
+  }
+
+  /**
+   * Take a token from this bucket.
+   *
+   * @return The delay after which the operation may run, in nanoseconds. 0 if it may run immediately.
+   */
+  public synchronized long reserve() {
+    final long now = this.clock.getAsLong();
+    this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.tokensPerNano);
+    this.lastRefill = now;
+    // Tokens go negative while reservations wait for the bucket to refill
+    this.tokens -= 1;
+    return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.tokensPerNano);
+  }
+}
@@ -6,6 +6,7 @@ import org.w3c.dom.*;
 import org.xml.sax.*;
 
 import javax.xml.parsers.*;
+import javax.xml.stream.*;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.*;
 import javax.xml.transform.stream.*;
@@ -155,6 +156,75 @@ public final class XmlUtils {
     }
   }
 
+  /**
+   * Create an element from the {@code START_ELEMENT} event a streaming reader is currently on.
+   * Only the element’s attributes are copied, its content is left unread.
+   *
+   * @param reader   The reader to read the element from.
+   * @param document The document to create the element in.
+   * @return The created element, without any child node.
+   */
+  public static Element readStartElement(final @NotNull XMLStreamReader reader, @NotNull Document document) {
+    final Element element = document.createElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+    for (int i = 0; i < reader.getAttributeCount(); i++)
+      element.setAttribute(
+          qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+          reader.getAttributeValue(i)
+      );
+    return element;
+  }
+
+  /**
+   * Read the element whose {@code START_ELEMENT} event a streaming reader is currently on, along with all its content.
+   * The reader is left on the matching {@code END_ELEMENT} event.
+   * <p>
+   * This allows processing a large document one small subtree at a time
+   * instead of loading it entirely in memory.
+   *
+   * @param reader   The reader to read the element from.
+   * @param document The document to create the element in. The element is not attached to it.
+   * @return The read element.
+   * @throws XMLStreamException If any parsing error occurs.
+   */
+  public static Element readElement(@NotNull XMLStreamReader reader, @NotNull Document document) throws XMLStreamException {
+    final Element root = readStartElement(reader, document);
+    Element current = root;
+    while (current != null)
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT ->
+            current = (Element) current.appendChild(readStartElement(reader, document));
+        case XMLStreamConstants.END_ELEMENT -> current = current == root ? null : (Element) current.getParentNode();
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+            current.appendChild(document.createTextNode(reader.getText()));
+        default -> {
+          // Ignore comments and processing instructions
+        }
+      }
+    return root;
+  }
+
+  /**
+   * Skip the element whose {@code START_ELEMENT} event a streaming reader is currently on, along with all its content.
+   * The reader is left on the matching {@code END_ELEMENT} event.
+   *
+   * @param reader The reader to advance.
+   * @throws XMLStreamException If any parsing error occurs.
+   */
+  public static void skipElement(@NotNull XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0)
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT -> depth++;
+        case XMLStreamConstants.END_ELEMENT -> depth--;
+        default -> {
+        }
+      }
+  }
+
+  private static String qualifiedName(String prefix, @NotNull String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
   /**
    * Return a new document builder.
    */
@@ -0,0 +1,544 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.themes.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FamilyTreeWriterTest {
+  private static FamilyTree tree;
+  private Path directory;
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    Theme.loadThemes();
+    tree = TreeXMLReaderTest.read(TreeXMLReader.Mode.DOM, TreeXMLReaderTest.TREE_XML);
+    // Documents of the fixture do not exist on disk
+    tree.clearPendingFileOperations();
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("jenealogio2-test");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteRecursively(this.directory);
+  }
+
+  @Test
+  void saveToDirectoryReplacesTreeFile() throws IOException {
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    Files.writeString(treeFile, "old");
+    new FamilyTreeWriter().saveToDirectory(tree, this.directory, TreeXMLWriterTest.config(false));
+    final FamilyTree readTree = TreeXMLReaderTest.read(TreeXMLReader.Mode.STREAMING, Files.readString(treeFile));
+    assertEquals(TreeXMLReaderTest.describe(tree), TreeXMLReaderTest.describe(readTree));
+    try (final var files = Files.list(this.directory)) {
+      assertEquals(3, files.count()); // Tree file, files and snapshots directories
+    }
+  }
+
+  @Test
+  void saveChangesAppendsDeltaToJournal() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final byte[] treeFileBytes = Files.readAllBytes(treeFile);
+    edit(loadedTree);
+    new FamilyTreeWriter().saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertArrayEquals(treeFileBytes, Files.readAllBytes(treeFile));
+    assertTrue(Files.exists(this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME)));
+    assertTrue(loadedTree.modifiedPersons().isEmpty());
+    final FamilyTree readTree = new FamilyTreeReader().loadFromDirectory(this.directory);
+    assertEquals(TreeXMLReaderTest.describe(loadedTree), TreeXMLReaderTest.describe(readTree));
+    assertTrue(readTree.modifiedPersons().isEmpty());
+  }
+
+  @Test
+  void saveChangesOnlyUpdatesTreeWhenResultIsApplied() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    edit(loadedTree);
+    final FamilyTreeWriter.SaveResult result = new FamilyTreeWriter()
+        .saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false), ProgressMonitor.NONE);
+    assertFalse(loadedTree.modifiedPersons().isEmpty());
+    result.apply();
+    assertTrue(loadedTree.modifiedPersons().isEmpty());
+  }
+
+  @Test
+  void removedPersonIDsAreNotReusedAfterLoad() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    final Person person = new Person();
+    loadedTree.addPerson(person);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    loadedTree.removePerson(person);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final FamilyTree readTree = new FamilyTreeReader().loadFromDirectory(this.directory);
+    assertEquals(person.id() + 1, readTree.nextPersonID());
+    writer.saveToDirectory(readTree, this.directory, TreeXMLWriterTest.config(false));
+    assertEquals(person.id() + 1, new FamilyTreeReader().loadFromDirectory(this.directory).nextPersonID());
+  }
+
+  @Test
+  void loadIgnoresIncompleteDelta() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    edit(loadedTree);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final Path journalFile = this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    Files.write(journalFile, new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+    assertEquals(TreeXMLReaderTest.describe(loadedTree),
+        TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(this.directory)));
+    loadedTree.root().orElseThrow().setMainOccupation("Doctor");
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertEquals(TreeXMLReaderTest.describe(loadedTree),
+        TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(this.directory)));
+  }
+
+  @Test
+  void saveChangesSavesFullyIfGlobalDataModified() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final String treeFileContent = Files.readString(treeFile);
+    loadedTree.getDocument("letter.txt").orElseThrow().setDescription("A letter");
+    loadedTree.markGlobalDataModified();
+    new FamilyTreeWriter().saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertNotEquals(treeFileContent, Files.readString(treeFile));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME)));
+    assertFalse(loadedTree.isGlobalDataModified());
+    assertEquals(TreeXMLReaderTest.describe(loadedTree),
+        TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(this.directory)));
+  }
+
+  @Test
+  void saveChangesRewritesTreeFileOnRename() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    loadedTree.setName("Renamed");
+    new FamilyTreeWriter().saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME)));
+    // Tree lists only read the name from the tree file
+    try (final var in = Files.newInputStream(this.directory.resolve(TreeFileManager.TREE_FILE_NAME))) {
+      assertEquals("Renamed", new TreeXMLReader().readTreeName(in));
+    }
+  }
+
+  @Test
+  void loadRejectsJournalOfOtherTreeFile() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    loadedTree.root().orElseThrow().setMainOccupation("Doctor");
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final Path journalFile = this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME);
+    final byte[] journal = Files.readAllBytes(journalFile);
+    edit(loadedTree);
+    writer.saveToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertFalse(Files.exists(journalFile));
+    // Its deltas must not be silently lost
+    Files.write(journalFile, journal);
+    assertThrows(IOException.class, () -> new FamilyTreeReader().loadFromDirectory(this.directory));
+    loadedTree.root().orElseThrow().setMainOccupation("Miller");
+    assertThrows(IOException.class,
+        () -> writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false)));
+  }
+
+  @Test
+  void journalAppliesToCopiedTreeFile() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    loadedTree.root().orElseThrow().setMainOccupation("Doctor");
+    new FamilyTreeWriter().saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    // As if copied by a tool that does not keep modification times
+    Files.setLastModifiedTime(treeFile, FileTime.fromMillis(0));
+    final Path copy = Files.createTempDirectory("jenealogio2-test-copy");
+    try {
+      Files.copy(treeFile, copy.resolve(TreeFileManager.TREE_FILE_NAME));
+      Files.copy(this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME), copy.resolve(TreeFileManager.JOURNAL_FILE_NAME));
+      for (final Path dir : List.of(this.directory, copy))
+        assertEquals("Doctor",
+            new FamilyTreeReader().loadFromDirectory(dir).root().orElseThrow().mainOccupation().orElseThrow());
+    } finally {
+      FileUtils.deleteRecursively(copy);
+    }
+  }
+
+  @Test
+  void compactMovesDeltasIntoTreeFile() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final String treeFileContent = Files.readString(treeFile);
+    edit(loadedTree);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertTrue(writer.compact(this.directory, TreeXMLWriterTest.config(false)));
+    assertNotEquals(treeFileContent, Files.readString(treeFile));
+    assertTrue(TreeDeltaJournal.read(this.directory).deltas().isEmpty());
+    assertFalse(writer.compact(this.directory, TreeXMLWriterTest.config(false)));
+    assertEquals(TreeXMLReaderTest.describe(loadedTree),
+        TreeXMLReaderTest.describe(TreeXMLReaderTest.read(TreeXMLReader.Mode.STREAMING, Files.readString(treeFile))));
+    loadedTree.root().orElseThrow().setMainOccupation("Doctor");
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertEquals(1, TreeDeltaJournal.read(this.directory).deltas().size());
+    assertEquals(TreeXMLReaderTest.describe(loadedTree),
+        TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(this.directory)));
+  }
+
+  @Test
+  void exportToZipCompactsJournal() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    edit(loadedTree);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final Path export = Files.createTempDirectory("jenealogio2-test-export");
+    try {
+      final Path zipFile = export.resolve("Tree.zip");
+      writer.exportToZip(this.directory, zipFile, TreeXMLWriterTest.config(false), ProgressMonitor.NONE);
+      assertTrue(TreeDeltaJournal.read(this.directory).deltas().isEmpty());
+      final Path destDir = export.resolve("dest");
+      final Path unzippedDir = destDir.resolve(FileUtils.unzip(zipFile, destDir));
+      assertFalse(Files.exists(unzippedDir.resolve(TreeFileManager.JOURNAL_FILE_NAME)));
+      assertEquals(TreeXMLReaderTest.describe(loadedTree),
+          TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(unzippedDir)));
+    } finally {
+      FileUtils.deleteRecursively(export);
+    }
+  }
+
+  @Test
+  void cancelledSaveLeavesTreeFileUntouched() throws IOException {
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    Files.writeString(treeFile, "old");
+    final ProgressMonitor monitor = new ProgressMonitor() {
+      private boolean cancelled;
+
+      @Override
+      public void onProgress(ProgressMonitor.Phase phase, int done, int total) {
+        this.cancelled = phase == ProgressMonitor.Phase.PERSONS;
+      }
+
+      @Override
+      public boolean isCancellationRequested() {
+        return this.cancelled;
+      }
+    };
+    assertThrows(CancellationException.class,
+        () -> new FamilyTreeWriter().saveToDirectory(tree, this.directory, TreeXMLWriterTest.config(false), monitor));
+    assertEquals("old", Files.readString(treeFile));
+    try (final var files = Files.list(this.directory)) {
+      assertEquals(2, files.count()); // No leftover temporary file
+    }
+  }
+
+  @Test
+  void saveToDirectoryPerformsFileOperations() throws IOException {
+    final Path source = Files.createTempDirectory("jenealogio2-test-source");
+    try {
+      final FamilyTree familyTree = new FamilyTree("Files");
+      familyTree.addPerson(new Person());
+      Files.writeString(source.resolve("a.txt"), "a");
+      Files.writeString(source.resolve("b.txt"), "b");
+      familyTree.addDocument(new AttachedDocument(source.resolve("a.txt"), null, null));
+      familyTree.addDocument(new AttachedDocument(source.resolve("b.txt"), null, null));
+      final FamilyTreeWriter writer = new FamilyTreeWriter();
+      writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+      final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+      assertEquals(filesDir.resolve("a.txt"), familyTree.getDocument("a.txt").orElseThrow().path());
+      // Swap both files’ names
+      familyTree.renameDocument("a.txt", "c");
+      familyTree.renameDocument("b.txt", "a");
+      familyTree.renameDocument("c.txt", "b");
+      writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+      assertEquals("b", Files.readString(filesDir.resolve("a.txt")));
+      assertEquals("a", Files.readString(filesDir.resolve("b.txt")));
+      assertFalse(Files.exists(filesDir.resolve("c.txt")));
+      assertEquals(filesDir.resolve("b.txt"), familyTree.getDocument("b.txt").orElseThrow().path());
+      familyTree.removeDocument("a.txt");
+      writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+      try (final var files = Files.list(filesDir)) {
+        assertEquals(List.of(filesDir.resolve("b.txt")), files.toList());
+      }
+      assertFalse(Files.exists(this.directory.resolve(TreeFileManager.STAGING_DIR)));
+    } finally {
+      FileUtils.deleteRecursively(source);
+    }
+  }
+
+  @Test
+  void saveToDirectoryDeduplicatesFiles() throws IOException {
+    final Path source = Files.createTempDirectory("jenealogio2-test-source");
+    try {
+      final FamilyTree familyTree = new FamilyTree("Files");
+      familyTree.addPerson(new Person());
+      Files.writeString(source.resolve("a.txt"), "same");
+      Files.writeString(source.resolve("b.txt"), "same");
+      Files.writeString(source.resolve("c.txt"), "other");
+      familyTree.addDocument(new AttachedDocument(source.resolve("a.txt"), null, null));
+      familyTree.addDocument(new AttachedDocument(source.resolve("b.txt"), null, null));
+      familyTree.addDocument(new AttachedDocument(source.resolve("c.txt"), null, null));
+      final Config config = TreeXMLWriterTest.config(false);
+      config.setShouldDeduplicateFiles(true);
+      final FamilyTreeWriter writer = new FamilyTreeWriter();
+      writer.saveToDirectory(familyTree, this.directory, config);
+      final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+      assertEquals("same", Files.readString(filesDir.resolve("b.txt")));
+      assertTrue(Files.isSameFile(filesDir.resolve("a.txt"), filesDir.resolve("b.txt")));
+      assertFalse(Files.isSameFile(filesDir.resolve("a.txt"), filesDir.resolve("c.txt")));
+      // Sources are never linked
+      assertFalse(Files.isSameFile(source.resolve("a.txt"), filesDir.resolve("a.txt")));
+      final Path storeDir = this.directory.resolve(TreeFileManager.STORE_DIR);
+      final String hash = AttachmentStore.hash(source.resolve("c.txt"));
+      final Path object = storeDir.resolve(hash.substring(0, 2)).resolve(hash);
+      assertTrue(Files.isSameFile(object, filesDir.resolve("c.txt")));
+      familyTree.removeDocument("c.txt");
+      familyTree.removeDocument("a.txt");
+      writer.saveToDirectory(familyTree, this.directory, config);
+      assertFalse(Files.exists(object));
+      assertFalse(Files.exists(object.getParent()));
+      assertEquals("same", Files.readString(filesDir.resolve("b.txt")));
+      try (final var objects = Files.walk(storeDir)) {
+        assertEquals(1, objects.filter(Files::isRegularFile).count());
+      }
+    } finally {
+      FileUtils.deleteRecursively(source);
+    }
+  }
+
+  @Test
+  void modifiedStoredFileIsNotLinkedAgain() throws IOException {
+    final Path source = Files.createTempDirectory("jenealogio2-test-source");
+    try {
+      final FamilyTree familyTree = new FamilyTree("Files");
+      familyTree.addPerson(new Person());
+      Files.writeString(source.resolve("a.txt"), "same");
+      Files.writeString(source.resolve("b.txt"), "same");
+      familyTree.addDocument(new AttachedDocument(source.resolve("a.txt"), null, null));
+      final Config config = TreeXMLWriterTest.config(false);
+      config.setShouldDeduplicateFiles(true);
+      final FamilyTreeWriter writer = new FamilyTreeWriter();
+      writer.saveToDirectory(familyTree, this.directory, config);
+      final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+      // Edited in place by another application
+      Files.writeString(filesDir.resolve("a.txt"), "edited");
+      familyTree.addDocument(new AttachedDocument(source.resolve("b.txt"), null, null));
+      writer.saveToDirectory(familyTree, this.directory, config);
+      assertEquals("edited", Files.readString(filesDir.resolve("a.txt")));
+      assertEquals("same", Files.readString(filesDir.resolve("b.txt")));
+      final String hash = AttachmentStore.hash(source.resolve("b.txt"));
+      final Path object = this.directory.resolve(TreeFileManager.STORE_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+      assertEquals(hash, AttachmentStore.hash(object));
+    } finally {
+      FileUtils.deleteRecursively(source);
+    }
+  }
+
+  @Test
+  void garbageIsOnlyCollectedWhenFilesChangeOrOnCompaction() throws IOException {
+    final FamilyTree loadedTree = this.saveAndLoad();
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    final Path object = this.directory.resolve(TreeFileManager.STORE_DIR).resolve("00").resolve("00");
+    Files.createDirectories(object.getParent());
+    Files.writeString(object, "unused");
+    loadedTree.markGlobalDataModified();
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertTrue(Files.exists(object));
+    edit(loadedTree);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertTrue(writer.compact(this.directory, TreeXMLWriterTest.config(false)));
+    assertFalse(Files.exists(object));
+  }
+
+  @Test
+  void collectGarbageComparesContentsWithoutFileKeys() throws IOException {
+    final Path source = Files.createTempDirectory("jenealogio2-test-source");
+    try {
+      final FamilyTree familyTree = new FamilyTree("Files");
+      familyTree.addPerson(new Person());
+      Files.writeString(source.resolve("a.txt"), "same");
+      Files.writeString(source.resolve("b.txt"), "same");
+      Files.writeString(source.resolve("c.txt"), "other");
+      for (final String name : List.of("a.txt", "b.txt", "c.txt"))
+        familyTree.addDocument(new AttachedDocument(source.resolve(name), null, null));
+      final Config config = TreeXMLWriterTest.config(false);
+      config.setShouldDeduplicateFiles(true);
+      new FamilyTreeWriter().saveToDirectory(familyTree, this.directory, config);
+      final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+      final Path storeDir = this.directory.resolve(TreeFileManager.STORE_DIR);
+      final String hash = AttachmentStore.hash(source.resolve("c.txt"));
+      final Path object = storeDir.resolve(hash.substring(0, 2)).resolve(hash);
+      Files.delete(filesDir.resolve("a.txt"));
+      Files.delete(filesDir.resolve("c.txt"));
+      AttachmentStore.collectGarbage(this.directory, true);
+      assertFalse(Files.exists(object));
+      assertFalse(Files.exists(object.getParent()));
+      try (final var objects = Files.walk(storeDir)) {
+        assertEquals(1, objects.filter(Files::isRegularFile).count());
+      }
+      Files.delete(filesDir.resolve("b.txt"));
+      AttachmentStore.collectGarbage(this.directory, true);
+      try (final var objects = Files.walk(storeDir)) {
+        assertEquals(0, objects.filter(Files::isRegularFile).count());
+      }
+    } finally {
+      FileUtils.deleteRecursively(source);
+    }
+  }
+
+  @Test
+  void failedFileOperationLeavesDirectoryUntouched() throws IOException {
+    final FamilyTree familyTree = new FamilyTree("Files");
+    familyTree.addPerson(new Person());
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+    final Path treeFile = this.directory.resolve(TreeFileManager.TREE_FILE_NAME);
+    final String treeFileContent = Files.readString(treeFile);
+    familyTree.setName("Renamed");
+    familyTree.addDocument(new AttachedDocument(this.directory.resolve("missing.txt"), null, null));
+    assertThrows(NoSuchFileException.class,
+        () -> writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false)));
+    assertEquals(treeFileContent, Files.readString(treeFile));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.STAGING_DIR)));
+    assertEquals(1, familyTree.pendingFileOperations().size());
+  }
+
+  @Test
+  void loadCompletesStagedFileOperationsOfNewTreeFile() throws IOException {
+    final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+    final Path newTreeFile = this.stageFileRenaming();
+    // As if the application stopped right after moving the new tree file
+    FileUtils.replaceFile(newTreeFile, this.directory.resolve(TreeFileManager.TREE_FILE_NAME));
+    final FamilyTree readTree = new FamilyTreeReader().loadFromDirectory(this.directory);
+    assertTrue(readTree.getDocument("b.txt").isPresent());
+    assertEquals("a", Files.readString(filesDir.resolve("b.txt")));
+    assertFalse(Files.exists(filesDir.resolve("a.txt")));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.STAGING_DIR)));
+  }
+
+  @Test
+  void loadDiscardsStagedFileOperationsOfUnsavedTreeFile() throws IOException {
+    final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+    this.stageFileRenaming();
+    // As if the application stopped before moving the new tree file
+    final FamilyTree readTree = new FamilyTreeReader().loadFromDirectory(this.directory);
+    assertTrue(readTree.getDocument("a.txt").isPresent());
+    assertEquals("a", Files.readString(filesDir.resolve("a.txt")));
+    assertFalse(Files.exists(filesDir.resolve("b.txt")));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.STAGING_DIR)));
+  }
+
+  @Test
+  void saveToDirectoryKeepsSnapshots() throws IOException {
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    final FamilyTree familyTree = new FamilyTree("Tree 0");
+    familyTree.addPerson(new Person());
+    writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+    assertTrue(TreeFileManager.listSnapshots(this.directory).isEmpty());
+    for (int i = 1; i <= 7; i++) {
+      familyTree.setName("Tree " + i);
+      writer.saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+    }
+    final List<Path> snapshots = TreeFileManager.listSnapshots(this.directory);
+    assertEquals(5, snapshots.size());
+    // Most recent first
+    for (int i = 0; i < snapshots.size(); i++) {
+      final FamilyTree snapshotTree = new FamilyTreeReader().loadFromDirectory(snapshots.get(i));
+      assertEquals("Tree " + (6 - i), snapshotTree.name());
+    }
+  }
+
+  @Test
+  void snapshotDate() {
+    final LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000);
+    assertEquals(Optional.of(date), TreeFileManager.snapshotDate(Path.of("20240301-123015-123")));
+    assertEquals(Optional.of(date), TreeFileManager.snapshotDate(Path.of("20240301-123015-123-2")));
+    assertTrue(TreeFileManager.snapshotDate(Path.of("snapshot")).isEmpty());
+  }
+
+  @Test
+  void restoreSnapshotRestoresTreeFileAndJournal() throws IOException {
+    final FamilyTreeWriter writer = new FamilyTreeWriter();
+    final FamilyTree loadedTree = this.saveAndLoad();
+    edit(loadedTree);
+    writer.saveChangesToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    final List<String> description = TreeXMLReaderTest.describe(loadedTree);
+    loadedTree.setName("Renamed");
+    writer.saveToDirectory(loadedTree, this.directory, TreeXMLWriterTest.config(false));
+    assertFalse(Files.exists(this.directory.resolve(TreeFileManager.JOURNAL_FILE_NAME)));
+    writer.restoreSnapshot(this.directory, TreeFileManager.listSnapshots(this.directory).get(0));
+    assertEquals(description,
+        TreeXMLReaderTest.describe(new FamilyTreeReader().loadFromDirectory(this.directory)));
+    // The replaced tree file has been kept too
+    assertEquals(2, TreeFileManager.listSnapshots(this.directory).size());
+    assertEquals("Renamed",
+        new FamilyTreeReader().loadFromDirectory(TreeFileManager.listSnapshots(this.directory).get(0)).name());
+  }
+
+  /**
+   * Save a tree with a single file in the test directory,
+   * then stage the file’s renaming without moving the new tree file into place.
+   *
+   * @return The new tree file.
+   */
+  private Path stageFileRenaming() throws IOException {
+    final Path source = this.directory.resolve("a.txt");
+    Files.writeString(source, "a");
+    final FamilyTree familyTree = new FamilyTree("Files");
+    familyTree.addPerson(new Person());
+    familyTree.addDocument(new AttachedDocument(source, null, null));
+    new FamilyTreeWriter().saveToDirectory(familyTree, this.directory, TreeXMLWriterTest.config(false));
+    Files.delete(source);
+    familyTree.renameDocument("a.txt", "b");
+    final Path newTreeFile = this.directory.resolve("new.xml");
+    try (final var out = Files.newOutputStream(newTreeFile)) {
+      new TreeXMLWriter().writeToStream(familyTree, out, TreeXMLWriterTest.config(false));
+    }
+    StagedFileOperations.stage(this.directory, familyTree.pendingFileOperations(), false, newTreeFile,
+        ProgressMonitor.NONE);
+    return newTreeFile;
+  }
+
+  /**
+   * Fully save the fixture tree to the test directory then load it back.
+   */
+  private FamilyTree saveAndLoad() throws IOException {
+    new FamilyTreeWriter().saveToDirectory(tree, this.directory, TreeXMLWriterTest.config(false));
+    return new FamilyTreeReader().loadFromDirectory(this.directory);
+  }
+
+  /**
+   * Update, add and remove persons and life events of a tree loaded from the fixture.
+   */
+  private static void edit(FamilyTree familyTree) {
+    final Map<Integer, Person> persons = new HashMap<>();
+    familyTree.persons().forEach(p -> persons.put(p.id(), p));
+    final Person john = persons.get(0);
+    final Person smith = persons.get(2);
+    john.setMainOccupation("Miller").setNotes(null);
+    final Person godparent = persons.get(3);
+    // Removing a witness with the person would also remove the event from the tree
+    new ArrayList<>(godparent.getLifeEventsAsWitness()).forEach(e -> familyTree.removeWitnessFromLifeEvent(e, godparent));
+    familyTree.removePerson(godparent);
+    final Person child = new Person().setLegalFirstNames(List.of("Bob"));
+    familyTree.addPerson(child);
+    child.addParent(john, ParentalRelationType.BIOLOGICAL_PARENT);
+    final LifeEvent marriage = john.getLifeEventsAsActor().stream()
+        .filter(e -> e.type().indicatesUnion())
+        .findFirst()
+        .orElseThrow();
+    marriage.setPlace(new Place("Marseille", null));
+    final LifeEvent birth = new LifeEvent(marriage.date(),
+        familyTree.lifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:birth")));
+    familyTree.setLifeEventActors(birth, Set.of(child));
+    familyTree.addWitnessToLifeEvent(birth, smith);
+    familyTree.addDocumentToObject("letter.txt", child);
+    familyTree.setRoot(child);
+  }
+}
@@ -0,0 +1,116 @@
+package net.darmo_creations.jenealogio2.io;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilsTest {
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("jenealogio2-test");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteRecursively(this.directory);
+  }
+
+  @Test
+  void zipThenUnzipRestoresFiles() throws IOException {
+    final Path treeDir = this.createTreeDirectory();
+    final Path zipFile = this.directory.resolve("Tree.zip");
+    FileUtils.zip(treeDir, zipFile);
+    final Path destDir = this.directory.resolve("dest");
+    assertEquals("Tree", FileUtils.unzip(zipFile, destDir));
+    final Path unzippedDir = destDir.resolve("Tree");
+    assertEquals(Files.readString(treeDir.resolve("tree.xml")), Files.readString(unzippedDir.resolve("tree.xml")));
+    assertArrayEquals(Files.readAllBytes(treeDir.resolve("files/picture.png")),
+        Files.readAllBytes(unzippedDir.resolve("files/picture.png")));
+    assertArrayEquals(Files.readAllBytes(treeDir.resolve("files/big.txt")),
+        Files.readAllBytes(unzippedDir.resolve("files/big.txt")));
+    assertFalse(Files.exists(unzippedDir.resolve("files").resolve(ImageCache.THUMBNAILS_DIR)));
+    assertFalse(Files.exists(unzippedDir.resolve(TreeFileManager.SNAPSHOTS_DIR)));
+  }
+
+  @Test
+  void zipStoresCompressedFiles() throws IOException {
+    final Path zipFile = this.directory.resolve("Tree.zip");
+    FileUtils.zip(this.createTreeDirectory(), zipFile);
+    try (final var zip = new ZipFile(zipFile.toFile(), StandardCharsets.UTF_8)) {
+      assertEquals(ZipEntry.DEFLATED, zip.getEntry("tree.xml").getMethod());
+      assertEquals(ZipEntry.DEFLATED, zip.getEntry("files/big.txt").getMethod());
+      assertEquals(ZipEntry.STORED, zip.getEntry("files/picture.png").getMethod());
+      // Deflating would make it larger
+      assertEquals(ZipEntry.STORED, zip.getEntry("files/random.bin").getMethod());
+      assertTrue(zip.getEntry("files/").isDirectory());
+      assertEquals("Ŝtono", new String(zip.getInputStream(zip.getEntry("files/notes.txt")).readAllBytes(),
+          StandardCharsets.UTF_8));
+    }
+    // Streaming readers must be able to read the archive too
+    final Set<String> names = new HashSet<>();
+    try (final var in = new ZipInputStream(Files.newInputStream(zipFile), StandardCharsets.UTF_8)) {
+      for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+        in.readAllBytes();
+        names.add(entry.getName());
+      }
+    }
+    assertEquals(Set.of("tree.xml", "files/", "files/picture.png", "files/big.txt", "files/random.bin",
+        "files/notes.txt"), names);
+  }
+
+  @Test
+  void cancelledZipDeletesFile() throws IOException {
+    final Path zipFile = this.directory.resolve("Tree.zip");
+    final ProgressMonitor monitor = new ProgressMonitor() {
+      @Override
+      public void onProgress(ProgressMonitor.Phase phase, int done, int total) {
+      }
+
+      @Override
+      public boolean isCancellationRequested() {
+        return true;
+      }
+    };
+    final Path treeDir = this.createTreeDirectory();
+    assertThrows(CancellationException.class, () -> FileUtils.zip(treeDir, zipFile, monitor));
+    assertFalse(Files.exists(zipFile));
+  }
+
+  @Test
+  void unzipRejectsEntriesOutsideDirectory() throws IOException {
+    final Path zipFile = this.directory.resolve("Evil.zip");
+    try (final var out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+      out.putNextEntry(new ZipEntry("../evil.txt"));
+      out.write(1);
+      out.closeEntry();
+    }
+    assertThrows(IOException.class, () -> FileUtils.unzip(zipFile, this.directory.resolve("dest")));
+    assertFalse(Files.exists(this.directory.resolve("evil.txt")));
+  }
+
+  private Path createTreeDirectory() throws IOException {
+    final Path treeDir = this.directory.resolve("Tree");
+    final Path filesDir = treeDir.resolve(TreeFileManager.FILES_DIR);
+    Files.createDirectories(filesDir.resolve(ImageCache.THUMBNAILS_DIR));
+    Files.createDirectories(treeDir.resolve(TreeFileManager.SNAPSHOTS_DIR));
+    Files.writeString(treeDir.resolve("tree.xml"), "<FamilyTree/>\n".repeat(100));
+    Files.writeString(filesDir.resolve("notes.txt"), "Ŝtono");
+    // Larger than what is deflated in memory
+    Files.writeString(filesDir.resolve("big.txt"), "Lorem ipsum dolor sit amet\n".repeat(100_000));
+    final byte[] random = new byte[10_000];
+    new Random(42).nextBytes(random);
+    Files.write(filesDir.resolve("random.bin"), random);
+    Files.write(filesDir.resolve("picture.png"), random);
+    Files.write(filesDir.resolve(ImageCache.THUMBNAILS_DIR).resolve("picture.png.png"), random);
+    return treeDir;
+  }
+}
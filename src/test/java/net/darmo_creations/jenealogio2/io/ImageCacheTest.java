@@ -0,0 +1,132 @@
+package net.darmo_creations.jenealogio2.io;
+
+import javafx.scene.image.Image;
+import org.jetbrains.annotations.*;
+import org.junit.jupiter.api.*;
+
+import javax.imageio.*;
+import java.awt.Dimension;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheTest {
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("jenealogio2-test");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteRecursively(this.directory);
+  }
+
+  @Test
+  void thumbnailSizeKeepsAspectRatio() {
+    assertEquals(new Dimension(100, 50), ImageCache.thumbnailSize(1000, 500, 100));
+    assertEquals(new Dimension(50, 100), ImageCache.thumbnailSize(500, 1000, 100));
+  }
+
+  @Test
+  void thumbnailSizeDoesNotUpscale() {
+    assertEquals(new Dimension(20, 10), ImageCache.thumbnailSize(20, 10, 100));
+  }
+
+  @Test
+  void thumbnailSizeIsAtLeastOnePixel() {
+    assertEquals(new Dimension(100, 1), ImageCache.thumbnailSize(10000, 1, 100));
+  }
+
+  @Test
+  void createThumbnailScalesDown() throws IOException {
+    final Path file = this.writeImage(this.directory.resolve("image.png"), 1200, 600);
+    final BufferedImage thumbnail = ImageCache.createThumbnail(file, 100);
+    assertEquals(100, thumbnail.getWidth());
+    assertEquals(50, thumbnail.getHeight());
+  }
+
+  @Test
+  void createThumbnailKeepsSmallImages() throws IOException {
+    final Path file = this.writeImage(this.directory.resolve("image.png"), 30, 20);
+    final BufferedImage thumbnail = ImageCache.createThumbnail(file, 100);
+    assertEquals(30, thumbnail.getWidth());
+    assertEquals(20, thumbnail.getHeight());
+  }
+
+  @Test
+  void createThumbnailThrowsIfUnsupportedFormat() throws IOException {
+    final Path file = Files.writeString(this.directory.resolve("image.png"), "not an image");
+    assertThrows(IOException.class, () -> ImageCache.createThumbnail(file, 100));
+  }
+
+  @Test
+  void getImageMissingFile() throws InterruptedException, ExecutionException, TimeoutException {
+    final CompletableFuture<Optional<Image>> result = new CompletableFuture<>();
+    ImageCache.getImage(this.directory.resolve("image.png"), 100, result::complete, Runnable::run);
+    assertTrue(result.get(10, TimeUnit.SECONDS).isEmpty());
+  }
+
+  @Test
+  void getImageLoadsInBackground() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+    final Path file = this.writeImage(this.directory.resolve("image.png"), 1200, 600);
+    final CompletableFuture<Thread> thread = new CompletableFuture<>();
+    final CompletableFuture<Optional<Image>> result = new CompletableFuture<>();
+    ImageCache.getImage(file, 100, image -> {
+      thread.complete(Thread.currentThread());
+      result.complete(image);
+    }, Runnable::run);
+    final Image image = result.get(10, TimeUnit.SECONDS).orElseThrow();
+    assertNotSame(Thread.currentThread(), thread.get());
+    assertEquals(100, image.getWidth(), 0.0);
+    assertEquals(50, image.getHeight(), 0.0);
+  }
+
+  @Test
+  void getImageZeroSizeThrowsError() {
+    assertThrows(IllegalArgumentException.class,
+        () -> ImageCache.getImage(this.directory.resolve("image.png"), 0, image -> {
+        }, Runnable::run));
+  }
+
+  @Test
+  void thumbnailFileInsideTree() throws IOException {
+    Files.writeString(this.directory.resolve(TreeFileManager.TREE_FILE_NAME), "");
+    final Path file = this.directory.resolve(TreeFileManager.FILES_DIR).resolve("image.jpg");
+    assertEquals(
+        this.directory.resolve(TreeFileManager.FILES_DIR).resolve(ImageCache.THUMBNAILS_DIR).resolve("50").resolve("image.jpg.png"),
+        ImageCache.thumbnailFile(file, 50).orElseThrow()
+    );
+  }
+
+  @Test
+  void thumbnailFileOutsideTree() {
+    assertTrue(ImageCache.thumbnailFile(this.directory.resolve("image.jpg"), 50).isEmpty());
+    final Path file = this.directory.resolve(TreeFileManager.FILES_DIR).resolve("image.jpg");
+    assertTrue(ImageCache.thumbnailFile(file, 50).isEmpty());
+  }
+
+  @Test
+  void deleteThumbnailsDeletesAllSizes() throws IOException {
+    final Path filesDir = this.directory.resolve(TreeFileManager.FILES_DIR);
+    final Path thumbnailsDir = filesDir.resolve(ImageCache.THUMBNAILS_DIR);
+    final Path small = this.writeImage(thumbnailsDir.resolve("50").resolve("image.jpg.png"), 1, 1);
+    final Path big = this.writeImage(thumbnailsDir.resolve("100").resolve("image.jpg.png"), 1, 1);
+    final Path other = this.writeImage(thumbnailsDir.resolve("100").resolve("other.jpg.png"), 1, 1);
+    ImageCache.deleteThumbnails(filesDir, "image.jpg");
+    assertFalse(Files.exists(small));
+    assertFalse(Files.exists(big));
+    assertTrue(Files.exists(other));
+  }
+
+  private Path writeImage(@NotNull Path file, int width, int height) throws IOException {
+    Files.createDirectories(file.getParent());
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+    return file;
+  }
+}
@@ -0,0 +1,69 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonIndexTest {
+  private FamilyTree tree;
+  private PersonIndex index;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    this.index = new PersonIndex();
+  }
+
+  private Person newPerson(int id) {
+    final Person person = new Person();
+    this.tree.addPerson(person, id);
+    return person;
+  }
+
+  @Test
+  void get() throws IOException {
+    final Person person = this.newPerson(3);
+    this.index.put(person);
+    assertSame(person, this.index.get(3));
+    assertNull(this.index.get(2));
+    assertNull(this.index.get(-1));
+  }
+
+  @Test
+  void getGrowsArray() throws IOException {
+    for (int i = 0; i < 1000; i++)
+      this.index.put(this.newPerson(i));
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i, this.index.get(i).id());
+  }
+
+  @Test
+  void getLargeID() throws IOException {
+    final Person person = this.newPerson(2000000000);
+    this.index.put(person);
+    assertSame(person, this.index.get(2000000000));
+  }
+
+  @Test
+  void putDuplicateIDError() throws IOException {
+    this.index.put(this.newPerson(1));
+    final Person other = new Person();
+    new FamilyTree("other").addPerson(other, 1);
+    assertThrows(IOException.class, () -> this.index.put(other));
+  }
+
+  @Test
+  void remove() throws IOException {
+    this.index.put(this.newPerson(1));
+    this.index.put(this.newPerson(2000000000));
+    this.index.remove(1);
+    assertNull(this.index.get(1));
+    assertFalse(this.index.isEmpty());
+    this.index.remove(2000000000);
+    assertNull(this.index.get(2000000000));
+    assertTrue(this.index.isEmpty());
+  }
+}
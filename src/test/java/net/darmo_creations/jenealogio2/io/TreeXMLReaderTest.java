@@ -0,0 +1,374 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeXMLReaderTest {
+  static final String TREE_XML = """
+      <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+      <FamilyTree version="1" name="Test tree" root="1">
+        <!-- comment -->
+        <Registries>
+          <Genders>
+            <Entry key="user:other" label="Other" icon="AQH/AAD/"/>
+          </Genders>
+          <LifeEventTypes>
+            <Entry key="user:graduation" label="Graduation" group="3" indicatesDeath="false" indicatesUnion="false" actorsNumber="1" unique="false"/>
+          </LifeEventTypes>
+        </Registries>
+        <Documents>
+          <Document name="certificate.pdf">
+            <Date type="with_precision" date="1990-06-01;gregorian" precision="0"/>
+            <Description>Birth &amp; baptism certificate</Description>
+          </Document>
+          <Document name="letter.txt">
+            <Description/>
+          </Document>
+        </Documents>
+        <People>
+          <Person>
+            <LifeStatus ordinal="1"/>
+            <LegalLastName value="Doe"/>
+            <LegalFirstNames><Name value="John"/><Name value="Paul"/></LegalFirstNames>
+            <AssignedGenderAtBirth key="builtin:male"/>
+            <MainOccupation value="Baker"/>
+            <Notes>  Some
+        notes  </Notes>
+          </Person>
+          <Person>
+            <Documents><Document name="certificate.pdf"/></Documents>
+            <DisambiguationID value="2"/>
+            <LifeStatus ordinal="0"/>
+            <LegalLastName value="Doe"/>
+            <LegalFirstNames><Name value="Jane"/></LegalFirstNames>
+            <PublicFirstNames><Name value="Janie"/></PublicFirstNames>
+            <Nicknames><Name value="JD"/></Nicknames>
+            <AssignedGenderAtBirth key="builtin:female"/>
+            <Gender key="user:other"/>
+            <Parents>
+              <Group ordinal="0"><Parent id="0"/><Parent id="2"/></Group>
+              <Group ordinal="7"><Parent id="3"/></Group>
+            </Parents>
+            <Sources><![CDATA[Registry <42>]]></Sources>
+          </Person>
+          <Person>
+            <LifeStatus ordinal="3"/>
+            <PublicLastName value="Smith"/>
+            <AssignedGenderAtBirth key="builtin:female"/>
+          </Person>
+          <Person>
+            <LifeStatus ordinal="2"/>
+          </Person>
+        </People>
+        <LifeEvents>
+          <LifeEvent>
+            <Documents><Document name="certificate.pdf"/></Documents>
+            <Date type="with_precision" date="1990-05-31T12:30;gregorian" precision="1"/>
+            <Type key="builtin:birth"/>
+            <Place address="Paris" latlon="48.85,2.35"/>
+            <Actors><Person id="1"/></Actors>
+            <Witnesses><Person id="3"/></Witnesses>
+          </LifeEvent>
+          <LifeEvent>
+            <Date type="range" start="1985-01-01;gregorian" end="1986-01-01Ead;julian"/>
+            <Type key="builtin:marriage"/>
+            <Place address="Lyon"/>
+            <Actors><Person id="0"/><Person id="2"/></Actors>
+            <Notes>Wedding</Notes>
+          </LifeEvent>
+          <LifeEvent>
+            <Date type="alternative" date1="2010-01-01;gregorian" date2="2011-01-01;gregorian"/>
+            <Type key="builtin:death"/>
+            <Actors><Person id="0"/></Actors>
+            <Sources>Newspaper</Sources>
+          </LifeEvent>
+          <LifeEvent>
+            <Date type="with_precision" date="2012-09-01;gregorian" precision="0"/>
+            <Type key="user:graduation"/>
+            <Actors><Person id="1"/></Actors>
+          </LifeEvent>
+        </LifeEvents>
+      </FamilyTree>
+      """;
+
+  private TreeXMLReader reader;
+
+  @BeforeEach
+  void setUp() {
+    this.reader = new TreeXMLReader();
+  }
+
+  @Test
+  void readTreeName() throws IOException {
+    assertEquals("Tree", this.reader.readTreeName(stream("""
+        <?xml version="1.0" encoding="UTF-8"?>
+        <FamilyTree version="1" name=" Tree " root="0"><People/></FamilyTree>
+        """)));
+  }
+
+  @Test
+  void readTreeNameStopsAfterRootElement() throws IOException {
+    assertEquals("Tree", this.reader.readTreeName(stream("""
+        <FamilyTree version="1" name="Tree" root="0"><People><Person><
+        """)));
+  }
+
+  @Test
+  void readTreeNameThrowsIfWrongRootElement() {
+    assertThrows(IOException.class, () -> this.reader.readTreeName(stream("<Tree version=\"1\" name=\"Tree\"/>")));
+  }
+
+  @Test
+  void readTreeNameThrowsIfUnsupportedVersion() {
+    assertThrows(IOException.class, () -> this.reader.readTreeName(stream("<FamilyTree version=\"2\" name=\"Tree\"/>")));
+  }
+
+  @Test
+  void readTreeNameThrowsIfNameMissing() {
+    assertThrows(IOException.class, () -> this.reader.readTreeName(stream("<FamilyTree version=\"1\"/>")));
+  }
+
+  @Test
+  void readTreeNameThrowsIfNameBlank() {
+    assertThrows(IOException.class, () -> this.reader.readTreeName(stream("<FamilyTree version=\"1\" name=\" \"/>")));
+  }
+
+  @Test
+  void readTreeNameThrowsIfEmpty() {
+    assertThrows(IOException.class, () -> this.reader.readTreeName(stream("")));
+  }
+
+  @Test
+  void streamingReaderProducesSameTreeAsDOMReader() throws IOException {
+    final FamilyTree domTree = read(TreeXMLReader.Mode.DOM, TREE_XML);
+    final FamilyTree streamedTree = read(TreeXMLReader.Mode.STREAMING, TREE_XML);
+    assertEquals(describe(domTree), describe(streamedTree));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStream(TreeXMLReader.Mode mode) throws IOException {
+    final FamilyTree tree = read(mode, TREE_XML);
+    assertEquals("Test tree", tree.name());
+    assertEquals(4, tree.persons().size());
+    assertEquals(4, tree.lifeEvents().size());
+    assertEquals(2, tree.documents().size());
+    final Person root = tree.root().orElseThrow();
+    assertEquals("Jane Doe (#2)", root.toString());
+    assertEquals(2, root.parents(ParentalRelationType.BIOLOGICAL_PARENT).size());
+    assertEquals(Optional.of("Registry <42>"), root.sources());
+    assertEquals(List.of("builtin:birth", "user:graduation"),
+        root.lifeEvents().stream().map(e -> e.type().key().fullName()).toList());
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamEmptyTree(TreeXMLReader.Mode mode) throws IOException {
+    final FamilyTree tree = read(mode, "<FamilyTree version=\"1\" name=\"Tree\"><People/></FamilyTree>");
+    assertTrue(tree.persons().isEmpty());
+    assertTrue(tree.root().isEmpty());
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfPeopleMissing(TreeXMLReader.Mode mode) {
+    assertThrows(IOException.class, () -> read(mode, "<FamilyTree version=\"1\" name=\"Tree\"/>"));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfRootMissing(TreeXMLReader.Mode mode) {
+    assertThrows(IOException.class, () -> read(mode, TREE_XML.replace(" root=\"1\"", "")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfUnsupportedVersion(TreeXMLReader.Mode mode) {
+    assertThrows(IOException.class, () -> read(mode, TREE_XML.replace("version=\"1\" name", "version=\"2\" name")));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamUsesPositionsAsIDsIfMissing(TreeXMLReader.Mode mode) throws IOException {
+    final FamilyTree tree = read(mode, TREE_XML);
+    assertEquals(List.of(0, 1, 2, 3), tree.persons().stream().map(Person::id).toList());
+    assertEquals(1, tree.root().orElseThrow().id());
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamUsesPersistedIDs(TreeXMLReader.Mode mode) throws IOException {
+    final FamilyTree tree = read(mode, """
+        <FamilyTree version="1" name="Tree" root="7">
+          <People>
+            <Person id="2"><LifeStatus ordinal="0"/></Person>
+            <Person id="7">
+              <LifeStatus ordinal="0"/>
+              <Parents><Group ordinal="0"><Parent id="2"/></Group></Parents>
+            </Person>
+          </People>
+        </FamilyTree>
+        """);
+    final Person root = tree.root().orElseThrow();
+    assertEquals(7, root.id());
+    assertEquals(List.of(2), root.parents(ParentalRelationType.BIOLOGICAL_PARENT).stream().map(Person::id).toList());
+    final Person person = new Person();
+    tree.addPerson(person);
+    assertEquals(8, person.id());
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfDuplicatePersonID(TreeXMLReader.Mode mode) {
+    // The second person implicitly gets ID 1
+    assertThrows(IOException.class, () -> read(mode, """
+        <FamilyTree version="1" name="Tree" root="1">
+          <People>
+            <Person id="1"><LifeStatus ordinal="0"/></Person>
+            <Person><LifeStatus ordinal="0"/></Person>
+          </People>
+        </FamilyTree>
+        """));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamAcceptsLargePersonIDs(TreeXMLReader.Mode mode) throws IOException {
+    final FamilyTree tree = read(mode, """
+        <FamilyTree version="1" name="Tree" root="2000000000">
+          <People>
+            <Person id="2000000000"><LifeStatus ordinal="0"/></Person>
+          </People>
+        </FamilyTree>
+        """);
+    assertEquals(2000000000, tree.root().orElseThrow().id());
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfUndefinedPersonID(TreeXMLReader.Mode mode) {
+    assertThrows(IOException.class, () -> read(mode, TREE_XML.replace("<Parent id=\"3\"/>", "<Parent id=\"4\"/>")));
+  }
+
+  @Test
+  void domReaderReportsProgressWithTotals() throws IOException {
+    final List<String> reports = new ArrayList<>();
+    readWithMonitor(TreeXMLReader.Mode.DOM, (phase, done, total) -> reports.add(phase + " " + done + "/" + total));
+    assertEquals(List.of(
+        "REGISTRIES 1/1",
+        "DOCUMENTS 1/2", "DOCUMENTS 2/2",
+        "PERSONS 1/4", "PERSONS 2/4", "PERSONS 3/4", "PERSONS 4/4",
+        "LIFE_EVENTS 1/4", "LIFE_EVENTS 2/4", "LIFE_EVENTS 3/4", "LIFE_EVENTS 4/4"
+    ), reports);
+  }
+
+  @Test
+  void streamingReaderReportsProgressWithoutTotals() throws IOException {
+    final List<String> reports = new ArrayList<>();
+    readWithMonitor(TreeXMLReader.Mode.STREAMING, (phase, done, total) -> reports.add(phase + " " + done + "/" + total));
+    assertEquals(List.of(
+        "REGISTRIES 1/1",
+        "DOCUMENTS 1/-1", "DOCUMENTS 2/-1",
+        "PERSONS 1/-1", "PERSONS 2/-1", "PERSONS 3/-1", "PERSONS 4/-1",
+        "LIFE_EVENTS 1/-1", "LIFE_EVENTS 2/-1", "LIFE_EVENTS 3/-1", "LIFE_EVENTS 4/-1"
+    ), reports);
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void readFromStreamThrowsIfCancelled(TreeXMLReader.Mode mode) {
+    assertThrows(CancellationException.class, () -> readWithMonitor(mode, new ProgressMonitor() {
+      @Override
+      public void onProgress(ProgressMonitor.Phase phase, int done, int total) {
+      }
+
+      @Override
+      public boolean isCancellationRequested() {
+        return true;
+      }
+    }));
+  }
+
+  @Test
+  void streamingReaderThrowsIfLifeEventsBeforePeople() {
+    assertThrows(IOException.class, () -> read(TreeXMLReader.Mode.STREAMING,
+        "<FamilyTree version=\"1\" name=\"Tree\"><LifeEvents/><People/></FamilyTree>"));
+  }
+
+  @Test
+  void streamingReaderIgnoresUnknownTags() throws IOException {
+    final FamilyTree tree = read(TreeXMLReader.Mode.STREAMING,
+        "<FamilyTree version=\"1\" name=\"Tree\"><Unknown><People/></Unknown><People/></FamilyTree>");
+    assertTrue(tree.persons().isEmpty());
+  }
+
+  private static void readWithMonitor(TreeXMLReader.Mode mode, ProgressMonitor monitor) throws IOException {
+    new TreeXMLReader(mode).readFromStream(
+        stream(TREE_XML),
+        (name, description, date) -> new AttachedDocument(Path.of(name), description, date),
+        monitor
+    );
+  }
+
+  static FamilyTree read(TreeXMLReader.Mode mode, String xml) throws IOException {
+    return new TreeXMLReader(mode).readFromStream(
+        stream(xml),
+        (name, description, date) -> new AttachedDocument(Path.of(name), description, date)
+    );
+  }
+
+  /**
+   * Return a description of the given tree that does not depend on the identity of its objects.
+   */
+  static List<String> describe(FamilyTree tree) {
+    final List<String> lines = new ArrayList<>();
+    lines.add("tree " + tree.name() + " root " + tree.root().map(Person::toString).orElse(null));
+    tree.genderRegistry().serializableEntries().forEach(g -> lines.add("gender " + g.key() + " " + g.userDefinedName()));
+    tree.lifeEventTypeRegistry().serializableEntries().forEach(t -> lines.add(
+        "type %s %s %s %d %s".formatted(t.key(), t.userDefinedName(), t.group(), t.minActors(), t.isUnique())));
+    tree.documents().forEach(d -> lines.add(
+        "document %s %s %s".formatted(d.fileName(), d.description(), d.date())));
+    for (final Person p : tree.persons()) {
+      final StringJoiner sj = new StringJoiner(" | ", "person ", "");
+      sj.add(p.toString()).add(p.lifeStatus().toString())
+          .add(p.legalLastName().toString()).add(p.legalFirstNames().toString())
+          .add(p.publicLastName().toString()).add(p.publicFirstNames().toString())
+          .add(p.nicknames().toString())
+          .add(p.assignedGenderAtBirth().map(g -> g.key().fullName()).toString())
+          .add(p.gender().map(g -> g.key().fullName()).toString())
+          .add(p.mainOccupation().toString())
+          .add(p.notes().toString()).add(p.sources().toString())
+          .add(names(p.documents().stream().map(AttachedDocument::fileName)));
+      for (final var type : ParentalRelationType.values())
+        sj.add(type + "=" + names(p.parents(type).stream().map(Person::toString)));
+      sj.add(names(p.lifeEvents().stream().map(e -> e.type().key().fullName())));
+      lines.add(sj.toString());
+    }
+    for (final LifeEvent e : tree.lifeEvents())
+      lines.add("event %s | %s | %s | %s | %s | %s | %s | %s".formatted(
+          e.type().key().fullName(), e.date(), e.place().map(pl -> pl.address() + " " + pl.latLon()).orElse(null),
+          names(e.actors().stream().map(Person::toString)), names(e.witnesses().stream().map(Person::toString)),
+          e.notes(), e.sources(), names(e.documents().stream().map(AttachedDocument::fileName))));
+    lines.sort(null);
+    return lines;
+  }
+
+  private static String names(Stream<String> names) {
+    return names.sorted().toList().toString();
+  }
+
+  private static InputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,147 @@
+package net.darmo_creations.jenealogio2.io;
+
+import net.darmo_creations.jenealogio2.config.*;
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.themes.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeXMLWriterTest {
+  private static FamilyTree tree;
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    Theme.loadThemes();
+    tree = TreeXMLReaderTest.read(TreeXMLReader.Mode.DOM, TreeXMLReaderTest.TREE_XML);
+    // Characters that need escaping
+    final Person person = tree.root().orElseThrow();
+    person.setMainOccupation("A \"B\" <C> & D\tE");
+    person.setNotes("Line 1\nLine 2\r\n <b>&amp;</b> \u0085 𝄞 é");
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void streamingOutputIsIdenticalToDOMOutput(boolean debug) {
+    final Config config = config(debug);
+    assertEquals(
+        write(TreeXMLWriter.Mode.DOM, tree, config),
+        write(TreeXMLWriter.Mode.STREAMING, tree, config)
+    );
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void streamingOutputIsIdenticalToDOMOutputForEmptyTree(boolean debug) {
+    final Config config = config(debug);
+    final FamilyTree emptyTree = new FamilyTree("Empty");
+    assertEquals(
+        write(TreeXMLWriter.Mode.DOM, emptyTree, config),
+        write(TreeXMLWriter.Mode.STREAMING, emptyTree, config)
+    );
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLReader.Mode.class)
+  void roundTrip(TreeXMLReader.Mode mode) throws IOException {
+    final String xml = write(TreeXMLWriter.Mode.STREAMING, tree, config(false));
+    assertEquals(TreeXMLReaderTest.describe(tree), TreeXMLReaderTest.describe(TreeXMLReaderTest.read(mode, xml)));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLWriter.Mode.class)
+  void outputIsStableAcrossRoundTrips(TreeXMLWriter.Mode mode) throws IOException {
+    final Config config = config(true);
+    final String xml = write(mode, tree, config);
+    assertEquals(xml, write(mode, TreeXMLReaderTest.read(TreeXMLReader.Mode.STREAMING, xml), config));
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLWriter.Mode.class)
+  void singleEditProducesSingleLineDiff(TreeXMLWriter.Mode mode) throws IOException {
+    final Config config = config(true);
+    final FamilyTree familyTree = TreeXMLReaderTest.read(TreeXMLReader.Mode.STREAMING, TreeXMLReaderTest.TREE_XML);
+    final List<String> before = write(mode, familyTree, config).lines().toList();
+    familyTree.persons().stream()
+        .filter(p -> p.mainOccupation().isPresent())
+        .findFirst().orElseThrow()
+        .setMainOccupation("Butcher");
+    final List<String> after = write(mode, familyTree, config).lines().toList();
+    assertEquals(before.size(), after.size());
+    final List<Integer> changedLines = IntStream.range(0, before.size())
+        .filter(i -> !before.get(i).equals(after.get(i)))
+        .boxed()
+        .toList();
+    assertEquals(1, changedLines.size());
+    assertTrue(after.get(changedLines.get(0)).contains("Butcher"));
+  }
+
+  @Test
+  void personsAreWrittenWithTheirIDs() throws IOException {
+    final String xml = write(TreeXMLWriter.Mode.STREAMING, tree, config(false));
+    final FamilyTree readTree = TreeXMLReaderTest.read(TreeXMLReader.Mode.DOM, xml);
+    assertEquals(
+        tree.persons().stream().map(p -> p.id() + " " + p).sorted().toList(),
+        readTree.persons().stream().map(p -> p.id() + " " + p).sorted().toList()
+    );
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLWriter.Mode.class)
+  void writeToStreamReportsProgress(TreeXMLWriter.Mode mode) {
+    final List<String> reports = new ArrayList<>();
+    new TreeXMLWriter(mode).writeToStream(tree, new ByteArrayOutputStream(), config(false),
+        (phase, done, total) -> reports.add(phase + " " + done + "/" + total));
+    assertEquals(List.of(
+        "REGISTRIES 1/1",
+        "DOCUMENTS 1/2", "DOCUMENTS 2/2",
+        "PERSONS 1/4", "PERSONS 2/4", "PERSONS 3/4", "PERSONS 4/4",
+        "LIFE_EVENTS 1/4", "LIFE_EVENTS 2/4", "LIFE_EVENTS 3/4", "LIFE_EVENTS 4/4"
+    ), reports);
+  }
+
+  @ParameterizedTest
+  @EnumSource(TreeXMLWriter.Mode.class)
+  void writeToStreamThrowsIfCancelled(TreeXMLWriter.Mode mode) {
+    final ProgressMonitor monitor = new ProgressMonitor() {
+      private boolean cancelled;
+
+      @Override
+      public void onProgress(ProgressMonitor.Phase phase, int done, int total) {
+        this.cancelled = phase == ProgressMonitor.Phase.PERSONS;
+      }
+
+      @Override
+      public boolean isCancellationRequested() {
+        return this.cancelled;
+      }
+    };
+    assertThrows(CancellationException.class,
+        () -> new TreeXMLWriter(mode).writeToStream(tree, new ByteArrayOutputStream(), config(false), monitor));
+  }
+
+  private static String write(TreeXMLWriter.Mode mode, FamilyTree familyTree, Config config) {
+    final var out = new ByteArrayOutputStream();
+    new TreeXMLWriter(mode).writeToStream(familyTree, out, config);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  static Config config(boolean debug) {
+    final var language = new Language("en", "English", Locale.ENGLISH, new ListResourceBundle() {
+      @Override
+      protected Object[][] getContents() {
+        return new Object[0][];
+      }
+    });
+    return new Config(language, Theme.getTheme(Theme.DEFAULT_THEME_ID).orElseThrow(), false, 4,
+        DateFormat.values()[0], TimeFormat.values()[0], false, false, false, debug);
+  }
+}
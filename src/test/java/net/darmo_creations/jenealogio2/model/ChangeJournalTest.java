@@ -0,0 +1,371 @@
+package net.darmo_creations.jenealogio2.model;
+
+import net.darmo_creations.jenealogio2.io.file_ops.*;
+import net.darmo_creations.jenealogio2.model.datetime.*;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.Calendar;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeJournalTest {
+  private static LifeEventTypeRegistry typeReg;
+  private FamilyTree tree;
+  private ChangeJournal journal;
+  private Person root;
+
+  @BeforeAll
+  static void setUpClass() {
+    typeReg = new LifeEventTypeRegistry();
+  }
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    this.journal = this.tree.journal();
+    this.root = new Person();
+    this.tree.addPerson(this.root);
+  }
+
+  @Test
+  void changesOutsideStepsAreNotRecorded() {
+    assertFalse(this.journal.canUndo());
+    assertEquals(0, this.journal.deltasCount());
+  }
+
+  @Test
+  void undoRedoNames() {
+    this.root.setLegalLastName("Dupont");
+    this.journal.runAsStep(() -> this.root.setLegalLastName("Durand"));
+    assertTrue(this.journal.canUndo());
+    this.journal.undo();
+    assertEquals(Optional.of("Dupont"), this.root.legalLastName());
+    assertEquals(Set.of(this.root), this.tree.searchPersons("dupont"));
+    assertFalse(this.journal.canUndo());
+    assertTrue(this.journal.canRedo());
+    this.journal.redo();
+    assertEquals(Optional.of("Durand"), this.root.legalLastName());
+    assertEquals(Set.of(this.root), this.tree.searchPersons("durand"));
+    assertTrue(this.journal.canUndo());
+    assertFalse(this.journal.canRedo());
+  }
+
+  @Test
+  void undoNotes() {
+    this.journal.runAsStep(() -> this.root.setNotes("notes"));
+    this.journal.undo();
+    assertTrue(this.root.notes().isEmpty());
+  }
+
+  @Test
+  void stepIsUndoneAsAWhole() {
+    this.journal.runAsStep(() -> {
+      this.root.setLegalLastName("Dupont");
+      this.root.setMainOccupation("Baker");
+    });
+    this.journal.undo();
+    assertTrue(this.root.legalLastName().isEmpty());
+    assertTrue(this.root.mainOccupation().isEmpty());
+  }
+
+  @Test
+  void nestedStepsAreMerged() {
+    this.journal.runAsStep(() -> {
+      this.root.setLegalLastName("Dupont");
+      this.journal.runAsStep(() -> this.root.setMainOccupation("Baker"));
+    });
+    this.journal.undo();
+    assertFalse(this.journal.canUndo());
+    assertTrue(this.root.legalLastName().isEmpty());
+    assertTrue(this.root.mainOccupation().isEmpty());
+  }
+
+  @Test
+  void emptyStepIsDiscarded() {
+    this.journal.runAsStep(() -> {
+    });
+    assertFalse(this.journal.canUndo());
+  }
+
+  @Test
+  void newStepDiscardsRedoableSteps() {
+    this.journal.runAsStep(() -> this.root.setLegalLastName("Dupont"));
+    this.journal.undo();
+    this.journal.runAsStep(() -> this.root.setMainOccupation("Baker"));
+    assertFalse(this.journal.canRedo());
+  }
+
+  @Test
+  void changeOutsideStepClearsJournal() {
+    this.journal.runAsStep(() -> this.root.setLegalLastName("Dupont"));
+    this.root.setMainOccupation("Baker");
+    assertFalse(this.journal.canUndo());
+  }
+
+  @Test
+  void undoWhileInStepThrowsError() {
+    this.journal.runAsStep(() -> this.root.setLegalLastName("Dupont"));
+    this.journal.beginStep();
+    assertThrows(IllegalStateException.class, () -> this.journal.undo());
+  }
+
+  @Test
+  void undoWithoutStepThrowsError() {
+    assertThrows(IllegalStateException.class, () -> this.journal.undo());
+    assertThrows(IllegalStateException.class, () -> this.journal.redo());
+  }
+
+  @Test
+  void endStepWithoutBeginThrowsError() {
+    assertThrows(IllegalStateException.class, () -> this.journal.endStep());
+  }
+
+  @Test
+  void undoAddPerson() {
+    final Person p = new Person();
+    this.journal.runAsStep(() -> this.tree.addPerson(p));
+    this.journal.undo();
+    assertEquals(Set.of(this.root), this.tree.persons());
+    assertEquals(Set.of(this.root), this.tree.searchPersons(""));
+    this.journal.redo();
+    assertEquals(Set.of(this.root, p), this.tree.persons());
+    assertEquals(1, p.id());
+  }
+
+  @Test
+  void undoAddFirstPersonResetsRoot() {
+    final FamilyTree tree = new FamilyTree("tree");
+    final Person p = new Person();
+    tree.journal().runAsStep(() -> tree.addPerson(p));
+    tree.journal().undo();
+    assertTrue(tree.persons().isEmpty());
+    assertTrue(tree.root().isEmpty());
+    tree.journal().redo();
+    assertTrue(tree.isRoot(p));
+  }
+
+  @Test
+  void undoSetRoot() {
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    this.journal.runAsStep(() -> this.tree.setRoot(p));
+    this.journal.undo();
+    assertTrue(this.tree.isRoot(this.root));
+  }
+
+  @Test
+  void undoAddParent() {
+    final Person child = new Person();
+    this.tree.addPerson(child);
+    this.journal.runAsStep(() -> child.addParent(this.root, ParentalRelationType.BIOLOGICAL_PARENT));
+    this.journal.undo();
+    assertFalse(child.hasAnyParents());
+    assertTrue(this.root.children(ParentalRelationType.BIOLOGICAL_PARENT).isEmpty());
+    this.journal.redo();
+    assertEquals(Set.of(this.root), child.parents(ParentalRelationType.BIOLOGICAL_PARENT));
+  }
+
+  @Test
+  void undoSetLifeEventActorsOfNewEvent() {
+    final LifeEvent event = this.birthEvent();
+    this.journal.runAsStep(() -> this.tree.setLifeEventActors(event, Set.of(this.root)));
+    this.journal.undo();
+    assertTrue(this.tree.lifeEvents().isEmpty());
+    assertTrue(this.root.lifeEvents().isEmpty());
+    assertTrue(event.actors().isEmpty());
+    this.journal.redo();
+    assertEquals(Set.of(event), this.tree.lifeEvents());
+    assertEquals(List.of(event), this.root.lifeEvents());
+    assertEquals(Set.of(this.root), event.actors());
+  }
+
+  @Test
+  void undoSetPlace() {
+    final LifeEvent event = this.birthEvent();
+    this.tree.setLifeEventActors(event, Set.of(this.root));
+    final Place place = new Place("Paris", null);
+    this.journal.runAsStep(() -> event.setPlace(place));
+    this.journal.undo();
+    assertTrue(event.place().isEmpty());
+    assertTrue(this.tree.searchPlaces("paris").isEmpty());
+    this.journal.redo();
+    assertEquals(Set.of(place), this.tree.searchPlaces("paris"));
+  }
+
+  @Test
+  void undoRemovePerson() {
+    final Person child = new Person();
+    this.tree.addPerson(child);
+    child.setLegalLastName("Dupont");
+    child.addParent(this.root, ParentalRelationType.BIOLOGICAL_PARENT);
+    final LifeEvent event = this.birthEvent();
+    this.tree.setLifeEventActors(event, Set.of(child));
+    this.tree.addWitnessToLifeEvent(event, this.root);
+    this.journal.runAsStep(() -> this.tree.removePerson(child));
+    this.journal.undo();
+    assertEquals(Set.of(this.root, child), this.tree.persons());
+    assertEquals(Set.of(child), this.tree.searchPersons("dupont"));
+    assertEquals(Set.of(this.root), child.parents(ParentalRelationType.BIOLOGICAL_PARENT));
+    assertEquals(Set.of(child), this.root.children(ParentalRelationType.BIOLOGICAL_PARENT));
+    assertEquals(Set.of(event), this.tree.lifeEvents());
+    assertEquals(List.of(event), child.lifeEvents());
+    assertEquals(List.of(event), this.root.lifeEvents());
+    assertEquals(Set.of(child), event.actors());
+    assertEquals(Set.of(this.root), event.witnesses());
+    this.journal.redo();
+    assertEquals(Set.of(this.root), this.tree.persons());
+    assertTrue(this.root.lifeEvents().isEmpty());
+    assertTrue(this.tree.lifeEvents().isEmpty());
+  }
+
+  @Test
+  void undoRemoveActorFromLifeEvent() {
+    final LifeEvent event = this.birthEvent();
+    this.tree.setLifeEventActors(event, Set.of(this.root));
+    this.journal.runAsStep(() -> this.tree.removeActorFromLifeEvent(event, this.root));
+    assertTrue(this.root.lifeEvents().isEmpty());
+    this.journal.undo();
+    assertEquals(Set.of(event), this.tree.lifeEvents());
+    assertEquals(List.of(event), this.root.lifeEvents());
+  }
+
+  @Test
+  void undoAddDocumentDiscardsPendingImport() {
+    final AttachedDocument doc = new AttachedDocument(Path.of("doc.pdf"), null, null);
+    this.journal.runAsStep(() -> this.tree.addDocument(doc));
+    this.journal.undo();
+    assertTrue(this.tree.getDocument("doc.pdf").isEmpty());
+    assertTrue(this.tree.pendingFileOperations().isEmpty());
+    this.journal.redo();
+    assertTrue(this.tree.getDocument("doc.pdf").isPresent());
+    assertEquals(1, this.tree.pendingFileOperations().size());
+  }
+
+  @Test
+  void undoAddDocumentAfterSaveDeletesFile() {
+    final AttachedDocument doc = new AttachedDocument(Path.of("doc.pdf"), null, null);
+    this.journal.runAsStep(() -> this.tree.addDocument(doc));
+    this.tree.clearPendingFileOperations();
+    this.journal.undo();
+    assertTrue(this.tree.getDocument("doc.pdf").isEmpty());
+    assertEquals(1, this.tree.pendingFileOperations().size());
+    assertTrue(this.tree.pendingFileOperations().get(0) instanceof DeleteFileOperation);
+  }
+
+  @Test
+  void undoRenameDocumentAfterSaveRenamesFileBack() {
+    final AttachedDocument doc = new AttachedDocument(Path.of("doc.pdf"), null, null);
+    this.tree.addDocument(doc);
+    this.tree.addDocumentToObject("doc.pdf", this.root);
+    this.journal.runAsStep(() -> this.tree.renameDocument("doc.pdf", "doc2"));
+    this.tree.clearPendingFileOperations();
+    this.journal.undo();
+    assertEquals("doc.pdf", doc.fileName());
+    assertSame(doc, this.tree.getDocument("doc.pdf").orElseThrow());
+    assertTrue(this.tree.getDocument("doc2.pdf").isEmpty());
+    final var operation = (RenameFileOperation) this.tree.pendingFileOperations().get(0);
+    assertEquals("doc2.pdf", operation.fileName());
+    assertEquals("doc.pdf", operation.newFileName());
+  }
+
+  @Test
+  void undoRemoveDocument() {
+    final Picture picture = new Picture(Path.of("app_icon.png"), null, null);
+    this.tree.addDocument(picture);
+    this.tree.addDocumentToObject("app_icon.png", this.root);
+    this.tree.setMainPictureOfObject("app_icon.png", this.root);
+    this.tree.clearPendingFileOperations();
+    this.journal.runAsStep(() -> this.tree.removeDocument("app_icon.png"));
+    this.journal.undo();
+    assertSame(picture, this.tree.getDocument("app_icon.png").orElseThrow());
+    assertTrue(this.root.documents().contains(picture));
+    assertSame(picture, this.root.mainPicture().orElseThrow());
+    assertTrue(this.tree.pendingFileOperations().isEmpty());
+  }
+
+  @Test
+  void performedDeletionClearsJournal() {
+    final AttachedDocument doc = new AttachedDocument(Path.of("doc.pdf"), null, null);
+    this.tree.addDocument(doc);
+    this.journal.runAsStep(() -> this.tree.removeDocument("doc.pdf"));
+    this.tree.clearPendingFileOperations();
+    assertFalse(this.journal.canUndo());
+  }
+
+  @Test
+  void oldestStepsAreDiscarded() {
+    final ChangeJournal journal = new ChangeJournal(2, 100);
+    final List<Integer> undone = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final int n = i;
+      journal.runAsStep(() -> journal.record(() -> undone.add(n)));
+    }
+    journal.undo();
+    journal.undo();
+    assertFalse(journal.canUndo());
+    assertEquals(List.of(2, 1), undone);
+  }
+
+  @Test
+  void deltasCountIsBounded() {
+    final ChangeJournal journal = new ChangeJournal(10, 3);
+    journal.runAsStep(() -> {
+      journal.record(() -> {
+      });
+      journal.record(() -> {
+      });
+    });
+    journal.runAsStep(() -> {
+      journal.record(() -> {
+      });
+      journal.record(() -> {
+      });
+    });
+    assertEquals(2, journal.deltasCount());
+    journal.undo();
+    assertFalse(journal.canUndo());
+  }
+
+  @Test
+  void tooLargeStepClearsJournal() {
+    final ChangeJournal journal = new ChangeJournal(10, 2);
+    journal.runAsStep(() -> journal.record(() -> {
+    }));
+    journal.runAsStep(() -> {
+      for (int i = 0; i < 3; i++)
+        journal.record(() -> {
+        });
+    });
+    assertFalse(journal.canUndo());
+    assertEquals(0, journal.deltasCount());
+  }
+
+  @Test
+  void failedUndoClearsJournal() {
+    final ChangeJournal journal = new ChangeJournal();
+    journal.runAsStep(() -> journal.record(() -> {
+    }));
+    journal.runAsStep(() -> journal.record(() -> {
+      throw new IllegalStateException();
+    }));
+    assertThrows(IllegalStateException.class, journal::undo);
+    assertFalse(journal.canUndo());
+    assertFalse(journal.canRedo());
+  }
+
+  @Test
+  void constructorInvalidBoundsThrowsError() {
+    assertThrows(IllegalArgumentException.class, () -> new ChangeJournal(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ChangeJournal(1, 0));
+  }
+
+  private LifeEvent birthEvent() {
+    return new LifeEvent(
+        new DateTimeWithPrecision(Calendar.forName("gregorian").getDate(null, 1970, 1, 1, 1, 0), DateTimePrecision.EXACT),
+        typeReg.getEntry(new RegistryEntryKey("builtin:birth"))
+    );
+  }
+}
@@ -7,7 +7,6 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.*;
 import org.junit.jupiter.params.provider.*;
 
-import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.stream.*;
@@ -16,7 +15,6 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @SuppressWarnings("DataFlowIssue")
 class FamilyTreeTest {
-  private static final String IMG_PATH = "/net/darmo_creations/jenealogio2/images/app_icon.png";
   private static LifeEventTypeRegistry typeReg;
   private FamilyTree tree;
 
@@ -41,6 +39,14 @@ class FamilyTreeTest {
     assertEquals("TREE", this.tree.name());
   }
 
+  @Test
+  void setNameMarksGlobalDataModified() {
+    this.tree.setName("tree");
+    assertFalse(this.tree.isGlobalDataModified());
+    this.tree.setName("TREE");
+    assertTrue(this.tree.isGlobalDataModified());
+  }
+
   @Test
   void setNameNullError() {
     assertThrows(NullPointerException.class, () -> this.tree.setName(null));
@@ -58,6 +64,29 @@ class FamilyTreeTest {
     assertEquals(2, this.tree.persons().size());
   }
 
+  @Test
+  void getPersonsIsLiveView() {
+    final Set<Person> persons = this.tree.persons();
+    final Person person = new Person();
+    this.tree.addPerson(person);
+    assertSame(persons, this.tree.persons());
+    assertEquals(Set.of(person), persons);
+    assertEquals(1, this.tree.personCount());
+    assertThrows(UnsupportedOperationException.class, () -> persons.remove(person));
+    assertThrows(UnsupportedOperationException.class, () -> persons.iterator().remove());
+  }
+
+  @Test
+  void getLifeEventsIsLiveView() {
+    final Set<LifeEvent> lifeEvents = this.tree.lifeEvents();
+    final LifeEvent event = new LifeEvent(new DateTimeWithPrecision(Calendar.forName("gregorian").getDate(null, 1970, 1, 1, 1, 0), DateTimePrecision.EXACT), typeReg.getEntry(new RegistryEntryKey("builtin:birth")));
+    this.tree.setLifeEventActors(event, Set.of(new Person()));
+    assertSame(lifeEvents, this.tree.lifeEvents());
+    assertEquals(Set.of(event), lifeEvents);
+    assertEquals(1, this.tree.lifeEventCount());
+    assertThrows(UnsupportedOperationException.class, lifeEvents::clear);
+  }
+
   @Test
   void getLifeEventsEmpty() {
     assertTrue(this.tree.lifeEvents().isEmpty());
@@ -124,6 +153,90 @@ class FamilyTreeTest {
     assertSame(this.tree, this.tree.root().orElseThrow().familyTree());
   }
 
+  @Test
+  void addPersonGivesIncreasingIDs() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    assertEquals(0, p1.id());
+    assertEquals(1, p2.id());
+  }
+
+  @Test
+  void addPersonWithUsedIDError() {
+    this.tree.addPerson(new Person(), 3);
+    assertThrows(IllegalArgumentException.class, () -> this.tree.addPerson(new Person(), 3));
+    assertEquals(1, this.tree.persons().size());
+  }
+
+  @Test
+  void setNextPersonID() {
+    this.tree.setNextPersonID(5);
+    final Person person = new Person();
+    this.tree.addPerson(person);
+    assertEquals(5, person.id());
+  }
+
+  @Test
+  void setNextPersonIDIgnoresUsedIDs() {
+    this.tree.addPerson(new Person(), 3);
+    this.tree.setNextPersonID(2);
+    assertEquals(4, this.tree.nextPersonID());
+  }
+
+  @Test
+  void setNextPersonIDNegativeError() {
+    assertThrows(IllegalArgumentException.class, () -> this.tree.setNextPersonID(-1));
+  }
+
+  @Test
+  void addPersonNeverReusesIDs() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    this.tree.removePerson(p2);
+    final Person p3 = new Person();
+    this.tree.addPerson(p3);
+    assertEquals(2, p3.id());
+  }
+
+  @Test
+  void addPersonKeepsExistingID() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    this.tree.removePerson(p2);
+    this.tree.addPerson(p2);
+    assertEquals(1, p2.id());
+  }
+
+  @Test
+  void addPersonWithIDUpdatesNextID() {
+    this.tree.addPerson(new Person(), 5);
+    final Person person = new Person();
+    this.tree.addPerson(person);
+    assertEquals(6, person.id());
+  }
+
+  @Test
+  void addPersonWithNegativeIDThrows() {
+    assertThrows(IllegalArgumentException.class, () -> this.tree.addPerson(new Person(), -1));
+  }
+
+  @Test
+  void personsAreInInsertionOrder() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    final Person p3 = new Person();
+    this.tree.addPerson(p2, 1);
+    this.tree.addPerson(p1, 0);
+    this.tree.addPerson(p3);
+    assertEquals(List.of(p2, p1, p3), new ArrayList<>(this.tree.persons()));
+  }
+
   @Test
   void removePerson() {
     final Person p1 = new Person();
@@ -236,6 +349,22 @@ class FamilyTreeTest {
     assertNotSame(p, l.actors().iterator().next());
   }
 
+  @Test
+  void lifeEventsBulkUpdateSortsEventsAtEnd() {
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    final DateTime date1 = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l1 = new LifeEvent(date1, typeReg.getEntry(new RegistryEntryKey("builtin:death")));
+    final DateTime date2 = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2000, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l2 = new LifeEvent(date2, typeReg.getEntry(new RegistryEntryKey("builtin:birth")));
+    this.tree.beginLifeEventsBulkUpdate();
+    this.tree.setLifeEventActors(l1, Set.of(p));
+    this.tree.setLifeEventActors(l2, Set.of(p));
+    this.tree.endLifeEventsBulkUpdate();
+    assertEquals(List.of(l2, l1), p.lifeEvents());
+    assertEquals(date2, p.getBirthDate().orElseThrow());
+  }
+
   @Test
   void setLifeEventActorsThrowsIfActorIsWitness() {
     final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
@@ -347,37 +476,37 @@ class FamilyTreeTest {
   }
 
   @Test
-  void addDocumentAddsDocumentAndReturnsTrue() throws IOException {
-    final Picture p = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void addDocumentAddsDocumentAndReturnsTrue() {
+    final Picture p = new Picture(Path.of("app_icon.png"), null, null);
     assertTrue(this.tree.addDocument(p));
     assertSame(p, this.tree.documents().iterator().next());
   }
 
   @Test
-  void addDocumentReturnsFalseIfAlreadyAdded() throws IOException {
-    final Picture p = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void addDocumentReturnsFalseIfAlreadyAdded() {
+    final Picture p = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(p);
     assertFalse(this.tree.addDocument(p));
   }
 
   @Test
-  void removeDocumentRemovesFromTree() throws IOException {
-    final Picture p = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void removeDocumentRemovesFromTree() {
+    final Picture p = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(p);
     this.tree.removeDocument(p.fileName());
     assertTrue(this.tree.documents().isEmpty());
   }
 
   @Test
-  void removeDocumentReturnsDocument() throws IOException {
-    final Picture p = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void removeDocumentReturnsDocument() {
+    final Picture p = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(p);
     assertSame(p, this.tree.removeDocument(p.fileName()));
   }
 
   @Test
-  void removeDocumentRemovesFromGenealogyObjects() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void removeDocumentRemovesFromGenealogyObjects() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     p.addDocument(pic);
@@ -392,16 +521,16 @@ class FamilyTreeTest {
   }
 
   @Test
-  void renameDocumentRenamesDocument() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("test.png"), null, null);
+  void renameDocumentRenamesDocument() {
+    final Picture pic = new Picture(Path.of("test.png"), null, null);
     this.tree.addDocument(pic);
     this.tree.renameDocument("test.png", "test1");
     assertEquals("test1.png", pic.fileName());
   }
 
   @Test
-  void renameDocumentRenamesDocumentInTree() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("test.png"), null, null);
+  void renameDocumentRenamesDocumentInTree() {
+    final Picture pic = new Picture(Path.of("test.png"), null, null);
     this.tree.addDocument(pic);
     this.tree.renameDocument("test.png", "test1");
     assertSame(pic, this.tree.getDocument("test1.png").orElseThrow());
@@ -409,31 +538,31 @@ class FamilyTreeTest {
   }
 
   @Test
-  void renameDocumentThrowsIfBothArgsEqual() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void renameDocumentThrowsIfBothArgsEqual() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     assertThrows(IllegalArgumentException.class, () -> this.tree.renameDocument("app_icon.png", "app_icon"));
   }
 
   @Test
-  void renameDocumentThrowsIfOldNameNotRegistered() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("test.png"), null, null);
+  void renameDocumentThrowsIfOldNameNotRegistered() {
+    final Picture pic = new Picture(Path.of("test.png"), null, null);
     this.tree.addDocument(pic);
     assertThrows(IllegalArgumentException.class, () -> this.tree.renameDocument("test1.png", "test2"));
   }
 
   @Test
-  void renameDocumentThrowsIfNewNameAlreadyRegistered() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("test.png"), null, null);
+  void renameDocumentThrowsIfNewNameAlreadyRegistered() {
+    final Picture pic = new Picture(Path.of("test.png"), null, null);
     this.tree.addDocument(pic);
-    final Picture pic1 = new Picture(PictureTest.getImage(IMG_PATH), Path.of("test1.png"), null, null);
+    final Picture pic1 = new Picture(Path.of("test1.png"), null, null);
     this.tree.addDocument(pic1);
     assertThrows(IllegalArgumentException.class, () -> this.tree.renameDocument("test.png", "test1"));
   }
 
   @Test
-  void addDocumentToObjectAddsDocument() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void addDocumentToObjectAddsDocument() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     this.tree.addPerson(p);
@@ -442,8 +571,8 @@ class FamilyTreeTest {
   }
 
   @Test
-  void addDocumentToObjectThrowsIfInvalidName() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void addDocumentToObjectThrowsIfInvalidName() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     this.tree.addPerson(p);
@@ -451,8 +580,8 @@ class FamilyTreeTest {
   }
 
   @Test
-  void removeDocumentFromObjectRemovesDocument() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void removeDocumentFromObjectRemovesDocument() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     this.tree.addPerson(p);
@@ -461,8 +590,8 @@ class FamilyTreeTest {
   }
 
   @Test
-  void setMainPictureOfObjectSetsMainPicture() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void setMainPictureOfObjectSetsMainPicture() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     this.tree.addPerson(p);
@@ -472,8 +601,8 @@ class FamilyTreeTest {
   }
 
   @Test
-  void setMainPictureOfObjectThrowsIfNotAddedToObject() throws IOException {
-    final Picture pic = new Picture(PictureTest.getImage(IMG_PATH), Path.of("app_icon.png"), null, null);
+  void setMainPictureOfObjectThrowsIfNotAddedToObject() {
+    final Picture pic = new Picture(Path.of("app_icon.png"), null, null);
     this.tree.addDocument(pic);
     final Person p = new Person();
     this.tree.addPerson(p);
@@ -504,4 +633,217 @@ class FamilyTreeTest {
     this.tree.addPerson(new Person());
     assertThrows(NoSuchElementException.class, () -> this.tree.setRoot(new Person()));
   }
+
+  @Test
+  void searchPersonsMatchesAllNames() {
+    final Person p = new Person()
+        .setLegalFirstNames(List.of("Jean", "Pierre"))
+        .setLegalLastName("Dupont")
+        .setPublicLastName("Martin")
+        .setNicknames(List.of("Pierrot"));
+    this.tree.addPerson(p);
+    this.tree.addPerson(new Person().setLegalLastName("Durand"));
+    assertEquals(Set.of(p), this.tree.searchPersons("pierr"));
+    assertEquals(Set.of(p), this.tree.searchPersons("MART"));
+    assertEquals(Set.of(p), this.tree.searchPersons("jean pierre dupont"));
+    assertEquals(2, this.tree.searchPersons("du").size());
+  }
+
+  @Test
+  void searchPersonsIgnoresAccents() {
+    final Person p = new Person().setLegalFirstNames(List.of("Hélène"));
+    this.tree.addPerson(p);
+    assertEquals(Set.of(p), this.tree.searchPersons("helene"));
+    assertEquals(Set.of(p), this.tree.searchPersons("HÉLÈ"));
+  }
+
+  @Test
+  void searchPersonsUpdatedOnNameChange() {
+    final Person p = new Person().setLegalLastName("Dupont");
+    this.tree.addPerson(p);
+    p.setLegalLastName("Durand");
+    assertTrue(this.tree.searchPersons("dupont").isEmpty());
+    assertEquals(Set.of(p), this.tree.searchPersons("durand"));
+  }
+
+  @Test
+  void searchPersonsUpdatedOnRemoval() {
+    this.tree.addPerson(new Person());
+    final Person p = new Person().setLegalLastName("Dupont");
+    this.tree.addPerson(p);
+    this.tree.removePerson(p);
+    assertTrue(this.tree.searchPersons("dupont").isEmpty());
+    p.setLegalLastName("Dupond");
+    assertTrue(this.tree.searchPersons("dupond").isEmpty());
+  }
+
+  @Test
+  void searchPlacesFindsPlacesOfEvents() {
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    final LifeEvent event = this.birthEvent().setPlace(new Place("Saint-Étienne, France", null));
+    this.tree.setLifeEventActors(event, Set.of(p));
+    assertEquals(Set.of(new Place("Saint-Étienne, France", null)), this.tree.searchPlaces("etienne"));
+    assertTrue(this.tree.searchPlaces("paris").isEmpty());
+  }
+
+  @Test
+  void searchPlacesUpdatedOnPlaceChange() {
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    final LifeEvent event = this.birthEvent().setPlace(new Place("Lyon", null));
+    this.tree.setLifeEventActors(event, Set.of(p));
+    event.setPlace(new Place("Paris", null));
+    assertTrue(this.tree.searchPlaces("lyon").isEmpty());
+    assertEquals(1, this.tree.searchPlaces("paris").size());
+  }
+
+  @Test
+  void searchPlacesKeepsPlacesUsedByOtherEvents() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    final LifeEvent event1 = this.birthEvent().setPlace(new Place("Lyon", null));
+    final LifeEvent event2 = this.birthEvent().setPlace(new Place("Lyon", null));
+    this.tree.setLifeEventActors(event1, Set.of(p1));
+    this.tree.setLifeEventActors(event2, Set.of(p2));
+    assertEquals(1, this.tree.searchPlaces("lyon").size());
+    this.tree.removePerson(p2);
+    assertEquals(1, this.tree.searchPlaces("lyon").size());
+    event1.setPlace(null);
+    assertTrue(this.tree.searchPlaces("lyon").isEmpty());
+  }
+
+  @Test
+  void listenersNotifiedOfAddedAndRemovedPersons() {
+    final List<FamilyTreeChange> changes = new ArrayList<>();
+    this.tree.addListener(changes::add);
+    final Person root = new Person();
+    final Person p = new Person();
+    this.tree.addPerson(root);
+    this.tree.addPerson(p);
+    this.tree.removePerson(p);
+    assertEquals(List.of(
+        new FamilyTreeChange.PersonAdded(root),
+        new FamilyTreeChange.RootChanged(null, root),
+        new FamilyTreeChange.PersonAdded(p),
+        new FamilyTreeChange.PersonRemoved(p)
+    ), changes);
+  }
+
+  @Test
+  void listenersNotifiedOfPersonChanges() {
+    final Person p = new Person();
+    final Person parent = new Person();
+    this.tree.addPerson(p);
+    this.tree.addPerson(parent);
+    final List<FamilyTreeChange> changes = new ArrayList<>();
+    this.tree.addListener(changes::add);
+    p.setLegalLastName("Dupont");
+    p.setMainOccupation("Baker");
+    p.addParent(parent, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.tree.setRoot(parent);
+    assertEquals(List.of(
+        new FamilyTreeChange.PersonRenamed(p),
+        new FamilyTreeChange.PersonUpdated(p),
+        new FamilyTreeChange.ParentsChanged(p),
+        new FamilyTreeChange.RootChanged(p, parent)
+    ), changes);
+  }
+
+  @Test
+  void listenersNotifiedOfLifeEventChanges() {
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    final List<FamilyTreeChange> changes = new ArrayList<>();
+    this.tree.addListener(changes::add);
+    final LifeEvent event = this.birthEvent();
+    this.tree.setLifeEventActors(event, Set.of(p));
+    assertFalse(changes.isEmpty());
+    assertEquals(Set.of(new FamilyTreeChange.LifeEventChanged(event)), new HashSet<>(changes));
+    changes.clear();
+    event.setPlace(new Place("Paris", null));
+    assertEquals(List.of(new FamilyTreeChange.LifeEventChanged(event)), changes);
+  }
+
+  @Test
+  void listenersNotNotifiedOfRemovedObjectsChanges() {
+    this.tree.addPerson(new Person());
+    final Person p = new Person();
+    this.tree.addPerson(p);
+    this.tree.removePerson(p);
+    final List<FamilyTreeChange> changes = new ArrayList<>();
+    this.tree.addListener(changes::add);
+    p.setLegalLastName("Dupont");
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  void removedListenerNotNotified() {
+    final List<FamilyTreeChange> changes = new ArrayList<>();
+    final FamilyTreeListener listener = changes::add;
+    this.tree.addListener(listener);
+    this.tree.removeListener(listener);
+    this.tree.addPerson(new Person());
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  void modifiedPersonsIncludesChangedAndRemovedPersons() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    final Person p3 = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    this.tree.addPerson(p3);
+    assertEquals(Set.of(p1, p2, p3), this.tree.modifiedPersons());
+    this.tree.clearModifications();
+    p1.setNotes("notes");
+    p2.addParent(p3, ParentalRelationType.BIOLOGICAL_PARENT);
+    assertEquals(Set.of(p1, p2), this.tree.modifiedPersons());
+    this.tree.clearModifications();
+    this.tree.removePerson(p3);
+    // p2’s parents changed
+    assertEquals(Set.of(p2, p3), this.tree.modifiedPersons());
+  }
+
+  @Test
+  void modifiedPersonsIncludesParticipantsOfChangedLifeEvents() {
+    final Person p1 = new Person();
+    final Person p2 = new Person();
+    final Person witness = new Person();
+    this.tree.addPerson(p1);
+    this.tree.addPerson(p2);
+    this.tree.addPerson(witness);
+    final LifeEvent event = this.birthEvent();
+    this.tree.setLifeEventActors(event, Set.of(p1));
+    this.tree.addWitnessToLifeEvent(event, witness);
+    this.tree.clearModifications();
+    event.setSources("sources");
+    assertEquals(Set.of(p1, witness), this.tree.modifiedPersons());
+    this.tree.clearModifications();
+    event.setActors(Set.of(p2));
+    // p1 no longer acts in the event
+    assertEquals(Set.of(p1, p2, witness), this.tree.modifiedPersons());
+    assertFalse(this.tree.isGlobalDataModified());
+  }
+
+  @Test
+  void globalDataModifiedByDocuments() {
+    this.tree.addDocument(new AttachedDocument(Path.of("file.txt"), null, null));
+    assertTrue(this.tree.isGlobalDataModified());
+    assertTrue(this.tree.modifiedPersons().isEmpty());
+    this.tree.clearModifications();
+    assertFalse(this.tree.isGlobalDataModified());
+    this.tree.markGlobalDataModified();
+    assertTrue(this.tree.isGlobalDataModified());
+  }
+
+  private LifeEvent birthEvent() {
+    return new LifeEvent(
+        new DateTimeWithPrecision(Calendar.forName("gregorian").getDate(null, 1970, 1, 1, 1, 0), DateTimePrecision.EXACT),
+        typeReg.getEntry(new RegistryEntryKey("builtin:birth"))
+    );
+  }
 }
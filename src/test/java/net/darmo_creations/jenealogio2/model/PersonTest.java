@@ -594,6 +594,46 @@ class PersonTest {
     assertEquals(date, this.person.getDeathDate().orElseThrow());
   }
 
+  @Test
+  void getBirthDateUpdatedAfterEventDateChange() {
+    final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l = new LifeEvent(date, new LifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:birth")));
+    l.setActors(Set.of(this.person));
+    this.person.getBirthDate();
+    final DateTime date2 = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2025, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    l.setDate(date2);
+    assertEquals(date2, this.person.getBirthDate().orElseThrow());
+  }
+
+  @Test
+  void getBirthDateUpdatedAfterEventTypeChange() {
+    final LifeEventTypeRegistry registry = new LifeEventTypeRegistry();
+    final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l = new LifeEvent(date, registry.getEntry(new RegistryEntryKey("builtin:diploma")));
+    l.setActors(Set.of(this.person));
+    assertTrue(this.person.getBirthDate().isEmpty());
+    l.setType(registry.getEntry(new RegistryEntryKey("builtin:birth")));
+    assertEquals(date, this.person.getBirthDate().orElseThrow());
+  }
+
+  @Test
+  void getBirthDateEmptyAfterEventRemoval() {
+    final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l = new LifeEvent(date, new LifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:birth")));
+    this.person.familyTree().setLifeEventActors(l, Set.of(this.person));
+    assertTrue(this.person.getBirthDate().isPresent());
+    this.person.familyTree().removeActorFromLifeEvent(l, this.person);
+    assertTrue(this.person.getBirthDate().isEmpty());
+  }
+
+  @Test
+  void getDeathDateIgnoresWitnessedDeath() {
+    final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l = new LifeEvent(date, new LifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:death")));
+    l.addWitness(this.person);
+    assertTrue(this.person.getDeathDate().isEmpty());
+  }
+
   @Test
   void lifeEventsAreSortedByDates() {
     final DateTime date2 = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2084, 1, 1, 0, 0), DateTimePrecision.EXACT);
@@ -605,6 +645,18 @@ class PersonTest {
     assertEquals(List.of(l, l2), this.person.lifeEvents());
   }
 
+  @Test
+  void lifeEventsAreResortedAfterDateChange() {
+    final DateTime date2 = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2084, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l2 = new LifeEvent(date2, new LifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:death")));
+    l2.setActors(Set.of(this.person));
+    final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
+    final LifeEvent l = new LifeEvent(date, new LifeEventTypeRegistry().getEntry(new RegistryEntryKey("builtin:diploma")));
+    l.addWitness(this.person);
+    l.setDate(new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2100, 1, 1, 0, 0), DateTimePrecision.EXACT));
+    assertEquals(List.of(l2, l), this.person.lifeEvents());
+  }
+
   @Test
   void getLifeEventsAsActor() {
     final DateTime date = new DateTimeWithPrecision(Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, 2024, 1, 1, 0, 0), DateTimePrecision.EXACT);
@@ -0,0 +1,26 @@
+package net.darmo_creations.jenealogio2.model;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * This class provides methods to build family trees in tests.
+ */
+public final class PersonTestUtils {
+  /**
+   * Create a person, add it to the given tree and make it the biological child of the given parents.
+   *
+   * @param tree    The tree to add the person to.
+   * @param parents The person’s parents.
+   * @return The new person.
+   */
+  public static Person newPerson(@NotNull FamilyTree tree, final @NotNull Person... parents) {
+    final Person person = new Person();
+    tree.addPerson(person);
+    for (final Person parent : parents)
+      person.addParent(parent, ParentalRelationType.BIOLOGICAL_PARENT);
+    return person;
+  }
+
+  private PersonTestUtils() {
+  }
+}
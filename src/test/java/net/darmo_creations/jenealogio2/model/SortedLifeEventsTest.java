@@ -0,0 +1,103 @@
+package net.darmo_creations.jenealogio2.model;
+
+import net.darmo_creations.jenealogio2.model.datetime.*;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedLifeEventsTest {
+  private static final LifeEventTypeRegistry TYPE_REG = new LifeEventTypeRegistry();
+
+  private SortedLifeEvents events;
+
+  @BeforeEach
+  void setUp() {
+    this.events = new SortedLifeEvents();
+  }
+
+  @Test
+  void addKeepsEventsSorted() {
+    final LifeEvent l1 = event(2000);
+    final LifeEvent l2 = event(1990);
+    final LifeEvent l3 = event(1995);
+    this.events.add(l1);
+    this.events.add(l2);
+    this.events.add(l3);
+    assertEquals(List.of(l2, l3, l1), this.events.view());
+  }
+
+  @Test
+  void addKeepsInsertionOrderForEqualDates() {
+    final LifeEvent l1 = event(2000);
+    final LifeEvent l2 = event(2000);
+    this.events.add(l1);
+    this.events.add(l2);
+    assertEquals(List.of(l1, l2), this.events.view());
+  }
+
+  @Test
+  void addReturnsFalseIfAlreadyPresent() {
+    final LifeEvent l = event(2000);
+    assertTrue(this.events.add(l));
+    assertFalse(this.events.add(l));
+    assertEquals(1, this.events.view().size());
+  }
+
+  @Test
+  void remove() {
+    final LifeEvent l1 = event(2000);
+    final LifeEvent l2 = event(2000);
+    this.events.add(l1);
+    this.events.add(l2);
+    assertTrue(this.events.remove(l2));
+    assertFalse(this.events.contains(l2));
+    assertEquals(List.of(l1), this.events.view());
+  }
+
+  @Test
+  void removeReturnsFalseIfAbsent() {
+    assertFalse(this.events.remove(event(2000)));
+  }
+
+  @Test
+  void repositionMovesEvent() {
+    final LifeEvent l1 = event(1990);
+    final LifeEvent l2 = event(2000);
+    this.events.add(l1);
+    this.events.add(l2);
+    l1.setDate(date(2010));
+    this.events.reposition(l1);
+    assertEquals(List.of(l2, l1), this.events.view());
+  }
+
+  @Test
+  void deferredSortingSortsOnlyWhenDisabled() {
+    final LifeEvent l1 = event(2000);
+    final LifeEvent l2 = event(1990);
+    this.events.setDeferSorting(true);
+    this.events.add(l1);
+    this.events.add(l2);
+    assertEquals(List.of(l1, l2), this.events.view());
+    assertTrue(this.events.setDeferSorting(false));
+    assertEquals(List.of(l2, l1), this.events.view());
+  }
+
+  @Test
+  void disablingDeferredSortingReturnsFalseIfAlreadySorted() {
+    this.events.setDeferSorting(true);
+    this.events.add(event(1990));
+    this.events.add(event(2000));
+    assertFalse(this.events.setDeferSorting(false));
+  }
+
+  private static LifeEvent event(int year) {
+    return new LifeEvent(date(year), TYPE_REG.getEntry(new RegistryEntryKey("builtin:diploma")));
+  }
+
+  private static DateTime date(int year) {
+    return new DateTimeWithPrecision(Calendars.GREGORIAN.getDate(null, year, 1, 1, null, null), DateTimePrecision.EXACT);
+  }
+}
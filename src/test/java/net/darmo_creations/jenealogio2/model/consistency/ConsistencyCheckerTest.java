@@ -0,0 +1,234 @@
+package net.darmo_creations.jenealogio2.model.consistency;
+
+import net.darmo_creations.jenealogio2.model.*;
+import net.darmo_creations.jenealogio2.model.datetime.*;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.Calendar;
+import net.darmo_creations.jenealogio2.model.datetime.calendar.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistencyCheckerTest {
+  private FamilyTree tree;
+  private LifeEventType birth, death, test;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    final LifeEventTypeRegistry registry = this.tree.lifeEventTypeRegistry();
+    this.birth = registry.getEntry(new RegistryEntryKey("builtin:birth"));
+    this.death = registry.getEntry(new RegistryEntryKey("builtin:death"));
+    registry.registerEntry(new RegistryEntryKey("user:test"), "Test",
+        new LifeEventTypeRegistry.RegistryArgs(LifeEventType.Group.ADMIN, false, false, 1, 2, false));
+    this.test = registry.getEntry(new RegistryEntryKey("user:test"));
+  }
+
+  private static DateTime date(int year, DateTimePrecision precision) {
+    return new DateTimeWithPrecision(
+        Calendar.forName(GregorianCalendarSystem.NAME).getDate(null, year, 1, 1, 0, 0), precision);
+  }
+
+  private Person newPerson(Integer birthYear, final Person... parents) {
+    final Person person = PersonTestUtils.newPerson(this.tree, parents);
+    if (birthYear != null)
+      this.newEvent(this.birth, birthYear, person);
+    return person;
+  }
+
+  private LifeEvent newEvent(LifeEventType type, int year, final Person... actors) {
+    final LifeEvent lifeEvent = new LifeEvent(date(year, DateTimePrecision.EXACT), type);
+    this.tree.setLifeEventActors(lifeEvent, Set.of(actors));
+    return lifeEvent;
+  }
+
+  private List<String> check() {
+    return this.tree.consistencyChecker().check().stream().map(Finding::ruleKey).toList();
+  }
+
+  @Test
+  void consistentTreeHasNoFindings() {
+    final Person parent = this.newPerson(1950);
+    this.newPerson(1980, parent);
+    this.newEvent(this.death, 2020, parent);
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void deathBeforeBirth() {
+    final Person person = this.newPerson(2000);
+    this.newEvent(this.death, 1990, person);
+    final List<Finding> findings = this.tree.consistencyChecker().check();
+    assertEquals(1, findings.size());
+    assertEquals("death_before_birth", findings.get(0).ruleKey());
+    assertSame(person, findings.get(0).person());
+  }
+
+  @Test
+  void approximateDatesAreNotReported() {
+    final Person person = this.newPerson(2000);
+    final LifeEvent lifeEvent = new LifeEvent(date(1990, DateTimePrecision.ABOUT), this.death);
+    this.tree.setLifeEventActors(lifeEvent, Set.of(person));
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void beforeDatesAreBounded() {
+    final Person person = this.newPerson(2000);
+    final LifeEvent lifeEvent = new LifeEvent(date(1990, DateTimePrecision.BEFORE), this.death);
+    this.tree.setLifeEventActors(lifeEvent, Set.of(person));
+    assertEquals(List.of("death_before_birth"), this.check());
+  }
+
+  @Test
+  void childBornBeforeParent() {
+    final Person parent = this.newPerson(2000);
+    final Person child = this.newPerson(1990, parent);
+    final List<Finding> findings = this.tree.consistencyChecker().check();
+    assertEquals(1, findings.size());
+    assertEquals("child_born_before_parent", findings.get(0).ruleKey());
+    assertSame(child, findings.get(0).person());
+  }
+
+  @Test
+  void parentTooYoung() {
+    final Person parent = this.newPerson(2000);
+    this.newPerson(2010, parent);
+    assertEquals(List.of("parent_too_young"), this.check());
+  }
+
+  @Test
+  void parentOldEnough() {
+    final Person parent = this.newPerson(2000);
+    this.newPerson(2012, parent);
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void parentTooYoungRuleNegativeAgeError() {
+    assertThrows(IllegalArgumentException.class, () -> new ParentTooYoungRule(-1));
+  }
+
+  @Test
+  void duplicateUniqueEvent() {
+    final Person person = this.newPerson(2000);
+    final LifeEvent lifeEvent = this.newEvent(this.test, 2001, person);
+    assertTrue(this.check().isEmpty());
+    lifeEvent.setType(this.birth);
+    final List<Finding> findings = this.tree.consistencyChecker().check();
+    assertEquals(1, findings.size());
+    assertEquals("duplicate_unique_event", findings.get(0).ruleKey());
+    assertSame(person, findings.get(0).person());
+    assertNotNull(findings.get(0).lifeEvent());
+  }
+
+  @Test
+  void actorsCount() {
+    final LifeEvent lifeEvent = this.newEvent(this.test, 2000, this.newPerson(null), this.newPerson(null));
+    assertTrue(this.check().isEmpty());
+    lifeEvent.setType(this.death);
+    final List<Finding> findings = this.tree.consistencyChecker().check();
+    assertEquals(List.of("actors_count"), findings.stream().map(Finding::ruleKey).toList());
+    assertSame(lifeEvent, findings.get(0).lifeEvent());
+  }
+
+  @Test
+  void fixingDateRemovesFinding() {
+    final Person parent = this.newPerson(2000);
+    final Person child = this.newPerson(1990, parent);
+    assertEquals(List.of("child_born_before_parent"), this.check());
+    child.getLifeEventsAsActor().get(0).setDate(date(2030, DateTimePrecision.EXACT));
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void newParentAddsFinding() {
+    final Person parent = this.newPerson(2000);
+    final Person child = this.newPerson(1990);
+    assertTrue(this.check().isEmpty());
+    child.addParent(parent, ParentalRelationType.BIOLOGICAL_PARENT);
+    assertEquals(List.of("child_born_before_parent"), this.check());
+    child.removeParent(parent);
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void removingPersonRemovesFindings() {
+    this.newPerson(null);
+    final Person person = this.newPerson(2000);
+    this.newEvent(this.death, 1990, person);
+    assertEquals(List.of("death_before_birth"), this.check());
+    this.tree.removePerson(person);
+    assertTrue(this.check().isEmpty());
+  }
+
+  @Test
+  void onlyChangedPersonsAndRelativesAreCheckedAgain() {
+    final Set<Person> checked = ConcurrentHashMap.newKeySet();
+    final ConsistencyChecker checker = new ConsistencyChecker(this.tree, List.of(new ConsistencyRule() {
+      @Override
+      public String key() {
+        return "test";
+      }
+
+      @Override
+      public void check(Person person, Consumer<Finding> reporter) {
+        checked.add(person);
+      }
+    }));
+    final Person grandparent = this.newPerson(1900);
+    final Person parent = this.newPerson(1930, grandparent);
+    final Person child = this.newPerson(1960, parent);
+    final Person other = this.newPerson(1970);
+    checker.check();
+    assertEquals(Set.of(grandparent, parent, child, other), checked);
+
+    checked.clear();
+    parent.getLifeEventsAsActor().get(0).setDate(date(1931, DateTimePrecision.EXACT));
+    checker.check();
+    assertEquals(Set.of(grandparent, parent, child), checked);
+
+    checked.clear();
+    checker.check();
+    assertTrue(checked.isEmpty());
+
+    checker.invalidate();
+    checker.check();
+    assertEquals(4, checked.size());
+  }
+
+  @Test
+  void largeTreeIsCheckedInParallel() {
+    final AtomicInteger count = new AtomicInteger();
+    final List<ConsistencyRule> rules = new ArrayList<>(ConsistencyChecker.defaultRules());
+    rules.add(new ConsistencyRule() {
+      @Override
+      public String key() {
+        return "test";
+      }
+
+      @Override
+      public void check(Person person, Consumer<Finding> reporter) {
+        count.incrementAndGet();
+      }
+    });
+    final ConsistencyChecker checker = new ConsistencyChecker(this.tree, rules);
+    // Each person is born one year before their parent
+    final List<Person> persons = new ArrayList<>();
+    Person parent = this.newPerson(3000);
+    persons.add(parent);
+    for (int i = 1; i < 2000; i++) {
+      parent = this.newPerson(3000 - i, parent);
+      persons.add(parent);
+    }
+    final List<Finding> findings = checker.check();
+    assertEquals(2000, count.get());
+    assertEquals(1999, findings.size());
+    // Findings are in the order persons were added
+    assertEquals(persons.subList(1, persons.size()), findings.stream().map(Finding::person).toList());
+  }
+}
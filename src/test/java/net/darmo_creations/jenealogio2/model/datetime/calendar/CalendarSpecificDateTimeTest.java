@@ -0,0 +1,46 @@
+package net.darmo_creations.jenealogio2.model.datetime.calendar;
+
+import org.junit.jupiter.api.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarSpecificDateTimeTest {
+  private static final List<Calendar<?>> CALENDARS = List.of(
+      Calendars.GREGORIAN,
+      Calendars.JULIAN,
+      Calendars.HEBREW,
+      Calendars.FRENCH_REPUBLICAN_CALENDAR,
+      Calendars.FRENCH_REPUBLICAN_DECIMAL_CALENDAR,
+      Calendars.COPTIC
+  );
+
+  @Test
+  void compareToMatchesISO8601Ordering() {
+    final List<CalendarSpecificDateTime> dates = new ArrayList<>();
+    for (final Calendar<?> calendar : CALENDARS) {
+      dates.add(calendar.convertDate(LocalDateTime.of(1795, 3, 1, 12, 30), true));
+      dates.add(calendar.convertDate(LocalDateTime.of(1795, 3, 1, 0, 0), false));
+      dates.add(calendar.convertDate(LocalDateTime.of(1800, 12, 31, 23, 59), true));
+    }
+    for (final CalendarSpecificDateTime d1 : dates)
+      for (final CalendarSpecificDateTime d2 : dates)
+        assertEquals(
+            Integer.signum(d1.toISO8601Date().compareTo(d2.toISO8601Date())),
+            Integer.signum(d1.compareTo(d2)),
+            d1 + " " + d2
+        );
+  }
+
+  @Test
+  void compareToIsStableAcrossCalls() {
+    final var d1 = Calendars.GREGORIAN.getDate(null, 2024, 1, 1, null, null);
+    final var d2 = Calendars.GREGORIAN.getDate(null, 2024, 1, 2, null, null);
+    assertTrue(d1.compareTo(d2) < 0);
+    assertTrue(d1.compareTo(d2) < 0);
+    assertTrue(d2.compareTo(d1) > 0);
+    assertEquals(0, d1.compareTo(Calendars.GREGORIAN.getDate(null, 2024, 1, 1, null, null)));
+  }
+}
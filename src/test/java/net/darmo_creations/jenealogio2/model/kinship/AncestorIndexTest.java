@@ -0,0 +1,109 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AncestorIndexTest {
+  private Person root, parent1, parent2, grandparent;
+  private AncestorIndex index;
+
+  @BeforeEach
+  void setUp() {
+    this.root = new Person();
+    this.parent1 = new Person();
+    this.parent2 = new Person();
+    this.grandparent = new Person();
+    this.root.addParent(this.parent1, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.root.addParent(this.parent2, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.parent1.addParent(this.grandparent, ParentalRelationType.BIOLOGICAL_PARENT);
+    // Implex: the grandparent is also the root’s adoptive parent
+    this.root.addParent(this.grandparent, ParentalRelationType.ADOPTIVE_PARENT);
+    this.index = this.buildIndex(Lineage.ADOPTIVE);
+  }
+
+  private AncestorIndex buildIndex(@SuppressWarnings("SameParameterValue") Lineage lineage) {
+    return new AncestorIndex(List.of(this.root, this.parent1, this.parent2, this.grandparent), lineage.relationTypes());
+  }
+
+  private int n(Person person) {
+    return this.index.numberOf(person);
+  }
+
+  @Test
+  void size() {
+    assertEquals(4, this.index.size());
+  }
+
+  @Test
+  void numberOfUnknownPerson() {
+    assertEquals(-1, this.index.numberOf(new Person()));
+  }
+
+  @Test
+  void person() {
+    assertSame(this.parent2, this.index.person(this.n(this.parent2)));
+  }
+
+  @Test
+  void distanceKeepsShortestPath() {
+    assertEquals(1, this.index.distance(this.n(this.root), this.n(this.grandparent)));
+  }
+
+  @Test
+  void distanceToSelf() {
+    assertEquals(0, this.index.distance(this.n(this.root), this.n(this.root)));
+  }
+
+  @Test
+  void distanceToNonAncestor() {
+    assertEquals(-1, this.index.distance(this.n(this.parent2), this.n(this.grandparent)));
+    assertEquals(-1, this.index.distance(this.n(this.grandparent), this.n(this.root)));
+  }
+
+  @Test
+  void depthIsLongestPath() {
+    assertEquals(2, this.index.depth(this.n(this.root)));
+    assertEquals(0, this.index.depth(this.n(this.grandparent)));
+  }
+
+  @Test
+  void ancestorsAndSelfAreSorted() {
+    final long[] ancestors = this.index.ancestorsAndSelf(this.n(this.root));
+    assertEquals(4, ancestors.length);
+    for (int i = 1; i < ancestors.length; i++)
+      assertTrue(AncestorIndex.number(ancestors[i - 1]) < AncestorIndex.number(ancestors[i]));
+  }
+
+  @Test
+  void children() {
+    final int[] children = this.index.children(this.n(this.grandparent));
+    Arrays.sort(children);
+    final int[] expected = {this.n(this.root), this.n(this.parent1)};
+    Arrays.sort(expected);
+    assertArrayEquals(expected, children);
+  }
+
+  @Test
+  void geneticLineageIgnoresAdoptiveParents() {
+    this.index = new AncestorIndex(List.of(this.root, this.parent1, this.parent2, this.grandparent),
+        Lineage.GENETIC.relationTypes());
+    assertEquals(2, this.index.distance(this.n(this.root), this.n(this.grandparent)));
+  }
+
+  @Test
+  void noCycles() {
+    assertFalse(this.index.hasCycles());
+  }
+
+  @Test
+  void cyclesAreIgnored() {
+    this.grandparent.addParent(this.root, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.index = this.buildIndex(Lineage.ADOPTIVE);
+    assertTrue(this.index.hasCycles());
+    assertEquals(1, this.index.distance(this.n(this.root), this.n(this.parent2)));
+  }
+}
@@ -0,0 +1,204 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static net.darmo_creations.jenealogio2.model.PersonTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KinshipCalculatorTest {
+  private FamilyTree tree;
+  private KinshipCalculator kinship;
+  private Person grandfather, grandmother;
+  private Person father, mother, uncle, aunt;
+  private Person child1, child2, cousin, cousinChild;
+
+  /*
+   * grandfather + grandmother
+   *            |
+   *     +------+------+
+   *     |             |
+   *   father        uncle + aunt
+   *  + mother         |
+   *     |           cousin
+   *  +--+---+         |
+   *  |      |     cousinChild
+   * child1 child2
+   */
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    this.grandfather = newPerson(this.tree);
+    this.grandmother = newPerson(this.tree);
+    this.father = newPerson(this.tree, this.grandfather, this.grandmother);
+    this.mother = newPerson(this.tree);
+    this.uncle = newPerson(this.tree, this.grandfather, this.grandmother);
+    this.aunt = newPerson(this.tree);
+    this.child1 = newPerson(this.tree, this.father, this.mother);
+    this.child2 = newPerson(this.tree, this.father, this.mother);
+    this.cousin = newPerson(this.tree, this.uncle, this.aunt);
+    this.cousinChild = newPerson(this.tree, this.cousin);
+    this.kinship = this.tree.kinship();
+  }
+
+  private Relationship relationship(Person person1, Person person2) {
+    return this.kinship.relationship(person1, person2).orElseThrow();
+  }
+
+  @Test
+  void kinshipIsCached() {
+    assertSame(this.kinship, this.tree.kinship());
+  }
+
+  @Test
+  void self() {
+    final Relationship relationship = this.relationship(this.child1, this.child1);
+    assertEquals(Relationship.Kind.SELF, relationship.kind());
+  }
+
+  @Test
+  void parent() {
+    final Relationship relationship = this.relationship(this.father, this.child1);
+    assertEquals(Relationship.Kind.ANCESTOR, relationship.kind());
+    assertEquals(1, relationship.removed());
+    assertEquals(Set.of(this.father), relationship.commonAncestors());
+  }
+
+  @Test
+  void grandchild() {
+    final Relationship relationship = this.relationship(this.child1, this.grandmother);
+    assertEquals(Relationship.Kind.DESCENDANT, relationship.kind());
+    assertEquals(2, relationship.removed());
+  }
+
+  @Test
+  void siblings() {
+    final Relationship relationship = this.relationship(this.child1, this.child2);
+    assertEquals(Relationship.Kind.SIBLING, relationship.kind());
+    assertFalse(relationship.half());
+    assertEquals(Set.of(this.father, this.mother), relationship.commonAncestors());
+  }
+
+  @Test
+  void halfSiblings() {
+    final Person halfSibling = newPerson(this.tree, this.father, newPerson(this.tree));
+    final Relationship relationship = this.relationship(this.child1, halfSibling);
+    assertEquals(Relationship.Kind.SIBLING, relationship.kind());
+    assertTrue(relationship.half());
+    assertEquals(Set.of(this.father), relationship.commonAncestors());
+  }
+
+  @Test
+  void siblingsWithUnknownParentAreNotHalf() {
+    final Person sibling1 = newPerson(this.tree, this.aunt);
+    final Person sibling2 = newPerson(this.tree, this.aunt);
+    assertFalse(this.relationship(sibling1, sibling2).half());
+  }
+
+  @Test
+  void uncle() {
+    final Relationship relationship = this.relationship(this.uncle, this.child1);
+    assertEquals(Relationship.Kind.PIBLING, relationship.kind());
+    assertEquals(Set.of(this.grandfather, this.grandmother), relationship.commonAncestors());
+  }
+
+  @Test
+  void nephew() {
+    assertEquals(Relationship.Kind.NIBLING, this.relationship(this.child1, this.uncle).kind());
+  }
+
+  @Test
+  void firstCousins() {
+    final Relationship relationship = this.relationship(this.child1, this.cousin);
+    assertEquals(Relationship.Kind.COUSIN, relationship.kind());
+    assertEquals(1, relationship.cousinDegree());
+    assertEquals(0, relationship.removed());
+  }
+
+  @Test
+  void firstCousinsOnceRemoved() {
+    final Relationship relationship = this.relationship(this.cousinChild, this.child2);
+    assertEquals(Relationship.Kind.COUSIN, relationship.kind());
+    assertEquals(1, relationship.cousinDegree());
+    assertEquals(1, relationship.removed());
+    assertEquals(3, relationship.firstGenerations());
+    assertEquals(2, relationship.secondGenerations());
+  }
+
+  @Test
+  void notRelated() {
+    assertTrue(this.kinship.relationship(this.mother, this.aunt).isEmpty());
+  }
+
+  @Test
+  void lowestCommonAncestors() {
+    assertEquals(Set.of(this.grandfather, this.grandmother),
+        this.kinship.lowestCommonAncestors(this.cousinChild, this.child1, Lineage.GENETIC));
+  }
+
+  @Test
+  void lowestCommonAncestorsOfAncestor() {
+    assertEquals(Set.of(this.uncle), this.kinship.lowestCommonAncestors(this.cousinChild, this.uncle, Lineage.GENETIC));
+  }
+
+  @Test
+  void adoptiveRelationship() {
+    final Person adopted = new Person();
+    this.tree.addPerson(adopted);
+    adopted.addParent(this.uncle, ParentalRelationType.ADOPTIVE_PARENT);
+    assertTrue(this.kinship.relationships(adopted, this.child1, Lineage.GENETIC).isEmpty());
+    final Relationship relationship = this.relationship(adopted, this.child1);
+    assertEquals(Lineage.ADOPTIVE, relationship.lineage());
+    assertEquals(Relationship.Kind.COUSIN, relationship.kind());
+  }
+
+  @Test
+  void biologicalRelationshipsAreNotDuplicatedInAdoptiveLineage() {
+    final List<Relationship> relationships = this.kinship.relationships(this.child1, this.child2);
+    assertEquals(1, relationships.size());
+    assertEquals(Lineage.GENETIC, relationships.get(0).lineage());
+  }
+
+  @Test
+  void godparent() {
+    final Person godchild = new Person();
+    this.tree.addPerson(godchild);
+    godchild.addParent(this.aunt, ParentalRelationType.GODPARENT);
+    final Relationship relationship = this.relationship(this.aunt, godchild);
+    assertEquals(Lineage.GODPARENT, relationship.lineage());
+    assertEquals(Relationship.Kind.ANCESTOR, relationship.kind());
+  }
+
+  @Test
+  void surrogateParentIsNotRelated() {
+    final Person child = new Person();
+    this.tree.addPerson(child);
+    child.addParent(this.aunt, ParentalRelationType.SURROGATE_PARENT);
+    assertTrue(this.kinship.relationship(this.aunt, child).isEmpty());
+  }
+
+  @Test
+  void indexIsInvalidatedWhenParentsChange() {
+    assertTrue(this.kinship.relationship(this.mother, this.aunt).isEmpty());
+    this.mother.addParent(this.aunt, ParentalRelationType.BIOLOGICAL_PARENT);
+    assertEquals(Relationship.Kind.ANCESTOR, this.relationship(this.aunt, this.mother).kind());
+    this.mother.removeParent(this.aunt);
+    assertTrue(this.kinship.relationship(this.mother, this.aunt).isEmpty());
+  }
+
+  @Test
+  void indexIsInvalidatedWhenPersonIsAdded() {
+    assertEquals(Relationship.Kind.SIBLING, this.relationship(this.child1, this.child2).kind());
+    final Person child3 = newPerson(this.tree, this.father, this.mother);
+    assertEquals(Relationship.Kind.SIBLING, this.relationship(child3, this.child1).kind());
+  }
+
+  @Test
+  void cyclesAreTolerated() {
+    this.grandfather.addParent(this.child1, ParentalRelationType.BIOLOGICAL_PARENT);
+    assertTrue(this.kinship.index(Lineage.GENETIC).hasCycles());
+    assertEquals(Relationship.Kind.SIBLING, this.relationship(this.child1, this.child2).kind());
+  }
+}
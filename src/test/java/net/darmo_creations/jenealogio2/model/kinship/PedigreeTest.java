@@ -0,0 +1,159 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.math.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PedigreeTest {
+  private FamilyTree tree;
+  private Gender male, female;
+  private Person root, father, mother, grandfather1, grandmother1, grandfather2, grandmother2;
+  private Person greatGrandfather, greatGrandmother;
+
+  /*
+   * The root’s parents are first cousins: grandfather1 and grandmother2 are siblings.
+   */
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    this.male = this.tree.genderRegistry().getEntry(new RegistryEntryKey("builtin:male"));
+    this.female = this.tree.genderRegistry().getEntry(new RegistryEntryKey("builtin:female"));
+    this.greatGrandfather = this.newPerson(this.male);
+    this.greatGrandmother = this.newPerson(this.female);
+    // Female parent first to check that parents are sorted by gender
+    this.grandfather1 = this.newPerson(this.male, this.greatGrandmother, this.greatGrandfather);
+    this.grandmother1 = this.newPerson(this.female);
+    this.grandfather2 = this.newPerson(this.male);
+    this.grandmother2 = this.newPerson(this.female, this.greatGrandfather, this.greatGrandmother);
+    this.father = this.newPerson(this.male, this.grandfather1, this.grandmother1);
+    this.mother = this.newPerson(this.female, this.grandmother2, this.grandfather2);
+    this.root = this.newPerson(null, this.mother, this.father);
+  }
+
+  private Person newPerson(Gender gender, final Person... parents) {
+    final Person person = PersonTestUtils.newPerson(this.tree, parents);
+    person.setAssignedGenderAtBirth(gender);
+    return person;
+  }
+
+  private static List<BigInteger> numbers(long... numbers) {
+    return Arrays.stream(numbers).mapToObj(BigInteger::valueOf).toList();
+  }
+
+  @Test
+  void rootIsNumberOne() {
+    final Pedigree pedigree = new Pedigree(this.root);
+    assertSame(this.root, pedigree.root());
+    assertEquals(numbers(1), pedigree.sosaNumbers(this.root));
+  }
+
+  @Test
+  void sosaNumbers() {
+    final Pedigree pedigree = new Pedigree(this.root);
+    assertEquals(numbers(2), pedigree.sosaNumbers(this.father));
+    assertEquals(numbers(3), pedigree.sosaNumbers(this.mother));
+    assertEquals(numbers(4), pedigree.sosaNumbers(this.grandfather1));
+    assertEquals(numbers(5), pedigree.sosaNumbers(this.grandmother1));
+    assertEquals(numbers(6), pedigree.sosaNumbers(this.grandfather2));
+    assertEquals(numbers(7), pedigree.sosaNumbers(this.grandmother2));
+  }
+
+  @Test
+  void collapsedAncestorsHaveSeveralNumbers() {
+    final Pedigree pedigree = new Pedigree(this.root);
+    assertEquals(numbers(8, 14), pedigree.sosaNumbers(this.greatGrandfather));
+    assertEquals(numbers(9, 15), pedigree.sosaNumbers(this.greatGrandmother));
+    assertEquals(BigInteger.TWO, pedigree.lineCount(this.greatGrandfather));
+  }
+
+  @Test
+  void numbersAreLimited() {
+    final Pedigree pedigree = new Pedigree(this.root, 1);
+    assertEquals(numbers(8), pedigree.sosaNumbers(this.greatGrandfather));
+    assertEquals(BigInteger.TWO, pedigree.lineCount(this.greatGrandfather));
+  }
+
+  @Test
+  void nonAncestor() {
+    final Pedigree pedigree = new Pedigree(this.father);
+    assertTrue(pedigree.sosaNumbers(this.mother).isEmpty());
+    assertEquals(BigInteger.ZERO, pedigree.lineCount(this.mother));
+  }
+
+  @Test
+  void singleMotherIsOnMotherSide() {
+    final Person child = this.newPerson(null, this.mother);
+    assertEquals(numbers(3), new Pedigree(child).sosaNumbers(this.mother));
+  }
+
+  @Test
+  void ancestors() {
+    assertEquals(8, new Pedigree(this.root).ancestors().size());
+  }
+
+  @Test
+  void generations() {
+    final List<Pedigree.Generation> generations = new Pedigree(this.root).generations();
+    assertEquals(List.of(
+        new Pedigree.Generation(1, BigInteger.TWO, 2),
+        new Pedigree.Generation(2, BigInteger.valueOf(4), 4),
+        new Pedigree.Generation(3, BigInteger.valueOf(4), 2)
+    ), generations);
+    assertEquals(0.0, generations.get(1).implex());
+    assertEquals(0.5, generations.get(2).implex());
+    assertEquals(0.5, generations.get(2).completeness());
+    assertEquals(BigInteger.valueOf(8), generations.get(2).theoreticalAncestors());
+  }
+
+  @Test
+  void implex() {
+    assertEquals(0.2, new Pedigree(this.root).implex(), 1e-9);
+  }
+
+  @Test
+  void noAncestors() {
+    final Pedigree pedigree = new Pedigree(this.greatGrandfather);
+    assertTrue(pedigree.generations().isEmpty());
+    assertEquals(0.0, pedigree.implex());
+  }
+
+  @Test
+  void manyCollapsedGenerations() {
+    // Each generation is a couple whose children are the previous one
+    Person man = this.newPerson(this.male);
+    Person woman = this.newPerson(this.female);
+    final Person child = this.newPerson(null, man, woman);
+    for (int i = 1; i < 100; i++) {
+      final Person nextMan = this.newPerson(this.male);
+      final Person nextWoman = this.newPerson(this.female);
+      for (final Person person : List.of(man, woman)) {
+        person.addParent(nextMan, ParentalRelationType.BIOLOGICAL_PARENT);
+        person.addParent(nextWoman, ParentalRelationType.BIOLOGICAL_PARENT);
+      }
+      man = nextMan;
+      woman = nextWoman;
+    }
+    final Pedigree pedigree = new Pedigree(child, 2);
+    assertEquals(100, pedigree.generations().size());
+    assertEquals(BigInteger.ONE.shiftLeft(99), pedigree.lineCount(man));
+    final BigInteger first = BigInteger.ONE.shiftLeft(100);
+    assertEquals(List.of(first, first.add(BigInteger.TWO)), pedigree.sosaNumbers(man));
+    assertFalse(pedigree.hasCycles());
+  }
+
+  @Test
+  void cyclesAreDetected() {
+    this.greatGrandfather.addParent(this.father, ParentalRelationType.BIOLOGICAL_PARENT);
+    final Pedigree pedigree = new Pedigree(this.root);
+    assertTrue(pedigree.hasCycles());
+  }
+
+  @Test
+  void invalidMaxNumbersError() {
+    assertThrows(IllegalArgumentException.class, () -> new Pedigree(this.root, 0));
+  }
+}
@@ -0,0 +1,125 @@
+package net.darmo_creations.jenealogio2.model.kinship;
+
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraversalTest {
+  private FamilyTree tree;
+  private Person grandparent, parent1, parent2, godparent, child;
+  private Traversal traversal;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new FamilyTree("tree");
+    this.grandparent = new Person();
+    this.parent1 = new Person();
+    this.parent2 = new Person();
+    this.godparent = new Person();
+    this.child = new Person();
+    this.parent1.addParent(this.grandparent, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.parent2.addParent(this.grandparent, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.child.addParent(this.parent1, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.child.addParent(this.parent2, ParentalRelationType.BIOLOGICAL_PARENT);
+    this.child.addParent(this.godparent, ParentalRelationType.GODPARENT);
+    this.traversal = this.tree.traversal(ParentalRelationType.GENETIC_RELATIONS);
+  }
+
+  @Test
+  void relationTypes() {
+    assertEquals(Set.of(ParentalRelationType.GENETIC_RELATIONS), this.traversal.relationTypes());
+  }
+
+  @Test
+  void parentsAreFiltered() {
+    assertEquals(Set.of(this.parent1, this.parent2), new HashSet<>(this.traversal.parents(this.child)));
+  }
+
+  @Test
+  void parentsAreMemoized() {
+    assertSame(this.traversal.parents(this.child), this.traversal.parents(this.child));
+  }
+
+  @Test
+  void children() {
+    assertEquals(Set.of(this.parent1, this.parent2), new HashSet<>(this.traversal.children(this.grandparent)));
+  }
+
+  @Test
+  void ancestorsAreBreadthFirstWithoutDuplicates() {
+    final List<Traversal.Relative> ancestors = this.traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).toList();
+    assertEquals(3, ancestors.size());
+    assertEquals(Set.of(this.parent1, this.parent2), Set.of(ancestors.get(0).person(), ancestors.get(1).person()));
+    assertEquals(new Traversal.Relative(this.grandparent, 2), ancestors.get(2));
+  }
+
+  @Test
+  void ancestorsAreBounded() {
+    assertEquals(2, this.traversal.ancestors(this.child, 1).count());
+    assertEquals(0, this.traversal.ancestors(this.child, 0).count());
+  }
+
+  @Test
+  void boundedThenUnboundedAncestors() {
+    assertEquals(2, this.traversal.ancestors(this.child, 1).count());
+    assertEquals(3, this.traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).count());
+    assertEquals(2, this.traversal.ancestors(this.child, 1).count());
+  }
+
+  @Test
+  void descendants() {
+    final List<Traversal.Relative> descendants = this.traversal.descendants(this.grandparent, Traversal.ALL_GENERATIONS).toList();
+    assertEquals(3, descendants.size());
+    assertEquals(new Traversal.Relative(this.child, 2), descendants.get(2));
+  }
+
+  @Test
+  void otherRelationTypes() {
+    final Traversal traversal = this.tree.traversal(ParentalRelationType.GODPARENT);
+    assertEquals(List.of(new Traversal.Relative(this.godparent, 1)),
+        traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).toList());
+  }
+
+  @Test
+  void isAncestor() {
+    assertTrue(this.traversal.isAncestor(this.grandparent, this.child));
+    assertFalse(this.traversal.isAncestor(this.godparent, this.child));
+    assertFalse(this.traversal.isAncestor(this.child, this.grandparent));
+  }
+
+  @Test
+  void negativeGenerationsError() {
+    assertThrows(IllegalArgumentException.class, () -> this.traversal.ancestors(this.child, -1));
+  }
+
+  @Test
+  void noCycles() {
+    this.traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).count();
+    assertFalse(this.traversal.hasCycles());
+  }
+
+  @Test
+  void cyclesAreDetected() {
+    this.grandparent.addParent(this.child, ParentalRelationType.BIOLOGICAL_PARENT);
+    final Traversal traversal = this.tree.traversal(ParentalRelationType.GENETIC_RELATIONS);
+    assertEquals(3, traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).count());
+    assertTrue(traversal.hasCycles());
+  }
+
+  @Test
+  void cyclesNotThroughStartAreDetected() {
+    this.grandparent.addParent(this.parent1, ParentalRelationType.BIOLOGICAL_PARENT);
+    final Traversal traversal = this.tree.traversal(ParentalRelationType.GENETIC_RELATIONS);
+    assertEquals(3, traversal.ancestors(this.child, Traversal.ALL_GENERATIONS).count());
+    assertTrue(traversal.hasCycles());
+  }
+
+  @Test
+  void sharedAncestorsAreNotCycles() {
+    this.traversal.descendants(this.grandparent, Traversal.ALL_GENERATIONS).count();
+    assertFalse(this.traversal.hasCycles());
+  }
+}
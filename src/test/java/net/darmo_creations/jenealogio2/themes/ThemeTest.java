@@ -0,0 +1,53 @@
+package net.darmo_creations.jenealogio2.themes;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThemeTest {
+  private Theme theme;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    // Reload themes to reset caches
+    Theme.loadThemes();
+    this.theme = Theme.getTheme(Theme.DEFAULT_THEME_ID).orElseThrow();
+  }
+
+  @Test
+  void getIconImageReturnsSameImage() {
+    assertSame(
+        this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL),
+        this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL)
+    );
+  }
+
+  @Test
+  void getIconImageDifferentSizes() {
+    assertNotSame(
+        this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL),
+        this.theme.getIconImage(Icon.SAVE, Icon.Size.BIG)
+    );
+  }
+
+  @Test
+  void getIconImageCountsHitsAndMisses() {
+    this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL);
+    this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL);
+    this.theme.getIconImage(Icon.SAVE, Icon.Size.SMALL);
+    this.theme.getIconImage(Icon.UNDO, Icon.Size.SMALL);
+    assertEquals(2, this.theme.iconsCacheHits());
+    assertEquals(2, this.theme.iconsCacheMisses());
+  }
+
+  @Test
+  void preloadIconsDoesNotCountAsMisses() {
+    this.theme.preloadIcons();
+    assertEquals(0, this.theme.iconsCacheMisses());
+    assertNotNull(this.theme.getIconImage(Icon.TREE_ROOT, Icon.Size.SMALL));
+    assertEquals(1, this.theme.iconsCacheHits());
+    assertEquals(0, this.theme.iconsCacheMisses());
+  }
+}
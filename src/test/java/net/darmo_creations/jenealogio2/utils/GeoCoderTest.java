@@ -0,0 +1,142 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import net.darmo_creations.jenealogio2.io.*;
+import net.darmo_creations.jenealogio2.model.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoCoderTest {
+  private static final LatLon PARIS = new LatLon(48.8588897, 2.320041);
+
+  private Path directory;
+  private Map<String, LatLon> places;
+  private AtomicInteger requestsCount;
+  private CompletableFuture<Void> response;
+  private GeoCoder.Endpoint endpoint;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("jenealogio2-test");
+    this.places = new ConcurrentHashMap<>(Map.of("paris", PARIS));
+    this.requestsCount = new AtomicInteger();
+    this.response = CompletableFuture.completedFuture(null);
+    this.endpoint = address -> {
+      this.requestsCount.incrementAndGet();
+      if (address.equals("error"))
+        return CompletableFuture.failedFuture(new IOException("error"));
+      return this.response.thenApply(v -> Optional.ofNullable(this.places.get(address)));
+    };
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteRecursively(this.directory);
+  }
+
+  @Test
+  void geoCodeCachesFoundCoordinates() {
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    assertEquals(Optional.of(PARIS), geoCoder.geoCode("Paris").join());
+    assertEquals(Optional.of(PARIS), geoCoder.geoCode(" paris ").join());
+    assertEquals(1, this.requestsCount.get());
+  }
+
+  @Test
+  void geoCodeRemembersNotFoundAddresses() {
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    assertEquals(Optional.empty(), geoCoder.geoCode("Atlantis").join());
+    assertEquals(Optional.empty(), geoCoder.geoCode("Atlantis").join());
+    assertEquals(1, this.requestsCount.get());
+  }
+
+  @Test
+  void geoCodeDoesNotCacheErrors() {
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    assertEquals(Optional.empty(), geoCoder.geoCode("error").join());
+    assertEquals(Optional.empty(), geoCoder.geoCode("error").join());
+    assertEquals(2, this.requestsCount.get());
+  }
+
+  @Test
+  void concurrentLookupsShareRequest() {
+    this.response = new CompletableFuture<>();
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    final var lookup1 = geoCoder.geoCode("Paris");
+    final var lookup2 = geoCoder.geoCode("PARIS");
+    this.response.complete(null);
+    assertEquals(Optional.of(PARIS), lookup1.join());
+    assertEquals(Optional.of(PARIS), lookup2.join());
+    assertEquals(1, this.requestsCount.get());
+  }
+
+  @Test
+  void cacheIsKeptBetweenInstances() {
+    final Path cacheFile = this.directory.resolve("cache.json");
+    new GeoCoder(this.endpoint, cacheFile, 1000).geoCode("Paris").join();
+    assertTrue(Files.exists(cacheFile));
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, cacheFile, 1000);
+    assertEquals(Optional.of(PARIS), geoCoder.geoCode("Paris").join());
+    assertEquals(1, this.requestsCount.get());
+  }
+
+  @Test
+  void invalidCacheFileIsIgnored() throws IOException {
+    final Path cacheFile = this.directory.resolve("cache.json");
+    Files.writeString(cacheFile, "{\"paris\": 42");
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, cacheFile, 1000);
+    assertEquals(Optional.of(PARIS), geoCoder.geoCode("Paris").join());
+    assertEquals(1, this.requestsCount.get());
+  }
+
+  @Test
+  void geoCodeIsRateLimited() {
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 10);
+    final long start = System.nanoTime();
+    geoCoder.geoCode("a").join();
+    geoCoder.geoCode("b").join();
+    geoCoder.geoCode("c").join();
+    assertTrue(System.nanoTime() - start >= 200_000_000L);
+  }
+
+  @Test
+  void geoCodeAllReturnsFoundAddresses() {
+    this.places.put("lyon", new LatLon(45.7578137, 4.8320114));
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    final List<Integer> progress = new ArrayList<>();
+    final Map<String, LatLon> results = geoCoder.geoCodeAll(List.of("Paris", "Atlantis", "Lyon", "Paris"),
+        (phase, done, total) -> progress.add(done));
+    assertEquals(Map.of("Paris", PARIS, "Lyon", new LatLon(45.7578137, 4.8320114)), results);
+    assertEquals(List.of(0, 1, 2, 3), progress);
+    assertEquals(3, this.requestsCount.get());
+  }
+
+  @Test
+  void geoCodeAllCanBeCancelled() {
+    final GeoCoder geoCoder = new GeoCoder(this.endpoint, null, 1000);
+    assertThrows(CancellationException.class, () -> geoCoder.geoCodeAll(List.of("Paris"), new ProgressMonitor() {
+      @Override
+      public void onProgress(ProgressMonitor.Phase phase, int done, int total) {
+      }
+
+      @Override
+      public boolean isCancellationRequested() {
+        return true;
+      }
+    }));
+    assertEquals(0, this.requestsCount.get());
+  }
+
+  @Test
+  void nominatimResponseParsing() {
+    assertEquals(Optional.of(PARIS), GeoCoder.NominatimEndpoint.parseResponse(
+        "[{\"place_id\": 1, \"lat\": \"48.8588897\", \"lon\": \"2.320041\"}, {\"lat\": \"0\", \"lon\": \"0\"}]"));
+    assertEquals(Optional.empty(), GeoCoder.NominatimEndpoint.parseResponse("[]"));
+  }
+}
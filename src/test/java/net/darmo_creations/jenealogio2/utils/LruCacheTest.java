@@ -0,0 +1,79 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+  private LruCache<String, String> cache;
+
+  @BeforeEach
+  void setUp() {
+    this.cache = new LruCache<>(10, String::length);
+  }
+
+  @Test
+  void getReturnsPutValue() {
+    this.cache.put("a", "aaa");
+    assertEquals(Optional.of("aaa"), this.cache.get("a"));
+    assertEquals(3, this.cache.weight());
+  }
+
+  @Test
+  void getReturnsEmptyForUnknownKey() {
+    assertTrue(this.cache.get("a").isEmpty());
+  }
+
+  @Test
+  void putEvictsLeastRecentlyUsed() {
+    this.cache.put("a", "aaaa");
+    this.cache.put("b", "bbbb");
+    this.cache.get("a");
+    this.cache.put("c", "cccc");
+    assertTrue(this.cache.get("b").isEmpty());
+    assertTrue(this.cache.get("a").isPresent());
+    assertTrue(this.cache.get("c").isPresent());
+    assertEquals(8, this.cache.weight());
+  }
+
+  @Test
+  void putReplacesValue() {
+    this.cache.put("a", "aaaa");
+    this.cache.put("a", "a");
+    assertEquals(Optional.of("a"), this.cache.get("a"));
+    assertEquals(1, this.cache.weight());
+    assertEquals(1, this.cache.size());
+  }
+
+  @Test
+  void putIgnoresValuesHeavierThanMax() {
+    this.cache.put("a", "a".repeat(11));
+    assertTrue(this.cache.get("a").isEmpty());
+    assertEquals(0, this.cache.weight());
+  }
+
+  @Test
+  void remove() {
+    this.cache.put("a", "aaa");
+    this.cache.remove("a");
+    assertTrue(this.cache.get("a").isEmpty());
+    assertEquals(0, this.cache.weight());
+  }
+
+  @Test
+  void removeIf() {
+    this.cache.put("a1", "a");
+    this.cache.put("a2", "aa");
+    this.cache.put("b", "bbb");
+    this.cache.removeIf(key -> key.startsWith("a"));
+    assertEquals(1, this.cache.size());
+    assertEquals(3, this.cache.weight());
+  }
+
+  @Test
+  void negativeMaxWeightThrows() {
+    assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(-1, String::length));
+  }
+}
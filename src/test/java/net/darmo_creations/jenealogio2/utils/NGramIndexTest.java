@@ -0,0 +1,81 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NGramIndexTest {
+  private NGramIndex<Integer> index;
+
+  @BeforeEach
+  void setUp() {
+    this.index = new NGramIndex<>();
+    this.index.put(1, List.of("Jean", "Dupont"));
+    this.index.put(2, List.of("Jeanne", "Durand"));
+    this.index.put(3, List.of("Al"));
+  }
+
+  @Test
+  void searchLongQuery() {
+    assertEquals(Set.of(1, 2), this.index.search("jean"));
+    assertEquals(Set.of(2), this.index.search("anne"));
+  }
+
+  @Test
+  void searchShortQuery() {
+    assertEquals(Set.of(1, 2), this.index.search("du"));
+    assertEquals(Set.of(3), this.index.search("al"));
+  }
+
+  @Test
+  void searchEmptyQueryMatchesAll() {
+    assertEquals(Set.of(1, 2, 3), this.index.search(""));
+  }
+
+  @Test
+  void searchRequiresContiguousMatch() {
+    // Both trigrams of the query are present, but not next to each other
+    this.index.put(4, List.of("abcxbcd"));
+    assertTrue(this.index.search("abcd").isEmpty());
+    assertEquals(Set.of(4), this.index.search("bcxb"));
+  }
+
+  @Test
+  void searchDoesNotMatchAcrossTexts() {
+    assertTrue(this.index.search("jeandupont").isEmpty());
+  }
+
+  @Test
+  void searchIgnoresCaseAndAccents() {
+    this.index.put(4, List.of("Éloïse"));
+    assertEquals(Set.of(4), this.index.search("ELOISE"));
+  }
+
+  @Test
+  void putReplacesTexts() {
+    this.index.put(1, List.of("Martin"));
+    assertEquals(Set.of(2), this.index.search("jean"));
+    assertEquals(Set.of(1), this.index.search("mart"));
+  }
+
+  @Test
+  void remove() {
+    this.index.remove(1);
+    assertEquals(Set.of(2), this.index.search("jean"));
+    assertFalse(this.index.contains(1));
+    assertEquals(2, this.index.size());
+  }
+
+  @Test
+  void clear() {
+    this.index.clear();
+    assertTrue(this.index.search("").isEmpty());
+  }
+
+  @Test
+  void normalize() {
+    assertEquals("helene cafe", NGramIndex.normalize("Hélène CAFÉ"));
+  }
+}
@@ -0,0 +1,49 @@
+package net.darmo_creations.jenealogio2.utils;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+  private long now;
+  private TokenBucket bucket;
+
+  @BeforeEach
+  void setUp() {
+    this.now = 0;
+    this.bucket = new TokenBucket(2, 1, () -> this.now);
+  }
+
+  @Test
+  void reserveDoesNotWaitWhileTokensRemain() {
+    assertEquals(0, this.bucket.reserve());
+    assertEquals(0, this.bucket.reserve());
+  }
+
+  @Test
+  void reserveQueuesReservationsOnceEmpty() {
+    this.bucket.reserve();
+    this.bucket.reserve();
+    assertEquals(1_000_000_000L, this.bucket.reserve());
+    assertEquals(2_000_000_000L, this.bucket.reserve());
+  }
+
+  @Test
+  void bucketRefillsOverTime() {
+    this.bucket.reserve();
+    this.bucket.reserve();
+    this.now = 500_000_000L;
+    assertEquals(500_000_000L, this.bucket.reserve());
+    this.now = 10_000_000_000L;
+    assertEquals(0, this.bucket.reserve());
+    assertEquals(0, this.bucket.reserve());
+    // Never holds more than its capacity
+    assertEquals(1_000_000_000L, this.bucket.reserve());
+  }
+
+  @Test
+  void constructorRejectsInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+  }
+}